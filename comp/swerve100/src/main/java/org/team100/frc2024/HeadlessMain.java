@@ -0,0 +1,41 @@
+package org.team100.frc2024;
+
+import org.team100.lib.framework.HeadlessRunner;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Runs autonomous headless, faster than real time, and prints one result line.
+ *
+ * Usage:
+ *
+ * HeadlessMain [durationS]
+ *
+ * The simulation has no noise, so every run gives the same result.
+ */
+public final class HeadlessMain {
+    private static final double kDefaultDurationS = 15;
+
+    private HeadlessMain() {
+    }
+
+    public static void main(String... args) {
+        double durationS = args.length > 0 ? Double.parseDouble(args[0]) : kDefaultDurationS;
+
+        HeadlessRunner.initialize();
+        Robot robot = new Robot();
+        HeadlessRunner runner = new HeadlessRunner(robot);
+        runner.addFinal("x", () -> pose(robot).getX());
+        runner.addFinal("y", () -> pose(robot).getY());
+        runner.addFinal("heading", () -> pose(robot).getRotation().getRadians());
+        HeadlessRunner.Result result = runner.runAutonomous(durationS);
+        Util.println(result.toString());
+        robot.close();
+        HeadlessRunner.shutdown();
+    }
+
+    private static Pose2d pose(Robot robot) {
+        return robot.getDrive().getState().pose();
+    }
+}
@@ -15,6 +15,8 @@ import org.team100.lib.logging.LoggerFactory.BooleanLogger;
 import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.logging.LoggerFactory.IntLogger;
 import org.team100.lib.logging.LoggerFactory.StringLogger;
+import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
+import org.team100.lib.motor.StatusFramePlanner;
 import org.team100.lib.util.Memo;
 import org.team100.lib.util.Util;
 
@@ -112,6 +114,7 @@ public class Robot extends TimedRobot100 {
         m_jvmLogger.logMemoryUsage();
 
         Logging.instance().periodic();
+        StatusFramePlanner.periodic();
 
         if (Experiments.instance.enabled(Experiment.FlushOften)) {
             Util.warn("FLUSHING EVERY LOOP, DO NOT USE IN COMP");
@@ -119,6 +122,12 @@ public class Robot extends TimedRobot100 {
         }
     }
 
+    @Override
+    public void disabledInit() {
+        // tune the CAN signals to what the previous mode actually used.
+        StatusFramePlanner.apply();
+    }
+
     @Override
     public void disabledPeriodic() {
         m_log_mode.log(() -> "disabled");
@@ -191,6 +200,11 @@ public class Robot extends TimedRobot100 {
         DriverStation.silenceJoystickConnectionWarning(true);
     }
 
+    /** For headless simulation: the drive, after robotInit(). */
+    SwerveDriveSubsystem getDrive() {
+        return m_robotContainer.m_drive;
+    }
+
     private void banner() {
         StringBuilder b = new StringBuilder();
         b.append(kOrange);
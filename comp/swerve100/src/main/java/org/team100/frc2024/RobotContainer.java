@@ -32,6 +32,7 @@ import org.team100.frc2024.motion.shooter.TestShoot;
 import org.team100.lib.async.Async;
 import org.team100.lib.async.AsyncFactory;
 import org.team100.lib.commands.AllianceCommand;
+import org.team100.lib.commands.CommandProfiler;
 import org.team100.lib.commands.drivetrain.DriveToPoseSimple;
 import org.team100.lib.commands.drivetrain.DriveWithProfileRotation;
 import org.team100.lib.commands.drivetrain.FancyTrajectory;
@@ -54,6 +55,8 @@ import org.team100.lib.controller.drivetrain.HolonomicDriveControllerFactory;
 import org.team100.lib.controller.drivetrain.HolonomicFieldRelativeController;
 import org.team100.lib.controller.drivetrain.MinTimeDriveController;
 import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.experiments.Experiment;
+import org.team100.lib.experiments.Experiments;
 import org.team100.lib.follower.DrivePIDFFollower;
 import org.team100.lib.follower.DriveTrajectoryFollower;
 import org.team100.lib.follower.DriveTrajectoryFollowerFactory;
@@ -80,8 +83,8 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
 import org.team100.lib.motion.drivetrain.module.SwerveModuleCollection;
 import org.team100.lib.profile.HolonomicProfile;
-import org.team100.lib.sensors.Gyro;
 import org.team100.lib.sensors.GyroFactory;
+import org.team100.lib.sensors.SampledGyro;
 import org.team100.lib.swerve.AsymSwerveSetpointGenerator;
 import org.team100.lib.timing.ConstantConstraint;
 import org.team100.lib.trajectory.StraightLineTrajectory;
@@ -112,8 +115,11 @@ public class RobotContainer implements Glassy {
     // https://www.chiefdelphi.com/t/the-brushless-era-needs-sensible-default-current-limits/461056/51
     private static final double kDriveCurrentLimit = 50;
     private static final double kDriveStatorLimit = 100;
+    /** Commands slower than this are flagged by the profiler. */
+    private static final double kCommandBudgetS = 0.002;
 
     private final SwerveModuleCollection m_modules;
+    private final CommandProfiler m_profiler;
     private final Command m_auton;
     private final DrumShooter m_shooter;
     final SwerveDriveSubsystem m_drive;
@@ -133,6 +139,12 @@ public class RobotContainer implements Glassy {
 
         final LoggerFactory logger = logging.rootLogger;
 
+        m_profiler = new CommandProfiler(
+                logger,
+                () -> Experiments.instance.enabled(Experiment.ProfileCommands),
+                kCommandBudgetS,
+                10);
+
         final TrajectoryVisualization viz = new TrajectoryVisualization(fieldLogger);
         final DriverControl driverControl = new DriverControlProxy(logger, async);
         final OperatorControl operatorControl = new OperatorControlProxy(async);
@@ -155,7 +167,7 @@ public class RobotContainer implements Glassy {
                 kDriveCurrentLimit,
                 kDriveStatorLimit,
                 swerveKinodynamics);
-        final Gyro gyro = GyroFactory.get(
+        final SampledGyro gyro = GyroFactory.get(
                 driveLog,
                 swerveKinodynamics,
                 m_modules,
@@ -174,7 +186,8 @@ public class RobotContainer implements Glassy {
         final VisionDataProvider24 visionDataProvider = new VisionDataProvider24(
                 driveLog,
                 m_layout,
-                poseEstimator);
+                poseEstimator,
+                t -> gyro.getYawAt(t).map(poseEstimator::headingFromGyro));
 
         final AsymSwerveSetpointGenerator setpointGenerator = new AsymSwerveSetpointGenerator(
                 driveLog,
@@ -496,20 +509,20 @@ public class RobotContainer implements Glassy {
         // DEFAULT COMMANDS
         //
 
-        m_drive.setDefaultCommand(driveManually);
-        m_shooter.setDefaultCommand(m_shooter.run(m_shooter::stop));
-        feeder.setDefaultCommand(feeder.run(feeder::stop));
-        intake.setDefaultCommand(intake.run(intake::stop));
+        m_drive.setDefaultCommand(m_profiler.instrument(driveManually));
+        m_shooter.setDefaultCommand(m_profiler.instrument(m_shooter.run(m_shooter::stop)));
+        feeder.setDefaultCommand(m_profiler.instrument(feeder.run(feeder::stop)));
+        intake.setDefaultCommand(m_profiler.instrument(intake.run(intake::stop)));
         //climber.setDefaultCommand(new ClimberDefault(
                 // // comLog,
                 // climber,
                 // operatorControl::leftClimb,
                 // operatorControl::rightClimb));
-        m_ampFeeder.setDefaultCommand(m_ampFeeder.run(m_ampFeeder::stop));
+        m_ampFeeder.setDefaultCommand(m_profiler.instrument(m_ampFeeder.run(m_ampFeeder::stop)));
         // m_ampPivot.setDefaultCommand(new AmpSet(ampLogger, m_ampPivot, 0));
         // if far from the goal, go fast. if near, go slow.
         // TODO: tune these numbers
-        m_ampPivot.setDefaultCommand(new AmpFastThenSlow(m_ampPivot, 0.1, 0));
+        m_ampPivot.setDefaultCommand(m_profiler.instrument(new AmpFastThenSlow(m_ampPivot, 0.1, 0)));
 
         ////////////////////
         //
@@ -517,7 +530,7 @@ public class RobotContainer implements Glassy {
         //
 
         // this illustrates how to use AutonCommand together with AllianceCommand
-        m_auton = new AutonCommand(
+        m_auton = m_profiler.instrument(new AutonCommand(
                 Map.of(
                         AutonChooser.Routine.FIVE_NOTE, new AllianceCommand(
                                 m_AutoMaker.fourNoteAuto(
@@ -542,7 +555,7 @@ public class RobotContainer implements Glassy {
                         AutonChooser.Routine.NOTHING, new AllianceCommand(
                                 new PrintCommand("nothing red goes here"),
                                 new PrintCommand("nothing blue goes here"))),
-                AutonChooser::routine);
+                AutonChooser::routine));
     }
 
     public void beforeCommandCycle() {
@@ -565,11 +578,11 @@ public class RobotContainer implements Glassy {
     }
 
     private void whileTrue(BooleanSupplier condition, Command command) {
-        new Trigger(condition).whileTrue(command);
+        new Trigger(condition).whileTrue(m_profiler.instrument(command));
     }
 
     private void onTrue(BooleanSupplier condition, Command command) {
-        new Trigger(condition).onTrue(command);
+        new Trigger(condition).onTrue(m_profiler.instrument(command));
     }
 
     public void scheduleAuton() {
@@ -579,7 +592,7 @@ public class RobotContainer implements Glassy {
     }
 
     public void periodic() {
-        //
+        m_profiler.periodic();
     }
 
     public void cancelAuton() {
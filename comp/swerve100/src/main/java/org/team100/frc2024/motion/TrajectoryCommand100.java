@@ -67,6 +67,11 @@ public class TrajectoryCommand100 extends Command implements Glassy  {
         addRequirements(m_robotDrive);
     }
 
+    /** For offline evaluation, e.g. AutoMonteCarlo. */
+    public Trajectory100 getTrajectory() {
+        return m_trajectory;
+    }
+
     @Override
     public void initialize() {
         m_viz.setViz(m_trajectory);
@@ -1,6 +1,7 @@
 package org.team100.lib.async;
 
 import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.logging.Logging;
 
 public class AsyncFactory {
     // runner is made at startup so it's not possible to control with an
@@ -10,7 +11,9 @@ public class AsyncFactory {
     private enum AsyncType {
         TIMED,
         EXECUTOR,
-        NOTIFIER
+        NOTIFIER,
+        RATE_GROUPS,
+        POOLED
     }
 
     private final Async runner;
@@ -25,10 +28,22 @@ public class AsyncFactory {
             case EXECUTOR -> new ExecutorAsync();
             // Each async gets its own notifier thread.
             case NOTIFIER -> new NotifierAsync();
+            // Each rate group gets a notifier thread with its own priority
+            // and overrun policy.
+            case RATE_GROUPS -> rateGroups();
+            // Asyncs share a small thread pool, skipping runs that would
+            // overlap.
+            case POOLED -> new PooledAsync(Logging.instance().rootLogger);
         };
 
     }
 
+    private static Async rateGroups() {
+        RateGroupScheduler scheduler = RateGroupScheduler.standard(Logging.instance().rootLogger);
+        scheduler.start();
+        return scheduler;
+    }
+
     public Async get() {
         return runner;
     }
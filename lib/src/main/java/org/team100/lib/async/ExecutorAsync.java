@@ -29,7 +29,7 @@ public class ExecutorAsync implements Async {
                 new CrashWrapper(runnable), periodMS, periodMS, TimeUnit.MILLISECONDS);
     }
 
-    ExecutorAsync() {
+    public ExecutorAsync() {
         m_scheduler = Executors.newSingleThreadScheduledExecutor(
                 new MinPriorityThreads());
     }
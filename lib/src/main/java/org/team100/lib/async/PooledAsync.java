@@ -0,0 +1,172 @@
+package org.team100.lib.async;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.wpilibj.RobotBase;
+
+/**
+ * Runs async tasks on a small bounded pool of low-priority threads.
+ *
+ * One timer thread triggers each task at its period, and hands it to the pool.
+ * If the previous run of the task hasn't finished, the trigger is skipped
+ * rather than queued, so a slow task can't pile up work or occupy more than
+ * one thread.
+ *
+ * For each task, this logs the latency (from trigger to start), the jitter
+ * (deviation of the trigger interval from the period), the duration, and the
+ * counts of skips and budget overruns. The budget defaults to half the period.
+ *
+ * The pool is two threads on the RoboRIO, which has two cores, and a few more
+ * in simulation.
+ */
+public class PooledAsync implements Async, Glassy {
+    private static final int kRioThreads = 2;
+    private static final int kSimThreads = 4;
+
+    private final LoggerFactory m_log;
+    private final ScheduledExecutorService m_timer;
+    private final ExecutorService m_pool;
+
+    public PooledAsync(LoggerFactory parent) {
+        this(parent, RobotBase.isReal()
+                ? kRioThreads
+                : Math.min(kSimThreads, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public PooledAsync(LoggerFactory parent, int threads) {
+        m_log = parent.child(this);
+        m_timer = Executors.newSingleThreadScheduledExecutor(new MinPriorityThreads("Async Timer"));
+        m_pool = Executors.newFixedThreadPool(threads, new MinPriorityThreads("Async Pool"));
+    }
+
+    /** Budget is half the period. */
+    @Override
+    public void addPeriodic(Runnable runnable, double periodS, String name) {
+        addPeriodic(runnable, periodS, periodS / 2, name);
+    }
+
+    /**
+     * @param runnable the task
+     * @param periodS  trigger period
+     * @param budgetS  runs longer than this are counted as overruns
+     * @param name     for logging
+     */
+    public void addPeriodic(Runnable runnable, double periodS, double budgetS, String name) {
+        Task task = new Task(m_log.child(name), runnable, periodS, budgetS, name);
+        long periodUs = (long) (periodS * 1e6);
+        m_timer.scheduleAtFixedRate(task::trigger, periodUs, periodUs, TimeUnit.MICROSECONDS);
+    }
+
+    /** Stop everything; running tasks are allowed to finish. */
+    public void shutdown() {
+        m_timer.shutdown();
+        m_pool.shutdown();
+    }
+
+    private class Task {
+        private final Runnable m_runnable;
+        private final double m_periodS;
+        private final double m_budgetS;
+        private final String m_name;
+        private final AtomicBoolean m_running = new AtomicBoolean();
+        // LOGGERS
+        private final DoubleLogger m_log_latency;
+        private final DoubleLogger m_log_jitter;
+        private final DoubleLogger m_log_duration;
+        private final IntLogger m_log_skips;
+        private final IntLogger m_log_overruns;
+
+        /** Written by the timer thread. */
+        private long m_prevTriggerNs;
+        /** Written by the timer thread. */
+        private int m_skips;
+        /** Written by whichever pool thread runs the task, one at a time. */
+        private int m_overruns;
+
+        private Task(LoggerFactory log, Runnable runnable, double periodS, double budgetS, String name) {
+            m_runnable = runnable;
+            m_periodS = periodS;
+            m_budgetS = budgetS;
+            m_name = name;
+            m_log_latency = log.doubleLogger(Level.TRACE, "latency (s)");
+            m_log_jitter = log.doubleLogger(Level.TRACE, "jitter (s)");
+            m_log_duration = log.doubleLogger(Level.TRACE, "duration (s)");
+            m_log_skips = log.intLogger(Level.TRACE, "skips");
+            m_log_overruns = log.intLogger(Level.TRACE, "overruns");
+        }
+
+        /** On the timer thread. */
+        private void trigger() {
+            long triggerNs = System.nanoTime();
+            if (m_prevTriggerNs != 0) {
+                double jitterS = (triggerNs - m_prevTriggerNs) * 1e-9 - m_periodS;
+                m_log_jitter.log(() -> jitterS);
+            }
+            m_prevTriggerNs = triggerNs;
+            if (!m_running.compareAndSet(false, true)) {
+                // the previous run is still going
+                m_skips++;
+                m_log_skips.log(() -> m_skips);
+                return;
+            }
+            m_pool.execute(() -> run(triggerNs));
+        }
+
+        /** On a pool thread. */
+        private void run(long triggerNs) {
+            long startNs = System.nanoTime();
+            double latencyS = (startNs - triggerNs) * 1e-9;
+            m_log_latency.log(() -> latencyS);
+            try {
+                m_runnable.run();
+            } catch (Throwable e) {
+                Util.warn(m_name + ": " + e.toString());
+                Writer writer = new StringWriter();
+                e.printStackTrace(new PrintWriter(writer));
+                Util.warn(writer.toString());
+            } finally {
+                double durationS = (System.nanoTime() - startNs) * 1e-9;
+                m_log_duration.log(() -> durationS);
+                if (durationS > m_budgetS) {
+                    m_overruns++;
+                    m_log_overruns.log(() -> m_overruns);
+                }
+                m_running.set(false);
+            }
+        }
+    }
+
+    private static class MinPriorityThreads implements ThreadFactory {
+        private final String m_name;
+        private final AtomicInteger id = new AtomicInteger();
+
+        private MinPriorityThreads(String name) {
+            m_name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            thread.setName(m_name + " " + id.getAndIncrement());
+            return thread;
+        }
+    }
+}
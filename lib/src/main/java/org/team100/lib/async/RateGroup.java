@@ -0,0 +1,208 @@
+package org.team100.lib.async;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+
+/**
+ * A set of tasks that run together at a fixed rate, on one thread.
+ *
+ * The scheduling is separate from the thread: advance() says how many ticks
+ * to run at a given time, and moves the deadline, according to the overrun
+ * policy. This makes the policy deterministic and testable without threads.
+ *
+ * Each deadline that passes without a tick is counted as a miss.
+ */
+public class RateGroup {
+    /** What to do about ticks that were missed because the group fell behind. */
+    public enum Overrun {
+        /** Run once, and realign to the next deadline in the future. */
+        SKIP,
+        /** Run the missed ticks back-to-back, up to a limit, then realign. */
+        CATCH_UP,
+        /**
+         * Run once, and halve the rate, down to a limit. Restore the rate after
+         * a while without misses.
+         */
+        DEGRADE
+    }
+
+    private static final int kMaxCatchUp = 5;
+    private static final int kMaxStride = 8;
+    /** Number of on-time ticks before restoring the rate. */
+    private static final int kRecoverTicks = 50;
+
+    private static class Task {
+        private final Runnable m_runnable;
+        private final int m_every;
+        private final DoubleLogger m_log_duration;
+
+        private Task(Runnable runnable, int every, DoubleLogger logDuration) {
+            m_runnable = runnable;
+            m_every = every;
+            m_log_duration = logDuration;
+        }
+    }
+
+    private final LoggerFactory m_log;
+    private final String m_name;
+    private final double m_periodS;
+    private final int m_priority;
+    private final int m_realtimePriority;
+    private final Overrun m_overrun;
+    /** Tasks may be added while the group is running. */
+    private final List<Task> m_tasks = new CopyOnWriteArrayList<>();
+    // LOGGERS
+    private final DoubleLogger m_log_duration;
+    private final IntLogger m_log_misses;
+    private final IntLogger m_log_stride;
+
+    private double m_deadlineS;
+    private long m_runs;
+    private int m_misses;
+    private int m_stride = 1;
+    private int m_onTime;
+
+    /**
+     * A group with normal (not realtime) scheduling.
+     *
+     * @param parent   log
+     * @param name     e.g. "odometry"
+     * @param periodS  tick period
+     * @param priority java thread priority, 1 to 10. This is only a hint: the
+     *                 JVM on the RoboRIO ignores it, so it can't keep the group
+     *                 out of the way of anything.
+     * @param overrun  what to do when falling behind
+     */
+    public RateGroup(LoggerFactory parent, String name, double periodS, int priority, Overrun overrun) {
+        this(parent, name, periodS, priority, 0, overrun);
+    }
+
+    /**
+     * @param parent           log
+     * @param name             e.g. "odometry"
+     * @param periodS          tick period
+     * @param priority         java thread priority, 1 to 10, only a hint
+     * @param realtimePriority linux realtime priority, 1 to 99, set by the
+     *                         group's own thread, or zero for normal scheduling.
+     *                         Any realtime thread preempts every normal thread.
+     * @param overrun          what to do when falling behind
+     */
+    public RateGroup(
+            LoggerFactory parent,
+            String name,
+            double periodS,
+            int priority,
+            int realtimePriority,
+            Overrun overrun) {
+        if (realtimePriority < 0 || realtimePriority > 99)
+            throw new IllegalArgumentException("realtime priority must be 0 to 99");
+        m_log = parent.child(name);
+        m_name = name;
+        m_periodS = periodS;
+        m_priority = priority;
+        m_realtimePriority = realtimePriority;
+        m_overrun = overrun;
+        m_log_duration = m_log.doubleLogger(Level.COMP, "duration (s)");
+        m_log_misses = m_log.intLogger(Level.COMP, "misses");
+        m_log_stride = m_log.intLogger(Level.TRACE, "stride");
+    }
+
+    /**
+     * Run the task every N ticks, where N is the ratio of the task period to
+     * the group period, rounded, but at least one.
+     */
+    public void add(Runnable runnable, double periodS, String name) {
+        int every = Math.max(1, (int) Math.round(periodS / m_periodS));
+        m_tasks.add(new Task(runnable, every, m_log.doubleLogger(Level.TRACE, "duration (s)/" + name)));
+    }
+
+    /** The first deadline is one period after the start. */
+    public void start(double nowS) {
+        m_deadlineS = nowS + m_periodS;
+    }
+
+    /**
+     * Move the deadline past the given time.
+     *
+     * @return the number of ticks to run now, which is zero if the deadline
+     *         hasn't arrived.
+     */
+    public int advance(double nowS) {
+        if (nowS < m_deadlineS)
+            return 0;
+        // deadlines that passed without a tick
+        int late = (int) Math.floor((nowS - m_deadlineS) / m_periodS);
+        m_misses += late;
+        m_log_misses.log(() -> m_misses);
+        switch (m_overrun) {
+            case CATCH_UP:
+                m_deadlineS += (late + 1) * m_periodS;
+                return Math.min(late + 1, kMaxCatchUp);
+            case DEGRADE:
+                if (late > 0) {
+                    m_stride = Math.min(m_stride * 2, kMaxStride);
+                    m_onTime = 0;
+                } else if (m_stride > 1 && ++m_onTime >= kRecoverTicks) {
+                    m_stride /= 2;
+                    m_onTime = 0;
+                }
+                m_log_stride.log(() -> m_stride);
+                m_deadlineS += (late + m_stride) * m_periodS;
+                return 1;
+            case SKIP:
+            default:
+                m_deadlineS += (late + 1) * m_periodS;
+                return 1;
+        }
+    }
+
+    /** Run the tasks that are due in this tick. */
+    public void tick() {
+        long startNs = System.nanoTime();
+        for (Task task : m_tasks) {
+            if (m_runs % task.m_every != 0)
+                continue;
+            long taskStartNs = System.nanoTime();
+            task.m_runnable.run();
+            double taskS = (System.nanoTime() - taskStartNs) * 1e-9;
+            task.m_log_duration.log(() -> taskS);
+        }
+        m_runs++;
+        double durationS = (System.nanoTime() - startNs) * 1e-9;
+        m_log_duration.log(() -> durationS);
+    }
+
+    public String getName() {
+        return m_name;
+    }
+
+    public double getPeriodS() {
+        return m_periodS;
+    }
+
+    public int getPriority() {
+        return m_priority;
+    }
+
+    /** Zero means normal scheduling. */
+    public int getRealtimePriority() {
+        return m_realtimePriority;
+    }
+
+    public double getDeadlineS() {
+        return m_deadlineS;
+    }
+
+    public int getMisses() {
+        return m_misses;
+    }
+
+    public int getStride() {
+        return m_stride;
+    }
+}
@@ -0,0 +1,176 @@
+package org.team100.lib.async;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.async.RateGroup.Overrun;
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.hal.NotifierJNI;
+import edu.wpi.first.wpilibj.Threads;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Runs async tasks in rate groups, each with its own thread, notifier,
+ * priority, and overrun policy.
+ *
+ * The main loop stays on the TimedRobot100 notifier thread, so nothing here
+ * can delay it by occupying its thread, which is what happens when asyncs are
+ * added to the TimedRobot100 queue: when that queue falls behind, the main
+ * loop waits for every other callback.
+ *
+ * The JVM on the RoboRIO ignores java thread priority, so that can't keep
+ * low-rate groups out of the way. Instead, the odometry and control groups
+ * switch their own threads to linux realtime priority, which preempts every
+ * normal thread, and the other groups stay normal, so they only get the CPU
+ * when the realtime groups are idle. A realtime group that never sleeps would
+ * starve everything else, which is why catch-up is limited.
+ *
+ * If the realtime priority can't be set (e.g. in simulation, without
+ * privileges), the group warns and runs with normal scheduling, and then the
+ * priorities are only advisory.
+ *
+ * Each task is added to the slowest group that's at least as fast as the task
+ * wants to run, so that telemetry doesn't end up in the odometry group.
+ */
+public class RateGroupScheduler implements Async, Glassy {
+    /** Above control, since its ticks are short and its timing matters. */
+    private static final int kOdometryRealtimePriority = 2;
+    private static final int kControlRealtimePriority = 1;
+
+    private final LoggerFactory m_log;
+    private final List<RateGroup> m_groups = new ArrayList<>();
+    private final List<Thread> m_threads = new ArrayList<>();
+    private final List<Integer> m_notifiers = new ArrayList<>();
+
+    public RateGroupScheduler(LoggerFactory parent) {
+        m_log = parent.child(this);
+    }
+
+    /**
+     * The usual groups: fast sensor sampling, control-rate work that isn't the
+     * main loop, telemetry, and housekeeping.
+     */
+    public static RateGroupScheduler standard(LoggerFactory parent) {
+        RateGroupScheduler s = new RateGroupScheduler(parent);
+        s.addGroup("odometry", 0.004, Thread.MAX_PRIORITY, kOdometryRealtimePriority, Overrun.SKIP);
+        s.addGroup("control", 0.02, Thread.NORM_PRIORITY, kControlRealtimePriority, Overrun.CATCH_UP);
+        s.addGroup("telemetry", 0.1, 2, Overrun.DEGRADE);
+        s.addGroup("housekeeping", 1.0, Thread.MIN_PRIORITY, Overrun.SKIP);
+        return s;
+    }
+
+    /** A group with normal scheduling. Groups should be added before start(). */
+    public RateGroup addGroup(String name, double periodS, int priority, Overrun overrun) {
+        return addGroup(name, periodS, priority, 0, overrun);
+    }
+
+    /**
+     * Groups should be added before start().
+     * 
+     * @param realtimePriority 1 to 99, or zero for normal scheduling.
+     */
+    public RateGroup addGroup(String name, double periodS, int priority, int realtimePriority, Overrun overrun) {
+        RateGroup group = new RateGroup(m_log, name, periodS, priority, realtimePriority, overrun);
+        m_groups.add(group);
+        return group;
+    }
+
+    @Override
+    public void addPeriodic(Runnable runnable, double periodS, String name) {
+        groupFor(periodS).add(runnable, periodS, name);
+    }
+
+    /**
+     * The slowest group at least as fast as the period, or the fastest group if
+     * none is fast enough.
+     */
+    RateGroup groupFor(double periodS) {
+        RateGroup best = null;
+        RateGroup fastest = null;
+        for (RateGroup group : m_groups) {
+            if (fastest == null || group.getPeriodS() < fastest.getPeriodS())
+                fastest = group;
+            if (group.getPeriodS() > periodS)
+                continue;
+            if (best == null || group.getPeriodS() > best.getPeriodS())
+                best = group;
+        }
+        if (best == null)
+            return fastest;
+        return best;
+    }
+
+    /** Start a thread for each group. */
+    public void start() {
+        for (RateGroup group : m_groups) {
+            int notifier = NotifierJNI.initializeNotifier();
+            NotifierJNI.setNotifierName(notifier, group.getName());
+            m_notifiers.add(notifier);
+            Thread thread = new Thread(() -> loop(group, notifier));
+            thread.setName("RateGroup " + group.getName());
+            thread.setPriority(group.getPriority());
+            thread.setDaemon(true);
+            m_threads.add(thread);
+            group.start(Timer.getFPGATimestamp());
+            thread.start();
+        }
+    }
+
+    /** Stop all the threads. */
+    public void stop() {
+        for (int notifier : m_notifiers) {
+            NotifierJNI.stopNotifier(notifier);
+        }
+        for (Thread thread : m_threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (int notifier : m_notifiers) {
+            NotifierJNI.cleanNotifier(notifier);
+        }
+        m_notifiers.clear();
+        m_threads.clear();
+    }
+
+    public List<RateGroup> getGroups() {
+        return m_groups;
+    }
+
+    private static void loop(RateGroup group, int notifier) {
+        // realtime priority can only be set from the thread itself.
+        if (group.getRealtimePriority() > 0
+                && !Threads.setCurrentThreadPriority(true, group.getRealtimePriority())) {
+            Util.warn(String.format("RateGroup %s: could not set realtime priority %d, using normal scheduling",
+                    group.getName(), group.getRealtimePriority()));
+        }
+        while (true) {
+            NotifierJNI.updateNotifierAlarm(notifier, (long) (group.getDeadlineS() * 1e6));
+            long curTimeUs = NotifierJNI.waitForNotifierAlarm(notifier);
+            if (curTimeUs == 0) {
+                // stop() was called
+                return;
+            }
+            int ticks = group.advance(curTimeUs * 1e-6);
+            for (int i = 0; i < ticks; ++i) {
+                try {
+                    group.tick();
+                } catch (Throwable e) {
+                    // keep the group running
+                    Util.warn(e.toString());
+                    Writer writer = new StringWriter();
+                    e.printStackTrace(new PrintWriter(writer));
+                    Util.warn(writer.toString());
+                }
+            }
+        }
+    }
+}
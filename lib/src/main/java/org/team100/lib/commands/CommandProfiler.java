@@ -0,0 +1,211 @@
+package org.team100.lib.commands;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.logging.LoggerFactory.StringLogger;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Times commands, to find out which one is eating the loop.
+ *
+ * Wrap commands with instrument() where they're bound to triggers or set as
+ * defaults. The wrapper times initialize(), execute(), and end(), and keeps
+ * the execute() times for the last few seconds, for each command name (which
+ * is the class name, unless it was set). Calls longer than the budget are
+ * counted, and the first one for each command prints a warning.
+ *
+ * Once per second, periodic() logs a table of the slowest few commands, by
+ * p99 execute time.
+ *
+ * Only the wrapper is timed, so a command group shows up as one row; to see
+ * its parts, instrument them too.
+ *
+ * When disabled, the wrapper just delegates, and nothing is allocated.
+ */
+public class CommandProfiler implements Glassy {
+    /** At 50 Hz this is about five seconds. */
+    private static final int kWindow = 256;
+    private static final long kPublishPeriodNs = 1000000000;
+    private static final Comparator<Stats> kSlowestFirst = (a, b) -> Double.compare(b.m_p99S, a.m_p99S);
+
+    private final BooleanSupplier m_enabled;
+    private final double m_budgetS;
+    private final Map<String, Stats> m_stats = new HashMap<>();
+    private final List<Stats> m_sorted = new ArrayList<>();
+    private final double[] m_scratch = new double[kWindow];
+    // LOGGERS
+    private final StringLogger[] m_log_top;
+    private final IntLogger m_log_over_budget;
+
+    private long m_publishedNs;
+
+    /**
+     * @param enabled checked every time; it should be cheap, e.g. an Experiment.
+     * @param budgetS calls longer than this are counted as overruns.
+     * @param topN    number of rows in the table.
+     */
+    public CommandProfiler(LoggerFactory parent, BooleanSupplier enabled, double budgetS, int topN) {
+        LoggerFactory child = parent.child(this);
+        m_enabled = enabled;
+        m_budgetS = budgetS;
+        m_log_top = new StringLogger[topN];
+        for (int i = 0; i < topN; ++i) {
+            m_log_top[i] = child.stringLogger(Level.TRACE, "top " + i);
+        }
+        m_log_over_budget = child.intLogger(Level.TRACE, "over budget");
+    }
+
+    /** Wrap the command; use the wrapper instead of the command. */
+    public Command instrument(Command command) {
+        String name = command.getName();
+        Stats stats = m_stats.get(name);
+        if (stats == null) {
+            stats = new Stats(name);
+            m_stats.put(name, stats);
+            m_sorted.add(stats);
+        }
+        return new ProfiledCommand(this, stats, command);
+    }
+
+    /** Call this once per loop, e.g. in robotPeriodic(). */
+    public void periodic() {
+        if (!enabled())
+            return;
+        long nowNs = System.nanoTime();
+        if (nowNs - m_publishedNs < kPublishPeriodNs)
+            return;
+        m_publishedNs = nowNs;
+        publish();
+    }
+
+    boolean enabled() {
+        return m_enabled.getAsBoolean();
+    }
+
+    /** Update the percentiles and log the table. */
+    void publish() {
+        int overBudget = 0;
+        for (int i = 0; i < m_sorted.size(); ++i) {
+            Stats stats = m_sorted.get(i);
+            stats.update(m_scratch);
+            if (stats.m_p99S > m_budgetS)
+                overBudget++;
+        }
+        m_sorted.sort(kSlowestFirst);
+        for (int i = 0; i < m_log_top.length && i < m_sorted.size(); ++i) {
+            m_log_top[i].log(m_sorted.get(i)::row);
+        }
+        int over = overBudget;
+        m_log_over_budget.log(() -> over);
+        for (int i = 0; i < m_sorted.size(); ++i) {
+            m_sorted.get(i).clearMax();
+        }
+    }
+
+    /** Slowest first, as of the most recent publish(). */
+    List<Stats> sorted() {
+        return m_sorted;
+    }
+
+    /** Timing for one command name. */
+    class Stats {
+        private final String m_name;
+        /** Ring of recent execute() durations. */
+        private final double[] m_executeS = new double[kWindow];
+        private int m_next;
+        private int m_count;
+        private double m_p99S;
+        private double m_maxExecuteS;
+        private double m_maxInitializeS;
+        private double m_maxEndS;
+        private int m_overruns;
+        private boolean m_warned;
+
+        private Stats(String name) {
+            m_name = name;
+        }
+
+        void initialize(double durationS) {
+            if (durationS > m_maxInitializeS)
+                m_maxInitializeS = durationS;
+            check("initialize", durationS);
+        }
+
+        void execute(double durationS) {
+            m_executeS[m_next] = durationS;
+            m_next = (m_next + 1) % kWindow;
+            if (m_count < kWindow)
+                m_count++;
+            check("execute", durationS);
+        }
+
+        void end(double durationS) {
+            if (durationS > m_maxEndS)
+                m_maxEndS = durationS;
+            check("end", durationS);
+        }
+
+        String name() {
+            return m_name;
+        }
+
+        double p99S() {
+            return m_p99S;
+        }
+
+        int overruns() {
+            return m_overruns;
+        }
+
+        private void check(String method, double durationS) {
+            if (durationS <= m_budgetS)
+                return;
+            m_overruns++;
+            if (m_warned)
+                return;
+            m_warned = true;
+            Util.warn(String.format("%s.%s() took %.1f ms, over budget %.1f ms",
+                    m_name, method, durationS * 1000, m_budgetS * 1000));
+        }
+
+        /** Sorts a copy of the window, using the scratch array. */
+        private void update(double[] scratch) {
+            if (m_count == 0) {
+                m_p99S = 0;
+                m_maxExecuteS = 0;
+                return;
+            }
+            System.arraycopy(m_executeS, 0, scratch, 0, m_count);
+            Arrays.sort(scratch, 0, m_count);
+            m_p99S = scratch[(int) Math.ceil(0.99 * m_count) - 1];
+            m_maxExecuteS = scratch[m_count - 1];
+        }
+
+        private void clearMax() {
+            m_maxInitializeS = 0;
+            m_maxEndS = 0;
+        }
+
+        private String row() {
+            return String.format("%s p99 %.2f max %.2f init %.2f end %.2f ms over %d",
+                    m_name,
+                    m_p99S * 1000,
+                    m_maxExecuteS * 1000,
+                    m_maxInitializeS * 1000,
+                    m_maxEndS * 1000,
+                    m_overruns);
+        }
+    }
+}
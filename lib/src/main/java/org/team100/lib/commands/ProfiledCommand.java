@@ -0,0 +1,53 @@
+package org.team100.lib.commands;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+
+/**
+ * Times the wrapped command for the CommandProfiler.
+ *
+ * Use CommandProfiler.instrument() to make one.
+ */
+class ProfiledCommand extends WrapperCommand {
+    private final CommandProfiler m_profiler;
+    private final CommandProfiler.Stats m_stats;
+
+    ProfiledCommand(CommandProfiler profiler, CommandProfiler.Stats stats, Command command) {
+        super(command);
+        m_profiler = profiler;
+        m_stats = stats;
+    }
+
+    @Override
+    public void initialize() {
+        if (!m_profiler.enabled()) {
+            m_command.initialize();
+            return;
+        }
+        long startNs = System.nanoTime();
+        m_command.initialize();
+        m_stats.initialize((System.nanoTime() - startNs) * 1e-9);
+    }
+
+    @Override
+    public void execute() {
+        if (!m_profiler.enabled()) {
+            m_command.execute();
+            return;
+        }
+        long startNs = System.nanoTime();
+        m_command.execute();
+        m_stats.execute((System.nanoTime() - startNs) * 1e-9);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (!m_profiler.enabled()) {
+            m_command.end(interrupted);
+            return;
+        }
+        long startNs = System.nanoTime();
+        m_command.end(interrupted);
+        m_stats.end((System.nanoTime() - startNs) * 1e-9);
+    }
+}
@@ -0,0 +1,113 @@
+package org.team100.lib.commands.drivetrain;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.follower.DriveTrajectoryFollower;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.BooleanLogger;
+import org.team100.lib.logging.LoggerFactory.ChassisSpeedsLogger;
+import org.team100.lib.motion.drivetrain.SwerveDriveSubsystem;
+import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.timing.TimingConstraintFactory;
+import org.team100.lib.trajectory.TrajectoryReplanner;
+import org.team100.lib.util.DriveUtil;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * Follows a trajectory to a note, re-planning as the sighting moves.
+ *
+ * Instead of restarting from rest when the goal moves, the replanner splices a
+ * new trajectory in, starting from where the robot will be on the current one,
+ * at its current speed. Planning happens on another thread, so execute() just
+ * checks for a new plan and runs the follower.
+ *
+ * The robot arrives with its current heading.
+ *
+ * This never finishes; run it with an Intake command as the deadline.
+ */
+public class DriveToNoteWithTrajectory extends Command implements Glassy {
+    /** Don't replan more often than this. */
+    private static final double kReplanPeriodS = 0.1;
+
+    private final SwerveDriveSubsystem m_swerve;
+    private final Supplier<Optional<Translation2d>> m_fieldRelativeGoal;
+    private final DriveTrajectoryFollower m_controller;
+    private final TrajectoryReplanner m_replanner;
+
+    // LOGGERS
+    private final BooleanLogger m_log_note_detected;
+    private final ChassisSpeedsLogger m_log_chassis_speeds;
+
+    /** The follower has a trajectory from this run, not a stale one. */
+    private boolean m_following;
+
+    /**
+     * @param fieldRelativeGoal the position of the closest note, or empty if none
+     *                          nearby
+     */
+    public DriveToNoteWithTrajectory(
+            LoggerFactory parent,
+            Supplier<Optional<Translation2d>> fieldRelativeGoal,
+            SwerveDriveSubsystem drivetrain,
+            DriveTrajectoryFollower controller,
+            SwerveKinodynamics swerveKinodynamics) {
+        LoggerFactory child = parent.child(this);
+        m_log_note_detected = child.booleanLogger(Level.TRACE, "Note detected");
+        m_log_chassis_speeds = child.chassisSpeedsLogger(Level.TRACE, "chassis speeds");
+        m_swerve = drivetrain;
+        m_fieldRelativeGoal = fieldRelativeGoal;
+        m_controller = controller;
+        m_replanner = new TrajectoryReplanner(
+                child,
+                new TimingConstraintFactory(swerveKinodynamics).allGood(),
+                kReplanPeriodS);
+        addRequirements(m_swerve);
+    }
+
+    @Override
+    public void initialize() {
+        m_replanner.reset();
+        m_following = false;
+    }
+
+    @Override
+    public void execute() {
+        double now = Timer.getFPGATimestamp();
+        SwerveState measurement = m_swerve.getState();
+        Optional<Translation2d> goal = m_fieldRelativeGoal.get();
+        m_log_note_detected.log(goal::isPresent);
+        if (goal.isPresent()) {
+            m_replanner.update(now, measurement,
+                    new Pose2d(goal.get(), measurement.pose().getRotation()));
+        }
+        m_replanner.poll(now).ifPresent(iter -> {
+            m_controller.setTrajectory(iter);
+            m_following = true;
+        });
+        if (!m_following)
+            return;
+
+        ChassisSpeeds output = m_controller.update(
+                now, measurement.pose(), measurement.chassisSpeeds());
+        if (output == null)
+            return;
+        m_log_chassis_speeds.log(() -> output);
+        DriveUtil.checkSpeeds(output);
+        m_swerve.setChassisSpeedsNormally(output);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        m_replanner.reset();
+        m_swerve.stop();
+    }
+}
@@ -5,7 +5,7 @@ import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.motion.drivetrain.SwerveState;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
-import org.team100.lib.state.State100;
+import org.team100.lib.state.MutableState100;
 
 import edu.wpi.first.math.MathUtil;
 
@@ -25,6 +25,9 @@ public class MinTimeDriveController implements HolonomicFieldRelativeController
     private final MinTimeController m_xController;
     private final MinTimeController m_yController;
     private final MinTimeController m_thetaController;
+    private final MutableState100 m_xFB = new MutableState100();
+    private final MutableState100 m_yFB = new MutableState100();
+    private final MutableState100 m_thetaFB = new MutableState100();
     private final Log m_log;
 
     public MinTimeDriveController(LoggerFactory parent, Log log) {
@@ -80,21 +83,24 @@ public class MinTimeDriveController implements HolonomicFieldRelativeController
 
         FieldRelativeVelocity u_FF = reference.velocity();
 
-        State100 xFB = m_xController.calculate(
+        m_xController.calculate(
                 TimedRobot100.LOOP_PERIOD_S,
                 measurement.x(),
-                reference.x());
-        State100 yFB = m_yController.calculate(
+                reference.x(),
+                m_xFB);
+        m_yController.calculate(
                 TimedRobot100.LOOP_PERIOD_S,
                 measurement.y(),
-                reference.y());
-        State100 thetaFB = m_thetaController.calculate(
+                reference.y(),
+                m_yFB);
+        m_thetaController.calculate(
                 TimedRobot100.LOOP_PERIOD_S,
                 measurement.theta(),
-                reference.theta());
+                reference.theta(),
+                m_thetaFB);
 
         FieldRelativeVelocity u_FB = new FieldRelativeVelocity(
-                xFB.v(), yFB.v(), thetaFB.v());
+                m_xFB.v(), m_yFB.v(), m_thetaFB.v());
         m_log.u_FB.log(() -> u_FB);
         return u_FF.plus(u_FB);
     }
@@ -6,6 +6,7 @@ import org.team100.lib.dashboard.Glassy;
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.LoggerFactory.StringLogger;
+import org.team100.lib.state.MutableState100;
 import org.team100.lib.state.State100;
 import org.team100.lib.util.Util;
 
@@ -161,81 +162,99 @@ public class MinTimeController implements Glassy {
         m_log_mode = child.stringLogger(Level.TRACE, "mode");
     }
 
-    private State100 modulus(double x, double v, double a) {
-        return new State100(m_modulus.applyAsDouble(x), v, a);
-    }
-
-    private State100 modulus(State100 s) {
-        return modulus(s.x(), s.v(), s.a());
-    }
-
     /**
      * Note order of the arguments: initial state first, then goal.
-     * 
+     *
      * Input velocities are clamped to the velocity constraint.
-     * 
+     *
      * Input accelerations are ignored: jerk is unmanaged.
-     * 
+     *
      * Output acceleration is the *profile* acceleration at dt, it is not
      * necessarily the same as the actuation required to reach the output state from
      * the initial state. The only difference occurs when the dt period spans a
      * boundary between accel and decel, or accel/decel and cruise. In those cases,
      * the reported acceleration will be from the other side of the boundary.
-     * 
+     *
      * Therefore, if you blindly use the reported acceleration as the only input to
      * a real system, it will tend to get ahead of the profile, but only by one time
      * period.
      */
     public State100 calculate(double dt, final State100 initialRaw, final State100 goalRaw) {
+        MutableState100 result = new MutableState100();
+        calculate(dt, initialRaw, goalRaw, result);
+        return result.get();
+    }
+
+    /**
+     * Same as above, without allocating anything, for controllers that run every
+     * loop.
+     *
+     * @param result the state at dt is written here.
+     */
+    public void calculate(double dt, State100 initialRaw, State100 goalRaw, MutableState100 result) {
+        calculate(dt, initialRaw.x(), initialRaw.v(), goalRaw.x(), goalRaw.v(), result);
+    }
+
+    private void calculate(
+            double dt,
+            double xiRaw,
+            double viRaw,
+            double xgRaw,
+            double vgRaw,
+            MutableState100 result) {
         m_log_mode.log(() -> "calculating");
 
-        State100 initial = new State100(initialRaw.x(),
-                MathUtil.clamp(initialRaw.v(), -m_maxVelocity, m_maxVelocity));
+        double xi = xiRaw;
+        double vi = MathUtil.clamp(viRaw, -m_maxVelocity, m_maxVelocity);
 
         // for periodic state spaces, choose an equivalent goal close to the initial
         // state (may be outside the valid range, we'll fix it later).
-        State100 goal = new State100(
-                m_modulus.applyAsDouble(goalRaw.x() - initialRaw.x()) + initialRaw.x(),
-                MathUtil.clamp(goalRaw.v(), -m_maxVelocity, m_maxVelocity));
+        double xg = m_modulus.applyAsDouble(xgRaw - xiRaw) + xiRaw;
+        double vg = MathUtil.clamp(vgRaw, -m_maxVelocity, m_maxVelocity);
 
         m_atSetpoint = false;
         // AT THE GOAL: DO NOTHING
-        if (goal.near(initial, m_tolerance)) {
+        if (MathUtil.isNear(xg, xi, m_tolerance) && MathUtil.isNear(vg, vi, m_tolerance)) {
             m_atSetpoint = true;
             m_log_mode.log(() -> "within tolerance");
-            return modulus(goal);
+            modulus(xg, vg, 0, result);
+            return;
         }
 
         // NEAR THE GOAL: USE FULL STATE to avoid oscillation
-        if (goal.near(initial, m_finish)) {
+        if (MathUtil.isNear(xg, xi, m_finish) && MathUtil.isNear(vg, vi, m_finish)) {
             m_log_mode.log(() -> "full state");
-            double xError = goal.x() - initial.x();
-            double vError = goal.v() - initial.v();
+            double xError = xg - xi;
+            double vError = vg - vi;
             double u_FBx = xError * m_k[0];
             double u_FBv = vError * m_k[1];
             double u_FB = u_FBx + u_FBv;
             double a = u_FB;
-            double v = initial.v() + a * dt;
-            double x = initial.x() + initial.v() * dt + 0.5 * a * Math.pow(dt, 2);
-            return modulus(x, v, a);
+            double v = vi + a * dt;
+            double x = xi + vi * dt + 0.5 * a * Math.pow(dt, 2);
+            modulus(x, v, a, result);
+            return;
         }
 
         // AT CRUISING VELOCITY
 
-        if (MathUtil.isNear(m_maxVelocity, initial.v(), kBoundaryTolerance)) {
-            return keepCruising(dt, initial, goal);
+        if (MathUtil.isNear(m_maxVelocity, vi, kBoundaryTolerance)) {
+            keepCruising(dt, xi, vi, xg, vg, result);
+            return;
         }
-        if (MathUtil.isNear(-m_maxVelocity, initial.v(), kBoundaryTolerance)) {
-            return keepCruisingMinus(dt, initial, goal);
+        if (MathUtil.isNear(-m_maxVelocity, vi, kBoundaryTolerance)) {
+            keepCruisingMinus(dt, xi, vi, xg, vg, result);
+            return;
         }
 
         // Calculate the ETA to each switch point, or NaN if there's no valid path.
-        double t1IplusGminus = t1IplusGminus(initial, goal);
-        double t1IminusGplus = t1IminusGplus(initial, goal);
+        double t1IplusGminus = t1IplusGminus(xi, vi, xg, vg);
+        double t1IminusGplus = t1IminusGplus(xi, vi, xg, vg);
 
         if (Double.isNaN(t1IminusGplus) && Double.isNaN(t1IplusGminus)) {
             Util.warn("Both I-G+ and I+G- are NaN, this should never happen");
-            return modulus(initial);
+            modulus(xi, vi, 0, result);
+            return;
         }
 
         m_log_mode.log(() -> "min time");
@@ -244,14 +263,14 @@ public class MinTimeController implements Glassy {
 
         if (Double.isNaN(t1IplusGminus)) {
             // the valid path is I-G+, assume we're on I-
-            // System.out.printf("on I- %6.3f\n", t1IminusGplus);
-            return handleIminus(dt, initial, goal, t1IminusGplus);
+            handleIminus(dt, xi, vi, xg, vg, t1IminusGplus, result);
+            return;
         }
 
         if (Double.isNaN(t1IminusGplus)) {
             // the valid path is I+G-, assume we're on I+
-            // System.out.printf("on I+ %6.3f\n", t1IplusGminus);
-            return handleIplus(dt, initial, goal, t1IplusGminus);
+            handleIplus(dt, xi, vi, xg, vg, t1IplusGminus, result);
+            return;
         }
 
         // ON THE GOAL PATH
@@ -259,25 +278,26 @@ public class MinTimeController implements Glassy {
         // There can be one path with zero duration, indicating that we're on the goal
         // path at the switch point. In that case, we want to switch immediately and
         // proceed to the goal.
-        dt = truncateDt(dt, initial, goal);
+        dt = truncateDt(dt, vi, vg);
         if (MathUtil.isNear(0, t1IminusGplus, kBoundaryTolerance)) {
-            return fullG(dt, initial, 1);
+            fullG(dt, xi, vi, 1, result);
+            return;
         }
         if (MathUtil.isNear(0, t1IplusGminus, kBoundaryTolerance)) {
-            return fullG(dt, initial, -1);
+            fullG(dt, xi, vi, -1, result);
+            return;
         }
 
-        // System.out.println("nonzero");
-
         // There can be two non-zero-duration paths. As above, this happens when we're
         // on the goal path. The difference is that in this case, the goal has non-zero
         // velocity. One path goes directly to the goal, but it's also possible to make
         // a little loop in phase space, backing up and ending up in the same place, on
         // the way to the goal. We want to avoid these little loops.
         if (t1IminusGplus > t1IplusGminus) {
-            return fullG(dt, initial, 1);
+            fullG(dt, xi, vi, 1, result);
+            return;
         }
-        return fullG(dt, initial, -1);
+        fullG(dt, xi, vi, -1, result);
     }
 
     /** True if the most-recent call to calculate is within tolerance. */
@@ -285,162 +305,193 @@ public class MinTimeController implements Glassy {
         return m_atSetpoint;
     }
 
+    private void modulus(double x, double v, double a, MutableState100 result) {
+        result.set(m_modulus.applyAsDouble(x), v, a);
+    }
+
     /**
      * On the I path, what should we do?
-     * 
+     *
      * @param t1 time to switching, always positive
      */
-    private State100 handleIplus(double dt, State100 initial, State100 goal, double t1) {
+    private void handleIplus(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double t1,
+            MutableState100 result) {
         if (MathUtil.isNear(t1, 0, kBoundaryTolerance)) {
             // switch eta is zero! Switch to G, i.e. go to the goal via G-
-            return fullG(truncateDt(dt, initial, goal), initial, -1);
+            fullG(truncateDt(dt, vi, vg), xi, vi, -1, result);
+            return;
         }
         if (t1 < dt) {
             // We Encounter G- during dt, so switch.
-            return traverseSwitch(dt, initial, goal, t1, 1);
+            traverseSwitch(dt, xi, vi, xg, vg, t1, 1, result);
+            return;
         }
-        if (initial.v() + m_switchingAcceleration * dt > m_maxVelocity) {
+        if (vi + m_switchingAcceleration * dt > m_maxVelocity) {
             // We encounter vmax, so cruise.
-            return cruise(dt, initial, 1);
+            cruise(dt, xi, vi, 1, result);
+            return;
         }
         // We will not encounter any boundary during dt, stay on I
-        return fullI(dt, initial, 1);
+        fullI(dt, xi, vi, 1, result);
     }
 
     /**
      * On the I path, what should we do?
-     * 
+     *
      * @param t1 time to switching, sec, always positive
      */
-    private State100 handleIminus(double dt, State100 initial, State100 goal, double t1) {
+    private void handleIminus(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double t1,
+            MutableState100 result) {
         if (MathUtil.isNear(t1, 0, kBoundaryTolerance)) {
             // Switch ETA is zero! Switch to G, i.e. go to the goal via G+
-            return fullG(truncateDt(dt, initial, goal), initial, 1);
+            fullG(truncateDt(dt, vi, vg), xi, vi, 1, result);
+            return;
         }
         if (t1 < dt) {
             // We encounter G+ during dt, so switch.
-            return traverseSwitch(dt, initial, goal, t1, -1);
+            traverseSwitch(dt, xi, vi, xg, vg, t1, -1, result);
+            return;
         }
-        if (initial.v() - m_switchingAcceleration * dt < -m_maxVelocity) {
+        if (vi - m_switchingAcceleration * dt < -m_maxVelocity) {
             // we did encounter vmax, though
-            return cruise(dt, initial, -1);
+            cruise(dt, xi, vi, -1, result);
+            return;
         }
         // We will not encounter any boundary during dt, stay on I
-        return fullI(dt, initial, -1);
+        fullI(dt, xi, vi, -1, result);
     }
 
-    private State100 keepCruising(double dt, State100 initial, State100 goal) {
+    private void keepCruising(double dt, double xi, double vi, double xg, double vg, MutableState100 result) {
         // We're already at positive cruising speed, which means G- is next.
         // will we reach it during dt?
-        double c_minus = c_minus(goal);
+        double c_minus = c_minus(xg, vg);
         // the G- value at vmax
         double gminus = c_minus - Math.pow(m_maxVelocity, 2) / (2 * m_switchingAcceleration);
         // distance to go
-        double dc = gminus - initial.x();
+        double dc = gminus - xi;
         // time to go
         double dct = dc / m_maxVelocity;
         if (MathUtil.isNear(0, dct, kBoundaryTolerance)) {
             // we are at the intersection of vmax and G-, so head down G-
-            return fullG(truncateDt(dt, initial, goal), initial, -1);
+            fullG(truncateDt(dt, vi, vg), xi, vi, -1, result);
+            return;
         }
         if (dct < dt) {
             // there are two segments
             double tremaining = dt - dct;
-            return calculate(tremaining, new State100(gminus, m_maxVelocity), goal);
+            calculate(tremaining, gminus, m_maxVelocity, xg, vg, result);
+            return;
         }
         // we won't reach G-, so cruise for all of dt.
-        return modulus(
-                initial.x() + m_maxVelocity * dt,
+        modulus(
+                xi + m_maxVelocity * dt,
                 m_maxVelocity,
-                0);
+                0,
+                result);
     }
 
-    private State100 keepCruisingMinus(double dt, State100 initial, State100 goal) {
+    private void keepCruisingMinus(double dt, double xi, double vi, double xg, double vg, MutableState100 result) {
         // We're already at negative cruising speed, which means G+ is next.
         // will we reach it during dt?
-        double c_plus = c_plus(goal);
+        double c_plus = c_plus(xg, vg);
         double gplus = c_plus + Math.pow(m_maxVelocity, 2) / (2 * m_switchingAcceleration);
         // negative
-        double dc = gplus - initial.x();
+        double dc = gplus - xi;
         double dct = dc / -m_maxVelocity;
         if (MathUtil.isNear(0, dct, kBoundaryTolerance)) {
             // We're at the intersection of -vmax and G+, so head up G+
-            return fullG(truncateDt(dt, initial, goal), initial, 1);
+            fullG(truncateDt(dt, vi, vg), xi, vi, 1, result);
+            return;
         }
         if (dct < dt) {
             double tremaining = dt - dct;
-            return calculate(tremaining, new State100(gplus, -m_maxVelocity), goal);
+            calculate(tremaining, gplus, -m_maxVelocity, xg, vg, result);
+            return;
         }
         // we won't reach G+, so cruise for all of dt
-        return modulus(
-                initial.x() - m_maxVelocity * dt,
+        modulus(
+                xi - m_maxVelocity * dt,
                 -m_maxVelocity,
-                0);
+                0,
+                result);
     }
 
     /**
      * Travel to the switching point, and then the remainder of time on the goal
      * path.
      */
-    private State100 traverseSwitch(double dt, State100 in_initial, final State100 goal, double t1, double direction) {
+    private void traverseSwitch(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double t1,
+            double direction,
+            MutableState100 result) {
         // first get to the switching point
-        double x = in_initial.x() + in_initial.v() * t1
+        double x = xi + vi * t1
                 + 0.5 * direction * m_switchingAcceleration * Math.pow(t1, 2);
-        double v = in_initial.v() + direction * m_switchingAcceleration * t1;
+        double v = vi + direction * m_switchingAcceleration * t1;
         // then go the other way for the remaining time
         double t2 = dt - t1;
         // just use the same method for the second part
-        // note this is slower than the code below so maybe put it back
-        return calculate(t2, new State100(x, v), goal);
+        calculate(t2, x, v, xg, vg, result);
     }
 
     /** Returns a shorter dt to avoid overshooting the goal state. */
-    private double truncateDt(double dt, State100 in_initial, State100 in_goal) {
-        double dtg = Math.abs((in_initial.v() - in_goal.v()) / m_switchingAcceleration);
+    private double truncateDt(double dt, double vi, double vg) {
+        double dtg = Math.abs((vi - vg) / m_switchingAcceleration);
         return Math.min(dt, dtg);
     }
 
     /**
      * For I paths, use slightly-stronger effort.
      */
-    private State100 fullI(double dt, State100 in_initial, double direction) {
+    private void fullI(double dt, double xi, double vi, double direction, MutableState100 result) {
         m_log_mode.log(() -> "full I");
-        // final double scale = 0.1;
         direction = MathUtil.clamp(direction, -1, 1);
-        double x_i = in_initial.x();
-        double v_i = in_initial.v();
         double a = direction * m_strongI;
-        double v = v_i + a * dt;
-        double x = x_i + v_i * dt + 0.5 * a * Math.pow(dt, 2);
-        return modulus(x, v, a);
+        double v = vi + a * dt;
+        double x = xi + vi * dt + 0.5 * a * Math.pow(dt, 2);
+        modulus(x, v, a, result);
     }
 
     /**
      * For G paths, use slightly-weaker effort.
      */
-    private State100 fullG(double dt, State100 in_initial, double direction) {
-        m_log_mode.log(() -> "full I");
-        // final double scale = 0.1;
+    private void fullG(double dt, double xi, double vi, double direction, MutableState100 result) {
+        m_log_mode.log(() -> "full G");
         direction = MathUtil.clamp(direction, -1, 1);
-        double x_i = in_initial.x();
-        double v_i = in_initial.v();
         double a = direction * m_weakG;
-        double v = v_i + a * dt;
-        double x = x_i + v_i * dt + 0.5 * a * Math.pow(dt, 2);
-        return modulus(x, v, a);
+        double v = vi + a * dt;
+        double x = xi + vi * dt + 0.5 * a * Math.pow(dt, 2);
+        modulus(x, v, a, result);
     }
 
     /**
      * The path contains an I-cruise boundary, so proceed in I to the boundary and
      * then at the cruise speed for the remaining time.
      */
-    private State100 cruise(double dt, State100 in_initial, double direction) {
+    private void cruise(double dt, double xi, double vi, double direction, MutableState100 result) {
         // need to clip (this is negative)
-        double dv = direction * m_maxVelocity - in_initial.v();
+        double dv = direction * m_maxVelocity - vi;
         // time to get to limit (positive)
         double vt = dv / (direction * m_switchingAcceleration);
         // location of that limit
-        double xt = in_initial.x() + in_initial.v() * vt
+        double xt = xi + vi * vt
                 + 0.5 * direction * m_switchingAcceleration * Math.pow(vt, 2);
         // remaining time
         double vt2 = dt - vt;
@@ -448,16 +499,20 @@ public class MinTimeController implements Glassy {
         // because this is the "not switching" branch.
         // so we just move along it
         double x = xt + direction * m_maxVelocity * vt2;
-        return modulus(x, direction * m_maxVelocity, 0);
+        modulus(x, direction * m_maxVelocity, 0, result);
     }
 
     /** Time to switch point for I+G- path, or NaN if there is no path. */
     double t1IplusGminus(State100 initial, State100 goal) {
-        double q_dot_switch = qDotSwitchIplusGminus(initial, goal);
+        return t1IplusGminus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double t1IplusGminus(double xi, double vi, double xg, double vg) {
+        double q_dot_switch = qDotSwitchIplusGminus(xi, vi, xg, vg);
         // this fixes rounding errors
-        if (MathUtil.isNear(initial.v(), q_dot_switch, 1e-6))
+        if (MathUtil.isNear(vi, q_dot_switch, 1e-6))
             return 0;
-        double t1 = (q_dot_switch - initial.v()) / m_switchingAcceleration;
+        double t1 = (q_dot_switch - vi) / m_switchingAcceleration;
         if (t1 < 0) {
             return Double.NaN;
         }
@@ -466,12 +521,16 @@ public class MinTimeController implements Glassy {
 
     /** Time to switch point for I-G+ path, or NaN if there is no path. */
     double t1IminusGplus(State100 initial, State100 goal) {
-        double q_dot_switch = qDotSwitchIminusGplus(initial, goal);
+        return t1IminusGplus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double t1IminusGplus(double xi, double vi, double xg, double vg) {
+        double q_dot_switch = qDotSwitchIminusGplus(xi, vi, xg, vg);
         // this fixes rounding errors
-        if (MathUtil.isNear(initial.v(), q_dot_switch, 1e-6))
+        if (MathUtil.isNear(vi, q_dot_switch, 1e-6))
             return 0;
 
-        double t1 = (q_dot_switch - initial.v()) / (-1.0 * m_switchingAcceleration);
+        double t1 = (q_dot_switch - vi) / (-1.0 * m_switchingAcceleration);
         if (t1 < 0) {
             return Double.NaN;
         }
@@ -480,30 +539,34 @@ public class MinTimeController implements Glassy {
 
     /**
      * Velocity of I+ at the midpoint of the "switch" path.
-     * 
+     *
      * "switch" path using I+G- means the goal has to be to the right of the "s"
      * shaped curve including I.
      */
     double qDotSwitchIplusGminus(State100 initial, State100 goal) {
-        if (initial.equals(goal))
-            return initial.v();
+        return qDotSwitchIplusGminus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qDotSwitchIplusGminus(double xi, double vi, double xg, double vg) {
+        if (xi == xg && vi == vg)
+            return vi;
 
         // intercept of I-
-        double c_minus = c_minus(initial);
+        double c_minus = c_minus(xi, vi);
         // intercept of I+
-        double c_plus = c_plus(initial);
+        double c_plus = c_plus(xi, vi);
         // position of I- at the velocity of goal
-        double p_minus = c_minus - Math.pow(goal.v(), 2) / (2 * m_switchingAcceleration);
-        double p_plus = c_plus + Math.pow(goal.v(), 2) / (2 * m_switchingAcceleration);
+        double p_minus = c_minus - Math.pow(vg, 2) / (2 * m_switchingAcceleration);
+        double p_plus = c_plus + Math.pow(vg, 2) / (2 * m_switchingAcceleration);
 
         // "limit" path we don't want.
-        if (goal.v() <= initial.v() && goal.x() < p_minus)
+        if (vg <= vi && xg < p_minus)
             return Double.NaN;
-        if (goal.v() > initial.v() && goal.x() < p_plus)
+        if (vg > vi && xg < p_plus)
             return Double.NaN;
 
         // progress along I+
-        double d = qSwitchIplusGminus(initial, goal) - c_plus(initial);
+        double d = qSwitchIplusGminus(xi, vi, xg, vg) - c_plus(xi, vi);
         // prevent rounding errors
         if (d < 0)
             d = 0;
@@ -512,31 +575,35 @@ public class MinTimeController implements Glassy {
 
     /**
      * Velocity of G+ at the midpoint of the "switch" path.
-     * 
+     *
      * "switch" path using I-G+ means the goal has to be to the left of the I- curve
      * for goal.v less than i.v, and to the left of the I+ curve for goal.v > i.v
      */
     double qDotSwitchIminusGplus(State100 initial, State100 goal) {
-        if (initial.equals(goal))
-            return goal.v();
+        return qDotSwitchIminusGplus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qDotSwitchIminusGplus(double xi, double vi, double xg, double vg) {
+        if (xi == xg && vi == vg)
+            return vg;
 
         // intercept of I-
-        double c_minus = c_minus(initial);
+        double c_minus = c_minus(xi, vi);
         // intercept of I+
-        double c_plus = c_plus(initial);
+        double c_plus = c_plus(xi, vi);
         // position of I- at the velocity of goal
-        double p_minus = c_minus - Math.pow(goal.v(), 2) / (2 * m_switchingAcceleration);
-        double p_plus = c_plus + Math.pow(goal.v(), 2) / (2 * m_switchingAcceleration);
+        double p_minus = c_minus - Math.pow(vg, 2) / (2 * m_switchingAcceleration);
+        double p_plus = c_plus + Math.pow(vg, 2) / (2 * m_switchingAcceleration);
 
         // "limit" path we don't want.
 
-        if (goal.v() <= initial.v() && goal.x() > p_minus)
+        if (vg <= vi && xg > p_minus)
             return Double.NaN;
-        if (goal.v() > initial.v() && goal.x() > p_plus)
+        if (vg > vi && xg > p_plus)
             return Double.NaN;
 
         // progress along I-
-        double d = qSwitchIminusGplus(initial, goal) - c_plus(goal);
+        double d = qSwitchIminusGplus(xi, vi, xg, vg) - c_plus(xg, vg);
         // prevent rounding errors
         if (d < 0)
             d = 0;
@@ -550,24 +617,40 @@ public class MinTimeController implements Glassy {
      * goal state, i.e. the I+G- path.
      */
     double qSwitchIplusGminus(State100 initial, State100 goal) {
-        return (c_plus(initial) + c_minus(goal)) / 2;
+        return qSwitchIplusGminus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qSwitchIplusGminus(double xi, double vi, double xg, double vg) {
+        return (c_plus(xi, vi) + c_minus(xg, vg)) / 2;
     }
 
     /**
      * Midpoint position for the I-G+ path.
      */
     double qSwitchIminusGplus(State100 initial, State100 goal) {
-        return (c_minus(initial) + c_plus(goal)) / 2;
+        return qSwitchIminusGplus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qSwitchIminusGplus(double xi, double vi, double xg, double vg) {
+        return (c_minus(xi, vi) + c_plus(xg, vg)) / 2;
     }
 
     /** Intercept of negative-acceleration path intersecting s */
     double c_minus(State100 s) {
-        return s.x() - Math.pow(s.v(), 2) / (-2.0 * m_switchingAcceleration);
+        return c_minus(s.x(), s.v());
+    }
+
+    private double c_minus(double x, double v) {
+        return x - Math.pow(v, 2) / (-2.0 * m_switchingAcceleration);
     }
 
     /** Intercept of negative-acceleration path intersecting s */
     double c_plus(State100 s) {
-        return s.x() - Math.pow(s.v(), 2) / (2.0 * m_switchingAcceleration);
+        return c_plus(s.x(), s.v());
+    }
+
+    private double c_plus(double x, double v) {
+        return x - Math.pow(v, 2) / (2.0 * m_switchingAcceleration);
     }
 
     // for testing
@@ -55,5 +55,13 @@ public enum Experiment {
     /**
      * Clip the snap omega
      */
-    SnapGentle
+    SnapGentle,
+    /**
+     * Time instrumented commands, and log the slowest ones.
+     */
+    ProfileCommands,
+    /**
+     * Optimize splines with analytic gradients instead of finite differences.
+     */
+    AnalyticSplineOptimizer
 }
@@ -8,6 +8,7 @@ import java.util.function.BooleanSupplier;
 
 import org.team100.lib.config.Identity;
 import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.util.Memo;
 
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
@@ -21,6 +22,11 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * -- per-identity: enabled for specific RoboRIO serial numbers
  * -- override: using a Sendable Chooser in a dashboard, e.g. glass.
  * -- test override: to force a config for unit tests.
+ * 
+ * Reading a chooser takes a lock and a map lookup, and some experiments are
+ * checked many times per loop, so enabled() reads a snapshot instead, a
+ * bitmask indexed by ordinal, which is refreshed once per loop, in
+ * Memo.resetAll(), and whenever a test override is set.
  */
 public class Experiments implements Glassy {
     public static final Experiments instance = new Experiments(Identity.instance);
@@ -43,6 +49,9 @@ public class Experiments implements Glassy {
 
     private final Map<Experiment, Boolean> m_testOverrides;
 
+    /** Bit i is set if the experiment with ordinal i is enabled. */
+    private volatile long m_snapshot;
+
     private Experiments(Identity identity) {
         m_experiments = EnumSet.copyOf(globalExperiments);
         m_experiments.addAll(experimentsByIdentity.getOrDefault(identity, EnumSet.noneOf(Experiment.class)));
@@ -60,24 +69,39 @@ public class Experiments implements Glassy {
             m_overrides.put(e, override);
             SmartDashboard.putData(override);
         }
+        refresh();
+        Memo.onReset(this::refresh);
     }
 
     /** overrides everything. for testing only. */
     public void testOverride(Experiment experiment, boolean state) {
         m_testOverrides.put(experiment, state);
+        refresh();
     }
 
     public boolean enabled(Experiment experiment) {
+        return (m_snapshot & (1L << experiment.ordinal())) != 0;
+    }
+
+    /** Read all the choosers and overrides. */
+    public void refresh() {
+        long snapshot = 0;
+        for (Experiment e : Experiment.values()) {
+            if (read(e))
+                snapshot |= 1L << e.ordinal();
+        }
+        m_snapshot = snapshot;
+    }
+
+    ////////////////////////////////////////
+
+    private boolean read(Experiment experiment) {
         if (m_testOverrides.containsKey(experiment)) {
             return m_testOverrides.get(experiment);
         }
         return m_overrides.get(experiment).getSelected().getAsBoolean();
     }
 
-    
-
-    ////////////////////////////////////////
-
     private String on(Experiment e) {
         return e.name() + " ON";
     }
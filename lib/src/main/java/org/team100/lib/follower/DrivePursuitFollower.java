@@ -15,6 +15,7 @@ import org.team100.lib.logging.LoggerFactory.Translation2dLogger;
 import org.team100.lib.logging.LoggerFactory.Twist2dLogger;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.timing.TimedPose;
+import org.team100.lib.trajectory.TrajectoryNearestSearch;
 import org.team100.lib.trajectory.TrajectorySamplePoint;
 import org.team100.lib.trajectory.TrajectoryTimeIterator;
 import org.team100.lib.util.DriveUtil;
@@ -70,6 +71,7 @@ public class DrivePursuitFollower implements DriveTrajectoryFollower {
     private Lookahead mSpeedLookahead = null;
 
     private TrajectoryTimeIterator m_iter;
+    private TrajectoryNearestSearch m_search;
     private boolean mIsReversed = false;
 
     /** Min speed is used at the start of a trajectory only. */
@@ -93,6 +95,7 @@ public class DrivePursuitFollower implements DriveTrajectoryFollower {
     @Override
     public void setTrajectory(TrajectoryTimeIterator trajectory) {
         m_iter = trajectory;
+        m_search = new TrajectoryNearestSearch(trajectory.trajectory());
         useMinSpeed = true;
 
         for (int i = 0; i < trajectory.trajectory().length(); ++i) {
@@ -233,13 +236,10 @@ public class DrivePursuitFollower implements DriveTrajectoryFollower {
      * something goes wrong.
      */
     Optional<TimedPose> getSetpoint(final Pose2d measuredPose) {
-        // time to get to the trajectory point closest to the current pose
-        OptionalDouble previewQuantity = previewDt(m_iter, measuredPose);
-        if (!previewQuantity.isPresent()) {
-            return Optional.empty();
-        }
+        // time of the trajectory point closest to the current pose
+        double nearestS = m_search.nearestTimeS(measuredPose);
 
-        Optional<TrajectorySamplePoint> sample_point = m_iter.advance(previewQuantity.getAsDouble());
+        Optional<TrajectorySamplePoint> sample_point = m_iter.advance(nearestS - m_iter.getProgress());
         if (!sample_point.isPresent()) {
             return Optional.empty();
         }
@@ -281,6 +281,9 @@ public class DrivePursuitFollower implements DriveTrajectoryFollower {
      * given pose. This doesn't require that the given pose be on the trajectory at
      * all, it just picks the nearest point.
      * 
+     * This is the original search, which samples the trajectory many times. The
+     * follower uses TrajectoryNearestSearch instead.
+     * 
      * NOTE: if the probe is at the end, we return a time that is past the end
      * rather than the end arrival time.
      * 
@@ -0,0 +1,241 @@
+package org.team100.lib.framework;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleSupplier;
+
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+/**
+ * Runs robot code headless, with a virtual clock, as fast as the CPU allows.
+ *
+ * The HAL and the simulated clock are process-global, so to run many
+ * simulations at once, run each one in its own process: write a main() that
+ * calls initialize(), constructs the robot, runs it, prints the result with
+ * Result.toString(), and calls shutdown(); then use launch() to run that main
+ * many times in parallel, with different arguments.
+ *
+ * The simulation is deterministic: there's no noise model, so the same
+ * arguments always produce the same result.
+ *
+ * Metrics are named suppliers: "final" metrics are read once at the end, e.g.
+ * score, and "sampled" metrics are read every loop, and reported as mean and
+ * max, e.g. path error. Loop time is always reported, measured with the wall
+ * clock, since the FPGA clock doesn't move during a loop.
+ */
+public class HeadlessRunner {
+    /** Prefix of the result line, so launch() can ignore other output. */
+    private static final String kResultPrefix = "HEADLESS RESULT";
+
+    /**
+     * @param simulatedS simulated duration
+     * @param ticks      number of main loop periods
+     * @param meanLoopS  mean wall-clock time per loop
+     * @param maxLoopS   max wall-clock time per loop
+     * @param metrics    name to value, in the order added
+     */
+    public record Result(
+            double simulatedS,
+            int ticks,
+            double meanLoopS,
+            double maxLoopS,
+            Map<String, Double> metrics) {
+
+        /** One line, parseable by parse(). */
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder(kResultPrefix);
+            b.append(String.format(" simulatedS=%.3f ticks=%d meanLoopS=%.6f maxLoopS=%.6f",
+                    simulatedS, ticks, meanLoopS, maxLoopS));
+            for (Map.Entry<String, Double> e : metrics.entrySet()) {
+                b.append(String.format(" %s=%.6f", e.getKey(), e.getValue()));
+            }
+            return b.toString();
+        }
+
+        /** Everything as name to value, e.g. to aggregate across runs. */
+        public Map<String, Double> all() {
+            Map<String, Double> all = new LinkedHashMap<>();
+            all.put("simulatedS", simulatedS);
+            all.put("ticks", (double) ticks);
+            all.put("meanLoopS", meanLoopS);
+            all.put("maxLoopS", maxLoopS);
+            all.putAll(metrics);
+            return all;
+        }
+
+        /** Parse the output of toString(), or return null if it's not a result. */
+        public static Map<String, Double> parse(String line) {
+            if (!line.startsWith(kResultPrefix))
+                return null;
+            Map<String, Double> result = new LinkedHashMap<>();
+            for (String field : line.substring(kResultPrefix.length()).trim().split(" ")) {
+                int eq = field.indexOf('=');
+                if (eq < 0)
+                    continue;
+                result.put(field.substring(0, eq), Double.parseDouble(field.substring(eq + 1)));
+            }
+            return result;
+        }
+    }
+
+    private final TimedRobot100 m_robot;
+    private final Map<String, DoubleSupplier> m_final = new LinkedHashMap<>();
+    private final Map<String, DoubleSupplier> m_sampled = new LinkedHashMap<>();
+
+    /**
+     * Call initialize() before constructing the robot.
+     */
+    public HeadlessRunner(TimedRobot100 robot) {
+        m_robot = robot;
+    }
+
+    /** Start the HAL with the clock paused. Call this first. */
+    public static void initialize() {
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+    }
+
+    /**
+     * Stop the things the robot starts that would keep the process alive, and
+     * the HAL. Call this last, after closing the robot.
+     */
+    public static void shutdown() {
+        DataLogManager.stop();
+        NetworkTableInstance.getDefault().stopServer();
+        HAL.shutdown();
+    }
+
+    /** Metric read once at the end. Names can't contain spaces. */
+    public void addFinal(String name, DoubleSupplier metric) {
+        m_final.put(name, metric);
+    }
+
+    /** Metric read every loop, reported as name_mean and name_max. */
+    public void addSampled(String name, DoubleSupplier metric) {
+        m_sampled.put(name, metric);
+    }
+
+    /** Initialize the robot, then run durationS of autonomous. */
+    public Result runAutonomous(double durationS) {
+        m_robot.robotInit();
+        m_robot.simulationInit();
+        DriverStationSim.setDsAttached(true);
+        DriverStationSim.setAutonomous(true);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+        return run(durationS);
+    }
+
+    /** Run durationS in whatever mode the driver station is in. */
+    public Result run(double durationS) {
+        int ticks = (int) Math.round(durationS / TimedRobot100.LOOP_PERIOD_S);
+        double[] sums = new double[m_sampled.size()];
+        double[] maxes = new double[m_sampled.size()];
+        Arrays.fill(maxes, Double.NEGATIVE_INFINITY);
+        double totalLoopS = 0;
+        double maxLoopS = 0;
+        for (int i = 0; i < ticks; ++i) {
+            long t0 = System.nanoTime();
+            m_robot.runVirtual(TimedRobot100.LOOP_PERIOD_S);
+            double loopS = (System.nanoTime() - t0) * 1e-9;
+            totalLoopS += loopS;
+            maxLoopS = Math.max(maxLoopS, loopS);
+            int j = 0;
+            for (DoubleSupplier metric : m_sampled.values()) {
+                double v = metric.getAsDouble();
+                sums[j] += v;
+                maxes[j] = Math.max(maxes[j], v);
+                j++;
+            }
+        }
+        Map<String, Double> metrics = new LinkedHashMap<>();
+        int j = 0;
+        for (String name : m_sampled.keySet()) {
+            metrics.put(name + "_mean", ticks > 0 ? sums[j] / ticks : 0);
+            metrics.put(name + "_max", maxes[j]);
+            j++;
+        }
+        for (Map.Entry<String, DoubleSupplier> e : m_final.entrySet()) {
+            metrics.put(e.getKey(), e.getValue().getAsDouble());
+        }
+        return new Result(
+                ticks * TimedRobot100.LOOP_PERIOD_S,
+                ticks,
+                ticks > 0 ? totalLoopS / ticks : 0,
+                maxLoopS,
+                metrics);
+    }
+
+    /**
+     * Run the main class once per argument list, each in its own JVM with the
+     * current classpath, at most parallelism at a time.
+     *
+     * @return the results, in the same order, or null for runs that failed
+     */
+    public static List<Map<String, Double>> launch(
+            Class<?> mainClass,
+            List<String[]> runs,
+            int parallelism) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Map<String, Double>>> futures = new ArrayList<>();
+            for (String[] args : runs) {
+                futures.add(pool.submit(() -> launchOne(mainClass, args)));
+            }
+            List<Map<String, Double>> results = new ArrayList<>();
+            for (Future<Map<String, Double>> f : futures) {
+                try {
+                    results.add(f.get());
+                } catch (ExecutionException e) {
+                    Util.warn("headless run failed: " + e.getMessage());
+                    results.add(null);
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Map<String, Double> launchOne(Class<?> mainClass, String... args)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        String libraryPath = System.getProperty("java.library.path");
+        if (libraryPath != null)
+            command.add("-Djava.library.path=" + libraryPath);
+        command.add(mainClass.getName());
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, Double> result = null;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Map<String, Double> parsed = Result.parse(line);
+                if (parsed != null)
+                    result = parsed;
+            }
+        }
+        process.waitFor();
+        return result;
+    }
+}
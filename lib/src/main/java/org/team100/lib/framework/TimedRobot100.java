@@ -5,6 +5,7 @@ import edu.wpi.first.hal.FRCNetComm.tInstances;
 import edu.wpi.first.hal.FRCNetComm.tResourceType;
 import edu.wpi.first.wpilibj.IterativeRobotBase;
 import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
 import edu.wpi.first.hal.HAL;
 import edu.wpi.first.hal.NotifierJNI;
 
@@ -169,6 +170,34 @@ public class TimedRobot100 extends IterativeRobotBase implements Glassy {
         }
     }
 
+    /**
+     * Alternate main loop for headless simulation: runs the callbacks that would
+     * come due in the next durationS, in order, stepping the simulated clock
+     * instead of waiting for it, so it runs as fast as the CPU allows.
+     * 
+     * Timing must be paused (SimHooks.pauseTiming()), and robotInit() should
+     * have been called already.
+     * 
+     * @see HeadlessRunner
+     */
+    public void runVirtual(double durationS) {
+        double endS = Timer.getFPGATimestamp() + durationS;
+        while (m_callbacks.peek().expirationTime <= endS) {
+            Callback callback = m_callbacks.poll();
+            double waitS = callback.expirationTime - Timer.getFPGATimestamp();
+            if (waitS > 0)
+                SimHooks.stepTiming(waitS);
+
+            callback.run();
+
+            callback.expirationTime += callback.period;
+            m_callbacks.add(callback);
+        }
+        double restS = endS - Timer.getFPGATimestamp();
+        if (restS > 0)
+            SimHooks.stepTiming(restS);
+    }
+
     /** Ends the main loop in startCompetition(). */
     @Override
     public void endCompetition() {
@@ -30,6 +30,8 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
 
     private final SwerveKinodynamics m_kinodynamics;
     private final TimeInterpolatableBuffer100<InterpolationRecord> m_poseBuffer;
+    /** Reused by put(); exp() doesn't keep it. */
+    private final Twist2d m_twist = new Twist2d();
     // LOGGERS
     private final Rotation2dLogger m_log_offset;
     private final DoubleLogger m_log_pose_x;
@@ -84,6 +86,14 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
         return m_poseBuffer.get(timestampSeconds).m_state;
     }
 
+    /**
+     * Field-relative heading for the given gyro angle, using the current gyro
+     * offset, which includes all the vision corrections so far.
+     */
+    public Rotation2d headingFromGyro(Rotation2d gyroAngle) {
+        return gyroAngle.plus(m_gyroOffset);
+    }
+
     /** Empty the buffer and add the given measurements. */
     public void reset(
             Rotation2d gyroAngle,
@@ -230,7 +240,8 @@ public class SwerveDrivePoseEstimator100 implements PoseEstimator100, Glassy {
                 value.m_wheelPositions,
                 wheelPositions);
 
-        Twist2d twist = m_kinodynamics.getKinematics().toTwist2d(modulePositionDelta);
+        Twist2d twist = m_twist;
+        m_kinodynamics.getKinematics().toTwist2d(modulePositionDelta, twist);
 
         // replace the twist dtheta with one derived from the current pose
         // pose angle based on the gyro (which is more accurate)
@@ -3,6 +3,7 @@ package org.team100.lib.localization;
 import java.io.IOException;
 import java.util.EnumSet;
 import java.util.Optional;
+import java.util.function.DoubleFunction;
 
 import org.team100.lib.config.Camera;
 import org.team100.lib.dashboard.Glassy;
@@ -73,6 +74,7 @@ public class VisionDataProvider24 implements VisionData, Glassy {
     private final AprilTagFieldLayoutWithCorrectOrientation m_layout;
     private final PoseEstimationHelper m_helper;
     private final NetworkTableListenerPoller m_poller;
+    private final DoubleFunction<Optional<Rotation2d>> m_headingAt;
     // LOGGERS
     private final EnumLogger m_log_alliance;
 
@@ -85,19 +87,36 @@ public class VisionDataProvider24 implements VisionData, Glassy {
     private long latestTimeUs = 0;
 
     /**
+     * Uses the pose estimator heading at the frame time.
+     * 
      * @param layout
      * @param poseEstimator
-     * @param rotationSupplier rotation for the given time in seconds
-     * @throws IOException
      */
     public VisionDataProvider24(
             LoggerFactory parent,
             AprilTagFieldLayoutWithCorrectOrientation layout,
             PoseEstimator100 poseEstimator) {
+        this(parent, layout, poseEstimator, t -> Optional.empty());
+    }
+
+    /**
+     * @param layout
+     * @param poseEstimator
+     * @param headingAt     field-relative heading at the given time in seconds,
+     *                      e.g. from the gyro history, which has finer time
+     *                      resolution than the pose estimator. If empty, the
+     *                      pose estimator heading is used.
+     */
+    public VisionDataProvider24(
+            LoggerFactory parent,
+            AprilTagFieldLayoutWithCorrectOrientation layout,
+            PoseEstimator100 poseEstimator,
+            DoubleFunction<Optional<Rotation2d>> headingAt) {
         LoggerFactory child = parent.child(this);
         m_layout = layout;
         m_helper = new PoseEstimationHelper(child);
         m_poseEstimator = poseEstimator;
+        m_headingAt = headingAt;
 
         NetworkTableInstance inst = NetworkTableInstance.getDefault();
         m_poller = new NetworkTableListenerPoller(inst);
@@ -177,7 +196,8 @@ public class VisionDataProvider24 implements VisionData, Glassy {
         m_log_alliance.log(() -> alliance);
         final Transform3d cameraInRobotCoordinates = Camera.get(cameraSerialNumber).getOffset();
 
-        final Rotation2d gyroRotation = m_poseEstimator.get(blipTimeSec).pose().getRotation();
+        final Rotation2d gyroRotation = m_headingAt.apply(blipTimeSec)
+                .orElseGet(() -> m_poseEstimator.get(blipTimeSec).pose().getRotation());
 
         estimateFromBlips(
                 blips,
@@ -5,6 +5,11 @@ package org.team100.lib.logging;
  * ones.
  */
 public enum Level {
+    /**
+     * Nothing at all, not even COMP. For components that are run many times per
+     * cycle for planning; not offered in the dashboard chooser.
+     */
+    OFF(0),
     /**
      * Minimal, curated set of measurements for competition matches.
      */
@@ -16,6 +16,8 @@ public class LevelPoller {
         m_consumer = consumer;
         m_levelChooser = LevelChooser.get();
         for (Level level : Level.values()) {
+            if (level == Level.OFF)
+                continue;
             m_levelChooser.addOption(level.name(), level);
         }
         m_levelChooser.setDefaultOption(defaultLevel.name(), defaultLevel);
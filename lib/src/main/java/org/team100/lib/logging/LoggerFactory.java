@@ -83,6 +83,14 @@ public class LoggerFactory {
         return child(obj.getGlassName());
     }
 
+    /**
+     * Same tree, but never logs anything, whatever the level. Use a distinct
+     * child, so the keys don't collide with the logged instance.
+     */
+    public LoggerFactory off() {
+        return new LoggerFactory(() -> Level.OFF, m_root, m_pLogger);
+    }
+
     private boolean allow(Level level) {
         Level allowed = m_level.get();
         if (allowed == Level.COMP && level == Level.COMP) {
@@ -150,6 +158,16 @@ public class LoggerFactory {
             double val = vals.get();
             m_primitiveLogger.log(val);
         }
+
+        /**
+         * For values that are already computed, in code that runs many times per
+         * cycle: a lambda capturing a local allocates every call.
+         */
+        public void log(double val) {
+            if (!allow(m_level))
+                return;
+            m_primitiveLogger.log(val);
+        }
     }
 
     public DoubleLogger doubleLogger(Level level, String leaf) {
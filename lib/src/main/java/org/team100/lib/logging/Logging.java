@@ -18,7 +18,8 @@ public class Logging {
 
     private UdpPrimitiveLogger udpLogger;
     private PrimitiveLogger ntLogger;
-    private Level m_level;
+    /** Set by the level poller, maybe on another thread, read by every log call. */
+    private volatile Level m_level;
 
     /**
      * root is "field", with a ".type"->"Field2d" entry as required by glass.
@@ -228,6 +228,8 @@ public class SwerveDriveSubsystem extends SubsystemBase implements Glassy, Drive
     @Override
     public void periodic() {
         // m_poseEstimator.periodic();
+        // before the pose update, so the gyro history covers this cycle.
+        m_gyro.periodic();
         m_stateSupplier.reset();
         m_log_state.log(this::getState);
         m_log_turning.log(() -> getState().pose().getRotation().getDegrees());
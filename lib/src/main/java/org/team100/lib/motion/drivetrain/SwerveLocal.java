@@ -17,8 +17,8 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
 import org.team100.lib.motion.drivetrain.module.SwerveModuleCollection;
 import org.team100.lib.state.State100;
-import org.team100.lib.swerve.AsymSwerveSetpointGenerator;
 import org.team100.lib.swerve.SwerveSetpoint;
+import org.team100.lib.swerve.SwerveSetpointGenerator;
 import org.team100.lib.util.Util;
 
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -49,7 +49,7 @@ public class SwerveLocal implements Glassy, SwerveLocalObserver {
 
     private final SwerveKinodynamics m_swerveKinodynamics;
     private final SwerveModuleCollection m_modules;
-    private final AsymSwerveSetpointGenerator m_SwerveSetpointGenerator;
+    private final SwerveSetpointGenerator m_SwerveSetpointGenerator;
     private final ChassisSpeedsLogger m_log_desired;
     private final ChassisSpeedsLogger m_log_setpoint_delta;
     private final ChassisSpeedsLogger m_log_prev_setpoint;
@@ -57,11 +57,16 @@ public class SwerveLocal implements Glassy, SwerveLocalObserver {
     private final ChassisSpeedsLogger m_log_chassis_speed;
 
     private SwerveSetpoint m_prevSetpoint;
+    /**
+     * The setpoint generator writes into whichever of these isn't the previous
+     * setpoint, so it doesn't allocate.
+     */
+    private final SwerveSetpoint[] m_setpoints = { new SwerveSetpoint(), new SwerveSetpoint() };
 
     public SwerveLocal(
             LoggerFactory parent,
             SwerveKinodynamics swerveKinodynamics,
-            AsymSwerveSetpointGenerator setpointGenerator,
+            SwerveSetpointGenerator setpointGenerator,
             SwerveModuleCollection modules) {
         LoggerFactory child = parent.child(this);
         m_log_desired = child.chassisSpeedsLogger(Level.DEBUG, "desired chassis speed");
@@ -241,12 +246,13 @@ public class SwerveLocal implements Glassy, SwerveLocalObserver {
 
     private void setChassisSpeedsWithSetpointGenerator(ChassisSpeeds speeds) {
         // Informs SwerveDriveKinematics of the module states.
-        SwerveSetpoint setpoint = m_SwerveSetpointGenerator.generateSetpoint(
+        SwerveSetpoint setpoint = m_prevSetpoint == m_setpoints[0] ? m_setpoints[1] : m_setpoints[0];
+        m_SwerveSetpointGenerator.generateSetpoint(
                 m_prevSetpoint,
-                speeds);
+                speeds,
+                setpoint);
         // ideally delta would be zero because our input would be feasible.
-        ChassisSpeeds delta = setpoint.getChassisSpeeds().minus(speeds);
-        m_log_setpoint_delta.log(() -> delta);
+        m_log_setpoint_delta.log(() -> setpoint.getChassisSpeeds().minus(speeds));
         m_log_prev_setpoint.log(m_prevSetpoint::getChassisSpeeds);
         m_log_setpoint.log(setpoint::getChassisSpeeds);
         setModuleStates(setpoint.getModuleStates());
@@ -14,14 +14,37 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
 /**
  * Helper class that converts between chassis state and module state.
  * 
+ * There are three layers:
+ * 
+ * The kernels, toModuleVectors() and toChassisVector(), work on flat arrays,
+ * don't allocate, and don't touch any state, so they're safe from any thread.
+ * 
+ * The holder methods, e.g. toSwerveModuleStates(ChassisSpeeds,
+ * SwerveModuleStates), write into objects the caller reuses. They use scratch
+ * buffers and the remembered module headings, so they're for the main loop
+ * only. They allocate only when a module angle actually changes, since
+ * Rotation2d is immutable.
+ * 
+ * The object methods allocate their results and call the holder methods.
+ * 
  * Note: forward kinematics is never more accurate than the gyro and we
  * absolutely cannot operate without a functional gyro, so we should use the
  * gyro instead. see https://github.com/Team100/all24/issues/350
  */
 public class SwerveDriveKinematics100 {
     private static final double kEpsilon = 1e-6;
+    private static final int kModules = 4;
     private final int m_numModules;
     private final Translation2d[] m_moduleLocations;
+    /** Module x and y coordinates, for the inverse kernel. */
+    private final double[] m_x;
+    private final double[] m_y;
+    /** Forward kinematics matrix (3 x 8), row-major, for the forward kernel. */
+    private final double[] m_forward;
+    /** Scratch for the holder methods: [vx0; vy0; ...] */
+    private final double[] m_vectors = new double[2 * kModules];
+    /** Scratch for the holder methods: [vx; vy; omega] */
+    private final double[] m_chassis = new double[3];
 
     /**
      * this (2n x 3) matrix looks something like
@@ -85,9 +108,10 @@ public class SwerveDriveKinematics100 {
     final SimpleMatrix m_forwardKinematics;
     /**
      * Used when velocity is zero, to keep the steering the same.
-     * elements are nullable.
+     * Elements are empty until the module has moved. These are the same Optional
+     * instances as in the module states, so remembering them doesn't allocate.
      */
-    private SwerveModuleHeadings m_moduleHeadings;
+    private final Optional<Rotation2d>[] m_headings;
 
     /**
      * array order:
@@ -105,8 +129,20 @@ public class SwerveDriveKinematics100 {
         m_moduleLocations = Arrays.copyOf(moduleTranslationsM, m_numModules);
         m_inverseKinematics = inverseMatrix(m_moduleLocations);
         m_forwardKinematics = m_inverseKinematics.pseudoInverse();
-        // nulls avoid startup transient
-        m_moduleHeadings = nulls();
+        m_x = new double[kModules];
+        m_y = new double[kModules];
+        for (int i = 0; i < kModules; ++i) {
+            m_x[i] = m_moduleLocations[i].getX();
+            m_y[i] = m_moduleLocations[i].getY();
+        }
+        m_forward = new double[3 * 2 * kModules];
+        for (int row = 0; row < 3; ++row) {
+            for (int col = 0; col < 2 * kModules; ++col) {
+                m_forward[row * 2 * kModules + col] = m_forwardKinematics.get(row, col);
+            }
+        }
+        // empties avoid startup transient
+        m_headings = empties();
     }
 
     /**
@@ -115,7 +151,24 @@ public class SwerveDriveKinematics100 {
      * arg elements are nullable
      */
     public void resetHeadings(SwerveModuleHeadings moduleHeadings) {
-        m_moduleHeadings = moduleHeadings;
+        m_headings[0] = Optional.ofNullable(moduleHeadings.frontLeft());
+        m_headings[1] = Optional.ofNullable(moduleHeadings.frontRight());
+        m_headings[2] = Optional.ofNullable(moduleHeadings.rearLeft());
+        m_headings[3] = Optional.ofNullable(moduleHeadings.rearRight());
+    }
+
+    /**
+     * The remembered module headings, e.g. to restore them later with
+     * resetHeadings().
+     *
+     * elements are nullable
+     */
+    public SwerveModuleHeadings getHeadings() {
+        return new SwerveModuleHeadings(
+                m_headings[0].orElse(null),
+                m_headings[1].orElse(null),
+                m_headings[2].orElse(null),
+                m_headings[3].orElse(null));
     }
 
     /**
@@ -124,15 +177,44 @@ public class SwerveDriveKinematics100 {
      * The resulting module state speeds are always positive.
      */
     public SwerveModuleStates toSwerveModuleStates(ChassisSpeeds chassisSpeeds) {
-        if (fullStop(chassisSpeeds)) {
-            return constantModuleHeadings(); // avoid steering when stopped
+        SwerveModuleStates states = new SwerveModuleStates(
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100());
+        toSwerveModuleStates(chassisSpeeds, states);
+        return states;
+    }
+
+    /**
+     * INVERSE: chassis speeds -> module states, overwriting the states in out.
+     * 
+     * The resulting module state speeds are always positive.
+     */
+    public void toSwerveModuleStates(ChassisSpeeds chassisSpeeds, SwerveModuleStates out) {
+        toSwerveModuleStates(
+                chassisSpeeds.vxMetersPerSecond,
+                chassisSpeeds.vyMetersPerSecond,
+                chassisSpeeds.omegaRadiansPerSecond,
+                out);
+    }
+
+    /**
+     * INVERSE: chassis speeds -> module states, overwriting the states in out.
+     * 
+     * The resulting module state speeds are always positive.
+     */
+    public void toSwerveModuleStates(double vx, double vy, double omega, SwerveModuleStates out) {
+        if (fullStop(vx, vy, omega)) {
+            constantModuleHeadings(out); // avoid steering when stopped
+            return;
         }
-        // [vx; vy; omega] (3 x 1)
-        SimpleMatrix chassisSpeedsVector = chassisSpeeds2Vector(chassisSpeeds);
         // [v cos; v sin; ...] (2n x 1)
-        SwerveModuleStates states = statesFromVector(chassisSpeedsVector);
-        updateHeadings(states);
-        return states;
+        toModuleVectors(vx, vy, omega, m_vectors);
+        for (int i = 0; i < kModules; ++i) {
+            stateFromVector(m_vectors[2 * i], m_vectors[2 * i + 1], out.get(i));
+        }
+        updateHeadings(out);
     }
 
     /**
@@ -141,14 +223,12 @@ public class SwerveDriveKinematics100 {
      * This assumes the wheel paths are geodesics; steering does not change.
      */
     public SwerveModuleDeltas toSwerveModuleDelta(Twist2d twist) {
-        if (fullStop(twist)) {
+        if (fullStop(twist.dx, twist.dy, twist.dtheta)) {
             return constantModulePositions();
         }
-        // [dx; dy; dtheta] (3 x 1)
-        SimpleMatrix twistVector = twist2Vector(twist);
         // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = m_inverseKinematics.mult(twistVector);
-        SwerveModuleDeltas deltas = deltasFromVector(deltaVector);
+        toModuleVectors(twist.dx, twist.dy, twist.dtheta, m_vectors);
+        SwerveModuleDeltas deltas = deltasFromVector(m_vectors);
         updateHeadings(deltas);
         return deltas;
     }
@@ -169,12 +249,24 @@ public class SwerveDriveKinematics100 {
      * NOTE: do not use the returned omega, use the gyro instead.
      */
     public ChassisSpeeds toChassisSpeeds(SwerveModuleStates states) {
-        // checkLength(states);
+        ChassisSpeeds speeds = new ChassisSpeeds();
+        toChassisSpeeds(states, speeds);
+        return speeds;
+    }
+
+    /**
+     * FORWARD: module states -> chassis speeds, overwriting out.
+     * 
+     * NOTE: do not use the resulting omega, use the gyro instead.
+     */
+    public void toChassisSpeeds(SwerveModuleStates states, ChassisSpeeds out) {
         // [v cos; v sin; ...] (2n x 1)
-        SimpleMatrix statesVector = states2Vector(states);
+        states2Vector(states, m_vectors);
         // [vx; vy; omega]
-        SimpleMatrix chassisSpeedsVector = m_forwardKinematics.mult(statesVector);
-        return vector2ChassisSpeeds(chassisSpeedsVector);
+        toChassisVector(m_vectors, m_chassis);
+        out.vxMetersPerSecond = m_chassis[0];
+        out.vyMetersPerSecond = m_chassis[1];
+        out.omegaRadiansPerSecond = m_chassis[2];
     }
 
     /**
@@ -185,12 +277,66 @@ public class SwerveDriveKinematics100 {
      * NOTE: do not use the returned dtheta, use the gyro instead.
      */
     public Twist2d toTwist2d(SwerveModuleDeltas deltas) {
-        // checkLength(deltas);
+        Twist2d twist = new Twist2d();
+        toTwist2d(deltas, twist);
+        return twist;
+    }
+
+    /**
+     * FORWARD: module deltas -> twist, overwriting out.
+     * 
+     * NOTE: do not use the resulting dtheta, use the gyro instead.
+     */
+    public void toTwist2d(SwerveModuleDeltas deltas, Twist2d out) {
         // [d cos; d sin; ...] (2n x 1)
-        SimpleMatrix deltaVector = deltas2Vector(deltas);
+        deltas2Vector(deltas, m_vectors);
         // [dx ;dy; dtheta]
-        SimpleMatrix twistVector = m_forwardKinematics.mult(deltaVector);
-        return vector2Twist(twistVector);
+        toChassisVector(m_vectors, m_chassis);
+        out.dx = m_chassis[0];
+        out.dy = m_chassis[1];
+        out.dtheta = m_chassis[2];
+    }
+
+    /**
+     * INVERSE kernel: chassis velocity (or twist) -> module velocity (or delta)
+     * vectors.
+     * 
+     * This doesn't allocate, and it doesn't use or update the remembered module
+     * headings, so it's safe to call from any thread, e.g. in a planner.
+     * 
+     * @param vx    m/s or m
+     * @param vy    m/s or m
+     * @param omega rad/s or rad
+     * @param out   [vx0; vy0; vx1; vy1; vx2; vy2; vx3; vy3], overwritten
+     */
+    public void toModuleVectors(double vx, double vy, double omega, double[] out) {
+        out[0] = vx - m_y[0] * omega;
+        out[1] = vy + m_x[0] * omega;
+        out[2] = vx - m_y[1] * omega;
+        out[3] = vy + m_x[1] * omega;
+        out[4] = vx - m_y[2] * omega;
+        out[5] = vy + m_x[2] * omega;
+        out[6] = vx - m_y[3] * omega;
+        out[7] = vy + m_x[3] * omega;
+    }
+
+    /**
+     * FORWARD kernel: module velocity (or delta) vectors -> chassis velocity (or
+     * twist), the least-squares fit.
+     * 
+     * This doesn't allocate.
+     * 
+     * @param in  [vx0; vy0; vx1; vy1; vx2; vy2; vx3; vy3]
+     * @param out [vx; vy; omega], overwritten
+     */
+    public void toChassisVector(double[] in, double[] out) {
+        final double[] f = m_forward;
+        out[0] = f[0] * in[0] + f[1] * in[1] + f[2] * in[2] + f[3] * in[3]
+                + f[4] * in[4] + f[5] * in[5] + f[6] * in[6] + f[7] * in[7];
+        out[1] = f[8] * in[0] + f[9] * in[1] + f[10] * in[2] + f[11] * in[3]
+                + f[12] * in[4] + f[13] * in[5] + f[14] * in[6] + f[15] * in[7];
+        out[2] = f[16] * in[0] + f[17] * in[1] + f[18] * in[2] + f[19] * in[3]
+                + f[20] * in[4] + f[21] * in[5] + f[22] * in[6] + f[23] * in[7];
     }
 
     /**
@@ -203,11 +349,12 @@ public class SwerveDriveKinematics100 {
             SwerveModuleStates states,
             double maxSpeedM_s) {
         double realMaxSpeed = 0;
-        for (SwerveModuleState100 moduleState : states.all()) {
-            realMaxSpeed = Math.max(realMaxSpeed, Math.abs(moduleState.speedMetersPerSecond));
+        for (int i = 0; i < kModules; ++i) {
+            realMaxSpeed = Math.max(realMaxSpeed, Math.abs(states.get(i).speedMetersPerSecond));
         }
         if (realMaxSpeed > maxSpeedM_s) {
-            for (SwerveModuleState100 moduleState : states.all()) {
+            for (int i = 0; i < kModules; ++i) {
+                SwerveModuleState100 moduleState = states.get(i);
                 moduleState.speedMetersPerSecond = moduleState.speedMetersPerSecond / realMaxSpeed
                         * maxSpeedM_s;
             }
@@ -217,128 +364,94 @@ public class SwerveDriveKinematics100 {
     ///////////////////////////////////////
 
     /** states -> [v cos; v sin; ... v cos; v sin] (2n x 1) */
-    private SimpleMatrix states2Vector(SwerveModuleStates moduleStates) {
-        SwerveModuleState100[] moduleStatesAll = moduleStates.all();
-        SimpleMatrix moduleStatesMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModuleState100 module = moduleStatesAll[i];
-            if (Math.abs(module.speedMetersPerSecond) < 1e-6 || module.angle.isEmpty()) {
-                // wheel is stopped, or angle is invalid so pretend it's stopped.
-                moduleStatesMatrix.set(i * 2, 0, 0);
-                moduleStatesMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleStatesMatrix.set(i * 2, 0, module.speedMetersPerSecond * module.angle.get().getCos());
-                moduleStatesMatrix.set(i * 2 + 1, 0, module.speedMetersPerSecond * module.angle.get().getSin());
+    private static void states2Vector(SwerveModuleStates moduleStates, double[] out) {
+        state2Vector(moduleStates.frontLeft(), out, 0);
+        state2Vector(moduleStates.frontRight(), out, 2);
+        state2Vector(moduleStates.rearLeft(), out, 4);
+        state2Vector(moduleStates.rearRight(), out, 6);
+    }
 
-            }
+    private static void state2Vector(SwerveModuleState100 module, double[] out, int i) {
+        if (Math.abs(module.speedMetersPerSecond) < 1e-6 || module.angle.isEmpty()) {
+            // wheel is stopped, or angle is invalid so pretend it's stopped.
+            out[i] = 0;
+            out[i + 1] = 0;
+        } else {
+            out[i] = module.speedMetersPerSecond * module.angle.get().getCos();
+            out[i + 1] = module.speedMetersPerSecond * module.angle.get().getSin();
         }
-        return moduleStatesMatrix;
     }
 
     /**
      * produces a vector of corner dx and dy, assuming the module deltas represent
      * straight line paths.
      * 
-     * @param moduleDeltas [d cos; d sin; ... ] (2n x 1)
+     * @param out [d cos; d sin; ... ] (2n x 1)
      */
-    private SimpleMatrix deltas2Vector(SwerveModuleDeltas moduleDeltas) {
-        SwerveModuleDelta[] deltas = moduleDeltas.all();
-        SimpleMatrix moduleDeltaMatrix = new SimpleMatrix(m_numModules * 2, 1);
-        for (int i = 0; i < m_numModules; i++) {
-            SwerveModuleDelta module = deltas[i];
-            if (Math.abs(module.distanceMeters) < 1e-6 || module.angle.isEmpty()) {
-                moduleDeltaMatrix.set(i * 2, 0, 0);
-                moduleDeltaMatrix.set(i * 2 + 1, 0, 0);
-            } else {
-                moduleDeltaMatrix.set(i * 2, 0, module.distanceMeters * module.angle.get().getCos());
-                moduleDeltaMatrix.set(i * 2 + 1, 0, module.distanceMeters * module.angle.get().getSin());
-            }
-        }
-        return moduleDeltaMatrix;
-    }
-
-    /** ChassisSpeeds -> [vx; vy; omega] (3 x 1) */
-    private SimpleMatrix chassisSpeeds2Vector(ChassisSpeeds chassisSpeeds) {
-        SimpleMatrix chassisSpeedsVector = new SimpleMatrix(3, 1);
-        chassisSpeedsVector.setColumn(
-                0,
-                0,
-                chassisSpeeds.vxMetersPerSecond,
-                chassisSpeeds.vyMetersPerSecond,
-                chassisSpeeds.omegaRadiansPerSecond);
-        return chassisSpeedsVector;
-    }
-
-    /** Twist as a 3x1 column vector: [dx; dy; dtheta] */
-    private static SimpleMatrix twist2Vector(Twist2d twist) {
-        return new SimpleMatrix(new double[] {
-                twist.dx,
-                twist.dy,
-                twist.dtheta });
+    private static void deltas2Vector(SwerveModuleDeltas moduleDeltas, double[] out) {
+        delta2Vector(moduleDeltas.frontLeft(), out, 0);
+        delta2Vector(moduleDeltas.frontRight(), out, 2);
+        delta2Vector(moduleDeltas.rearLeft(), out, 4);
+        delta2Vector(moduleDeltas.rearRight(), out, 6);
     }
 
-    /** [vx; vy; omega] (3 x 1) -> ChassisSpeeds */
-    private static ChassisSpeeds vector2ChassisSpeeds(SimpleMatrix v) {
-        return new ChassisSpeeds(v.get(0, 0), v.get(1, 0), v.get(2, 0));
-    }
-
-    /** [dx; dy; dtheta] (3 x 1) -> Twist2d */
-    private static Twist2d vector2Twist(SimpleMatrix v) {
-        return new Twist2d(v.get(0, 0), v.get(1, 0), v.get(2, 0));
+    private static void delta2Vector(SwerveModuleDelta module, double[] out, int i) {
+        if (Math.abs(module.distanceMeters) < 1e-6 || module.angle.isEmpty()) {
+            out[i] = 0;
+            out[i + 1] = 0;
+        } else {
+            out[i] = module.distanceMeters * module.angle.get().getCos();
+            out[i + 1] = module.distanceMeters * module.angle.get().getSin();
+        }
     }
 
     /** True if speeds are (nearly) stopped. Deadband upstream for this to work. */
-    private boolean fullStop(ChassisSpeeds chassisSpeeds) {
-        return Math.abs(chassisSpeeds.vxMetersPerSecond) < kEpsilon
-                && Math.abs(chassisSpeeds.vyMetersPerSecond) < kEpsilon
-                && Math.abs(chassisSpeeds.omegaRadiansPerSecond) < kEpsilon;
-    }
-
-    private boolean fullStop(Twist2d twist) {
-        return Math.abs(twist.dx) < kEpsilon
-                && Math.abs(twist.dy) < kEpsilon
-                && Math.abs(twist.dtheta) < kEpsilon;
+    private static boolean fullStop(double vx, double vy, double omega) {
+        return Math.abs(vx) < kEpsilon
+                && Math.abs(vy) < kEpsilon
+                && Math.abs(omega) < kEpsilon;
     }
 
     /** Zero velocity, same heading as before. */
-    private SwerveModuleStates constantModuleHeadings() {
-        return new SwerveModuleStates(
-                new SwerveModuleState100(0.0, Optional.ofNullable(m_moduleHeadings.frontLeft())),
-                new SwerveModuleState100(0.0, Optional.ofNullable(m_moduleHeadings.frontRight())),
-                new SwerveModuleState100(0.0, Optional.ofNullable(m_moduleHeadings.rearLeft())),
-                new SwerveModuleState100(0.0, Optional.ofNullable(m_moduleHeadings.rearRight())));
+    private void constantModuleHeadings(SwerveModuleStates out) {
+        for (int i = 0; i < kModules; ++i) {
+            SwerveModuleState100 state = out.get(i);
+            state.speedMetersPerSecond = 0.0;
+            state.angle = m_headings[i];
+        }
     }
 
     private SwerveModuleDeltas constantModulePositions() {
         return new SwerveModuleDeltas(
-                new SwerveModuleDelta(0.0, Optional.ofNullable(m_moduleHeadings.frontLeft())),
-                new SwerveModuleDelta(0.0, Optional.ofNullable(m_moduleHeadings.frontRight())),
-                new SwerveModuleDelta(0.0, Optional.ofNullable(m_moduleHeadings.rearLeft())),
-                new SwerveModuleDelta(0.0, Optional.ofNullable(m_moduleHeadings.rearRight())));
+                new SwerveModuleDelta(0.0, m_headings[0]),
+                new SwerveModuleDelta(0.0, m_headings[1]),
+                new SwerveModuleDelta(0.0, m_headings[2]),
+                new SwerveModuleDelta(0.0, m_headings[3]));
     }
 
     /**
-     * [v cos; v sin; ... ] (2n x 1) -> states[]
+     * [v cos; v sin] -> state, overwriting it.
      * 
      * The resulting module speed is always positive.
      * 
-     * @param chassisSpeedsVector [vx0; vy0; vx1; ...]
+     * If the angle is the same as the one already in the state, it's kept, so
+     * steady motion doesn't allocate.
      */
-    SwerveModuleStates statesFromVector(SimpleMatrix chassisSpeedsVector) {
-        SimpleMatrix moduleStatesMatrix = m_inverseKinematics.mult(chassisSpeedsVector);
-        return new SwerveModuleStates(
-                stateFromVector(moduleStatesMatrix.get(0, 0), moduleStatesMatrix.get(1, 0)),
-                stateFromVector(moduleStatesMatrix.get(2, 0), moduleStatesMatrix.get(3, 0)),
-                stateFromVector(moduleStatesMatrix.get(4, 0), moduleStatesMatrix.get(5, 0)),
-                stateFromVector(moduleStatesMatrix.get(6, 0), moduleStatesMatrix.get(7, 0)));
-    }
-
-    private SwerveModuleState100 stateFromVector(double x, double y) {
+    private static void stateFromVector(double x, double y, SwerveModuleState100 out) {
         if (Math.abs(x) < 0.004 && Math.abs(y) < 0.004) {
-            return new SwerveModuleState100(0.0, Optional.empty());
-        } else {
-            return new SwerveModuleState100(Math.hypot(x, y), Optional.of(new Rotation2d(x, y)));
+            out.speedMetersPerSecond = 0.0;
+            out.angle = Optional.empty();
+            return;
         }
+        double speed = Math.hypot(x, y);
+        out.speedMetersPerSecond = speed;
+        if (out.angle.isPresent()) {
+            // this is how Rotation2d(x, y) normalizes.
+            Rotation2d angle = out.angle.get();
+            if (angle.getCos() == x / speed && angle.getSin() == y / speed)
+                return;
+        }
+        out.angle = Optional.of(new Rotation2d(x, y));
     }
 
     public Translation2d[] getModuleLocations() {
@@ -351,36 +464,43 @@ public class SwerveDriveKinematics100 {
      * @param moduleDeltaVector [d cos; d sin; ...] (2n x 1),
      *                          equivalently [dx0; dy0; dx1; ...]
      */
-    private SwerveModuleDeltas deltasFromVector(SimpleMatrix moduleDeltaVector) {
+    private SwerveModuleDeltas deltasFromVector(double[] moduleDeltaVector) {
         return new SwerveModuleDeltas(
-                new SwerveModuleDelta(moduleDeltaVector.get(0, 0), moduleDeltaVector.get(1, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(2, 0), moduleDeltaVector.get(3, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(4, 0), moduleDeltaVector.get(5, 0)),
-                new SwerveModuleDelta(moduleDeltaVector.get(6, 0), moduleDeltaVector.get(7, 0)));
+                new SwerveModuleDelta(moduleDeltaVector[0], moduleDeltaVector[1]),
+                new SwerveModuleDelta(moduleDeltaVector[2], moduleDeltaVector[3]),
+                new SwerveModuleDelta(moduleDeltaVector[4], moduleDeltaVector[5]),
+                new SwerveModuleDelta(moduleDeltaVector[6], moduleDeltaVector[7]));
     }
 
     /** Keep a copy of headings in case we need them for full-stop. */
     private void updateHeadings(SwerveModuleStates moduleStates) {
         // use new angle if available, otherwise keep the old one
-        m_moduleHeadings = new SwerveModuleHeadings(
-                moduleStates.frontLeft().angle.orElse(m_moduleHeadings.frontLeft()),
-                moduleStates.frontRight().angle.orElse(m_moduleHeadings.frontRight()),
-                moduleStates.rearLeft().angle.orElse(m_moduleHeadings.rearLeft()),
-                moduleStates.rearRight().angle.orElse(m_moduleHeadings.rearRight()));
+        for (int i = 0; i < kModules; ++i) {
+            Optional<Rotation2d> angle = moduleStates.get(i).angle;
+            if (angle.isPresent())
+                m_headings[i] = angle;
+        }
     }
 
     private void updateHeadings(SwerveModuleDeltas mods) {
         // use new angle if available, otherwise keep the old one
-        m_moduleHeadings = new SwerveModuleHeadings(
-                mods.frontLeft().angle.orElse(m_moduleHeadings.frontLeft()),
-                mods.frontRight().angle.orElse(m_moduleHeadings.frontRight()),
-                mods.rearLeft().angle.orElse(m_moduleHeadings.rearLeft()),
-                mods.rearRight().angle.orElse(m_moduleHeadings.rearRight()));
+        updateHeading(0, mods.frontLeft().angle);
+        updateHeading(1, mods.frontRight().angle);
+        updateHeading(2, mods.rearLeft().angle);
+        updateHeading(3, mods.rearRight().angle);
+    }
+
+    private void updateHeading(int i, Optional<Rotation2d> angle) {
+        if (angle.isPresent())
+            m_headings[i] = angle;
     }
 
-    /** Module headings null to start to avoid transients? */
-    private static SwerveModuleHeadings nulls() {
-        return new SwerveModuleHeadings(null, null, null, null);
+    /** Module headings empty to start to avoid transients? */
+    @SuppressWarnings("unchecked")
+    private static Optional<Rotation2d>[] empties() {
+        Optional<Rotation2d>[] headings = new Optional[kModules];
+        Arrays.fill(headings, Optional.empty());
+        return headings;
     }
 
     /** module locations -> inverse kinematics matrix (2n x 3) */
@@ -395,8 +515,8 @@ public class SwerveDriveKinematics100 {
     }
 
     private void checkModuleCount(Translation2d... moduleTranslationsM) {
-        if (moduleTranslationsM.length < 2) {
-            throw new IllegalArgumentException("Swerve requires at least two modules");
+        if (moduleTranslationsM.length != kModules) {
+            throw new IllegalArgumentException("Swerve requires four modules");
         }
     }
 }
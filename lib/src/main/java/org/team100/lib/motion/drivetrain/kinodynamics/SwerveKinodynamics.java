@@ -37,6 +37,8 @@ public class SwerveKinodynamics implements Glassy {
     private final double m_radius;
     private final double m_vcg;
     private final SwerveDriveKinematics100 m_kinematics;
+    /** Scratch for the main-loop inverse kinematics. */
+    private final double[] m_discretized = new double[3];
     private final double m_MaxCapsizeAccelM_S2;
 
     // configured inputs
@@ -305,17 +307,77 @@ public class SwerveKinodynamics implements Glassy {
 
     /** For testing only */
     SwerveModuleStates toSwerveModuleStates(ChassisSpeeds in, double gyroRateRad_S, double period) {
-        // This is the extra correction angle ...
-        Rotation2d angle = new Rotation2d(VeeringCorrection.correctionRad(gyroRateRad_S));
-        // ... which is subtracted here; this isn't really a field-relative
-        // transformation it's just a rotation.
-        ChassisSpeeds chassisSpeeds = ChassisSpeeds.fromFieldRelativeSpeeds(
+        SwerveModuleStates states = new SwerveModuleStates(
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100());
+        toSwerveModuleStates(in, gyroRateRad_S, period, states);
+        return states;
+    }
+
+    /**
+     * Same as toSwerveModuleStates(ChassisSpeeds, double), overwriting the states
+     * in out, for the main loop. Allocates only if a module angle changes.
+     */
+    public void toSwerveModuleStates(ChassisSpeeds in, double gyroRateRad_S, SwerveModuleStates out) {
+        toSwerveModuleStates(in, gyroRateRad_S, TimedRobot100.LOOP_PERIOD_S, out);
+    }
+
+    private void toSwerveModuleStates(
+            ChassisSpeeds in,
+            double gyroRateRad_S,
+            double period,
+            SwerveModuleStates out) {
+        double[] discretized = m_discretized;
+        discretize(
                 in.vxMetersPerSecond,
                 in.vyMetersPerSecond,
                 in.omegaRadiansPerSecond,
-                angle);
-        ChassisSpeeds descretized = ChassisSpeeds.discretize(chassisSpeeds, period);
-        return m_kinematics.toSwerveModuleStates(descretized);
+                gyroRateRad_S,
+                period,
+                discretized);
+        m_kinematics.toSwerveModuleStates(discretized[0], discretized[1], discretized[2], out);
+    }
+
+    /**
+     * Veering correction and discretization, on primitives, so it doesn't
+     * allocate and it's safe from any thread.
+     * 
+     * This is the same as rotating by the correction angle with
+     * ChassisSpeeds.fromFieldRelativeSpeeds() and then using
+     * ChassisSpeeds.discretize(), i.e. the log of the pose at the end of the
+     * period.
+     * 
+     * @param out [vx; vy; omega], overwritten
+     */
+    public static void discretize(
+            double vx,
+            double vy,
+            double omega,
+            double gyroRateRad_S,
+            double period,
+            double[] out) {
+        // This is the extra correction angle, which is subtracted here; this
+        // isn't really a field-relative transformation it's just a rotation.
+        double correctionRad = VeeringCorrection.correctionRad(gyroRateRad_S);
+        double cos = Math.cos(-correctionRad);
+        double sin = Math.sin(-correctionRad);
+        double dx = (vx * cos - vy * sin) * period;
+        double dy = (vx * sin + vy * cos) * period;
+        double dtheta = omega * period;
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = Math.cos(dtheta) - 1;
+        double halfThetaByTanOfHalfDtheta;
+        if (Math.abs(cosMinusOne) < 1e-9) {
+            halfThetaByTanOfHalfDtheta = 1.0 - 1.0 / 12.0 * dtheta * dtheta;
+        } else {
+            halfThetaByTanOfHalfDtheta = -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+        }
+        // rotate by (halfThetaByTanOfHalfDtheta, -halfDtheta), scaled by its norm.
+        out[0] = (dx * halfThetaByTanOfHalfDtheta + dy * halfDtheta) / period;
+        out[1] = (dy * halfThetaByTanOfHalfDtheta - dx * halfDtheta) / period;
+        out[2] = omega;
     }
 
     /**
@@ -325,6 +387,14 @@ public class SwerveKinodynamics implements Glassy {
         return m_kinematics.toSwerveModuleStates(speeds);
     }
 
+    /**
+     * Same as toSwerveModuleStatesWithoutDiscretization(ChassisSpeeds), overwriting
+     * the states in out, for the main loop.
+     */
+    public void toSwerveModuleStatesWithoutDiscretization(ChassisSpeeds speeds, SwerveModuleStates out) {
+        m_kinematics.toSwerveModuleStates(speeds, out);
+    }
+
     /**
      * Forward kinematics, module states => chassis speeds.
      * 
@@ -334,6 +404,11 @@ public class SwerveKinodynamics implements Glassy {
         return m_kinematics.toChassisSpeeds(moduleStates);
     }
 
+    /** Same as toChassisSpeeds(SwerveModuleStates), overwriting out. */
+    public void toChassisSpeeds(SwerveModuleStates moduleStates, ChassisSpeeds out) {
+        m_kinematics.toChassisSpeeds(moduleStates, out);
+    }
+
     /**
      * This could be used with odometry, but because odometry uses module positions
      * instead of velocities, it is not needed.
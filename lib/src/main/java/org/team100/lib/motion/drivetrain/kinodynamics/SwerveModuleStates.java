@@ -11,6 +11,19 @@ public record SwerveModuleStates(
         SwerveModuleState100 frontRight,
         SwerveModuleState100 rearLeft,
         SwerveModuleState100 rearRight) {
+    /**
+     * By index, in the same order as all(), without allocating.
+     */
+    public SwerveModuleState100 get(int i) {
+        return switch (i) {
+            case 0 -> frontLeft;
+            case 1 -> frontRight;
+            case 2 -> rearLeft;
+            case 3 -> rearRight;
+            default -> throw new IndexOutOfBoundsException(i);
+        };
+    }
+
     /** For when you don't care about which is which. */
     public SwerveModuleState100[] all() {
         return new SwerveModuleState100[] {
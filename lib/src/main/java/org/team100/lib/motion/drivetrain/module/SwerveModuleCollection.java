@@ -10,6 +10,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
 import org.team100.lib.motion.drivetrain.module.WCPSwerveModule100.DriveRatio;
 import org.team100.lib.motor.MotorPhase;
+import org.team100.lib.motor.SignalBatch;
 import org.team100.lib.state.State100;
 import org.team100.lib.util.Util;
 
@@ -50,6 +51,8 @@ public class SwerveModuleCollection {
         LoggerFactory frontRightLogger = collectionLogger.child(kFrontRight);
         LoggerFactory rearLeftLogger = collectionLogger.child(kRearLeft);
         LoggerFactory rearRightLogger = collectionLogger.child(kRearRight);
+        // all the module motors refresh their sensors in one call.
+        SignalBatch batch = new SignalBatch(collectionLogger);
 
         switch (Identity.instance) {
             case COMP_BOT:
@@ -64,7 +67,7 @@ public class SwerveModuleCollection {
                                 9,
                                 0.058735,
                                 kinodynamics,
-                                EncoderDrive.INVERSE, MotorPhase.REVERSE),
+                                EncoderDrive.INVERSE, MotorPhase.REVERSE, batch),
                         WCPSwerveModule100.getKrakenDrive(frontRightLogger,
                                 currentLimit,
                                 statorLimit,
@@ -74,7 +77,7 @@ public class SwerveModuleCollection {
                                 8,
                                 0.773486,
                                 kinodynamics,
-                                EncoderDrive.INVERSE, MotorPhase.REVERSE),
+                                EncoderDrive.INVERSE, MotorPhase.REVERSE, batch),
                         WCPSwerveModule100.getKrakenDrive(rearLeftLogger,
                                 currentLimit,
                                 statorLimit,
@@ -84,7 +87,7 @@ public class SwerveModuleCollection {
                                 5,
                                 0.334580,
                                 kinodynamics,
-                                EncoderDrive.INVERSE, MotorPhase.REVERSE),
+                                EncoderDrive.INVERSE, MotorPhase.REVERSE, batch),
                         WCPSwerveModule100.getKrakenDrive(rearRightLogger,
                                 currentLimit,
                                 statorLimit,
@@ -94,7 +97,7 @@ public class SwerveModuleCollection {
                                 7,
                                 0.714328,
                                 kinodynamics,
-                                EncoderDrive.INVERSE, MotorPhase.REVERSE));
+                                EncoderDrive.INVERSE, MotorPhase.REVERSE, batch));
             case SWERVE_ONE:
                 Util.println("************** WCP MODULES w/Analog Encoders **************");
                 return new SwerveModuleCollection(
@@ -107,7 +110,7 @@ public class SwerveModuleCollection {
                                 2,
                                 0.336,
                                 kinodynamics,
-                                EncoderDrive.DIRECT, MotorPhase.REVERSE),
+                                EncoderDrive.DIRECT, MotorPhase.REVERSE, batch),
                         WCPSwerveModule100.getFalconDrive(frontRightLogger,
                                 currentLimit,
                                 statorLimit,
@@ -117,7 +120,7 @@ public class SwerveModuleCollection {
                                 1,
                                 0.619,
                                 kinodynamics,
-                                EncoderDrive.DIRECT, MotorPhase.REVERSE),
+                                EncoderDrive.DIRECT, MotorPhase.REVERSE, batch),
                         WCPSwerveModule100.getFalconDrive(rearLeftLogger,
                                 currentLimit,
                                 statorLimit,
@@ -127,7 +130,7 @@ public class SwerveModuleCollection {
                                 3,
                                 0.591,
                                 kinodynamics,
-                                EncoderDrive.DIRECT, MotorPhase.REVERSE),
+                                EncoderDrive.DIRECT, MotorPhase.REVERSE, batch),
                         WCPSwerveModule100.getFalconDrive(rearRightLogger,
                                 currentLimit,
                                 statorLimit,
@@ -137,7 +140,7 @@ public class SwerveModuleCollection {
                                 0,
                                 0.512,
                                 kinodynamics,
-                                EncoderDrive.DIRECT, MotorPhase.REVERSE));
+                                EncoderDrive.DIRECT, MotorPhase.REVERSE, batch));
             case BETA_BOT:
             case SWERVE_TWO:
             case BLANK:
@@ -22,6 +22,7 @@ import org.team100.lib.motion.servo.OutboardLinearVelocityServo;
 import org.team100.lib.motor.Falcon6Motor;
 import org.team100.lib.motor.Kraken6Motor;
 import org.team100.lib.motor.MotorPhase;
+import org.team100.lib.motor.SignalBatch;
 import org.team100.lib.profile.Profile100;
 
 public class WCPSwerveModule100 extends SwerveModule100 {
@@ -59,6 +60,8 @@ public class WCPSwerveModule100 extends SwerveModule100 {
 
     /**
      * MAKE SURE THAT THE BEVELS ON THE WHEELS FOR ZEROING GO TO THE RIGHT
+     * 
+     * @param batch refreshes the motor sensors together with the other modules
      */
     public static WCPSwerveModule100 getKrakenDrive(
             LoggerFactory parent,
@@ -72,14 +75,16 @@ public class WCPSwerveModule100 extends SwerveModule100 {
             double turningOffset,
             SwerveKinodynamics kinodynamics,
             EncoderDrive drive,
-            MotorPhase motorPhase) {
+            MotorPhase motorPhase,
+            SignalBatch batch) {
 
         LinearVelocityServo driveServo = driveKrakenServo(
                 parent.child("Drive"),
                 supplyLimitAmps,
                 statorLimitAmps,
                 driveMotorCanId,
-                ratio);
+                ratio,
+                batch);
         AngularPositionServo turningServo = turningServo(
                 parent.child("Turning"),
                 encoderClass,
@@ -89,13 +94,16 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 kSteeringRatio,
                 kinodynamics,
                 drive,
-                motorPhase);
+                motorPhase,
+                batch);
 
         return new WCPSwerveModule100(driveServo, turningServo);
     }
 
     /**
      * MAKE SURE THAT THE BEVELS ON THE WHEELS FOR ZEROING GO TO THE RIGHT
+     * 
+     * @param batch refreshes the motor sensors together with the other modules
      */
     public static WCPSwerveModule100 getFalconDrive(
             LoggerFactory parent,
@@ -109,13 +117,15 @@ public class WCPSwerveModule100 extends SwerveModule100 {
             double turningOffset,
             SwerveKinodynamics kinodynamics,
             EncoderDrive drive,
-            MotorPhase motorPhase) {
+            MotorPhase motorPhase,
+            SignalBatch batch) {
         LinearVelocityServo driveServo = driveFalconServo(
                 parent.child("Drive"),
                 supplyLimitAmps,
                 statorLimitAmps,
                 driveMotorCanId,
-                ratio);
+                ratio,
+                batch);
         AngularPositionServo turningServo = turningServo(
                 parent.child("Turning"),
                 encoderClass,
@@ -125,7 +135,8 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 kSteeringRatio,
                 kinodynamics,
                 drive,
-                motorPhase);
+                motorPhase,
+                batch);
         return new WCPSwerveModule100(driveServo, turningServo);
     }
 
@@ -134,7 +145,8 @@ public class WCPSwerveModule100 extends SwerveModule100 {
             double supplyLimit,
             double statorLimit,
             int driveMotorCanId,
-            DriveRatio ratio) {
+            DriveRatio ratio,
+            SignalBatch batch) {
         Feedforward100 ff = Feedforward100.makeWCPSwerveDriveFalcon6();
         // note (10/2/24) 0.4 produces oscillation, on carpet.
         PIDConstants pid = new PIDConstants(0.3);
@@ -146,6 +158,7 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 statorLimit,
                 pid,
                 ff);
+        driveMotor.joinBatch(batch);
         LinearMechanism mech = new SimpleLinearMechanism(
                 driveMotor,
                 new Talon6Encoder(parent, driveMotor),
@@ -161,7 +174,8 @@ public class WCPSwerveModule100 extends SwerveModule100 {
             double supplyLimit,
             double statorLimit,
             int driveMotorCanId,
-            DriveRatio ratio) {
+            DriveRatio ratio,
+            SignalBatch batch) {
         Feedforward100 ff = Feedforward100.makeWCPSwerveDriveFalcon6();
         PIDConstants pid = new PIDConstants(0.2);
         Falcon6Motor driveMotor = new Falcon6Motor(
@@ -172,6 +186,7 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 statorLimit,
                 pid,
                 ff);
+        driveMotor.joinBatch(batch);
         LinearMechanism mech = new SimpleLinearMechanism(
                 driveMotor,
                 new Talon6Encoder(parent, driveMotor),
@@ -191,7 +206,8 @@ public class WCPSwerveModule100 extends SwerveModule100 {
             double gearRatio,
             SwerveKinodynamics kinodynamics,
             EncoderDrive drive,
-            MotorPhase motorPhase) {
+            MotorPhase motorPhase,
+            SignalBatch batch) {
 
         // Talon outboard POSITION PID
         // 10/2/24 drive torque produces about a 0.5 degree deviation so maybe
@@ -209,6 +225,7 @@ public class WCPSwerveModule100 extends SwerveModule100 {
                 kSteeringStatorLimit,
                 lowLevelPID,
                 ff);
+        turningMotor.joinBatch(batch);
 
         RotaryPositionSensor turningEncoder = turningEncoder(
                 encoderClass,
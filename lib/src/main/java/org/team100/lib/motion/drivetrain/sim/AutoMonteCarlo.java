@@ -0,0 +1,404 @@
+package org.team100.lib.motion.drivetrain.sim;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.team100.lib.follower.DriveTrajectoryFollower;
+import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.localization.SwerveDrivePoseEstimator100;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveDriveKinematics100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePosition100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModulePositions;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
+import org.team100.lib.swerve.AsymSwerveSetpointGenerator;
+import org.team100.lib.swerve.SwerveSetpoint;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectorySamplePoint;
+import org.team100.lib.trajectory.TrajectoryTimeIterator;
+import org.team100.lib.trajectory.TrajectoryTimeSampler;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Runs an auto routine many times, in parallel, with randomized sensor noise,
+ * to measure how robust the estimator and follower are.
+ *
+ * A routine is a sequence of trajectories, e.g. the ones in the
+ * TrajectoryCommand100 instances that AutoMaker produces, each followed until
+ * the follower is done, like TrajectoryCommand100 does. Each trial has its own
+ * kinodynamics, follower, setpoint generator, pose estimator, and SwervePlant,
+ * stepped with an explicit clock rather than the FPGA clock, so trials are
+ * independent and can run on all the cores at once.
+ *
+ * Each trial gets its own random seed, derived from the base seed and the trial
+ * index, so the results don't depend on the scheduling.
+ *
+ * The robot "believes" it starts at the start of the first trajectory, but
+ * actually starts somewhere nearby. It sees wheel odometry from the plant,
+ * which includes wheel slip, a drifting gyro, and noisy, late, sometimes
+ * missing vision updates, and its commands reach the modules after a delay.
+ */
+public class AutoMonteCarlo {
+    private static final double kDtS = TimedRobot100.LOOP_PERIOD_S;
+    /** Keep going after the last trajectory ends, to see if it settles. */
+    private static final double kSettleS = 1.0;
+    /** Arrival means within this distance of the goal. */
+    private static final double kArrivalToleranceM = 0.05;
+    private static final double kArrivalToleranceRad = 0.05;
+    /** Same as the default in VisionDataProvider24. */
+    private static final double[] kStateStdDevs = new double[] { 0.1, 0.1, 0.1 };
+    /** Ticks of true pose history, for late vision measurements. */
+    private static final int kHistory = 50;
+    // 2024 field
+    private static final double kFieldLengthM = 16.541;
+    private static final double kFieldWidthM = 8.211;
+
+    /**
+     * What to randomize. All the sigmas are standard deviations of zero-mean
+     * gaussian noise.
+     *
+     * @param startSigmaM          starting position error, each axis
+     * @param startSigmaRad        starting heading error
+     * @param gyroDriftSigmaRad_S  gyro drift rate, constant within a trial
+     * @param visionSigmaM         vision position noise, each axis
+     * @param visionPeriodS        time between vision updates
+     * @param visionLatencyS       age of vision updates when they arrive
+     * @param visionDropout        probability of missing each vision update
+     * @param maxModuleLatencyTicks module command delay is uniform in [0, max]
+     */
+    public record Noise(
+            double startSigmaM,
+            double startSigmaRad,
+            double gyroDriftSigmaRad_S,
+            double visionSigmaM,
+            double visionPeriodS,
+            double visionLatencyS,
+            double visionDropout,
+            int maxModuleLatencyTicks) {
+
+        /** Something like the 2024 robot. */
+        public static Noise defaults() {
+            return new Noise(0.05, 0.03, 0.002, 0.05, 0.1, 0.05, 0.3, 2);
+        }
+
+        /** Perfect sensors, perfect start, no delay, no vision. */
+        public static Noise none() {
+            return new Noise(0, 0, 0, 0, Double.POSITIVE_INFINITY, 0, 1, 0);
+        }
+    }
+
+    /**
+     * Outcome of one trial.
+     *
+     * @param index          trial number
+     * @param arrivalS       time when the true pose first reached the goal, or
+     *                       infinity if it never did
+     * @param endErrorM      true distance from the goal at the end
+     * @param endErrorRad    true heading error at the end
+     * @param maxPathErrorM  largest distance from the trajectory
+     * @param collisions     number of times the robot hit something
+     */
+    public record Trial(
+            int index,
+            double arrivalS,
+            double endErrorM,
+            double endErrorRad,
+            double maxPathErrorM,
+            int collisions) {
+    }
+
+    /** Summary of a distribution. Non-finite samples are ignored. */
+    public record Stats(int n, double mean, double p50, double p95, double max) {
+        public static Stats of(double[] samples) {
+            double[] x = Arrays.stream(samples).filter(Double::isFinite).sorted().toArray();
+            if (x.length == 0)
+                return new Stats(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+            return new Stats(
+                    x.length,
+                    Arrays.stream(x).average().orElse(Double.NaN),
+                    x[(int) Math.floor(0.5 * (x.length - 1))],
+                    x[(int) Math.floor(0.95 * (x.length - 1))],
+                    x[x.length - 1]);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n %4d mean %8.4f p50 %8.4f p95 %8.4f max %8.4f",
+                    n, mean, p50, p95, max);
+        }
+    }
+
+    /** Distributions over all the trials. */
+    public record Summary(
+            List<Trial> trials,
+            Stats arrivalS,
+            Stats endErrorM,
+            Stats endErrorRad,
+            Stats maxPathErrorM,
+            Stats collisions) {
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "trials %d%narrival    %s%nend m      %s%nend rad    %s%npath m     %s%ncollisions %s",
+                    trials.size(), arrivalS, endErrorM, endErrorRad, maxPathErrorM, collisions);
+        }
+    }
+
+    private final Supplier<SwerveKinodynamics> m_kinodynamics;
+    private final Function<LoggerFactory, DriveTrajectoryFollower> m_followers;
+    private final List<Trajectory100> m_routine;
+    private final Noise m_noise;
+    private final Predicate<Pose2d> m_collision;
+
+    /**
+     * @param kinodynamics makes a new kinodynamics for each trial, since the
+     *                     kinematics is stateful, e.g.
+     *                     SwerveKinodynamicsFactory::get
+     * @param followers    makes a new follower for each trial, with the given
+     *                     logger
+     * @param routine      trajectories to follow in order
+     * @param noise        what to randomize
+     * @param collision    true if the robot is touching something at this pose,
+     *                     e.g. fieldWalls()
+     */
+    public AutoMonteCarlo(
+            Supplier<SwerveKinodynamics> kinodynamics,
+            Function<LoggerFactory, DriveTrajectoryFollower> followers,
+            List<Trajectory100> routine,
+            Noise noise,
+            Predicate<Pose2d> collision) {
+        if (routine.isEmpty())
+            throw new IllegalArgumentException("empty routine");
+        m_kinodynamics = kinodynamics;
+        m_followers = followers;
+        m_routine = routine;
+        m_noise = noise;
+        m_collision = collision;
+    }
+
+    /** Collision with the perimeter of the 2024 field, for a round robot. */
+    public static Predicate<Pose2d> fieldWalls(double robotRadiusM) {
+        return p -> p.getX() < robotRadiusM
+                || p.getX() > kFieldLengthM - robotRadiusM
+                || p.getY() < robotRadiusM
+                || p.getY() > kFieldWidthM - robotRadiusM;
+    }
+
+    /**
+     * Run the trials in a fork-join pool, and summarize them.
+     *
+     * @param trials      number of trials
+     * @param seed        base random seed
+     * @param parallelism number of worker threads
+     */
+    public Summary run(int trials, long seed, int parallelism)
+            throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Trial> results = pool.submit(
+                    () -> IntStream.range(0, trials)
+                            .parallel()
+                            .mapToObj(i -> runTrial(seed, i))
+                            .toList())
+                    .get();
+            return summarize(results);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Run one trial on the calling thread. */
+    public Trial runTrial(long seed, int index) {
+        Random random = new Random(seed * 1_000_003 + index);
+        // isolated logging, since the test logger isn't thread-safe.
+        LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+        SwerveKinodynamics limits = m_kinodynamics.get();
+        SwervePlant plant = new SwervePlant(limits);
+        AsymSwerveSetpointGenerator generator = new AsymSwerveSetpointGenerator(
+                logger, limits, plant::getBatteryVoltage);
+        DriveTrajectoryFollower follower = m_followers.apply(logger);
+
+        Pose2d planned = m_routine.get(0).getPoint(0).state().state().getPose();
+        Pose2d start = planned.plus(new Transform2d(
+                random.nextGaussian() * m_noise.startSigmaM(),
+                random.nextGaussian() * m_noise.startSigmaM(),
+                new Rotation2d(random.nextGaussian() * m_noise.startSigmaRad())));
+        plant.reset(start);
+        double gyroDriftRad_S = random.nextGaussian() * m_noise.gyroDriftSigmaRad_S();
+        int moduleLatencyTicks = random.nextInt(m_noise.maxModuleLatencyTicks() + 1);
+        int visionLatencyTicks = Math.min(kHistory - 1,
+                (int) Math.round(m_noise.visionLatencyS() / kDtS));
+
+        double[] distances = new double[4];
+        double t = 0;
+        SwerveDrivePoseEstimator100 estimator = limits.newPoseEstimator(
+                logger,
+                gyro(plant, start, gyroDriftRad_S, t),
+                0,
+                positions(plant, distances),
+                planned,
+                t);
+
+        ArrayDeque<SwerveModuleStates> commands = new ArrayDeque<>();
+        for (int i = 0; i < moduleLatencyTicks; ++i) {
+            commands.add(stopped());
+        }
+        Pose2d[] history = new Pose2d[kHistory];
+        int tick = 0;
+        history[0] = start;
+        double nextVisionS = m_noise.visionPeriodS();
+        SwerveSetpoint setpoint = new SwerveSetpoint();
+
+        Pose2d goal = m_routine.get(m_routine.size() - 1).getLastPoint().state().state().getPose();
+        double arrivalS = Double.POSITIVE_INFINITY;
+        double maxPathErrorM = 0;
+        int collisions = 0;
+        boolean colliding = m_collision.test(start);
+
+        for (int segment = 0; segment <= m_routine.size(); ++segment) {
+            // the extra segment is the settling period.
+            boolean settling = segment == m_routine.size();
+            TrajectoryTimeSampler sampler = null;
+            if (!settling) {
+                sampler = new TrajectoryTimeSampler(m_routine.get(segment));
+                follower.setTrajectory(new TrajectoryTimeIterator(sampler));
+            }
+            double segmentStartS = t;
+            while (settling ? t - segmentStartS < kSettleS : !follower.isDone()) {
+                // sense
+                SwerveState state = estimator.get(t);
+                // control
+                ChassisSpeeds speeds = settling
+                        ? new ChassisSpeeds()
+                        : follower.update(t, state.pose(), state.chassisSpeeds());
+                setpoint = generator.generateSetpoint(setpoint, speeds);
+                SwerveModuleStates states = setpoint.getModuleStates();
+                SwerveDriveKinematics100.desaturateWheelSpeeds(states, limits.getMaxDriveVelocityM_S());
+                commands.add(states);
+                // act
+                plant.step(commands.remove(), kDtS);
+                t += kDtS;
+                tick++;
+                Pose2d truth = plant.getPose();
+                history[tick % kHistory] = truth;
+
+                // odometry
+                SwerveModuleStates actual = plant.getModuleStates();
+                SwerveModuleState100[] all = actual.all();
+                for (int i = 0; i < 4; ++i) {
+                    distances[i] += all[i].speedMetersPerSecond * kDtS;
+                }
+                estimator.put(
+                        t,
+                        gyro(plant, start, gyroDriftRad_S, t),
+                        plant.getVelocity().theta(),
+                        positions(plant, distances));
+
+                // vision
+                if (t >= nextVisionS) {
+                    nextVisionS += m_noise.visionPeriodS();
+                    if (random.nextDouble() >= m_noise.visionDropout()) {
+                        int lag = Math.min(visionLatencyTicks, tick);
+                        Pose2d seen = history[(tick - lag) % kHistory];
+                        Pose2d measurement = new Pose2d(
+                                seen.getX() + random.nextGaussian() * m_noise.visionSigmaM(),
+                                seen.getY() + random.nextGaussian() * m_noise.visionSigmaM(),
+                                seen.getRotation());
+                        estimator.put(
+                                t - lag * kDtS,
+                                measurement,
+                                kStateStdDevs,
+                                new double[] {
+                                        Math.max(m_noise.visionSigmaM(), 0.01),
+                                        Math.max(m_noise.visionSigmaM(), 0.01),
+                                        Double.MAX_VALUE });
+                    }
+                }
+
+                // score
+                if (sampler != null) {
+                    Optional<TrajectorySamplePoint> sample = sampler.sample(
+                            sampler.getStartS() + t - segmentStartS);
+                    if (sample.isPresent()) {
+                        Pose2d reference = sample.get().state().state().getPose();
+                        maxPathErrorM = Math.max(maxPathErrorM,
+                                reference.getTranslation().getDistance(truth.getTranslation()));
+                    }
+                }
+                if (!Double.isFinite(arrivalS)
+                        && truth.getTranslation().getDistance(goal.getTranslation()) < kArrivalToleranceM
+                        && Math.abs(truth.getRotation().minus(goal.getRotation()).getRadians()) < kArrivalToleranceRad) {
+                    arrivalS = t;
+                }
+                boolean collided = m_collision.test(truth);
+                if (collided && !colliding)
+                    collisions++;
+                colliding = collided;
+            }
+        }
+        Pose2d end = plant.getPose();
+        return new Trial(
+                index,
+                arrivalS,
+                end.getTranslation().getDistance(goal.getTranslation()),
+                Math.abs(end.getRotation().minus(goal.getRotation()).getRadians()),
+                maxPathErrorM,
+                collisions);
+    }
+
+    ////////////////////////////////////////////////////////
+
+    private static Summary summarize(List<Trial> trials) {
+        return new Summary(
+                trials,
+                Stats.of(trials.stream().mapToDouble(Trial::arrivalS).toArray()),
+                Stats.of(trials.stream().mapToDouble(Trial::endErrorM).toArray()),
+                Stats.of(trials.stream().mapToDouble(Trial::endErrorRad).toArray()),
+                Stats.of(trials.stream().mapToDouble(Trial::maxPathErrorM).toArray()),
+                Stats.of(trials.stream().mapToDouble(Trial::collisions).toArray()));
+    }
+
+    /**
+     * The gyro is zeroed at the start, like the real one, and drifts.
+     */
+    private static Rotation2d gyro(SwervePlant plant, Pose2d start, double driftRad_S, double t) {
+        return plant.getPose().getRotation().minus(start.getRotation())
+                .plus(new Rotation2d(driftRad_S * t));
+    }
+
+    private static SwerveModulePositions positions(SwervePlant plant, double[] distances) {
+        SwerveModuleState100[] all = plant.getModuleStates().all();
+        return new SwerveModulePositions(
+                new SwerveModulePosition100(distances[0], all[0].angle),
+                new SwerveModulePosition100(distances[1], all[1].angle),
+                new SwerveModulePosition100(distances[2], all[2].angle),
+                new SwerveModulePosition100(distances[3], all[3].angle));
+    }
+
+    private static SwerveModuleStates stopped() {
+        return new SwerveModuleStates(
+                new SwerveModuleState100(0, Optional.empty()),
+                new SwerveModuleState100(0, Optional.empty()),
+                new SwerveModuleState100(0, Optional.empty()),
+                new SwerveModuleState100(0, Optional.empty()));
+    }
+}
@@ -0,0 +1,324 @@
+package org.team100.lib.motion.drivetrain.sim;
+
+import java.util.Optional;
+
+import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Swerve drive dynamics, for offline testing of followers and setpoint
+ * generators.
+ *
+ * Unlike the simulated modules, where the commanded velocity is the actual
+ * velocity, this models the forces involved:
+ *
+ * <ul>
+ * <li>Each drive motor follows the DC motor torque curve, with a velocity
+ * controller, a current limit, and a supply voltage that sags under load.
+ * <li>Each wheel has (reflected) inertia, and the tire force depends on the
+ * slip between the wheel and the floor, in both directions, saturating at the
+ * friction limit, like the slippery tires study.
+ * <li>The chassis has mass and rotational inertia.
+ * <li>Steering slews at the max steering rate.
+ * </ul>
+ *
+ * The motor and traction constants come from SwerveKinodynamics: the free
+ * speed is the max drive speed, the stall force comes from the stall
+ * acceleration, and the current limit comes from the max acceleration and
+ * deceleration.
+ *
+ * Integration is semi-implicit Euler with 1 ms substeps, which is stable for the
+ * default tire stiffness. The battery voltage follows the power drawn in the
+ * previous substep, with a short lag. The inner loop doesn't allocate.
+ *
+ * Pass getBatteryVoltage() to the setpoint generator, so the BatterySagLimiter
+ * sees the simulated sag.
+ *
+ * Not thread-safe: use one plant per simulation.
+ */
+public class SwervePlant {
+    private static final double kSubstepS = 0.001;
+    private static final double kG = 9.81;
+    private static final double kNominalVoltage = 12.0;
+    private static final int kModules = 4;
+    /** Battery voltage lag, which keeps the load from oscillating. */
+    private static final double kBatteryTauS = 0.005;
+
+    /**
+     * Physical constants that aren't in SwerveKinodynamics.
+     *
+     * @param massKg                robot mass, including battery and bumpers
+     * @param wheelMassKg           drivetrain inertia reflected to the wheel
+     *                              surface, per module
+     * @param friction              tire/floor friction coefficient
+     * @param saturationSlipM_S     slip speed at which the tire force saturates
+     * @param kPVolts_M_S           drive velocity controller proportional gain
+     * @param batteryVoltage        open-circuit battery voltage
+     * @param batteryResistanceOhms battery and wiring resistance
+     */
+    public record Parameters(
+            double massKg,
+            double wheelMassKg,
+            double friction,
+            double saturationSlipM_S,
+            double kPVolts_M_S,
+            double batteryVoltage,
+            double batteryResistanceOhms) {
+
+        /** Roughly a competition robot on carpet. */
+        public static Parameters defaults() {
+            return new Parameters(60, 2, 1.2, 0.2, 10, 12.5, 0.02);
+        }
+
+        /** Same robot, less traction, e.g. worn tread or a dusty floor. */
+        public Parameters withFriction(double friction) {
+            return new Parameters(massKg, wheelMassKg, friction, saturationSlipM_S, kPVolts_M_S,
+                    batteryVoltage, batteryResistanceOhms);
+        }
+    }
+
+    private final Parameters m_p;
+    // module locations, robot-relative
+    private final double[] m_rx = new double[kModules];
+    private final double[] m_ry = new double[kModules];
+    private final double m_inertiaKgM2;
+    private final double m_freeSpeedM_S;
+    private final double m_maxSteeringRateRad_S;
+    /** Motor force at the wheel, at stall and nominal voltage, per module. */
+    private final double m_stallForceN;
+    private final double m_accelForceLimitN;
+    private final double m_decelForceLimitN;
+    private final double m_stallCurrentA;
+    /** Tire force limit, per module. */
+    private final double m_tractionN;
+
+    // command, per module
+    private final double[] m_cmdSpeed = new double[kModules];
+    private final double[] m_cmdAngle = new double[kModules];
+
+    // state
+    private final double[] m_steer = new double[kModules];
+    private final double[] m_wheel = new double[kModules];
+    private double m_x;
+    private double m_y;
+    private double m_theta;
+    private double m_vx;
+    private double m_vy;
+    private double m_omega;
+    private double m_supplyPowerW;
+    private double m_batteryVoltage;
+    private double m_maxSlipM_S;
+
+    public SwervePlant(SwerveKinodynamics limits) {
+        this(limits, Parameters.defaults());
+    }
+
+    public SwervePlant(SwerveKinodynamics limits, Parameters parameters) {
+        m_p = parameters;
+        Translation2d[] locations = limits.getKinematics().getModuleLocations();
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < kModules; ++i) {
+            m_rx[i] = locations[i].getX();
+            m_ry[i] = locations[i].getY();
+            minX = Math.min(minX, m_rx[i]);
+            maxX = Math.max(maxX, m_rx[i]);
+            minY = Math.min(minY, m_ry[i]);
+            maxY = Math.max(maxY, m_ry[i]);
+        }
+        // uniform plate the size of the wheelbase and track
+        double lx = maxX - minX;
+        double ly = maxY - minY;
+        m_inertiaKgM2 = m_p.massKg() * (lx * lx + ly * ly) / 12;
+        m_freeSpeedM_S = limits.getMaxDriveVelocityM_S();
+        m_maxSteeringRateRad_S = limits.getMaxSteeringVelocityRad_S();
+        double quarterMass = m_p.massKg() / kModules;
+        m_stallForceN = quarterMass * limits.getStallAccelerationM_S2();
+        m_accelForceLimitN = quarterMass * limits.getMaxDriveAccelerationM_S2();
+        m_decelForceLimitN = quarterMass * limits.getMaxDriveDecelerationM_S2();
+        // power balance: torque per amp matches back-EMF per speed.
+        m_stallCurrentA = m_stallForceN * m_freeSpeedM_S / kNominalVoltage;
+        m_tractionN = m_p.friction() * quarterMass * kG;
+        reset(new Pose2d());
+    }
+
+    /** Stop everything at the given pose, with a full battery. */
+    public void reset(Pose2d pose) {
+        m_x = pose.getX();
+        m_y = pose.getY();
+        m_theta = pose.getRotation().getRadians();
+        m_vx = 0;
+        m_vy = 0;
+        m_omega = 0;
+        for (int i = 0; i < kModules; ++i) {
+            m_steer[i] = 0;
+            m_wheel[i] = 0;
+            m_cmdSpeed[i] = 0;
+            m_cmdAngle[i] = 0;
+        }
+        m_supplyPowerW = 0;
+        m_batteryVoltage = m_p.batteryVoltage();
+        m_maxSlipM_S = 0;
+    }
+
+    /**
+     * Apply the commanded module states for dtS, e.g. one robot loop period.
+     *
+     * Modules flip rather than steer more than 90 degrees, like the real ones.
+     * Modules without a commanded angle keep their current angle.
+     */
+    public void step(SwerveModuleStates command, double dtS) {
+        setCommand(0, command.frontLeft());
+        setCommand(1, command.frontRight());
+        setCommand(2, command.rearLeft());
+        setCommand(3, command.rearRight());
+        m_maxSlipM_S = 0;
+        int substeps = Math.max(1, (int) Math.round(dtS / kSubstepS));
+        double h = dtS / substeps;
+        for (int k = 0; k < substeps; ++k) {
+            substep(h);
+        }
+    }
+
+    public Pose2d getPose() {
+        return new Pose2d(m_x, m_y, new Rotation2d(m_theta));
+    }
+
+    public FieldRelativeVelocity getVelocity() {
+        return new FieldRelativeVelocity(m_vx, m_vy, m_omega);
+    }
+
+    /** Actual wheel speeds and steering angles. */
+    public SwerveModuleStates getModuleStates() {
+        return new SwerveModuleStates(
+                moduleState(0),
+                moduleState(1),
+                moduleState(2),
+                moduleState(3));
+    }
+
+    /** Battery terminal voltage, for the BatterySagLimiter. */
+    public double getBatteryVoltage() {
+        return m_batteryVoltage;
+    }
+
+    /** Largest slip speed of any wheel during the last step. */
+    public double getMaxSlipM_S() {
+        return m_maxSlipM_S;
+    }
+
+    ///////////////////////////////////////////////////////
+
+    private void setCommand(int i, SwerveModuleState100 state) {
+        double speed = state.speedMetersPerSecond;
+        double angle = state.angle.isPresent() ? state.angle.get().getRadians() : m_steer[i];
+        if (Math.abs(MathUtil.angleModulus(angle - m_steer[i])) > Math.PI / 2) {
+            angle = MathUtil.angleModulus(angle + Math.PI);
+            speed = -speed;
+        }
+        m_cmdSpeed[i] = speed;
+        m_cmdAngle[i] = angle;
+    }
+
+    private SwerveModuleState100 moduleState(int i) {
+        return new SwerveModuleState100(m_wheel[i], Optional.of(new Rotation2d(m_steer[i])));
+    }
+
+    private void substep(double h) {
+        m_batteryVoltage += (h / kBatteryTauS) * (batteryVoltage(m_supplyPowerW) - m_batteryVoltage);
+        double battery = m_batteryVoltage;
+        double maxSteer = m_maxSteeringRateRad_S * h;
+
+        double cosTheta = Math.cos(m_theta);
+        double sinTheta = Math.sin(m_theta);
+        // robot-relative chassis velocity
+        double ux = cosTheta * m_vx + sinTheta * m_vy;
+        double uy = -sinTheta * m_vx + cosTheta * m_vy;
+
+        double fx = 0;
+        double fy = 0;
+        double torque = 0;
+        double power = 0;
+        for (int i = 0; i < kModules; ++i) {
+            m_steer[i] += MathUtil.clamp(
+                    MathUtil.angleModulus(m_cmdAngle[i] - m_steer[i]), -maxSteer, maxSteer);
+            double c = Math.cos(m_steer[i]);
+            double s = Math.sin(m_steer[i]);
+
+            // contact patch velocity, in the module frame
+            double px = ux - m_ry[i] * m_omega;
+            double py = uy + m_rx[i] * m_omega;
+            double along = c * px + s * py;
+            double across = -s * px + c * py;
+
+            // tire force on the chassis, proportional to slip, up to saturation
+            double slipAlong = m_wheel[i] - along;
+            double slipAcross = -across;
+            double slip = Math.hypot(slipAlong, slipAcross);
+            m_maxSlipM_S = Math.max(m_maxSlipM_S, slip);
+            double fAlong = 0;
+            double fAcross = 0;
+            if (slip > 1e-9) {
+                double force = m_tractionN * Math.min(1, slip / m_p.saturationSlipM_S());
+                fAlong = force * slipAlong / slip;
+                fAcross = force * slipAcross / slip;
+            }
+
+            // motor force at the wheel
+            double volts = kNominalVoltage * m_cmdSpeed[i] / m_freeSpeedM_S
+                    + m_p.kPVolts_M_S() * (m_cmdSpeed[i] - m_wheel[i]);
+            volts = MathUtil.clamp(volts, -battery, battery);
+            double motor = m_stallForceN * (volts / kNominalVoltage - m_wheel[i] / m_freeSpeedM_S);
+            double limit = motor * m_wheel[i] >= 0 ? m_accelForceLimitN : m_decelForceLimitN;
+            motor = MathUtil.clamp(motor, -limit, limit);
+            // the controller reduces the voltage to respect the current limit
+            double applied = kNominalVoltage * (motor / m_stallForceN + m_wheel[i] / m_freeSpeedM_S);
+            double current = m_stallCurrentA * motor / m_stallForceN;
+            // regen doesn't charge the battery
+            power += Math.max(0, current * applied);
+
+            m_wheel[i] += h * (motor - fAlong) / m_p.wheelMassKg();
+
+            // module frame to robot frame
+            double frx = c * fAlong - s * fAcross;
+            double fry = s * fAlong + c * fAcross;
+            fx += frx;
+            fy += fry;
+            torque += m_rx[i] * fry - m_ry[i] * frx;
+        }
+        m_supplyPowerW = power;
+
+        // robot frame to field frame
+        double ax = (cosTheta * fx - sinTheta * fy) / m_p.massKg();
+        double ay = (sinTheta * fx + cosTheta * fy) / m_p.massKg();
+        double alpha = torque / m_inertiaKgM2;
+        m_vx += h * ax;
+        m_vy += h * ay;
+        m_omega += h * alpha;
+        m_x += h * m_vx;
+        m_y += h * m_vy;
+        m_theta = MathUtil.angleModulus(m_theta + h * m_omega);
+    }
+
+    /**
+     * Terminal voltage supplying the given power, i.e. the larger root of
+     * V^2 - Voc V + R P = 0. Beyond the maximum power, the battery browns out at
+     * half the open-circuit voltage.
+     */
+    private double batteryVoltage(double powerW) {
+        double voc = m_p.batteryVoltage();
+        double disc = voc * voc - 4 * m_p.batteryResistanceOhms() * powerW;
+        if (disc < 0)
+            return voc / 2;
+        return (voc + Math.sqrt(disc)) / 2;
+    }
+}
@@ -43,6 +43,11 @@ public abstract class CANSparkMotor implements BareMotor {
     private final DoubleLogger m_log_torque;
     private final DoubleLogger m_log_temp;
 
+    /** If non-null, the batch takes snapshots of position and velocity. */
+    private SignalBatch m_batch;
+    private double m_snapshotPosition;
+    private double m_snapshotVelocity;
+
     protected CANSparkMotor(
             LoggerFactory parent,
             CANSparkBase motor,
@@ -65,8 +70,8 @@ public abstract class CANSparkMotor implements BareMotor {
         // NOTE: this makes error-checking not work at all.
         Rev100.crash(() -> m_motor.setCANTimeout(0));
         // CACHES
-        m_encoder_position = Memo.ofDouble(m_encoder::getPosition);
-        m_encoder_velocity = Memo.ofDouble(m_encoder::getVelocity);
+        m_encoder_position = Memo.ofDouble(this::readPosition);
+        m_encoder_velocity = Memo.ofDouble(this::readVelocity);
         m_current = Memo.ofDouble(m_motor::getOutputCurrent);
         m_output = Memo.ofDouble(m_motor::getAppliedOutput);
         m_temp = Memo.ofDouble(m_motor::getMotorTemperature);
@@ -88,6 +93,15 @@ public abstract class CANSparkMotor implements BareMotor {
         m_log_temp = child.doubleLogger(Level.TRACE, "temperature (C)");
     }
 
+    /**
+     * Read position and velocity with the other members of the batch, so they
+     * come from the same status frame.
+     */
+    public void joinBatch(SignalBatch batch) {
+        batch.add(this::snapshot);
+        m_batch = batch;
+    }
+
     @Override
     public void setDutyCycle(double output) {
         m_motor.set(output);
@@ -236,4 +250,25 @@ public abstract class CANSparkMotor implements BareMotor {
     public void periodic() {
         log();
     }
+
+    ////////////////////////////////////////////
+
+    private void snapshot() {
+        m_snapshotPosition = m_encoder.getPosition();
+        m_snapshotVelocity = m_encoder.getVelocity();
+    }
+
+    private double readPosition() {
+        if (m_batch == null)
+            return m_encoder.getPosition();
+        m_batch.refresh();
+        return m_snapshotPosition;
+    }
+
+    private double readVelocity() {
+        if (m_batch == null)
+            return m_encoder.getVelocity();
+        m_batch.refresh();
+        return m_snapshotVelocity;
+    }
 }
@@ -0,0 +1,86 @@
+package org.team100.lib.motor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.util.Memo;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+
+/**
+ * Refreshes the sensor signals of a group of motors together, once per cycle.
+ *
+ * Refreshing each Phoenix signal separately is a blocking CAN call, so a
+ * drivetrain with eight motors makes dozens of them every cycle, one after the
+ * other. Instead, motors that join a batch register their important signals
+ * here, and the first read in each cycle refreshes all of them with one
+ * BaseStatusSignal.refreshAll() call. All the signals must be on the same CAN
+ * bus.
+ *
+ * REV motors have no refresh call: their getters read the last status frame
+ * received. They join with a snapshot, which is run at the same time, so that
+ * all the reads in a cycle see the same frame.
+ *
+ * The refresh is memoized, so it happens at most once per cycle, and it
+ * happens at the start of the cycle, since that's when the first read
+ * happens.
+ */
+public class SignalBatch implements Glassy {
+    private final List<BaseStatusSignal> m_signals = new ArrayList<>();
+    private final List<Runnable> m_snapshots = new ArrayList<>();
+    private final Memo.DoubleCache m_refresh;
+    // LOGGERS
+    private final DoubleLogger m_log_refresh_time;
+    private final IntLogger m_log_signals;
+
+    private BaseStatusSignal[] m_signalArray = new BaseStatusSignal[0];
+
+    public SignalBatch(LoggerFactory parent) {
+        LoggerFactory child = parent.child(this);
+        m_refresh = Memo.ofDouble(this::refreshAll);
+        m_log_refresh_time = child.doubleLogger(Level.TRACE, "refresh time (s)");
+        m_log_signals = child.intLogger(Level.TRACE, "signals");
+    }
+
+    /** Refresh these Phoenix signals together. */
+    public void add(BaseStatusSignal... signals) {
+        m_signals.addAll(List.of(signals));
+        m_signalArray = m_signals.toArray(new BaseStatusSignal[0]);
+        // the new signals haven't been refreshed yet.
+        m_refresh.reset();
+    }
+
+    /** Run this snapshot, e.g. of REV getters, with the refresh. */
+    public void add(Runnable snapshot) {
+        m_snapshots.add(snapshot);
+        m_refresh.reset();
+    }
+
+    /** Refresh everything, unless it's already been done this cycle. */
+    public void refresh() {
+        m_refresh.getAsDouble();
+    }
+
+    /**
+     * Refresh everything now.
+     *
+     * @return elapsed time in seconds
+     */
+    private double refreshAll() {
+        long startNs = System.nanoTime();
+        if (m_signalArray.length > 0)
+            Phoenix100.warn(() -> BaseStatusSignal.refreshAll(m_signalArray));
+        for (Runnable snapshot : m_snapshots) {
+            snapshot.run();
+        }
+        double elapsedS = (System.nanoTime() - startNs) * 1e-9;
+        m_log_refresh_time.log(() -> elapsedS);
+        m_log_signals.log(() -> m_signalArray.length + m_snapshots.size());
+        return elapsedS;
+    }
+}
@@ -0,0 +1,156 @@
+package org.team100.lib.motor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.DoubleSupplier;
+
+import org.team100.lib.util.Util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Sets the update frequency of each Phoenix status signal according to how
+ * often the code actually reads it.
+ *
+ * Motors wrap each signal read with track(), inside the Memo, so the count is
+ * the number of cycles that used the signal. When apply() is called, e.g. in
+ * disabledInit(), the read rate since the last call updates the highest rate
+ * seen for each signal, and each signal is set to update at that rate. Signals
+ * that have never been read are turned down to the slowest rate, but not off,
+ * the way optimizeBusUtilization() would: some reads depend on things that
+ * change at runtime, like the log level, and an "off" signal would just return
+ * its last value until the next apply(). Signals used for control should have
+ * a minimum rate, so they're never turned down.
+ *
+ * Using the highest rate seen means that a quiet mode, e.g. disabled, doesn't
+ * turn down signals used in a busy mode, e.g. autonomous. Observation windows
+ * shorter than a few seconds are ignored, so calling apply() at startup, before
+ * anything has run, does nothing.
+ *
+ * Changing the frequency blocks for a little while, so apply() only changes
+ * signals whose plan changed, and it should only be called when the robot is
+ * disabled.
+ *
+ * CAN utilization is printed before the change, and again a second later.
+ */
+public class StatusFramePlanner {
+    /**
+     * Phoenix minimum, other than zero, which means "off". Unread signals get
+     * this.
+     */
+    private static final double kMinHz = 4;
+    private static final double kMaxHz = 1000;
+    private static final double kMinWindowS = 5;
+    private static final double kSettleS = 1;
+
+    private static class Entry {
+        private final String m_name;
+        private final BaseStatusSignal m_signal;
+        private final double m_minimumHz;
+        private int m_reads;
+        private double m_maxRateHz;
+        private double m_appliedHz = Double.NaN;
+
+        private Entry(String name, BaseStatusSignal signal, double minimumHz) {
+            m_name = name;
+            m_signal = signal;
+            m_minimumHz = minimumHz;
+        }
+    }
+
+    private static final List<Entry> entries = new ArrayList<>();
+    private static double windowStartS = Timer.getFPGATimestamp();
+    private static double utilizationBefore;
+    private static double reportTimeS = Double.POSITIVE_INFINITY;
+
+    /**
+     * Count the reads of the signal.
+     *
+     * @param name      for the report
+     * @param signal    the signal to plan
+     * @param minimumHz never update slower than this, e.g. for control signals,
+     *                  or zero for the Phoenix minimum
+     * @param read      reads the signal
+     * @return a supplier that counts and reads, to wrap with Memo.
+     */
+    public static DoubleSupplier track(
+            String name,
+            BaseStatusSignal signal,
+            double minimumHz,
+            DoubleSupplier read) {
+        Entry entry = new Entry(name, signal, minimumHz);
+        entries.add(entry);
+        return () -> {
+            entry.m_reads++;
+            return read.getAsDouble();
+        };
+    }
+
+    /**
+     * Set the update frequency of all the tracked signals, based on the reads
+     * observed so far.
+     */
+    public static void apply() {
+        double nowS = Timer.getFPGATimestamp();
+        double windowS = nowS - windowStartS;
+        if (windowS < kMinWindowS)
+            return;
+        windowStartS = nowS;
+        // group by frequency, to set each group in one call.
+        Map<Double, List<BaseStatusSignal>> changes = new TreeMap<>();
+        int idle = 0;
+        for (Entry entry : entries) {
+            entry.m_maxRateHz = Math.max(entry.m_maxRateHz, entry.m_reads / windowS);
+            entry.m_reads = 0;
+            double hz = plan(entry.m_maxRateHz, entry.m_minimumHz);
+            if (entry.m_maxRateHz == 0)
+                idle++;
+            if (hz == entry.m_appliedHz)
+                continue;
+            Util.printf("StatusFramePlanner: %s %.0f Hz\n", entry.m_name, hz);
+            changes.computeIfAbsent(hz, x -> new ArrayList<>()).add(entry.m_signal);
+            entry.m_appliedHz = hz;
+        }
+        if (changes.isEmpty())
+            return;
+        utilizationBefore = busUtilization();
+        for (Map.Entry<Double, List<BaseStatusSignal>> change : changes.entrySet()) {
+            BaseStatusSignal[] signals = change.getValue().toArray(new BaseStatusSignal[0]);
+            Phoenix100.warn(() -> BaseStatusSignal.setUpdateFrequencyForAll(change.getKey(), signals));
+        }
+        Util.printf("StatusFramePlanner: %d signals, %d unread, CAN utilization before %.3f\n",
+                entries.size(), idle, utilizationBefore);
+        reportTimeS = Timer.getFPGATimestamp() + kSettleS;
+    }
+
+    /** Reports the CAN utilization after apply(). Call this in robotPeriodic(). */
+    public static void periodic() {
+        if (Timer.getFPGATimestamp() < reportTimeS)
+            return;
+        reportTimeS = Double.POSITIVE_INFINITY;
+        Util.printf("StatusFramePlanner: CAN utilization before %.3f after %.3f\n",
+                utilizationBefore, busUtilization());
+    }
+
+    /**
+     * Update frequency for the given read rate: fast enough that every read sees
+     * a new value, and never slower than the Phoenix minimum, so a signal that
+     * starts being read later still updates.
+     */
+    static double plan(double rateHz, double minimumHz) {
+        return Math.min(kMaxHz, Math.max(kMinHz, Math.max(minimumHz, Math.ceil(rateHz))));
+    }
+
+    private static double busUtilization() {
+        return RobotController.getCANStatus().percentBusUtilization;
+    }
+
+    private StatusFramePlanner() {
+        //
+    }
+}
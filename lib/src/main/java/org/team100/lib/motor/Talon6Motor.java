@@ -10,6 +10,7 @@ import org.team100.lib.logging.LoggerFactory.DoubleLogger;
 import org.team100.lib.util.Memo;
 import org.team100.lib.util.Util;
 
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.TalonFXConfigurator;
 import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.PositionVoltage;
@@ -22,6 +23,9 @@ import com.ctre.phoenix6.hardware.TalonFX;
 public abstract class Talon6Motor implements BareMotor {
     private final TalonFX m_motor;
     private final Feedforward100 m_ff;
+    // the signals used for control, which can be refreshed in a batch
+    private final StatusSignal<Double> m_positionSignal;
+    private final StatusSignal<Double> m_velocitySignal;
 
     // CACHES
     // Two levels of caching here: the cotemporal cache caches the value
@@ -42,6 +46,9 @@ public abstract class Talon6Motor implements BareMotor {
 
     private final double m_supplyLimit;
 
+    /** If non-null, the batch refreshes position and velocity. */
+    private SignalBatch m_batch;
+
     // LOGGERS
     private final DoubleLogger m_log_desired_duty;
     private final DoubleLogger m_log_desired_position;
@@ -83,15 +90,23 @@ public abstract class Talon6Motor implements BareMotor {
         Phoenix100.crash(() -> m_motor.getVelocity().setUpdateFrequency(50));
         Phoenix100.crash(() -> m_motor.getTorqueCurrent().setUpdateFrequency(50));
 
-        // each memo refresh calls the motor refresh method
-        m_position = Memo.ofDouble(() -> m_motor.getPosition().refresh().getValueAsDouble());
-        m_velocity = Memo.ofDouble(() -> m_motor.getVelocity().refresh().getValueAsDouble());
-        m_dutyCycle = Memo.ofDouble(() -> m_motor.getDutyCycle().refresh().getValueAsDouble());
-        m_error = Memo.ofDouble(() -> m_motor.getClosedLoopError().refresh().getValueAsDouble());
-        m_supply = Memo.ofDouble(() -> m_motor.getSupplyCurrent().refresh().getValueAsDouble());
-        m_stator = Memo.ofDouble(() -> m_motor.getStatorCurrent().refresh().getValueAsDouble());
-        m_temp = Memo.ofDouble(() -> m_motor.getDeviceTemp().refresh().getValueAsDouble());
-        m_torque = Memo.ofDouble(() -> m_motor.getTorqueCurrent().refresh().getValueAsDouble());
+        m_positionSignal = m_motor.getPosition();
+        m_velocitySignal = m_motor.getVelocity();
+
+        // each memo refresh calls the motor refresh method, or the batch refresh.
+        // the planner counts the refreshes, to set the update frequencies.
+        // position and velocity are used for control, so they stay at 50 hz.
+        String name = "Talon " + canId;
+        m_position = Memo.ofDouble(StatusFramePlanner.track(
+                name + " position", m_positionSignal, 50, () -> read(m_positionSignal)));
+        m_velocity = Memo.ofDouble(StatusFramePlanner.track(
+                name + " velocity", m_velocitySignal, 50, () -> read(m_velocitySignal)));
+        m_dutyCycle = Memo.ofDouble(track(name + " duty cycle", m_motor.getDutyCycle()));
+        m_error = Memo.ofDouble(track(name + " error", m_motor.getClosedLoopError()));
+        m_supply = Memo.ofDouble(track(name + " supply", m_motor.getSupplyCurrent()));
+        m_stator = Memo.ofDouble(track(name + " stator", m_motor.getStatorCurrent()));
+        m_temp = Memo.ofDouble(track(name + " temp", m_motor.getDeviceTemp()));
+        m_torque = Memo.ofDouble(track(name + " torque", m_motor.getTorqueCurrent()));
 
         m_log_desired_duty = child.doubleLogger(Level.TRACE, "desired duty cycle [-1,1]");
         m_log_desired_position = child.doubleLogger(Level.DEBUG, "desired position (rev)");
@@ -114,6 +129,15 @@ public abstract class Talon6Motor implements BareMotor {
         child.intLogger(Level.TRACE, "Device ID").log(() -> canId);
     }
 
+    /**
+     * Refresh position and velocity with the other members of the batch, instead
+     * of separately.
+     */
+    public void joinBatch(SignalBatch batch) {
+        batch.add(m_positionSignal, m_velocitySignal);
+        m_batch = batch;
+    }
+
     @Override
     public void setDutyCycle(double output) {
         Phoenix100.warn(() -> m_motor.setControl(m_dutyCycleOut
@@ -276,6 +300,18 @@ public abstract class Talon6Motor implements BareMotor {
         m_log_temp.log(m_temp);
     }
 
+    /** Refresh and read, counted by the planner, which can turn it down. */
+    private static DoubleSupplier track(String name, StatusSignal<Double> signal) {
+        return StatusFramePlanner.track(name, signal, 0, () -> signal.refresh().getValueAsDouble());
+    }
+
+    private double read(StatusSignal<Double> signal) {
+        if (m_batch == null)
+            return signal.refresh().getValueAsDouble();
+        m_batch.refresh();
+        return signal.getValueAsDouble();
+    }
+
     private double getMotorTorque() {
         // I looked into latency compensation of this signal but it doesn't seem
         // possible. latency compensation requires a signal and its time derivative,
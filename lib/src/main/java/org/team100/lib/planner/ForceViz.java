@@ -6,23 +6,35 @@ import java.util.Optional;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
-import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
 import org.team100.lib.motion.drivetrain.kinodynamics.FieldRelativeVelocity;
+import org.team100.lib.visualization.VizPublisher;
+import org.team100.lib.visualization.VizPublisher.Channel;
+import org.team100.lib.visualization.VizPublisher.Snapshot;
 
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 
+/**
+ * Draws forces on the Glass field.
+ *
+ * Forces accumulate until render(), which hands them to the VizPublisher and
+ * starts over, so each render shows the forces since the previous one.
+ */
 public class ForceViz {
     private static final double kScale = 0.5;
 
-    private final List<Double> m_tactics = new ArrayList<>();
-    private final List<Double> m_desired = new ArrayList<>();
-    private final DoubleArrayLogger m_log_tactics;
-    private final DoubleArrayLogger m_log_desired;
+    private final Channel m_tactics_channel;
+    private final Channel m_desired_channel;
+    private List<Double> m_tactics = new ArrayList<>();
+    private List<Double> m_desired = new ArrayList<>();
 
     public ForceViz(LoggerFactory fieldLogger) {
-        m_log_tactics = fieldLogger.doubleArrayLogger(Level.TRACE, "tactics");
-        m_log_desired = fieldLogger.doubleArrayLogger(Level.TRACE, "desired");
+        this(fieldLogger, VizPublisher.instance());
+    }
+
+    public ForceViz(LoggerFactory fieldLogger, VizPublisher publisher) {
+        m_tactics_channel = publisher.channel(fieldLogger.doubleArrayLogger(Level.TRACE, "tactics"));
+        m_desired_channel = publisher.channel(fieldLogger.doubleArrayLogger(Level.TRACE, "desired"));
     }
 
     public void tactics(Translation2d p, FieldRelativeVelocity v) {
@@ -48,9 +60,32 @@ public class ForceViz {
         f.add(direction);
     }
 
+    /** The lists are handed off, not copied, so they're never touched again here. */
     public void render() {
-        m_log_tactics.log(() -> m_tactics.stream().mapToDouble(Double::doubleValue).toArray());
-        m_log_desired.log(() -> m_desired.stream().mapToDouble(Double::doubleValue).toArray());
+        m_tactics_channel.post(new Forces(m_tactics));
+        m_desired_channel.post(new Forces(m_desired));
+        m_tactics = new ArrayList<>();
+        m_desired = new ArrayList<>();
+    }
+
+    private static class Forces implements Snapshot {
+        private final List<Double> m_forces;
+
+        private Forces(List<Double> forces) {
+            m_forces = forces;
+        }
+
+        @Override
+        public int size() {
+            return m_forces.size();
+        }
+
+        @Override
+        public void pack(double[] dst) {
+            for (int i = 0; i < dst.length; ++i) {
+                dst[i] = m_forces.get(i);
+            }
+        }
     }
 
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package org.team100.lib.profile;
 
 import org.team100.lib.motion.drivetrain.SwerveState;
-import org.team100.lib.profile.Profile100.ResultWithETA;
+import org.team100.lib.state.MutableState100;
 import org.team100.lib.state.State100;
 
 /**
@@ -10,6 +10,10 @@ import org.team100.lib.state.State100;
  * 
  * Note that because acceleration is adjusted, but not cruise velocity, the
  * resulting paths will not be straight, for rest-to-rest profiles.
+ * 
+ * Call solve() once per goal, e.g. in a command's initialize(); it builds the
+ * scaled profiles, reusing the unscaled one for the slowest axis. Each
+ * calculate() returns a new SwerveState, which is what the controllers take.
  */
 public class HolonomicProfile {
     private static final double ETA_TOLERANCE = 0.02;
@@ -23,6 +27,9 @@ public class HolonomicProfile {
     private TrapezoidProfile100 ppy;
     private TrapezoidProfile100 pptheta;
 
+    /** Scratch for the ETA calculation in solve(). */
+    private final MutableState100 m_scratch = new MutableState100();
+
     public HolonomicProfile(
             double dt,
             double maxXYVel,
@@ -40,13 +47,9 @@ public class HolonomicProfile {
     /** Reset the scale factors. */
     public void solve(SwerveState i, SwerveState g) {
         // first find the max ETA
-        ResultWithETA rx = px.calculateWithETA(m_dt, i.x(), g.x());
-        ResultWithETA ry = py.calculateWithETA(m_dt, i.y(), g.y());
-        ResultWithETA rtheta = ptheta.calculateWithETA(m_dt, i.theta(), g.theta());
-
-        double slowETA = rx.etaS();
-        slowETA = Math.max(slowETA, ry.etaS());
-        slowETA = Math.max(slowETA, rtheta.etaS());
+        double slowETA = px.calculateWithETA(m_dt, i.x(), g.x(), m_scratch);
+        slowETA = Math.max(slowETA, py.calculateWithETA(m_dt, i.y(), g.y(), m_scratch));
+        slowETA = Math.max(slowETA, ptheta.calculateWithETA(m_dt, i.theta(), g.theta(), m_scratch));
 
         double sx = px.solve(m_dt, i.x(), g.x(), slowETA, ETA_TOLERANCE);
         double sy = py.solve(m_dt, i.y(), g.y(), slowETA, ETA_TOLERANCE);
@@ -63,4 +66,5 @@ public class HolonomicProfile {
         State100 stateTheta = pptheta.calculate(m_dt, i.theta(), g.theta());
         return new SwerveState(stateX, stateY, stateTheta);
     }
+
 }
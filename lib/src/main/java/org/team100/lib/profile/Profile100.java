@@ -1,6 +1,7 @@
 package org.team100.lib.profile;
 
 import org.team100.lib.state.State100;
+import org.team100.lib.state.StateBatch100;
 
 public interface Profile100 {
 
@@ -12,4 +13,26 @@ public interface Profile100 {
 
     ResultWithETA calculateWithETA(double dt, State100 initial, State100 goal);
 
+    /**
+     * Evaluate many initial/goal pairs at once, e.g. for simulation sweeps, or
+     * for planners that try lots of candidates.
+     * 
+     * The default just calls calculateWithETA() for each pair.
+     * 
+     * @param result the state at dt for each pair is written here
+     * @param etaS   the ETA for each pair is written here
+     */
+    default void calculateBatch(
+            double dt,
+            StateBatch100 initial,
+            StateBatch100 goal,
+            StateBatch100 result,
+            double[] etaS) {
+        for (int i = 0; i < initial.size(); ++i) {
+            ResultWithETA r = calculateWithETA(dt, initial.get(i), goal.get(i));
+            result.set(i, r.state());
+            etaS[i] = r.etaS();
+        }
+    }
+
 }
\ No newline at end of file
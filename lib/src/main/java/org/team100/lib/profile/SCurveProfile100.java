@@ -0,0 +1,390 @@
+package org.team100.lib.profile;
+
+import org.team100.lib.state.MutableState100;
+import org.team100.lib.state.State100;
+import org.team100.lib.util.Math100;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Jerk-limited ("S-curve") profile.
+ *
+ * TrapezoidProfile100 switches acceleration instantly, which makes current
+ * spikes and wheel slip at the corners. This profile limits jerk, so
+ * acceleration ramps, and the limits can be set closer to what the mechanism
+ * can actually do.
+ *
+ * Like TrapezoidProfile100, it keeps no state, it just takes one dt step at a
+ * time, from whatever initial state it's given, and it handles moving goals.
+ *
+ * The path has two velocity changes with a cruise between them. The first
+ * goes from the initial velocity and acceleration to a "peak" velocity, with
+ * zero acceleration, and the second goes from the peak velocity to the goal
+ * velocity. Each velocity change is the fastest one allowed by the jerk and
+ * acceleration limits: a jerk ramp, an optional constant-acceleration plateau,
+ * and another jerk ramp. If the distance requires it, the peak velocity is the
+ * velocity limit, and the cruise fills in the rest; otherwise there's no
+ * cruise, and the peak velocity is found by a short scan and root search.
+ *
+ * The goal is reached with zero acceleration; goal acceleration is ignored.
+ *
+ * Initial acceleration and goal velocity are clamped to the constraints.
+ * Initial velocity is not: the peak velocity never exceeds the limit, so an
+ * initial velocity over the limit is brought down by the first velocity
+ * change.
+ *
+ * Each step is about a microsecond, and the mutable version doesn't allocate,
+ * so it's fine to run for every module in every loop.
+ */
+public class SCurveProfile100 implements Profile100 {
+    private static final boolean DEBUG = false;
+    /** Root search tolerance, meters. */
+    private static final double kDistanceTolerance = 1e-9;
+    /**
+     * Distance error small enough to ignore, meters. Without this, roundoff
+     * near the end of the path can make the nearest solution a long detour.
+     */
+    private static final double kDistanceSlop = 1e-6;
+    private static final int kMaxIterations = 50;
+    private static final int kScanSteps = 16;
+
+    private final double m_maxVelocity;
+    private final double m_maxAcceleration;
+    private final double m_maxJerk;
+    private final double m_tolerance;
+
+    public SCurveProfile100(double maxVel, double maxAccel, double maxJerk, double tolerance) {
+        m_maxVelocity = maxVel;
+        m_maxAcceleration = maxAccel;
+        m_maxJerk = maxJerk;
+        m_tolerance = tolerance;
+    }
+
+    /** Scale acceleration and jerk. */
+    public SCurveProfile100 scale(double s) {
+        return new SCurveProfile100(m_maxVelocity, s * m_maxAcceleration, s * m_maxJerk, m_tolerance);
+    }
+
+    /**
+     * Return scale factor to make the ETA equal to the desired ETA, by reducing
+     * acceleration and jerk.
+     *
+     * Like TrapezoidProfile100.solveForSlowerETA(), it never returns s > 1 or
+     * s < 0.01, and it's very approximate.
+     */
+    public double solve(double dt, State100 i, State100 g, double eta, double etaTolerance) {
+        return Math100.findRoot(
+                s -> getEtaS(dt, i, g, eta, s),
+                0.01,
+                getEtaS(dt, i, g, eta, 0.01),
+                1.0,
+                getEtaS(dt, i, g, eta, 1.0),
+                etaTolerance, 100);
+    }
+
+    private double getEtaS(double dt, State100 i, State100 g, double eta, double s) {
+        return scale(s).calculateWithETA(dt, i, g, new MutableState100()) - eta;
+    }
+
+    @Override
+    public State100 calculate(double dt, State100 initial, State100 goal) {
+        MutableState100 result = new MutableState100();
+        calculateWithETA(dt, initial, goal, result);
+        return result.get();
+    }
+
+    @Override
+    public ResultWithETA calculateWithETA(double dt, State100 initial, State100 goal) {
+        MutableState100 result = new MutableState100();
+        double etaS = calculateWithETA(dt, initial, goal, result);
+        return new ResultWithETA(result.get(), etaS);
+    }
+
+    /**
+     * Note order of the arguments: initial state first, then goal.
+     *
+     * Returns the goal if the initial is within tolerance of it, with
+     * acceleration near zero, and also if the goal is reached within dt.
+     *
+     * This version doesn't allocate anything.
+     *
+     * @param result the state at dt is written here
+     * @return ETA in seconds
+     */
+    public double calculateWithETA(double dt, State100 initial, State100 goal, MutableState100 result) {
+        double x0 = initial.x();
+        double v0 = initial.v();
+        double a0 = MathUtil.clamp(initial.a(), -m_maxAcceleration, m_maxAcceleration);
+        double xg = goal.x();
+        double vg = MathUtil.clamp(goal.v(), -m_maxVelocity, m_maxVelocity);
+        // acceleration has to be small too, otherwise the jump to the goal would
+        // violate the jerk limit.
+        if (MathUtil.isNear(xg, x0, m_tolerance)
+                && MathUtil.isNear(vg, v0, m_tolerance)
+                && MathUtil.isNear(0, a0, m_tolerance)) {
+            if (DEBUG)
+                Util.printf("at goal\n");
+            result.set(xg, vg, 0);
+            return 0;
+        }
+        double dx = xg - x0;
+
+        // Find the peak velocity and the cruise duration. The fastest path is
+        // the one with the peak closest to the band between the initial and
+        // goal velocities (counting the initial acceleration), i.e. the path
+        // straight to the goal velocity. The distance isn't monotonic in the
+        // peak velocity, so look for the nearest solution within the band,
+        // above it, and below it, and take the fastest.
+        double vRamp = v0 + a0 * Math.abs(a0) / (2 * m_maxJerk);
+        double vHi = MathUtil.clamp(Math.max(vRamp, vg), -m_maxVelocity, m_maxVelocity);
+        double vLo = MathUtil.clamp(Math.min(vRamp, vg), -m_maxVelocity, m_maxVelocity);
+        double fHi = excess(v0, a0, vg, dx, vHi);
+        double fLo = excess(v0, a0, vg, dx, vLo);
+        double vp;
+        double cruise = 0;
+        double etaS;
+        if (Math.abs(fHi) < kDistanceSlop) {
+            // straight to the goal velocity
+            vp = vHi;
+            etaS = eta(v0, a0, vg, vp, 0);
+        } else if (Math.abs(fLo) < kDistanceSlop) {
+            vp = vLo;
+            etaS = eta(v0, a0, vg, vp, 0);
+        } else {
+            vp = vHi;
+            etaS = Double.POSITIVE_INFINITY;
+            if ((fHi > 0) != (fLo > 0)) {
+                // within
+                vp = fHi > 0
+                        ? peakVelocity(v0, a0, vg, dx, vLo, fLo, vHi, fHi)
+                        : peakVelocity(v0, a0, vg, dx, vHi, fHi, vLo, fLo);
+                etaS = eta(v0, a0, vg, vp, 0);
+            }
+            // above
+            double v = nearestPeak(v0, a0, vg, dx, vHi, fHi, m_maxVelocity);
+            double c = cruise(v0, a0, vg, dx, v);
+            double t = eta(v0, a0, vg, v, c);
+            if (t < etaS) {
+                vp = v;
+                cruise = c;
+                etaS = t;
+            }
+            // below
+            v = nearestPeak(v0, a0, vg, dx, vLo, fLo, -m_maxVelocity);
+            c = cruise(v0, a0, vg, dx, v);
+            t = eta(v0, a0, vg, v, c);
+            if (t < etaS) {
+                vp = v;
+                cruise = c;
+                etaS = t;
+            }
+        }
+        if (DEBUG)
+            Util.printf("peak %5.3f cruise %5.3f\n", vp, cruise);
+
+        if (dt >= etaS) {
+            result.set(xg, vg, 0);
+            return etaS;
+        }
+        result.set(x0, v0, a0);
+        double remaining = changeVelocity(result, vp, dt);
+        remaining = segment(result, 0, cruise, remaining);
+        changeVelocity(result, vg, remaining);
+        return etaS;
+    }
+
+    /**
+     * Solve for the peak velocity that covers the distance, between the
+     * brackets, using regula falsi, with the Illinois modification to keep it
+     * from getting stuck on one side.
+     */
+    private double peakVelocity(
+            double v0,
+            double a0,
+            double vg,
+            double dx,
+            double lo,
+            double fLo,
+            double hi,
+            double fHi) {
+        int side = 0;
+        double v = lo;
+        for (int i = 0; i < kMaxIterations; ++i) {
+            v = (lo * fHi - hi * fLo) / (fHi - fLo);
+            double f = excess(v0, a0, vg, dx, v);
+            if (Math.abs(f) < kDistanceTolerance)
+                return v;
+            if (f > 0) {
+                hi = v;
+                fHi = f;
+                if (side == 1)
+                    fLo /= 2;
+                side = 1;
+            } else {
+                lo = v;
+                fLo = f;
+                if (side == -1)
+                    fHi /= 2;
+                side = -1;
+            }
+        }
+        return v;
+    }
+
+    /**
+     * Scan from the edge of the band outward for the nearest peak velocity
+     * that covers the distance, and refine it. The scan is denser near the
+     * edge, where the distance changes fastest. If there isn't one, return the
+     * limit, for cruising.
+     */
+    private double nearestPeak(
+            double v0,
+            double a0,
+            double vg,
+            double dx,
+            double edge,
+            double fEdge,
+            double limit) {
+        double prev = edge;
+        double fPrev = fEdge;
+        for (int i = 1; i <= kScanSteps; ++i) {
+            double r = (double) i / kScanSteps;
+            double v = edge + (limit - edge) * r * r;
+            double f = excess(v0, a0, vg, dx, v);
+            if (Math.abs(f) < kDistanceTolerance)
+                return v;
+            if ((f > 0) != (fPrev > 0)) {
+                if (f > 0)
+                    return peakVelocity(v0, a0, vg, dx, prev, fPrev, v, f);
+                return peakVelocity(v0, a0, vg, dx, v, f, prev, fPrev);
+            }
+            prev = v;
+            fPrev = f;
+        }
+        return limit;
+    }
+
+    /**
+     * Duration of the cruise at the peak velocity, to cover the rest of the
+     * distance, or infinity if it can't.
+     */
+    private double cruise(double v0, double a0, double vg, double dx, double vp) {
+        double f = excess(v0, a0, vg, dx, vp);
+        if (Math.abs(f) < kDistanceTolerance)
+            return 0;
+        double c = -f / vp;
+        if (vp == 0 || c < 0)
+            return Double.POSITIVE_INFINITY;
+        return c;
+    }
+
+    /** Duration of the whole path. */
+    private double eta(double v0, double a0, double vg, double vp, double cruise) {
+        return duration(v0, a0, vp) + cruise + duration(vp, 0, vg);
+    }
+
+    /** Distance covered via the peak velocity, beyond what's needed. */
+    private double excess(double v0, double a0, double vg, double dx, double vp) {
+        return distance(v0, a0, vp) + distance(vp, 0, vg) - dx;
+    }
+
+    /**
+     * The fastest velocity change from v0, a0, to v1, with zero final
+     * acceleration, ramps acceleration to this "peak" value, holds it, and then
+     * ramps it to zero.
+     */
+    private double peakAcceleration(double v0, double a0, double v1) {
+        // velocity change from ramping acceleration straight to zero
+        double dvRamp = a0 * Math.abs(a0) / (2 * m_maxJerk);
+        double s = Math.signum(v1 - v0 - dvRamp);
+        if (s == 0)
+            s = 1;
+        double peak = Math.sqrt(Math.max(0, s * m_maxJerk * (v1 - v0) + a0 * a0 / 2));
+        return s * Math.min(m_maxAcceleration, peak);
+    }
+
+    /** Duration of the constant-acceleration part of the velocity change. */
+    private double plateau(double v0, double a0, double v1, double ap) {
+        if (Math.abs(ap) < m_maxAcceleration)
+            return 0;
+        double dv1 = (a0 + ap) / 2 * Math.abs(ap - a0) / m_maxJerk;
+        double dv3 = ap / 2 * Math.abs(ap) / m_maxJerk;
+        return Math.max(0, (v1 - v0 - dv1 - dv3) / ap);
+    }
+
+    /** Duration of the velocity change. */
+    private double duration(double v0, double a0, double v1) {
+        double ap = peakAcceleration(v0, a0, v1);
+        return (Math.abs(ap - a0) + Math.abs(ap)) / m_maxJerk + plateau(v0, a0, v1, ap);
+    }
+
+    /** Distance covered by the velocity change. */
+    private double distance(double v0, double a0, double v1) {
+        double ap = peakAcceleration(v0, a0, v1);
+        double j1 = Math.copySign(m_maxJerk, ap - a0);
+        double t1 = Math.abs(ap - a0) / m_maxJerk;
+        double t2 = plateau(v0, a0, v1, ap);
+        double t3 = Math.abs(ap) / m_maxJerk;
+        // ramp to peak accel
+        double x = v0 * t1 + a0 * t1 * t1 / 2 + j1 * t1 * t1 * t1 / 6;
+        double v = v0 + a0 * t1 + j1 * t1 * t1 / 2;
+        // plateau
+        x += v * t2 + ap * t2 * t2 / 2;
+        v += ap * t2;
+        // ramp to zero accel
+        x += v * t3 + ap * t3 * t3 / 2 - Math.copySign(m_maxJerk, ap) * t3 * t3 * t3 / 6;
+        return x;
+    }
+
+    /**
+     * Integrate the velocity change from the state s towards v1, for up to the
+     * remaining time.
+     *
+     * @return time remaining afterwards
+     */
+    private double changeVelocity(MutableState100 s, double v1, double remaining) {
+        double v0 = s.v();
+        double a0 = s.a();
+        double ap = peakAcceleration(v0, a0, v1);
+        remaining = segment(s, Math.copySign(m_maxJerk, ap - a0), Math.abs(ap - a0) / m_maxJerk, remaining);
+        remaining = segment(s, 0, plateau(v0, a0, v1, ap), remaining);
+        return segment(s, -Math.copySign(m_maxJerk, ap), Math.abs(ap) / m_maxJerk, remaining);
+    }
+
+    /**
+     * Integrate constant jerk, for the duration or the remaining time, whichever
+     * is less.
+     *
+     * @return time remaining afterwards
+     */
+    private static double segment(MutableState100 s, double jerk, double duration, double remaining) {
+        double t = Math.min(duration, remaining);
+        if (t <= 0)
+            return remaining;
+        double x = s.x();
+        double v = s.v();
+        double a = s.a();
+        s.set(
+                x + v * t + a * t * t / 2 + jerk * t * t * t / 6,
+                v + a * t + jerk * t * t / 2,
+                a + jerk * t);
+        return remaining - t;
+    }
+
+    public double getMaxVelocity() {
+        return m_maxVelocity;
+    }
+
+    public double getMaxAcceleration() {
+        return m_maxAcceleration;
+    }
+
+    public double getMaxJerk() {
+        return m_maxJerk;
+    }
+
+    public double getTolerance() {
+        return m_tolerance;
+    }
+}
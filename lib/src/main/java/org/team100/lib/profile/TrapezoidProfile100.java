@@ -1,6 +1,8 @@
 package org.team100.lib.profile;
 
+import org.team100.lib.state.MutableState100;
 import org.team100.lib.state.State100;
+import org.team100.lib.state.StateBatch100;
 import org.team100.lib.util.Math100;
 import org.team100.lib.util.Util;
 
@@ -54,9 +56,18 @@ import edu.wpi.first.math.MathUtil;
  * from the paper) and i think you can just scale the constraints. For an
  * implementation of the general case, see team100/studies2023/rrt, specifically
  * the RRTStar classes, which include coordination in their path solvers.
+ * 
+ * The internals work on primitives, and write the result into a
+ * MutableState100, so the per-loop calculation doesn't allocate. The
+ * State100 methods are wrappers.
  */
 public class TrapezoidProfile100 implements Profile100 {
     private static final boolean DEBUG = false;
+    /** Never scale acceleration more than 100X. */
+    private static final double kMinS = 0.01;
+    private static final double kMaxS = 1.0;
+    /** For rounding errors in velocity comparisons. */
+    private static final double kVTolerance = 1e-6;
 
     private final double m_maxVelocity;
     private final double m_maxAcceleration;
@@ -68,11 +79,25 @@ public class TrapezoidProfile100 implements Profile100 {
         m_tolerance = tolerance;
     }
 
+    /** Returns this profile if s is 1, since there's nothing to scale. */
     public TrapezoidProfile100 scale(double s) {
+        if (s == 1.0)
+            return this;
         return new TrapezoidProfile100(m_maxVelocity, s * m_maxAcceleration, m_tolerance);
     }
 
+    /**
+     * Return scale factor to make the ETA equal to the desired ETA, by reducing
+     * acceleration.
+     * 
+     * For goals at rest, there's just one switching point, so the ETA is a simple
+     * function of acceleration, which can be solved directly. Other cases use the
+     * iterative search.
+     */
     public double solve(double dt, State100 i, State100 g, double eta, double etaTolerance) {
+        double s = solveRestGoal(i, g, eta);
+        if (!Double.isNaN(s))
+            return s;
         return solveForSlowerETA(
                 m_maxVelocity,
                 m_maxAcceleration,
@@ -84,6 +109,55 @@ public class TrapezoidProfile100 implements Profile100 {
                 etaTolerance);
     }
 
+    /**
+     * Closed-form scale factor for goals at rest, or NaN if the goal is moving,
+     * or if the path would have to reverse, e.g. to avoid overshooting.
+     * 
+     * Like solveForSlowerETA(), it never returns s > 1 or s < 0.01.
+     */
+    double solveRestGoal(State100 initial, State100 goal, double eta) {
+        if (goal.v() != 0)
+            return Double.NaN;
+        double v0 = initial.v();
+        if (Math.abs(v0) > m_maxVelocity)
+            return Double.NaN;
+        if (goal.near(initial, m_tolerance))
+            return kMaxS;
+        double d = goal.x() - initial.x();
+        // mirror so the goal is to the right, and the path is I+G-
+        if (d < 0) {
+            d = -d;
+            v0 = -v0;
+        }
+        if (d == 0 || eta <= 0)
+            return Double.NaN;
+        double a = restGoalAccel(d, v0, eta);
+        // the I+G- path needs to be able to stop before the goal
+        if (v0 > 0 && v0 * v0 / (2 * a) > d)
+            return Double.NaN;
+        return MathUtil.clamp(a / m_maxAcceleration, kMinS, kMaxS);
+    }
+
+    /**
+     * Acceleration that makes the I+G- or I+CG- path from rest-relative velocity
+     * v0 to a goal at rest d to the right take eta seconds.
+     */
+    private double restGoalAccel(double d, double v0, double eta) {
+        // without cruise, the switching velocity is vs = sqrt(ad + v0^2/2),
+        // and eta = (2vs - v0)/a, which is quadratic in a.
+        double b = 4 * d - 2 * eta * v0;
+        double a = (b + Math.sqrt(b * b + 4 * eta * eta * v0 * v0)) / (2 * eta * eta);
+        if (a * d + v0 * v0 / 2 <= m_maxVelocity * m_maxVelocity)
+            return a;
+        // with cruise, eta = k/a + d/vmax
+        double cruiseOnlyS = eta - d / m_maxVelocity;
+        if (cruiseOnlyS <= 0)
+            return Double.POSITIVE_INFINITY;
+        double dv = m_maxVelocity - v0;
+        double k = (dv * dv + m_maxVelocity * m_maxVelocity) / (2 * m_maxVelocity);
+        return k / cruiseOnlyS;
+    }
+
     /**
      * Return scale factor to make the ETA equal to the desired ETA, by reducing
      * acceleration.
@@ -102,14 +176,14 @@ public class TrapezoidProfile100 implements Profile100 {
             State100 goal,
             double eta,
             double sTolerance) {
-        final double minS = 0.01;
-        final double maxS = 1.0;
+        // the ETA is all we want, so the iterations share the result state.
+        MutableState100 scratch = new MutableState100();
         return Math100.findRoot(
-                s -> getEtaS(maxV, maxA, tol, dt, initial, goal, eta, s),
-                minS,
-                getEtaS(maxV, maxA, tol, dt, initial, goal, eta, minS),
-                maxS,
-                getEtaS(maxV, maxA, tol, dt, initial, goal, eta, maxS),
+                s -> getEtaS(maxV, maxA, tol, dt, initial, goal, eta, s, scratch),
+                kMinS,
+                getEtaS(maxV, maxA, tol, dt, initial, goal, eta, kMinS, scratch),
+                kMaxS,
+                getEtaS(maxV, maxA, tol, dt, initial, goal, eta, kMaxS, scratch),
                 sTolerance, 100);
     }
 
@@ -120,19 +194,29 @@ public class TrapezoidProfile100 implements Profile100 {
             double dt,
             State100 initial,
             State100 goal,
-            double eta, double s) {
+            double eta,
+            double s,
+            MutableState100 scratch) {
         TrapezoidProfile100 p = new TrapezoidProfile100(
                 maxV,
                 s * maxA,
                 tol);
-        ResultWithETA r = p.calculateWithETA(dt, initial, goal);
-        double etaS = r.etaS();
+        double etaS = p.calculateWithETA(dt, initial, goal, scratch);
         return etaS - eta;
     }
 
     @Override
     public State100 calculate(double dt, State100 initial, State100 goal) {
-        return calculateWithETA(dt, initial, goal).state();
+        MutableState100 result = new MutableState100();
+        calculateWithETA(dt, initial, goal, result);
+        return result.get();
+    }
+
+    @Override
+    public ResultWithETA calculateWithETA(double dt, State100 initial, State100 goal) {
+        MutableState100 result = new MutableState100();
+        double etaS = calculateWithETA(dt, initial, goal, result);
+        return new ResultWithETA(result.get(), etaS);
     }
 
     /**
@@ -153,53 +237,188 @@ public class TrapezoidProfile100 implements Profile100 {
      * period.
      * 
      * Returns the goal if the intial is within tolerance of it.
+     * 
+     * This version doesn't allocate anything.
+     * 
+     * @param result the state at dt is written here
+     * @return ETA in seconds
+     */
+    public double calculateWithETA(double dt, State100 initial, State100 goal, MutableState100 result) {
+        return calculateWithETA(dt,
+                initial.x(), initial.v(), initial.a(),
+                goal.x(), goal.v(), goal.a(),
+                result);
+    }
+
+    /**
+     * For stepping a profile in place: the result may be the same object as the
+     * initial state.
+     * 
+     * @param result the state at dt is written here
+     * @return ETA in seconds
+     */
+    public double calculateWithETA(double dt, MutableState100 initial, State100 goal, MutableState100 result) {
+        return calculateWithETA(dt,
+                initial.x(), initial.v(), initial.a(),
+                goal.x(), goal.v(), goal.a(),
+                result);
+    }
+
+    /**
+     * Evaluate many initial/goal pairs at once.
+     * 
+     * Instead of walking the segments one at a time, like calculateWithETA(),
+     * this solves for the whole path, I, cruise, and G, in closed form, and
+     * then finds the time spent in each segment during dt. The main loop is
+     * straight-line arithmetic, with selects instead of data-dependent
+     * branches, so the JIT can compile it to conditional moves. Pairs with initial speed over the limit, which are rare, go
+     * through the scalar path in a second pass.
+     * 
+     * The results match the scalar path, except for the reported acceleration
+     * at the end of the profile: at the goal, this uses the goal acceleration.
      */
     @Override
-    public ResultWithETA calculateWithETA(double dt, final State100 initialRaw, final State100 goalRaw) {
+    public void calculateBatch(
+            double dt,
+            StateBatch100 initial,
+            StateBatch100 goal,
+            StateBatch100 result,
+            double[] etaS) {
+        final int n = initial.size();
+        final double[] xi = initial.x();
+        final double[] vi = initial.v();
+        final double[] xg = goal.x();
+        final double[] vg = goal.v();
+        final double[] ag = goal.a();
+        final double[] x = result.x();
+        final double[] v = result.v();
+        final double[] a = result.a();
+        final double maxV = m_maxVelocity;
+        final double maxA = m_maxAcceleration;
+        final double tol = m_tolerance;
+        // multiplication is cheaper than division
+        final double maxV2 = maxV * maxV;
+        final double invA = 1 / maxA;
+        final double invAV = 1 / (maxA * maxV);
+        for (int i = 0; i < n; ++i) {
+            double x0 = xi[i];
+            double v0 = vi[i];
+            double x1 = xg[i];
+            double v1 = max(-maxV, min(maxV, vg[i]));
+            double dx = x1 - x0;
+            double vv = (v0 * v0 + v1 * v1) / 2;
+            double hi = max(v0, v1);
+            double lo = min(v0, v1);
+            // squared switching velocity of I+G-, see qDotSwitchIplusGminus().
+            double sqPlus = maxA * dx + vv;
+            double vcPlus = min(maxV, Math.sqrt(max(0, sqPlus)));
+            boolean okPlus = sqPlus >= 0 && vcPlus >= hi - kVTolerance;
+            double etaPlus = (2 * vcPlus - v0 - v1) * invA
+                    + max(0, sqPlus - maxV2) * invAV;
+            // same for I-G+
+            double sqMinus = vv - maxA * dx;
+            double vcMinus = -min(maxV, Math.sqrt(max(0, sqMinus)));
+            boolean okMinus = sqMinus >= 0 && vcMinus <= lo + kVTolerance;
+            double etaMinus = (v0 + v1 - 2 * vcMinus) * invA
+                    + max(0, sqMinus - maxV2) * invAV;
+            // if both are valid, the goal is on the boundary between them, so
+            // one of them is a loop; use the faster one.
+            boolean plus = okPlus && (!okMinus || etaPlus <= etaMinus);
+            double dir = plus ? 1.0 : -1.0;
+            double sq = plus ? sqPlus : sqMinus;
+            // switching velocity, clipped by cruise
+            double vc = plus ? vcPlus : vcMinus;
+            // durations of I, cruise, and G
+            double t1 = max(0, dir * (vc - v0) * invA);
+            double tc = max(0, sq - maxV2) * invAV;
+            double t3 = max(0, dir * (vc - v1) * invA);
+            // time spent in each during dt
+            double dt1 = min(dt, t1);
+            double dtc = max(0, min(dt - t1, tc));
+            double dt3 = max(0, min(dt - t1 - tc, t3));
+            double da = dir * maxA;
+            double xo = x0 + v0 * dt1 + 0.5 * da * dt1 * dt1
+                    + vc * (dtc + dt3) - 0.5 * da * dt3 * dt3;
+            double vo = v0 + da * (dt1 - dt3);
+            double ao = dt < t1 ? da : dt < t1 + tc ? 0 : -da;
+            double eta = t1 + tc + t3;
+            boolean atGoal = Math.abs(dx) <= tol && Math.abs(v1 - v0) <= tol;
+            boolean done = dt >= eta;
+            x[i] = atGoal ? x1 : xo;
+            v[i] = atGoal ? v1 : vo;
+            a[i] = atGoal || done ? ag[i] : ao;
+            etaS[i] = atGoal ? 0 : eta;
+        }
+        // scalar path for braking
+        MutableState100 scratch = null;
+        for (int i = 0; i < n; ++i) {
+            if (Math.abs(vi[i]) <= maxV)
+                continue;
+            if (scratch == null)
+                scratch = new MutableState100();
+            etaS[i] = calculateWithETA(dt,
+                    xi[i], vi[i], 0,
+                    xg[i], vg[i], ag[i],
+                    scratch);
+            result.set(i, scratch.x(), scratch.v(), scratch.a());
+        }
+    }
+
+    private double calculateWithETA(
+            double dt,
+            double xi,
+            double vi,
+            double ai,
+            double xg,
+            final double vgRaw,
+            double ag,
+            MutableState100 result) {
         // Too-high initial speed is handled with braking
-        if (initialRaw.v() > m_maxVelocity) {
+        if (vi > m_maxVelocity) {
             if (DEBUG)
-                Util.printf("positive entry speed too fast, braking %s\n", initialRaw.toString());
-            State100 result = full(dt, initialRaw, -1);
-            double extraSpeed = initialRaw.v() - m_maxVelocity;
+                Util.printf("positive entry speed too fast, braking %5.3f\n", vi);
+            double extraSpeed = vi - m_maxVelocity;
             double extraTime = extraSpeed / m_maxAcceleration;
             double brakingDistance = 0.5 * extraSpeed * extraTime + m_maxVelocity * extraTime;
-            State100 afterBraking = new State100(initialRaw.x() + brakingDistance, m_maxVelocity, -m_maxAcceleration);
-            ResultWithETA remainder = calculateWithETA(dt, afterBraking, goalRaw);
-            return new ResultWithETA(result, extraTime + remainder.etaS());
+            double remainder = calculateWithETA(dt, xi + brakingDistance, m_maxVelocity, -m_maxAcceleration,
+                    xg, vgRaw, ag, result);
+            full(dt, xi, vi, -1, result);
+            return extraTime + remainder;
         }
-        if (initialRaw.v() < -m_maxVelocity) {
+        if (vi < -m_maxVelocity) {
             if (DEBUG)
-                Util.printf("negative entry speed too fast, braking %s\n", initialRaw.toString());
-            State100 result = full(dt, initialRaw, 1);
+                Util.printf("negative entry speed too fast, braking %5.3f\n", vi);
             // this is a positive number
-            double extraSpeed = -1.0 * initialRaw.v() - m_maxVelocity;
+            double extraSpeed = -1.0 * vi - m_maxVelocity;
             double extraTime = extraSpeed / m_maxAcceleration;
             double brakingDistance = 0.5 * extraSpeed * extraTime + m_maxVelocity * extraTime;
-            State100 afterBraking = new State100(initialRaw.x() - brakingDistance, -m_maxVelocity, m_maxAcceleration);
-            ResultWithETA remainder = calculateWithETA(dt, afterBraking, goalRaw);
-            return new ResultWithETA(result, extraTime + remainder.etaS());
+            double remainder = calculateWithETA(dt, xi - brakingDistance, -m_maxVelocity, m_maxAcceleration,
+                    xg, vgRaw, ag, result);
+            full(dt, xi, vi, 1, result);
+            return extraTime + remainder;
         }
-        State100 initial = initialRaw;
         // Too-high goal speed is not allowed
-        if (goalRaw.v() > m_maxVelocity || goalRaw.v() < -m_maxVelocity) {
+        if (vgRaw > m_maxVelocity || vgRaw < -m_maxVelocity) {
             Util.warn("Goal velocity is higher than profile velocity");
         }
-        State100 goal = limitVelocity(goalRaw);
+        // Clamp goal velocity to the profile limit.
+        double vg = MathUtil.clamp(vgRaw, -m_maxVelocity, m_maxVelocity);
 
-        if (goal.near(initial, m_tolerance)) {
+        if (MathUtil.isNear(xg, xi, m_tolerance) && MathUtil.isNear(vg, vi, m_tolerance)) {
             if (DEBUG)
                 Util.printf("at goal\n");
-            return new ResultWithETA(goal, 0);
+            result.set(xg, vg, ag);
+            return 0;
         }
 
         // Calculate the ETA to each switch point, or NaN if there's no valid path.
-        double t1IplusGminus = t1IplusGminus(initial, goal);
-        double t1IminusGplus = t1IminusGplus(initial, goal);
+        double t1IplusGminus = t1IplusGminus(xi, vi, xg, vg);
+        double t1IminusGplus = t1IminusGplus(xi, vi, xg, vg);
 
         if (Double.isNaN(t1IminusGplus) && Double.isNaN(t1IplusGminus)) {
             Util.warn("Both I-G+ and I+G- are NaN, this should never happen");
-            return new ResultWithETA(initial, 0);
+            result.set(xi, vi, ai);
+            return 0;
         }
 
         if (Double.isNaN(t1IplusGminus)) {
@@ -207,7 +426,7 @@ public class TrapezoidProfile100 implements Profile100 {
             // the valid path is I-G+, assume we're on I-
             if (DEBUG)
                 Util.printf("assume we're on I-\n");
-            return handleIminus(dt, initial, goal, t1IminusGplus);
+            return handleIminus(dt, xi, vi, xg, vg, ag, t1IminusGplus, result);
         }
 
         if (Double.isNaN(t1IminusGplus)) {
@@ -215,26 +434,28 @@ public class TrapezoidProfile100 implements Profile100 {
             // the valid path is I+G-, assume we're on I+
             if (DEBUG)
                 Util.printf("assume we're on I+\n");
-            return handleIplus(dt, initial, goal, t1IplusGminus);
+            return handleIplus(dt, xi, vi, xg, vg, ag, t1IplusGminus, result);
         }
 
         // if we got here, we're on the goal path, so the remaining time is at full
         // accel
-        double duration = durationAtMaxA(initial.v(), goal.v());
+        double duration = durationAtMaxA(vi, vg);
 
         // There can be one path with zero duration, indicating that we're on the goal
         // path at the switch point. In that case, we want to switch immediately and
         // proceed to the goal.
-        dt = truncateDt(dt, initial, goal);
+        dt = truncateDt(dt, vi, vg);
         if (MathUtil.isNear(0, t1IminusGplus, 1e-12)) {
             if (DEBUG)
                 Util.printf("assume we're on G+\n");
-            return new ResultWithETA(full(dt, initial, 1), duration);
+            full(dt, xi, vi, 1, result);
+            return duration;
         }
         if (MathUtil.isNear(0, t1IplusGminus, 1e-12)) {
             if (DEBUG)
                 Util.printf("assume we're on G-\n");
-            return new ResultWithETA(full(dt, initial, -1), duration);
+            full(dt, xi, vi, -1, result);
+            return duration;
         }
 
         // There can be two non-zero-duration paths. As above, this happens when we're
@@ -245,53 +466,53 @@ public class TrapezoidProfile100 implements Profile100 {
         if (t1IminusGplus > t1IplusGminus) {
             if (DEBUG)
                 Util.printf("we're on G+\n");
-            return new ResultWithETA(full(dt, initial, 1), duration);
+            full(dt, xi, vi, 1, result);
+            return duration;
         }
         if (DEBUG)
             Util.printf("we're on G-\n");
-        return new ResultWithETA(full(dt, initial, -1), duration);
+        full(dt, xi, vi, -1, result);
+        return duration;
     }
 
-    /** Clamp state velocity to the profile limit. */
-    private State100 limitVelocity(final State100 s) {
-        return new State100(
-                s.x(),
-                MathUtil.clamp(s.v(), -m_maxVelocity, m_maxVelocity),
-                s.a());
-    }
-
-    private ResultWithETA handleIplus(double dt, State100 initial, State100 goal, double timeToSwitch) {
+    private double handleIplus(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double ag,
+            double timeToSwitch,
+            MutableState100 result) {
         if (MathUtil.isNear(timeToSwitch, 0, 1e-12)) {
             // switch eta is zero: go to the goal via G-
             if (DEBUG)
                 Util.printf("at switch, go to G-\n");
-            double duration = durationAtMaxA(initial.v(), goal.v());
-            return new ResultWithETA(full(truncateDt(dt, initial, goal), initial, -1), duration);
+            double duration = durationAtMaxA(vi, vg);
+            full(truncateDt(dt, vi, vg), xi, vi, -1, result);
+            return duration;
         }
         // how much time to get to cruise? (remember initial v is positive)
-        double timeToCruise = (m_maxVelocity - initial.v()) / m_maxAcceleration;
+        double timeToCruise = (m_maxVelocity - vi) / m_maxAcceleration;
 
         if (timeToSwitch < dt && timeToSwitch < timeToCruise) {
             // We Encounter G- during dt, before cruise, so switch.
             if (DEBUG)
                 Util.printf("switch is soon\n");
-            return traverseSwitch(dt, initial, goal, timeToSwitch, 1);
+            return traverseSwitch(dt, xi, vi, xg, vg, ag, timeToSwitch, 1, result);
         }
 
         if (timeToCruise < dt) {
             // we encounter vmax during dt.
             // what's the switching position?
-            double x = initial.x()
-                    + initial.v() * timeToCruise
+            double x = xi
+                    + vi * timeToCruise
                     + 0.5 * m_maxAcceleration * Math.pow(timeToCruise, 2);
-            State100 nextState = new State100(x, m_maxVelocity, m_maxAcceleration);
-            ResultWithETA r = keepCruising(dt - timeToCruise, nextState, goal);
+            double etaS = keepCruising(dt - timeToCruise, x, m_maxVelocity, xg, vg, ag, result);
             // return the next state with the total ETA.
-            return new ResultWithETA(r.state(), timeToCruise + r.etaS());
+            return timeToCruise + etaS;
         }
         // We will not encounter any boundary during dt
-        State100 result = full(dt, initial, 1);
-
         // but we still need to know the full duration.
         //
         // the two possibilities are I+G- and I+C+G-
@@ -300,92 +521,117 @@ public class TrapezoidProfile100 implements Profile100 {
             // so if we proceed for t1, what velocity will we be at?
             if (DEBUG)
                 Util.printf("no cruise\n");
-            State100 switchPoint = full(timeToSwitch, initial, 1);
-            double durationG = durationAtMaxA(switchPoint.v(), goal.v());
-            return new ResultWithETA(result, timeToSwitch + durationG);
+            double switchV = vi + m_maxAcceleration * timeToSwitch;
+            double durationG = durationAtMaxA(switchV, vg);
+            full(dt, xi, vi, 1, result);
+            return timeToSwitch + durationG;
         }
         // we hit cruise first
         if (DEBUG)
             Util.printf("go cruise\n");
-        State100 cruisePoint = full(timeToCruise, initial, 1);
-        ResultWithETA remainingCruise = keepCruising(dt, cruisePoint, goal);
-        return new ResultWithETA(result, timeToCruise + remainingCruise.etaS());
-
+        double cruiseX = xi + vi * timeToCruise
+                + 0.5 * m_maxAcceleration * Math.pow(timeToCruise, 2);
+        double cruiseV = vi + m_maxAcceleration * timeToCruise;
+        double remainingCruise = keepCruising(dt, cruiseX, cruiseV, xg, vg, ag, result);
+        full(dt, xi, vi, 1, result);
+        return timeToCruise + remainingCruise;
     }
 
     /**
      * t1 is the time to the I-G+ switch point, which might be beyond the velocity
      * constraint.
      */
-    private ResultWithETA handleIminus(double dt, State100 initial, State100 goal, double timeToSwitch) {
+    private double handleIminus(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double ag,
+            double timeToSwitch,
+            MutableState100 result) {
 
         if (MathUtil.isNear(timeToSwitch, 0, 1e-12)) {
             // Switch ETA is zero: go to the goal via G+
-            double duration = durationAtMaxA(initial.v(), goal.v());
-            return new ResultWithETA(full(truncateDt(dt, initial, goal), initial, 1), duration);
+            double duration = durationAtMaxA(vi, vg);
+            full(truncateDt(dt, vi, vg), xi, vi, 1, result);
+            return duration;
         }
         // how much time to get to cruise? (remember initial v is negative)
-        double timeToCruise = (m_maxVelocity + initial.v()) / m_maxAcceleration;
+        double timeToCruise = (m_maxVelocity + vi) / m_maxAcceleration;
 
         if (timeToSwitch < dt && timeToSwitch < timeToCruise) {
             // We encounter G+ during dt, so switch.
-            return traverseSwitch(dt, initial, goal, timeToSwitch, -1);
+            return traverseSwitch(dt, xi, vi, xg, vg, ag, timeToSwitch, -1, result);
         }
         if (timeToCruise < dt) {
             // we encounter vmax during dt.
             // what's the switching position?
-            double x = initial.x()
-                    + initial.v() * timeToCruise
+            double x = xi
+                    + vi * timeToCruise
                     - 0.5 * m_maxAcceleration * Math.pow(timeToCruise, 2);
-            State100 nextState = new State100(x, -m_maxVelocity, -m_maxAcceleration);
-            ResultWithETA r = keepCruisingMinus(dt - timeToCruise, nextState, goal);
-            return new ResultWithETA(r.state(), timeToCruise + r.etaS());
+            double etaS = keepCruisingMinus(dt - timeToCruise, x, -m_maxVelocity, xg, vg, ag, result);
+            return timeToCruise + etaS;
         }
         // We will not encounter any boundary during dt, so the resulting state is just
         // "full throttle for dt"
-        State100 result = full(dt, initial, -1);
-
         // but we still need to know the full duration.
         //
         // the two possibilities are I-G+ and I-C-G+
         if (timeToSwitch < timeToCruise) {
             // we hit the switching point first
             // so if we proceed for t1, what velocity will we be at?
-            State100 switchPoint = full(timeToSwitch, initial, -1);
-            double durationG = durationAtMaxA(switchPoint.v(), goal.v());
-            return new ResultWithETA(result, timeToSwitch + durationG);
+            double switchV = vi - m_maxAcceleration * timeToSwitch;
+            double durationG = durationAtMaxA(switchV, vg);
+            full(dt, xi, vi, -1, result);
+            return timeToSwitch + durationG;
         }
         // we hit cruise first
-        State100 cruisePoint = full(timeToCruise, initial, -1);
-        ResultWithETA remainingCruise = keepCruisingMinus(dt, cruisePoint, goal);
-        return new ResultWithETA(result, timeToCruise + remainingCruise.etaS());
+        double cruiseX = xi + vi * timeToCruise
+                - 0.5 * m_maxAcceleration * Math.pow(timeToCruise, 2);
+        double cruiseV = vi - m_maxAcceleration * timeToCruise;
+        double remainingCruise = keepCruisingMinus(dt, cruiseX, cruiseV, xg, vg, ag, result);
+        full(dt, xi, vi, -1, result);
+        return timeToCruise + remainingCruise;
     }
 
     /** At positive cruising speed, keep going. */
     ResultWithETA keepCruising(double dt, State100 initial, State100 goal) {
+        MutableState100 result = new MutableState100();
+        double etaS = keepCruising(dt, initial.x(), initial.v(), goal.x(), goal.v(), goal.a(), result);
+        return new ResultWithETA(result.get(), etaS);
+    }
+
+    private double keepCruising(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double ag,
+            MutableState100 result) {
         if (DEBUG)
-            Util.printf("keep cruising %s\n", initial);
+            Util.printf("keep cruising %5.3f %5.3f\n", xi, vi);
 
         // We're already at positive cruising speed, which means G- is next.
         // will we reach it during dt?
         // this is the x location of the v0 intercept of the goal path
-        double c_minus = c_minus(goal);
+        double c_minus = c_minus(xg, vg);
         if (DEBUG)
             Util.printf("c_minus %6.3f\n", c_minus);
         // the G- value at current velocity (vmax)
-        double gminus = c_minus - Math.pow(m_maxVelocity, 2) / (2 * m_maxAcceleration);
+        double gminus = c_minus - m_maxVelocity * m_maxVelocity / (2 * m_maxAcceleration);
         // distance to go to the G- intersection
-        double dc = gminus - initial.x();
+        double dc = gminus - xi;
         // time to go to the G- intersection
         double durationToGMinus = dc / m_maxVelocity;
         if (MathUtil.isNear(0, durationToGMinus, 1e-12)) {
             // we are at the intersection of vmax and G-, so head down G-
-            State100 result = full(truncateDt(dt, initial, goal), initial, -1);
+            full(truncateDt(dt, vi, vg), xi, vi, -1, result);
             // on the goal path so the remaining duration is maxA.
-            double duration = durationAtMaxA(initial.v(), goal.v());
-            return new ResultWithETA(result, duration);
+            return durationAtMaxA(vi, vg);
         }
-        double durationFromGMinusToGoal = durationAtMaxA(m_maxVelocity, goal.v());
+        double durationFromGMinusToGoal = durationAtMaxA(m_maxVelocity, vg);
         if (durationToGMinus < dt) {
             // we reach G- before the end of dt, so we spend part of the time
             // getting there, and the remaining time going down G-. we want
@@ -393,75 +639,86 @@ public class TrapezoidProfile100 implements Profile100 {
             double tremaining = dt - durationToGMinus;
             if (DEBUG)
                 Util.printf("tremaining %6.3f\n", tremaining);
-            ResultWithETA r = calculateWithETA(tremaining, new State100(gminus, m_maxVelocity), goal);
+            double etaS = calculateWithETA(tremaining, gminus, m_maxVelocity, 0, xg, vg, ag, result);
             // the total ETA is the time to G-, plus the time *on* G-
-            return new ResultWithETA(r.state(), durationToGMinus + r.etaS());
+            return durationToGMinus + etaS;
         }
         // we won't reach G-, so cruise for all of dt.
-        return new ResultWithETA(new State100(
-                initial.x() + m_maxVelocity * dt,
-                m_maxVelocity,
-                0),
-                durationToGMinus + durationFromGMinusToGoal);
+        result.set(xi + m_maxVelocity * dt, m_maxVelocity, 0);
+        return durationToGMinus + durationFromGMinusToGoal;
     }
 
     ResultWithETA keepCruisingMinus(double dt, State100 initial, State100 goal) {
+        MutableState100 result = new MutableState100();
+        double etaS = keepCruisingMinus(dt, initial.x(), initial.v(), goal.x(), goal.v(), goal.a(), result);
+        return new ResultWithETA(result.get(), etaS);
+    }
+
+    private double keepCruisingMinus(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double ag,
+            MutableState100 result) {
         // We're already at negative cruising speed, which means G+ is next.
         // will we reach it during dt?
-        double c_plus = c_plus(goal);
-        double gplus = c_plus + Math.pow(m_maxVelocity, 2) / (2 * m_maxAcceleration);
+        double c_plus = c_plus(xg, vg);
+        double gplus = c_plus + m_maxVelocity * m_maxVelocity / (2 * m_maxAcceleration);
         // negative
-        double dc = gplus - initial.x();
+        double dc = gplus - xi;
         // time to go to the G+ intersection
         double durationToGPlus = dc / -m_maxVelocity;
         if (MathUtil.isNear(0, durationToGPlus, 1e-12)) {
             // We're at the intersection of -vmax and G+, so head up G+
-            State100 result = full(truncateDt(dt, initial, goal), initial, 1);
+            full(truncateDt(dt, vi, vg), xi, vi, 1, result);
             // on the goal path so the remaining duration is maxA.
-            double duration = durationAtMaxA(initial.v(), goal.v());
-            return new ResultWithETA(result, duration);
+            return durationAtMaxA(vi, vg);
         }
-        double durationFromGPlusToGoal = durationAtMaxA(m_maxVelocity, goal.v());
+        double durationFromGPlusToGoal = durationAtMaxA(-m_maxVelocity, vg);
         if (durationToGPlus < dt) {
             double tremaining = dt - durationToGPlus;
-            ResultWithETA r = calculateWithETA(tremaining, new State100(gplus, -m_maxVelocity), goal);
-            return new ResultWithETA(r.state(), durationToGPlus + r.etaS());
+            double etaS = calculateWithETA(tremaining, gplus, -m_maxVelocity, 0, xg, vg, ag, result);
+            return durationToGPlus + etaS;
         }
         // we won't reach G+, so cruise for all of dt
-        return new ResultWithETA(new State100(
-                initial.x() - m_maxVelocity * dt,
-                -m_maxVelocity,
-                0),
-                durationToGPlus + durationFromGPlusToGoal);
+        result.set(xi - m_maxVelocity * dt, -m_maxVelocity, 0);
+        return durationToGPlus + durationFromGPlusToGoal;
     }
 
     /**
      * Travel to the switching point, and then the remainder of time on the goal
      * path.
      */
-    private ResultWithETA traverseSwitch(double dt, State100 in_initial, final State100 goal, double t1,
-            double direction) {
+    private double traverseSwitch(
+            double dt,
+            double xi,
+            double vi,
+            double xg,
+            double vg,
+            double ag,
+            double t1,
+            double direction,
+            MutableState100 result) {
         if (DEBUG)
             Util.printf("traverse switch\n");
         // first get to the switching point
-        double x = in_initial.x() + in_initial.v() * t1
+        double x = xi + vi * t1
                 + 0.5 * direction * m_maxAcceleration * Math.pow(t1, 2);
-        double v = in_initial.v() + direction * m_maxAcceleration * t1;
+        double v = vi + direction * m_maxAcceleration * t1;
         // then go the other way for the remaining time
         double t2 = dt - t1;
-        // just use the same method for the second part
-        // note this is slower than the code below so maybe put it back
-        State100 s = new State100(x, v);
         if (DEBUG)
-            Util.printf("switch state %s\n", s);
-
-        ResultWithETA r = calculateWithETA(t2, s, goal);
-        return new ResultWithETA(r.state(), t1 + r.etaS());
+            Util.printf("switch state %5.3f %5.3f\n", x, v);
+        // just use the same method for the second part
+        double etaS = calculateWithETA(t2, x, v, 0, xg, vg, ag, result);
+        return t1 + etaS;
     }
 
     /** Returns a shorter dt to avoid overshooting the goal state. */
-    private double truncateDt(double dt, State100 in_initial, State100 in_goal) {
-        double dtg = durationAtMaxA(in_initial.v(), in_goal.v());
+    private double truncateDt(double dt, double vi, double vg) {
+        double dtg = durationAtMaxA(vi, vg);
         return Math.min(dt, dtg);
     }
 
@@ -480,14 +737,27 @@ public class TrapezoidProfile100 implements Profile100 {
      * direction to go and when you're sure you can proceed for the whole dt time
      * period.
      */
-    private State100 full(double dt, State100 in_initial, double direction) {
+    private void full(double dt, double xi, double vi, double direction, MutableState100 result) {
         if (DEBUG)
-            Util.printf("full x_i %s\n", in_initial);
-        double x = in_initial.x() + in_initial.v() * dt
+            Util.printf("full x_i %5.3f v_i %5.3f\n", xi, vi);
+        double x = xi + vi * dt
                 + 0.5 * direction * m_maxAcceleration * Math.pow(dt, 2);
-        double v = in_initial.v() + direction * m_maxAcceleration * dt;
+        double v = vi + direction * m_maxAcceleration * dt;
         double a = direction * m_maxAcceleration;
-        return new State100(x, v, a);
+        result.set(x, v, a);
+    }
+
+    /**
+     * Math.max() takes care with NaN and -0.0, which makes it much slower in
+     * tight loops. This doesn't.
+     */
+    private static double max(double a, double b) {
+        return a >= b ? a : b;
+    }
+
+    /** See max(). */
+    private static double min(double a, double b) {
+        return a <= b ? a : b;
     }
 
     /**
@@ -496,11 +766,15 @@ public class TrapezoidProfile100 implements Profile100 {
      * Note this ignores the velocity constraint.
      */
     double t1IplusGminus(State100 initial, State100 goal) {
-        double q_dot_switch = qDotSwitchIplusGminus(initial, goal);
+        return t1IplusGminus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double t1IplusGminus(double xi, double vi, double xg, double vg) {
+        double q_dot_switch = qDotSwitchIplusGminus(xi, vi, xg, vg);
         // this fixes rounding errors
-        if (MathUtil.isNear(initial.v(), q_dot_switch, 1e-6))
+        if (MathUtil.isNear(vi, q_dot_switch, 1e-6))
             return 0;
-        double t1 = (q_dot_switch - initial.v()) / m_maxAcceleration;
+        double t1 = (q_dot_switch - vi) / m_maxAcceleration;
         if (t1 < 0) {
             return Double.NaN;
         }
@@ -513,12 +787,16 @@ public class TrapezoidProfile100 implements Profile100 {
      * Note this ignores the velocity constraint.
      */
     double t1IminusGplus(State100 initial, State100 goal) {
-        double q_dot_switch = qDotSwitchIminusGplus(initial, goal);
+        return t1IminusGplus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double t1IminusGplus(double xi, double vi, double xg, double vg) {
+        double q_dot_switch = qDotSwitchIminusGplus(xi, vi, xg, vg);
         // this fixes rounding errors
-        if (MathUtil.isNear(initial.v(), q_dot_switch, 1e-6))
+        if (MathUtil.isNear(vi, q_dot_switch, 1e-6))
             return 0;
 
-        double t1 = (q_dot_switch - initial.v()) / (-1.0 * m_maxAcceleration);
+        double t1 = (q_dot_switch - vi) / (-1.0 * m_maxAcceleration);
         if (t1 < 0) {
             return Double.NaN;
         }
@@ -532,25 +810,29 @@ public class TrapezoidProfile100 implements Profile100 {
      * shaped curve including I.
      */
     double qDotSwitchIplusGminus(State100 initial, State100 goal) {
-        if (initial.equals(goal))
-            return initial.v();
+        return qDotSwitchIplusGminus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qDotSwitchIplusGminus(double xi, double vi, double xg, double vg) {
+        if (xi == xg && vi == vg)
+            return vi;
 
         // intercept of I-
-        double c_minus = c_minus(initial);
+        double c_minus = c_minus(xi, vi);
         // intercept of I+
-        double c_plus = c_plus(initial);
+        double c_plus = c_plus(xi, vi);
         // position of I- at the velocity of goal
-        double p_minus = c_minus - Math.pow(goal.v(), 2) / (2 * m_maxAcceleration);
-        double p_plus = c_plus + Math.pow(goal.v(), 2) / (2 * m_maxAcceleration);
+        double p_minus = c_minus - vg * vg / (2 * m_maxAcceleration);
+        double p_plus = c_plus + vg * vg / (2 * m_maxAcceleration);
 
         // "limit" path we don't want.
-        if (goal.v() <= initial.v() && goal.x() < p_minus)
+        if (vg <= vi && xg < p_minus)
             return Double.NaN;
-        if (goal.v() > initial.v() && goal.x() < p_plus)
+        if (vg > vi && xg < p_plus)
             return Double.NaN;
 
         // progress along I+
-        double d = qSwitchIplusGminus(initial, goal) - c_plus(initial);
+        double d = qSwitchIplusGminus(xi, vi, xg, vg) - c_plus;
         // prevent rounding errors
         if (d < 0)
             d = 0;
@@ -564,26 +846,30 @@ public class TrapezoidProfile100 implements Profile100 {
      * for goal.v less than i.v, and to the left of the I+ curve for goal.v > i.v
      */
     double qDotSwitchIminusGplus(State100 initial, State100 goal) {
-        if (initial.equals(goal))
-            return goal.v();
+        return qDotSwitchIminusGplus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qDotSwitchIminusGplus(double xi, double vi, double xg, double vg) {
+        if (xi == xg && vi == vg)
+            return vg;
 
         // intercept of I-
-        double c_minus = c_minus(initial);
+        double c_minus = c_minus(xi, vi);
         // intercept of I+
-        double c_plus = c_plus(initial);
+        double c_plus = c_plus(xi, vi);
         // position of I- at the velocity of goal
-        double p_minus = c_minus - Math.pow(goal.v(), 2) / (2 * m_maxAcceleration);
-        double p_plus = c_plus + Math.pow(goal.v(), 2) / (2 * m_maxAcceleration);
+        double p_minus = c_minus - vg * vg / (2 * m_maxAcceleration);
+        double p_plus = c_plus + vg * vg / (2 * m_maxAcceleration);
 
         // "limit" path we don't want.
 
-        if (goal.v() <= initial.v() && goal.x() > p_minus)
+        if (vg <= vi && xg > p_minus)
             return Double.NaN;
-        if (goal.v() > initial.v() && goal.x() > p_plus)
+        if (vg > vi && xg > p_plus)
             return Double.NaN;
 
         // progress along I-
-        double d = qSwitchIminusGplus(initial, goal) - c_plus(goal);
+        double d = qSwitchIminusGplus(xi, vi, xg, vg) - c_plus(xg, vg);
         // prevent rounding errors
         if (d < 0)
             d = 0;
@@ -597,24 +883,40 @@ public class TrapezoidProfile100 implements Profile100 {
      * goal state, i.e. the I+G- path.
      */
     double qSwitchIplusGminus(State100 initial, State100 goal) {
-        return (c_plus(initial) + c_minus(goal)) / 2;
+        return qSwitchIplusGminus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qSwitchIplusGminus(double xi, double vi, double xg, double vg) {
+        return (c_plus(xi, vi) + c_minus(xg, vg)) / 2;
     }
 
     /**
      * Midpoint position for the I-G+ path.
      */
     double qSwitchIminusGplus(State100 initial, State100 goal) {
-        return (c_minus(initial) + c_plus(goal)) / 2;
+        return qSwitchIminusGplus(initial.x(), initial.v(), goal.x(), goal.v());
+    }
+
+    private double qSwitchIminusGplus(double xi, double vi, double xg, double vg) {
+        return (c_minus(xi, vi) + c_plus(xg, vg)) / 2;
     }
 
     /** Intercept of negative-acceleration path intersecting s */
     double c_minus(State100 s) {
-        return s.x() - Math.pow(s.v(), 2) / (-2.0 * m_maxAcceleration);
+        return c_minus(s.x(), s.v());
+    }
+
+    private double c_minus(double x, double v) {
+        return x - v * v / (-2.0 * m_maxAcceleration);
     }
 
     /** Intercept of positive-acceleration path intersecting s */
     double c_plus(State100 s) {
-        return s.x() - Math.pow(s.v(), 2) / (2.0 * m_maxAcceleration);
+        return c_plus(s.x(), s.v());
+    }
+
+    private double c_plus(double x, double v) {
+        return x - v * v / (2.0 * m_maxAcceleration);
     }
 
     // for testing
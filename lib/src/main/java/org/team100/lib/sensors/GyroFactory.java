@@ -14,7 +14,15 @@ import org.team100.lib.util.Util;
  */
 public class GyroFactory {
 
-    public static Gyro get(
+    /** The Redux gyro updates yaw every 10 ms by default. */
+    private static final double kSampleRateHz = 100;
+
+    /**
+     * The gyro is wrapped with a sampler that keeps a yaw history, for latency
+     * compensation. The device gyro is sampled on an async; the simulated one
+     * isn't thread-safe, so it's sampled on the main thread.
+     */
+    public static SampledGyro get(
             LoggerFactory parent,
             SwerveKinodynamics kinodynamics,
             SwerveModuleCollection collection,
@@ -22,14 +30,21 @@ public class GyroFactory {
         switch (Identity.instance) {
             case SWERVE_ONE:
             case COMP_BOT:
-                return new ReduxGyro(parent, 60);
+                return new SampledGyro(
+                        parent,
+                        new ReduxGyro(60),
+                        asyncFactory.get(),
+                        kSampleRateHz);
             default:
                 // for simulation
-                return new SelectGyro(
-                        new NTGyro(),
-                        new SimulatedGyro(kinodynamics, collection),
-                        () -> Experiments.instance.enabled(Experiment.NetworkGyro));
-
+                return new SampledGyro(
+                        parent,
+                        new SelectGyro(
+                                new NTGyro(),
+                                new SimulatedGyro(kinodynamics, collection),
+                                () -> Experiments.instance.enabled(Experiment.NetworkGyro)),
+                        null,
+                        kSampleRateHz);
         }
     }
 
@@ -0,0 +1,118 @@
+package org.team100.lib.sensors;
+
+import java.util.Optional;
+
+import org.team100.lib.async.Async;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.logging.LoggerFactory.Rotation2dLogger;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Samples the yaw and yaw rate of another gyro at the device rate, and keeps
+ * a timestamped history, so that consumers can ask for the yaw at some time in
+ * the recent past, e.g. the time a camera frame was taken, with better
+ * resolution than the 20 ms main loop.
+ *
+ * The sampling runs on the supplied Async, which may be a separate thread,
+ * so the delegate must be safe to read from that thread: the device gyros are,
+ * but the simulated ones integrate state that the main thread updates, so they
+ * are sampled in periodic() instead, which SwerveDriveSubsystem calls every
+ * loop.
+ *
+ * The "now" methods pass through to the delegate, and log on the caller's
+ * thread, so the device gyros don't log from the sampler.
+ */
+public class SampledGyro implements Gyro {
+    /** Enough to cover camera latency with plenty to spare. */
+    private static final double kHistoryS = 1.0;
+    /** Don't extrapolate far past the newest sample. */
+    private static final double kMaxExtrapolationS = 0.05;
+
+    private final Gyro m_delegate;
+    private final YawHistory m_history;
+    // LOGGERS
+    private final Rotation2dLogger m_log_yaw;
+    private final DoubleLogger m_log_yaw_rate;
+    private final Rotation2dLogger m_log_pitch;
+    private final Rotation2dLogger m_log_roll;
+    private final IntLogger m_log_samples;
+    /** Sample in periodic(), on the main thread. */
+    private final boolean m_samplePeriodic;
+
+    /**
+     * @param parent   log
+     * @param delegate the gyro to sample
+     * @param async    runs the sampler, nullable, meaning sample in periodic()
+     * @param rateHz   sample rate, which should match the device update rate
+     */
+    public SampledGyro(LoggerFactory parent, Gyro delegate, Async async, double rateHz) {
+        LoggerFactory child = parent.child(this);
+        m_delegate = delegate;
+        m_history = new YawHistory((int) Math.ceil(kHistoryS * rateHz));
+        m_log_yaw = child.rotation2dLogger(Level.TRACE, "Yaw NWU (rad)");
+        m_log_yaw_rate = child.doubleLogger(Level.TRACE, "Yaw Rate NWU (rad_s)");
+        m_log_pitch = child.rotation2dLogger(Level.TRACE, "Pitch NWU (rad)");
+        m_log_roll = child.rotation2dLogger(Level.TRACE, "Roll NWU (rad)");
+        m_log_samples = child.intLogger(Level.TRACE, "samples");
+        m_samplePeriodic = async == null;
+        if (async != null)
+            async.addPeriodic(this::sample, 1.0 / rateHz, "SampledGyro");
+    }
+
+    /** Read the delegate and add it to the history. */
+    public void sample() {
+        double timeS = Timer.getFPGATimestamp();
+        double yawRad = m_delegate.getYawNWU().getRadians();
+        double rateRad_S = m_delegate.getYawRateNWU();
+        m_history.add(timeS, yawRad, rateRad_S);
+    }
+
+    /**
+     * Yaw in radians, NWU, at the given time, interpolated from the history.
+     * Empty if the history doesn't cover the time.
+     */
+    public Optional<Rotation2d> getYawAt(double timestampS) {
+        return m_history.getYawAt(timestampS, kMaxExtrapolationS);
+    }
+
+    @Override
+    public Rotation2d getYawNWU() {
+        Rotation2d yawNWU = m_delegate.getYawNWU();
+        m_log_yaw.log(() -> yawNWU);
+        return yawNWU;
+    }
+
+    @Override
+    public double getYawRateNWU() {
+        double yawRateRad_S = m_delegate.getYawRateNWU();
+        m_log_yaw_rate.log(() -> yawRateRad_S);
+        return yawRateRad_S;
+    }
+
+    @Override
+    public Rotation2d getPitchNWU() {
+        Rotation2d pitchNWU = m_delegate.getPitchNWU();
+        m_log_pitch.log(() -> pitchNWU);
+        return pitchNWU;
+    }
+
+    @Override
+    public Rotation2d getRollNWU() {
+        Rotation2d rollNWU = m_delegate.getRollNWU();
+        m_log_roll.log(() -> rollNWU);
+        return rollNWU;
+    }
+
+    @Override
+    public void periodic() {
+        m_delegate.periodic();
+        if (m_samplePeriodic)
+            sample();
+        m_log_samples.log(m_history::size);
+    }
+}
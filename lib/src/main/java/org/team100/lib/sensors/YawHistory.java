@@ -0,0 +1,99 @@
+package org.team100.lib.sensors;
+
+import java.util.Optional;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Timestamped yaw samples in a fixed-size ring of primitive arrays, so adding
+ * a sample doesn't allocate.
+ *
+ * Yaw is stored unwrapped, i.e. each sample is the previous one plus the
+ * shortest angular difference, so that interpolation across the +/- pi
+ * boundary works.
+ *
+ * Samples are added by the sampling thread and read by the main thread, so
+ * everything is synchronized.
+ */
+public class YawHistory {
+    private final double[] m_timeS;
+    private final double[] m_yawRad;
+    private final double[] m_rateRad_S;
+    /** Index of the next write. */
+    private int m_next;
+    private int m_size;
+
+    public YawHistory(int capacity) {
+        m_timeS = new double[capacity];
+        m_yawRad = new double[capacity];
+        m_rateRad_S = new double[capacity];
+    }
+
+    /**
+     * Add a sample. Samples must be added in time order; a sample that isn't
+     * newer than the newest one is ignored.
+     */
+    public synchronized void add(double timeS, double yawRad, double rateRad_S) {
+        if (m_size > 0) {
+            int newest = index(m_size - 1);
+            if (timeS <= m_timeS[newest])
+                return;
+            yawRad = m_yawRad[newest] + MathUtil.angleModulus(yawRad - m_yawRad[newest]);
+        }
+        m_timeS[m_next] = timeS;
+        m_yawRad[m_next] = yawRad;
+        m_rateRad_S[m_next] = rateRad_S;
+        m_next = (m_next + 1) % m_timeS.length;
+        if (m_size < m_timeS.length)
+            m_size++;
+    }
+
+    /**
+     * Yaw at the given time, interpolated between the samples on either side.
+     * After the newest sample, extrapolates using the newest rate, up to
+     * maxExtrapolationS. Empty if the history doesn't cover the time.
+     */
+    public synchronized Optional<Rotation2d> getYawAt(double timeS, double maxExtrapolationS) {
+        if (m_size == 0)
+            return Optional.empty();
+        if (timeS < m_timeS[index(0)])
+            return Optional.empty();
+        int newest = index(m_size - 1);
+        double newestTimeS = m_timeS[newest];
+        if (timeS >= newestTimeS) {
+            double dtS = timeS - newestTimeS;
+            if (dtS > maxExtrapolationS)
+                return Optional.empty();
+            return Optional.of(new Rotation2d(m_yawRad[newest] + m_rateRad_S[newest] * dtS));
+        }
+        // binary search for the first sample after the time.
+        int lo = 0;
+        int hi = m_size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_timeS[index(mid)] <= timeS)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        int after = index(lo);
+        int before = index(lo - 1);
+        double s = (timeS - m_timeS[before]) / (m_timeS[after] - m_timeS[before]);
+        return Optional.of(new Rotation2d(MathUtil.interpolate(m_yawRad[before], m_yawRad[after], s)));
+    }
+
+    public synchronized int size() {
+        return m_size;
+    }
+
+    public synchronized void clear() {
+        m_next = 0;
+        m_size = 0;
+    }
+
+    /** Ring index of the i-th oldest sample. */
+    private int index(int i) {
+        return (m_next - m_size + i + m_timeS.length) % m_timeS.length;
+    }
+}
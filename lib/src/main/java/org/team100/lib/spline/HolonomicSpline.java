@@ -3,6 +3,8 @@ package org.team100.lib.spline;
 import java.util.List;
 import java.util.Optional;
 
+import org.team100.lib.experiments.Experiment;
+import org.team100.lib.experiments.Experiments;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.geometry.Pose2dWithMotion;
 import org.team100.lib.util.Math100;
@@ -131,11 +133,29 @@ public class HolonomicSpline {
     /**
      * Finds the optimal second derivative values for a set of splines to reduce the
      * sum of the change in curvature squared over the path
+     * 
+     * This uses the original finite-difference optimizer, unless the
+     * AnalyticSplineOptimizer experiment is enabled, in which case it uses a
+     * SplineOptimizer without warm start. To warm-start repeated planning, keep a
+     * SplineOptimizer.
      *
      * @param splines the list of splines to optimize
      * @return the final sumDCurvature2
      */
     public static double optimizeSpline(List<HolonomicSpline> splines) {
+        if (Experiments.instance.enabled(Experiment.AnalyticSplineOptimizer))
+            return new SplineOptimizer(false).optimize(splines);
+        return optimizeSplineNumeric(splines);
+    }
+
+    /**
+     * The original optimizer, using finite-difference gradients, which costs two
+     * evaluations of the whole path per joint, per iteration.
+     *
+     * @param splines the list of splines to optimize
+     * @return the final sumDCurvature2
+     */
+    static double optimizeSplineNumeric(List<HolonomicSpline> splines) {
         int count = 0;
         double prev = sumDCurvature2(splines);
         while (count < kMaxIterations) {
@@ -168,7 +188,7 @@ public class HolonomicSpline {
      * Return a new spline that is a copy of this one, but with substitute
      * second derivatives.
      */
-    private HolonomicSpline adjustSecondDerivatives(
+    HolonomicSpline adjustSecondDerivatives(
             double ddx0_sub, double ddx1_sub,
             double ddy0_sub, double ddy1_sub) {
         return new HolonomicSpline(
@@ -245,7 +265,7 @@ public class HolonomicSpline {
         return x.getAcceleration(t);
     }
 
-    private double ddy(double t) {
+    double ddy(double t) {
         return y.getAcceleration(t);
     }
 
@@ -342,6 +362,94 @@ public class HolonomicSpline {
         return sum;
     }
 
+    /**
+     * Adds the partial derivatives of sumDCurvature2() with respect to the second
+     * derivatives at the ends of this spline to grad, which is, in order:
+     * 
+     * ddx at t=0, ddy at t=0, ddx at t=1, ddy at t=1.
+     * 
+     * Each second derivative adds a fixed quintic basis function to one axis, so
+     * the partials of dx, ddx, and dddx are just the derivatives of that basis,
+     * and the rest is the chain rule through dCurvature2().
+     */
+    void addDCurvature2Gradient(double[] grad) {
+        double dt = 1.0 / kSamples;
+        for (double t = 0; t < 1.0; t += dt) {
+            double dx = dx(t);
+            double dy = dy(t);
+            double ddx = ddx(t);
+            double ddy = ddy(t);
+            double dddx = dddx(t);
+            double dddy = dddy(t);
+            double d = dx * dx + dy * dy;
+            if (d == 0)
+                throw new IllegalArgumentException();
+            double a = dx * dddy - dddx * dy;
+            double b = dx * ddy - ddx * dy;
+            double c = dx * ddx + dy * ddy;
+            double num = a * d - 3 * b * c;
+            double d5 = d * d * d * d * d;
+            double d6 = d5 * d;
+            double t2 = t * t;
+            double t3 = t2 * t;
+            double t4 = t3 * t;
+            // basis for ddx0: velocity, acceleration, jerk
+            double v0 = -2.5 * t4 + 6 * t3 - 4.5 * t2 + t;
+            double a0 = -10 * t3 + 18 * t2 - 9 * t + 1;
+            double j0 = -30 * t2 + 36 * t - 9;
+            // basis for ddx1
+            double v1 = 2.5 * t4 - 4 * t3 + 1.5 * t2;
+            double a1 = 10 * t3 - 12 * t2 + 3 * t;
+            double j1 = 30 * t2 - 24 * t + 3;
+            grad[0] += dt * dDCurvature2dX(num, d, a, b, c, d5, d6, dx, dy, ddx, ddy, dddy, v0, a0, j0);
+            grad[1] += dt * dDCurvature2dY(num, d, a, b, c, d5, d6, dx, dy, ddx, ddy, dddx, v0, a0, j0);
+            grad[2] += dt * dDCurvature2dX(num, d, a, b, c, d5, d6, dx, dy, ddx, ddy, dddy, v1, a1, j1);
+            grad[3] += dt * dDCurvature2dY(num, d, a, b, c, d5, d6, dx, dy, ddx, ddy, dddx, v1, a1, j1);
+        }
+    }
+
+    /** Partial of dCurvature2 for a perturbation (v, a, j) of the x spline. */
+    private static double dDCurvature2dX(
+            double num, double d, double a, double b, double c, double d5, double d6,
+            double dx, double dy, double ddx, double ddy, double dddy,
+            double v, double acc, double j) {
+        double dd = 2 * dx * v;
+        double da = v * dddy - j * dy;
+        double db = v * ddy - acc * dy;
+        double dc = v * ddx + dx * acc;
+        double dnum = da * d + a * dd - 3 * (db * c + b * dc);
+        return 2 * num * dnum / d5 - 5 * num * num * dd / d6;
+    }
+
+    /** Partial of dCurvature2 for a perturbation (v, a, j) of the y spline. */
+    private static double dDCurvature2dY(
+            double num, double d, double a, double b, double c, double d5, double d6,
+            double dx, double dy, double ddx, double ddy, double dddx,
+            double v, double acc, double j) {
+        double dd = 2 * dy * v;
+        double da = dx * j - dddx * v;
+        double db = dx * acc - ddx * v;
+        double dc = v * ddy + dy * acc;
+        double dnum = da * d + a * dd - 3 * (db * c + b * dc);
+        return 2 * num * dnum / d5 - 5 * num * num * dd / d6;
+    }
+
+    /**
+     * True if the joint between spline i and spline i+1 should not be optimized,
+     * because it's colinear.
+     */
+    static boolean isColinearJoint(List<HolonomicSpline> splines, int i) {
+        Optional<Pose2d> startPose = splines.get(i).getStartPose();
+        Optional<Pose2d> startPose2 = splines.get(i + 1).getStartPose();
+        Optional<Pose2d> endPose = splines.get(i).getEndPose();
+        Optional<Pose2d> endPose2 = splines.get(i + 1).getEndPose();
+        if (startPose.isEmpty() || startPose2.isEmpty() || endPose.isEmpty() || endPose2.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        return GeometryUtil.isColinear(startPose.get(), startPose2.get())
+                || GeometryUtil.isColinear(endPose.get(), endPose2.get());
+    }
+
     /**
      * Makes optimization code a little more readable
      */
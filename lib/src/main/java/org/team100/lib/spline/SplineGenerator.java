@@ -2,6 +2,7 @@ package org.team100.lib.spline;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.geometry.Pose2dWithMotion;
@@ -11,6 +12,12 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Twist2d;
 
 public class SplineGenerator {
+    /**
+     * Below this many splines, the fork-join overhead is larger than the work, so
+     * the parallel parameterizer just runs serially.
+     */
+    private static final int kMinParallelSplines = 4;
+
     /**
      * Converts a spline into a list of Twist2d's.
      *
@@ -30,7 +37,7 @@ public class SplineGenerator {
         rv.add(s.getPose2dWithMotion(0.0));
         double dt = (t1 - t0);
         for (double t = 0; t < t1; t += dt) {
-            getSegmentArc(s, rv, t, t + dt, maxDx, maxDy, maxDTheta);
+            getSegmentArc(s, rv, t, t + dt, s.getPose2d(t), s.getPose2d(t + dt), maxDx, maxDy, maxDTheta);
         }
         return rv;
     }
@@ -53,22 +60,65 @@ public class SplineGenerator {
         return rv;
     }
 
+    /**
+     * Same result as parameterizeSplines, but the splines are subdivided in
+     * parallel on the common fork-join pool, and then concatenated in the original
+     * order, so the output is deterministic.
+     * 
+     * This is safe because HolonomicSpline is immutable, and after optimization
+     * each spline can be subdivided independently of the others.
+     * 
+     * Short lists are parameterized serially.
+     */
+    public static List<Pose2dWithMotion> parameterizeSplinesParallel(
+            List<? extends HolonomicSpline> splines,
+            double maxDx,
+            double maxDy,
+            double maxDTheta) {
+        if (splines.size() < kMinParallelSplines)
+            return parameterizeSplines(splines, maxDx, maxDy, maxDTheta);
+        // IntStream.range is ordered, and toList() preserves encounter order.
+        List<List<Pose2dWithMotion>> segments = IntStream.range(0, splines.size())
+                .parallel()
+                .mapToObj(i -> parameterizeSpline(splines.get(i), maxDx, maxDy, maxDTheta, 0.0, 1.0))
+                .toList();
+        int size = 1;
+        for (List<Pose2dWithMotion> segment : segments) {
+            size += segment.size() - 1;
+        }
+        List<Pose2dWithMotion> rv = new ArrayList<>(size);
+        rv.add(splines.get(0).getPose2dWithMotion(0.0));
+        for (List<Pose2dWithMotion> segment : segments) {
+            // the first sample of each segment is the last sample of the previous one.
+            rv.addAll(segment.subList(1, segment.size()));
+        }
+        return rv;
+    }
+
+    /**
+     * Recursively subdivide [t0, t1] until the arc is close enough to the spline.
+     * 
+     * The endpoint poses, p0 and p1, are passed in by the caller, since each
+     * subdivision shares its endpoints with its parent and its sibling; this
+     * avoids evaluating the spline more than once at each parameter.
+     */
     private static void getSegmentArc(
             HolonomicSpline s,
             List<Pose2dWithMotion> rv,
             double t0,
             double t1,
+            Pose2d p0,
+            Pose2d p1,
             double maxDx,
             double maxDy,
             double maxDTheta) {
-        Pose2d p0 = s.getPose2d(t0);
-        Pose2d phalf = s.getPose2d(t0 + (t1 - t0) * .5);
-        Pose2d p1 = s.getPose2d(t1);
+        double thalf = t0 + (t1 - t0) * .5;
+        Pose2d phalf = s.getPose2d(thalf);
         Twist2d twist_full = GeometryUtil.kPoseZero.log(GeometryUtil.transformBy(GeometryUtil.inverse(p0), p1));
         Pose2d phalf_predicted = GeometryUtil.transformBy(p0,
                 GeometryUtil.kPoseZero.exp(GeometryUtil.scale(twist_full, 0.5)));
         Pose2d error = GeometryUtil.transformBy(GeometryUtil.inverse(phalf), phalf_predicted);
-        
+
         if (GeometryUtil.norm(twist_full) < 1e-6) {
             // the Rotation2d below will be garbage in this case so give up.
             return;
@@ -76,14 +126,14 @@ public class SplineGenerator {
         Rotation2d course_predicted = (new Rotation2d(twist_full.dx, twist_full.dy))
                 .rotateBy(phalf_predicted.getRotation());
 
-        Rotation2d course_half = s.getCourse(t0 + (t1 - t0) * .5).orElse(course_predicted);
+        Rotation2d course_half = s.getCourse(thalf).orElse(course_predicted);
         double course_error = course_predicted.unaryMinus().rotateBy(course_half).getRadians();
         if (Math.abs(error.getTranslation().getY()) > maxDy ||
                 Math.abs(error.getTranslation().getX()) > maxDx ||
                 Math.abs(error.getRotation().getRadians()) > maxDTheta ||
                 Math.abs(course_error) > maxDTheta) {
-            getSegmentArc(s, rv, t0, (t0 + t1) / 2, maxDx, maxDy, maxDTheta);
-            getSegmentArc(s, rv, (t0 + t1) / 2, t1, maxDx, maxDy, maxDTheta);
+            getSegmentArc(s, rv, t0, thalf, p0, phalf, maxDx, maxDy, maxDTheta);
+            getSegmentArc(s, rv, thalf, t1, phalf, p1, maxDx, maxDy, maxDTheta);
         } else {
             rv.add(s.getPose2dWithMotion(t1));
         }
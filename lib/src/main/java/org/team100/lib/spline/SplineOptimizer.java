@@ -0,0 +1,266 @@
+package org.team100.lib.spline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Finds the second derivatives at the joints between splines that minimize the
+ * sum of the change in curvature squared over the path.
+ *
+ * This uses the analytic gradient of the objective, which costs about as much
+ * as one evaluation of the objective, rather than two evaluations of the whole
+ * path per joint, as the finite-difference gradient does.
+ *
+ * If warm starts are enabled, this remembers the last solution. If the next
+ * path has the same number of waypoints, and none of them moved very far, e.g.
+ * when re-planning to a moving target, the optimization starts from the
+ * remembered solution, which usually converges in one iteration.
+ *
+ * Expects newly constructed splines, i.e. zero second derivative at the joints.
+ */
+public class SplineOptimizer {
+    private static final double kStepSize = 1.0;
+    private static final double kMinDelta = 0.001;
+    private static final double kMinGradient = 1e-12;
+    private static final int kMaxIterations = 100;
+    /** Warm start only if every waypoint is at least this close to last time. */
+    private static final double kWarmStartToleranceM = 0.5;
+
+    private final boolean m_warmStart;
+
+    /** Waypoints of the last solution. */
+    private Translation2d[] m_waypoints;
+    /** Second derivatives at the joints of the last solution. */
+    private double[] m_ddx;
+    private double[] m_ddy;
+
+    private int m_iterations;
+    private boolean m_warmStarted;
+
+    public SplineOptimizer() {
+        this(true);
+    }
+
+    public SplineOptimizer(boolean warmStart) {
+        m_warmStart = warmStart;
+    }
+
+    /**
+     * Replaces the elements of splines with optimized ones.
+     *
+     * @param splines the list of splines to optimize
+     * @return the final sumDCurvature2
+     */
+    public synchronized double optimize(List<HolonomicSpline> splines) {
+        m_iterations = 0;
+        m_warmStarted = false;
+        // this throws for degenerate splines, which the planner depends on.
+        double current = HolonomicSpline.sumDCurvature2(splines);
+        int joints = splines.size() - 1;
+        if (joints < 1) {
+            // can't optimize anything with less than 2 splines
+            return current;
+        }
+        boolean[] active = new boolean[joints];
+        for (int i = 0; i < joints; ++i) {
+            active[i] = !HolonomicSpline.isColinearJoint(splines, i);
+        }
+        if (m_warmStart)
+            current = warmStart(splines, active, current);
+
+        double[] gx = new double[joints];
+        double[] gy = new double[joints];
+        double[] grad = new double[4];
+        while (m_iterations < kMaxIterations) {
+            double magnitude = gradient(splines, active, grad, gx, gy);
+            if (Double.isNaN(magnitude))
+                throw new IllegalArgumentException();
+            if (magnitude < kMinGradient)
+                break;
+
+            // normalize to step size
+            for (int i = 0; i < joints; ++i) {
+                gx[i] *= kStepSize / magnitude;
+                gy[i] *= kStepSize / magnitude;
+            }
+
+            // minimize along the direction of the gradient, using a parabola fit to
+            // three points.
+            double below = HolonomicSpline.sumDCurvature2(adjust(splines, gx, gy, -1));
+            double above = HolonomicSpline.sumDCurvature2(adjust(splines, gx, gy, 1));
+            double step = fitParabola(-kStepSize, below, 0, current, kStepSize, above) / kStepSize;
+            m_iterations++;
+            if (!Double.isFinite(step))
+                break;
+
+            List<HolonomicSpline> candidate = adjust(splines, gx, gy, step);
+            double next = HolonomicSpline.sumDCurvature2(candidate);
+            if (!(next < current)) {
+                // the parabola was a poor fit, so we're done.
+                break;
+            }
+            for (int i = 0; i < splines.size(); ++i) {
+                splines.set(i, candidate.get(i));
+            }
+            double delta = current - next;
+            current = next;
+            if (delta < kMinDelta)
+                break;
+        }
+        if (m_iterations >= kMaxIterations)
+            Util.warn("Spline optimization failed");
+        if (m_warmStart)
+            remember(splines);
+        return current;
+    }
+
+    /** Iterations used by the most recent optimization. */
+    public synchronized int getIterations() {
+        return m_iterations;
+    }
+
+    /** True if the most recent optimization started from the remembered solution. */
+    public synchronized boolean isWarmStarted() {
+        return m_warmStarted;
+    }
+
+    ////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Fills gx and gy with the gradient of sumDCurvature2 with respect to the
+     * second derivatives at each active joint.
+     *
+     * @return the magnitude of the gradient
+     */
+    private static double gradient(
+            List<HolonomicSpline> splines,
+            boolean[] active,
+            double[] grad,
+            double[] gx,
+            double[] gy) {
+        int joints = active.length;
+        for (int i = 0; i < joints; ++i) {
+            gx[i] = 0;
+            gy[i] = 0;
+        }
+        for (int j = 0; j < splines.size(); ++j) {
+            grad[0] = 0;
+            grad[1] = 0;
+            grad[2] = 0;
+            grad[3] = 0;
+            splines.get(j).addDCurvature2Gradient(grad);
+            // the start of spline j is joint j-1
+            if (j > 0) {
+                gx[j - 1] += grad[0];
+                gy[j - 1] += grad[1];
+            }
+            // the end of spline j is joint j
+            if (j < joints) {
+                gx[j] += grad[2];
+                gy[j] += grad[3];
+            }
+        }
+        double magnitude = 0;
+        for (int i = 0; i < joints; ++i) {
+            if (!active[i]) {
+                gx[i] = 0;
+                gy[i] = 0;
+            }
+            magnitude += gx[i] * gx[i] + gy[i] * gy[i];
+        }
+        return Math.sqrt(magnitude);
+    }
+
+    /**
+     * Return new splines with the second derivative at each joint moved by scale
+     * times (dx, dy).
+     */
+    private static List<HolonomicSpline> adjust(
+            List<HolonomicSpline> splines,
+            double[] dx,
+            double[] dy,
+            double scale) {
+        int joints = dx.length;
+        List<HolonomicSpline> result = new ArrayList<>(splines.size());
+        for (int j = 0; j < splines.size(); ++j) {
+            double ddx0 = j > 0 ? scale * dx[j - 1] : 0;
+            double ddy0 = j > 0 ? scale * dy[j - 1] : 0;
+            double ddx1 = j < joints ? scale * dx[j] : 0;
+            double ddy1 = j < joints ? scale * dy[j] : 0;
+            result.add(splines.get(j).adjustSecondDerivatives(ddx0, ddx1, ddy0, ddy1));
+        }
+        return result;
+    }
+
+    /**
+     * If the waypoints are close to the remembered ones, move the joints to the
+     * remembered second derivatives, if that's an improvement.
+     *
+     * @return the resulting sumDCurvature2
+     */
+    private double warmStart(List<HolonomicSpline> splines, boolean[] active, double cold) {
+        Translation2d[] waypoints = waypoints(splines);
+        if (m_waypoints == null || m_waypoints.length != waypoints.length)
+            return cold;
+        for (int i = 0; i < waypoints.length; ++i) {
+            if (waypoints[i].getDistance(m_waypoints[i]) > kWarmStartToleranceM)
+                return cold;
+        }
+        int joints = active.length;
+        double[] dx = new double[joints];
+        double[] dy = new double[joints];
+        for (int i = 0; i < joints; ++i) {
+            if (!active[i])
+                continue;
+            dx[i] = m_ddx[i] - splines.get(i).ddx(1);
+            dy[i] = m_ddy[i] - splines.get(i).ddy(1);
+        }
+        List<HolonomicSpline> warm = adjust(splines, dx, dy, 1);
+        double value = HolonomicSpline.sumDCurvature2(warm);
+        if (!(value < cold))
+            return cold;
+        for (int i = 0; i < splines.size(); ++i) {
+            splines.set(i, warm.get(i));
+        }
+        m_warmStarted = true;
+        return value;
+    }
+
+    private void remember(List<HolonomicSpline> splines) {
+        int joints = splines.size() - 1;
+        m_waypoints = waypoints(splines);
+        m_ddx = new double[joints];
+        m_ddy = new double[joints];
+        for (int i = 0; i < joints; ++i) {
+            m_ddx[i] = splines.get(i).ddx(1);
+            m_ddy[i] = splines.get(i).ddy(1);
+        }
+    }
+
+    private static Translation2d[] waypoints(List<HolonomicSpline> splines) {
+        Translation2d[] result = new Translation2d[splines.size() + 1];
+        result[0] = splines.get(0).getPoint(0);
+        for (int i = 0; i < splines.size(); ++i) {
+            result[i + 1] = splines.get(i).getPoint(1);
+        }
+        return result;
+    }
+
+    /**
+     * Fits a parabola to 3 points.
+     *
+     * @return the x coordinate of the vertex of the parabola
+     */
+    private static double fitParabola(
+            double x1, double y1,
+            double x2, double y2,
+            double x3, double y3) {
+        double a = x3 * (y2 - y1) + x2 * (y1 - y3) + x1 * (y3 - y2);
+        double b = x3 * x3 * (y1 - y2) + x2 * x2 * (y3 - y1) + x1 * x1 * (y2 - y3);
+        return -b / (2 * a);
+    }
+}
@@ -0,0 +1,49 @@
+package org.team100.lib.state;
+
+/**
+ * Mutable version of State100, for code that runs every loop and wants to
+ * avoid allocation, e.g. as the output of a profile.
+ *
+ * Position, velocity, and acceleration.
+ */
+public class MutableState100 {
+    private double m_x;
+    private double m_v;
+    private double m_a;
+
+    public MutableState100() {
+        //
+    }
+
+    public void set(double x, double v, double a) {
+        m_x = x;
+        m_v = v;
+        m_a = a;
+    }
+
+    public void set(State100 s) {
+        set(s.x(), s.v(), s.a());
+    }
+
+    public double x() {
+        return m_x;
+    }
+
+    public double v() {
+        return m_v;
+    }
+
+    public double a() {
+        return m_a;
+    }
+
+    /** An immutable copy. */
+    public State100 get() {
+        return new State100(m_x, m_v, m_a);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MutableState100(X %5.3f V %5.3f A %5.3f)", m_x, m_v, m_a);
+    }
+}
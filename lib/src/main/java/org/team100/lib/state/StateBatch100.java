@@ -0,0 +1,49 @@
+package org.team100.lib.state;
+
+/**
+ * Many states, as parallel arrays of position, velocity, and acceleration, for
+ * batch calculations that shouldn't allocate a State100 for each one.
+ *
+ * The arrays are exposed directly, for tight loops.
+ */
+public class StateBatch100 {
+    private final double[] m_x;
+    private final double[] m_v;
+    private final double[] m_a;
+
+    public StateBatch100(int n) {
+        m_x = new double[n];
+        m_v = new double[n];
+        m_a = new double[n];
+    }
+
+    public int size() {
+        return m_x.length;
+    }
+
+    public double[] x() {
+        return m_x;
+    }
+
+    public double[] v() {
+        return m_v;
+    }
+
+    public double[] a() {
+        return m_a;
+    }
+
+    public State100 get(int i) {
+        return new State100(m_x[i], m_v[i], m_a[i]);
+    }
+
+    public void set(int i, double x, double v, double a) {
+        m_x[i] = x;
+        m_v[i] = v;
+        m_a[i] = a;
+    }
+
+    public void set(int i, State100 s) {
+        set(i, s.x(), s.v(), s.a());
+    }
+}
@@ -12,6 +12,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 
@@ -28,8 +29,11 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
  * converge to the desired setpoint quickly while avoiding any intermediate
  * state that is kinematically infeasible (and can result in wheel slip or robot
  * heading drift as a result).
+ * 
+ * The per-module intermediate values live in a workspace that's reused every
+ * cycle, so an instance must only be used by one thread.
  */
-public class AsymSwerveSetpointGenerator implements Glassy {
+public class AsymSwerveSetpointGenerator implements SwerveSetpointGenerator, Glassy {
     // turns greater than this will flip
     // this used to be pi/2, which resulted in "square corner" paths
     private static final double flipLimitRad = 3 * Math.PI / 4;
@@ -41,58 +45,78 @@ public class AsymSwerveSetpointGenerator implements Glassy {
     private final SteeringRateLimiter m_steeringRateLimiter;
     private final DriveAccelerationLimiter m_DriveAccelerationLimiter;
     private final BatterySagLimiter m_BatterySagLimiter;
+    private final SetpointWorkspace m_workspace;
 
     public AsymSwerveSetpointGenerator(
             LoggerFactory parent,
             SwerveKinodynamics limits,
             DoubleSupplier batteryVoltage) {
+        this(parent, limits, batteryVoltage, false);
+    }
+
+    /**
+     * @param fast use a precomputed table for the steering limit, and the
+     *             closed-form drive limit, instead of the iterative solvers. The
+     *             table takes a few tens of milliseconds to build, so construct
+     *             this at startup.
+     */
+    public AsymSwerveSetpointGenerator(
+            LoggerFactory parent,
+            SwerveKinodynamics limits,
+            DoubleSupplier batteryVoltage,
+            boolean fast) {
         m_limits = limits;
         m_centripetalLimiter = new CapsizeAccelerationLimiter(parent, limits);
         m_SteeringOverride = new SteeringOverride(parent, limits);
-        m_steeringRateLimiter = new SteeringRateLimiter(parent, limits);
-        m_DriveAccelerationLimiter = new DriveAccelerationLimiter(parent, limits);
+        m_steeringRateLimiter = new SteeringRateLimiter(
+                parent, limits, fast ? new SteeringMaxSTable(limits) : null);
+        m_DriveAccelerationLimiter = new DriveAccelerationLimiter(parent, limits, fast);
         m_BatterySagLimiter = new BatterySagLimiter(batteryVoltage);
+        m_workspace = new SetpointWorkspace();
     }
 
     /**
-     * Generate a new setpoint.
+     * Generate a new setpoint, overwriting result.
+     * 
+     * Doesn't allocate unless a module angle changes.
      *
      * @param prevSetpoint The previous setpoint motion. Normally, you'd pass in the
      *                     previous iteration setpoint instead of the actual
      *                     measured/estimated kinematic state.
      * @param desiredState The desired state of motion, such as from the driver
      *                     sticks or a path following algorithm.
-     * @return A Setpoint object that satisfies all of the KinematicLimits while
-     *         converging to desiredState quickly.
+     * @param result       A Setpoint object that satisfies all of the
+     *                     KinematicLimits while converging to desiredState
+     *                     quickly. Must not be prevSetpoint.
      */
-    public SwerveSetpoint generateSetpoint(
+    @Override
+    public void generateSetpoint(
             SwerveSetpoint prevSetpoint,
-            ChassisSpeeds desiredState) {
+            ChassisSpeeds desiredState,
+            SwerveSetpoint result) {
+        if (result == prevSetpoint)
+            throw new IllegalArgumentException("result must not be the previous setpoint");
         SwerveModuleStates prevModuleStates = prevSetpoint.getModuleStates();
         // the desired module state speeds are always positive.
-        SwerveModuleStates desiredModuleStates = m_limits.toSwerveModuleStatesWithoutDiscretization(
-                desiredState);
+        SwerveModuleStates desiredModuleStates = m_workspace.desiredStates;
+        m_limits.toSwerveModuleStatesWithoutDiscretization(desiredState, desiredModuleStates);
         desiredState = desaturate(desiredState, desiredModuleStates);
         boolean desiredIsStopped = SwerveUtil.desiredIsStopped(desiredState, desiredModuleStates, prevModuleStates);
 
-        // For each module, compute local Vx and Vy vectors.
-        double[] prev_vx = computeVx(prevModuleStates);
-        double[] prev_vy = computeVy(prevModuleStates);
-        // elements may be null.
-        Rotation2d[] prev_heading = computeHeading(prevModuleStates);
-
-        double[] desired_vx = computeVx(desiredModuleStates);
-        double[] desired_vy = computeVy(desiredModuleStates);
-        // elements may be null.
-        Rotation2d[] desired_heading = computeHeading(desiredModuleStates);
+        // For each module, compute local Vx and Vy vectors, and headings.
+        m_workspace.load(prevModuleStates, desiredModuleStates);
 
-        boolean shouldStopAndReverse = shouldStopAndReverse(prev_heading, desired_heading);
-        if (shouldStopAndReverse
+        if (shouldStopAndReverse(m_workspace.prevHeadingRad, m_workspace.desiredHeadingRad)
                 && !GeometryUtil.isZero(prevSetpoint.getChassisSpeeds())
                 && !GeometryUtil.isZero(desiredState)) {
             // It will (likely) be faster to stop the robot, rotate the modules in place to
             // the complement of the desired angle, and accelerate again.
-            return generateSetpoint(prevSetpoint, new ChassisSpeeds());
+            desiredState = m_workspace.zero;
+            // stopped, so the desired module states are just the previous headings; there's
+            // no need for the inverse kinematics.
+            desiredModuleStates = m_workspace.stoppedStates;
+            desiredIsStopped = SwerveUtil.desiredIsStopped(desiredState, desiredModuleStates, prevModuleStates);
+            m_workspace.load(prevModuleStates, desiredModuleStates);
         }
 
         // Compute the deltas between start and goal. We can then interpolate from the
@@ -116,17 +140,13 @@ public class AsymSwerveSetpointGenerator implements Glassy {
         // steering angle to command (since
         // inverse kinematics doesn't care about angle, we can be opportunistically
         // lazy).
-        SwerveModuleState100[] prevModuleStatesAll = prevModuleStates.all();
-        Rotation2d[] overrideSteering = new Rotation2d[prevModuleStatesAll.length];
+        Rotation2d[] overrideSteering = m_workspace.overrideSteering;
 
         if (desiredIsStopped) {
-            for (int i = 0; i < prevModuleStatesAll.length; ++i) {
-                if (prevModuleStatesAll[i].angle.isEmpty()) {
-                    overrideSteering[i] = null;
-                } else {
-                    overrideSteering[i] = prevModuleStatesAll[i].angle.get();
-                }
-            }
+            overrideSteering[0] = prevModuleStates.frontLeft().angle.orElse(null);
+            overrideSteering[1] = prevModuleStates.frontRight().angle.orElse(null);
+            overrideSteering[2] = prevModuleStates.rearLeft().angle.orElse(null);
+            overrideSteering[3] = prevModuleStates.rearRight().angle.orElse(null);
         } else {
             double override_min_s = m_SteeringOverride.overrideIfStopped(
                     desiredModuleStates,
@@ -135,100 +155,52 @@ public class AsymSwerveSetpointGenerator implements Glassy {
             min_s = Math.min(min_s, override_min_s);
 
             double steering_min_s = m_steeringRateLimiter.enforceSteeringLimit(
-                    prev_vx,
-                    prev_vy,
-                    prev_heading,
-                    desired_vx,
-                    desired_vy,
-                    desired_heading,
+                    m_workspace.prevVx,
+                    m_workspace.prevVy,
+                    m_workspace.prevHeadingRad,
+                    m_workspace.desiredVx,
+                    m_workspace.desiredVy,
+                    m_workspace.desiredHeadingRad,
                     overrideSteering);
             min_s = Math.min(min_s, steering_min_s);
         }
 
         double accel_min_s = m_DriveAccelerationLimiter.enforceWheelAccelLimit(
-                prev_vx,
-                prev_vy,
-                desired_vx,
-                desired_vy);
+                m_workspace.prevVx,
+                m_workspace.prevVy,
+                m_workspace.desiredVx,
+                m_workspace.desiredVy);
 
         min_s = Math.min(min_s, accel_min_s);
 
         double battery_min_s = m_BatterySagLimiter.get();
         min_s = Math.min(min_s, battery_min_s);
 
-        return makeSetpoint(
+        makeSetpoint(
                 prevSetpoint,
                 prevModuleStates,
                 dx,
                 dy,
                 dtheta,
                 min_s,
-                overrideSteering);
+                overrideSteering,
+                result);
     }
 
     ///////////////////////////////////////////////////////
 
-    private double[] computeVx(SwerveModuleStates states) {
-        SwerveModuleState100[] statesAll = states.all();
-        double[] vx = new double[statesAll.length];
-        for (int i = 0; i < statesAll.length; ++i) {
-            SwerveModuleState100 state = statesAll[i];
-            if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty()) {
-                vx[i] = 0;
-            } else {
-                vx[i] = state.angle.get().getCos() * state.speedMetersPerSecond;
-            }
-        }
-        return vx;
-    }
-
-    private double[] computeVy(SwerveModuleStates states) {
-        SwerveModuleState100[] statesAll = states.all();
-        double[] vy = new double[statesAll.length];
-        for (int i = 0; i < statesAll.length; ++i) {
-            SwerveModuleState100 state = statesAll[i];
-            if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty()) {
-                vy[i] = 0;
-            } else {
-                vy[i] = state.angle.get().getSin() * state.speedMetersPerSecond;
-            }
-        }
-        return vy;
-    }
-
-    /**
-     * Which way each module is actually going, taking speed polarity into account.
-     * 
-     * @return elements are nullable.
-     */
-    private Rotation2d[] computeHeading(SwerveModuleStates states) {
-        SwerveModuleState100[] statesAll = states.all();
-        Rotation2d[] heading = new Rotation2d[statesAll.length];
-        for (int i = 0; i < statesAll.length; ++i) {
-            if (statesAll[i].angle.isEmpty()) {
-                heading[i] = null;
-                continue;
-            }
-            heading[i] = statesAll[i].angle.get();
-            if (statesAll[i].speedMetersPerSecond < 0.0) {
-                heading[i] = GeometryUtil.flip(heading[i]);
-            }
-        }
-        return heading;
-    }
-
     /**
      * If we want to go back the way we came, it might be faster to stop
      * and then reverse. This is certainly true for near-180 degree turns, but
      * it's definitely not true for near-90 degree turns.
      */
-    private boolean shouldStopAndReverse(Rotation2d[] prev_heading, Rotation2d[] desired_heading) {
+    private static boolean shouldStopAndReverse(double[] prev_heading, double[] desired_heading) {
         for (int i = 0; i < prev_heading.length; ++i) {
-            if (desired_heading[i] == null || prev_heading[i] == null) {
+            if (Double.isNaN(desired_heading[i]) || Double.isNaN(prev_heading[i])) {
                 return false;
             }
-            Rotation2d diff = desired_heading[i].minus(prev_heading[i]);
-            if (Math.abs(diff.getRadians()) < flipLimitRad) {
+            double diff = MathUtil.angleModulus(desired_heading[i] - prev_heading[i]);
+            if (Math.abs(diff) < flipLimitRad) {
                 return false;
             }
         }
@@ -243,65 +215,70 @@ public class AsymSwerveSetpointGenerator implements Glassy {
             SwerveModuleStates desiredModuleStates) {
         if (m_limits.getMaxDriveVelocityM_S() > 0.0) {
             SwerveDriveKinematics100.desaturateWheelSpeeds(desiredModuleStates, m_limits.getMaxDriveVelocityM_S());
-            desiredState = m_limits.toChassisSpeeds(desiredModuleStates);
+            m_limits.toChassisSpeeds(desiredModuleStates, m_workspace.desiredSpeeds);
+            desiredState = m_workspace.desiredSpeeds;
         }
         return desiredState;
     }
 
-    private SwerveSetpoint makeSetpoint(
+    private void makeSetpoint(
             final SwerveSetpoint prevSetpoint,
             SwerveModuleStates prevModuleStates,
             double dx,
             double dy,
             double dtheta,
             double min_s,
-            Rotation2d[] overrideSteering) {
-        ChassisSpeeds setpointSpeeds = makeSpeeds(
+            Rotation2d[] overrideSteering,
+            SwerveSetpoint result) {
+        ChassisSpeeds setpointSpeeds = result.getChassisSpeeds();
+        makeSpeeds(
                 prevSetpoint.getChassisSpeeds(),
                 dx,
                 dy,
                 dtheta,
-                min_s);
+                min_s,
+                setpointSpeeds);
         // the speeds in these states are always positive.
-        SwerveModuleStates setpointStates = m_limits.toSwerveModuleStates(
+        SwerveModuleStates setpointStates = result.getModuleStates();
+        m_limits.toSwerveModuleStates(
                 setpointSpeeds,
-                setpointSpeeds.omegaRadiansPerSecond);
+                setpointSpeeds.omegaRadiansPerSecond,
+                setpointStates);
         applyOverrides(overrideSteering, setpointStates);
         flipIfRequired(prevModuleStates, setpointStates);
-
-        return new SwerveSetpoint(setpointSpeeds, setpointStates);
     }
 
     /** Overwrite the states with the supplied steering overrides, if any. */
     private void applyOverrides(Rotation2d[] overrides, SwerveModuleStates states) {
-        SwerveModuleState100[] statesAll = states.all();
-        for (int i = 0; i < statesAll.length; ++i) {
-            if (statesAll[i].angle.isEmpty()) {
+        for (int i = 0; i < SetpointWorkspace.kModules; ++i) {
+            SwerveModuleState100 state = states.get(i);
+            if (state.angle.isEmpty()) {
                 continue;
             }
             final Rotation2d maybeOverride = overrides[i];
             if (maybeOverride != null) {
                 Rotation2d override = maybeOverride;
-                if (SwerveUtil.shouldFlip(override.minus(statesAll[i].angle.get()))) {
-                    statesAll[i].speedMetersPerSecond *= -1.0;
+                Rotation2d angle = state.angle.get();
+                if (SwerveUtil.shouldFlip(angle, override)) {
+                    state.speedMetersPerSecond *= -1.0;
+                }
+                if (angle.getCos() != override.getCos() || angle.getSin() != override.getSin()) {
+                    state.angle = Optional.of(override);
                 }
-                statesAll[i].angle = Optional.of(override);
             }
         }
     }
 
     private void flipIfRequired(SwerveModuleStates prevStates, SwerveModuleStates setpointStates) {
-        SwerveModuleState100[] prevStatesAll = prevStates.all();
-        SwerveModuleState100[] setpointStatesAll = setpointStates.all();
-
-        for (int i = 0; i < prevStatesAll.length; ++i) {
-            if (setpointStatesAll[i].angle.isEmpty() || prevStatesAll[i].angle.isEmpty()) {
+        for (int i = 0; i < SetpointWorkspace.kModules; ++i) {
+            SwerveModuleState100 prev = prevStates.get(i);
+            SwerveModuleState100 setpoint = setpointStates.get(i);
+            if (setpoint.angle.isEmpty() || prev.angle.isEmpty()) {
                 continue;
             }
-            final Rotation2d deltaRotation = setpointStatesAll[i].angle.get().minus(prevStatesAll[i].angle.get());
-            if (SwerveUtil.shouldFlip(deltaRotation)) {
-                setpointStatesAll[i].angle = Optional.of(GeometryUtil.flip(setpointStatesAll[i].angle.get()));
-                setpointStatesAll[i].speedMetersPerSecond *= -1.0;
+            if (SwerveUtil.shouldFlip(prev.angle.get(), setpoint.angle.get())) {
+                setpoint.angle = Optional.of(GeometryUtil.flip(setpoint.angle.get()));
+                setpoint.speedMetersPerSecond *= -1.0;
             }
         }
     }
@@ -317,12 +294,13 @@ public class AsymSwerveSetpointGenerator implements Glassy {
      * min_s -- essentially modeling inertia. This part was missing before, which I
      * think must just be a mistake.
      */
-    private ChassisSpeeds makeSpeeds(
+    private static void makeSpeeds(
             ChassisSpeeds prev,
             double dx,
             double dy,
             double dtheta,
-            double min_s) {
+            double min_s,
+            ChassisSpeeds out) {
         double omega = prev.omegaRadiansPerSecond + min_s * dtheta;
         double drift = -1.0 * omega * TimedRobot100.LOOP_PERIOD_S;
         double vx = prev.vxMetersPerSecond * Math.cos(drift)
@@ -331,6 +309,8 @@ public class AsymSwerveSetpointGenerator implements Glassy {
         double vy = prev.vxMetersPerSecond * Math.sin(drift)
                 + prev.vyMetersPerSecond * Math.cos(drift)
                 + min_s * dy;
-        return new ChassisSpeeds(vx, vy, omega);
+        out.vxMetersPerSecond = vx;
+        out.vyMetersPerSecond = vy;
+        out.omegaRadiansPerSecond = omega;
     }
 }
@@ -32,9 +32,8 @@ public class CapsizeAccelerationLimiter implements Glassy {
         if (Math.abs(dv) > 1e-6) {
             min_s = Math.min(1, TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxCapsizeAccelM_S2() / dv);
         }
-        double s = min_s;
-        m_log_s.log( () -> s);
-        return s;
+        m_log_s.log(min_s);
+        return min_s;
     }
 
 }
@@ -9,17 +9,25 @@ import org.team100.lib.util.Math100;
 
 /**
  * Enforces drive motor torque constraints.
+ * 
+ * Optionally uses the closed-form solution instead of the iterative solver.
  */
 public class DriveAccelerationLimiter implements Glassy {
     private static final int kMaxIterations = 10;
 
     private final SwerveKinodynamics m_limits;
+    private final boolean m_closedForm;
     // LOGGERS
     private final DoubleLogger m_log_max_step;
     private final DoubleLogger m_log_s;
 
     public DriveAccelerationLimiter(LoggerFactory parent, SwerveKinodynamics limits) {
+        this(parent, limits, false);
+    }
+
+    public DriveAccelerationLimiter(LoggerFactory parent, SwerveKinodynamics limits, boolean closedForm) {
         m_limits = limits;
+        m_closedForm = closedForm;
         LoggerFactory child = parent.child(this);
         m_log_max_step = child.doubleLogger(Level.TRACE, "max_vel_step");
         m_log_s = child.doubleLogger(Level.TRACE, "s");
@@ -38,27 +46,36 @@ public class DriveAccelerationLimiter implements Glassy {
                     prev_vy[i],
                     desired_vx[i],
                     desired_vy[i]);
-            m_log_max_step.log(() -> max_vel_step);
+            m_log_max_step.log(max_vel_step);
 
             // reduces the size of the search space if min_s is already constrained (by
             // earlier modules)
             double vx_min_s = Math100.interpolate(prev_vx[i], desired_vx[i], min_s);
             double vy_min_s = Math100.interpolate(prev_vy[i], desired_vy[i], min_s);
 
-            double s = SwerveUtil.findDriveMaxS(
-                    prev_vx[i],
-                    prev_vy[i],
-                    vx_min_s,
-                    vy_min_s,
-                    max_vel_step,
-                    kMaxIterations);
+            double s;
+            if (m_closedForm) {
+                s = SwerveUtil.findDriveMaxSClosedForm(
+                        prev_vx[i],
+                        prev_vy[i],
+                        vx_min_s,
+                        vy_min_s,
+                        max_vel_step);
+            } else {
+                s = SwerveUtil.findDriveMaxS(
+                        prev_vx[i],
+                        prev_vy[i],
+                        vx_min_s,
+                        vy_min_s,
+                        max_vel_step,
+                        kMaxIterations);
+            }
             min_s = Math.min(min_s, s);
             if (min_s == 0.0) {
                 break;
             }
         }
-        final double s = min_s;
-        m_log_s.log(() -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
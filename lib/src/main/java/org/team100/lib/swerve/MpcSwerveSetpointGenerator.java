@@ -0,0 +1,256 @@
+package org.team100.lib.swerve;
+
+import java.util.function.DoubleSupplier;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.BooleanLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveDriveKinematics100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleHeadings;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Plans over a short horizon instead of just the next tick.
+ *
+ * The greedy generator takes the biggest feasible step towards the goal every
+ * tick, which produces "square corners" and overshoot when the goal changes
+ * direction. This generator instead chooses an intermediate target: it rolls
+ * out the greedy generator over the horizon, aiming at the intermediate target
+ * for the first half and at the real goal for the second half, and picks the
+ * intermediate target that minimizes the summed squared velocity error.
+ *
+ * The search is a pattern search over the offset of the intermediate target
+ * from the goal, warm-started from the previous tick's solution. The zero
+ * offset, i.e. the greedy plan, is always a candidate, so the plan is never
+ * worse than greedy over the horizon.
+ *
+ * The output is always the greedy step towards the chosen target, so it
+ * respects exactly the same limits as the greedy generator.
+ *
+ * The search stops when the CPU budget runs out, keeping the best candidate
+ * found so far; the deadline is checked every rollout tick, so a slow rollout
+ * can't overrun it by more than one tick. If the budget runs out before the
+ * greedy rollout completes, this falls back to the greedy step towards the
+ * goal.
+ *
+ * Rollouts use their own generator, which never logs, so the logs show only
+ * the chosen step, and rollouts write into reused holders, so they don't
+ * allocate.
+ *
+ * Uses the generators' workspaces, so an instance must only be used by one
+ * thread.
+ */
+public class MpcSwerveSetpointGenerator implements SwerveSetpointGenerator, Glassy {
+    private static final int kDefaultHorizon = 8;
+    private static final double kDefaultBudgetS = 0.001;
+    private static final int kMaxIterations = 20;
+    /** Stop searching when the step is smaller than this, m/s. */
+    private static final double kMinStepM_S = 0.01;
+
+    private final SwerveKinodynamics m_limits;
+    private final AsymSwerveSetpointGenerator m_greedy;
+    /** Same limits as m_greedy, but never logs. */
+    private final AsymSwerveSetpointGenerator m_rollout;
+    private final int m_horizon;
+    private final long m_budgetNs;
+    /** Converts omega into an equivalent speed, for the cost, in meters. */
+    private final double m_radiusM;
+
+    // LOGGERS
+    private final IntLogger m_log_rollouts;
+    private final DoubleLogger m_log_cost;
+    private final DoubleLogger m_log_greedy_cost;
+    private final BooleanLogger m_log_fallback;
+
+    /** Solution from the previous tick, offset from the goal: vx, vy, omega */
+    private final double[] m_offset = new double[3];
+    private final double[] m_candidate = new double[3];
+    /** Rollout setpoints, used alternately. */
+    private final SwerveSetpoint[] m_setpoints = { new SwerveSetpoint(), new SwerveSetpoint() };
+    /** Intermediate target, overwritten by each rollout. */
+    private final ChassisSpeeds m_target = new ChassisSpeeds();
+    private int m_rollouts;
+
+    public MpcSwerveSetpointGenerator(
+            LoggerFactory parent,
+            SwerveKinodynamics limits,
+            DoubleSupplier batteryVoltage) {
+        this(parent, limits, batteryVoltage, kDefaultHorizon, kDefaultBudgetS);
+    }
+
+    /**
+     * @param horizon number of ticks to roll out, e.g. 5-10
+     * @param budgetS CPU time allowed for the search, per tick
+     */
+    public MpcSwerveSetpointGenerator(
+            LoggerFactory parent,
+            SwerveKinodynamics limits,
+            DoubleSupplier batteryVoltage,
+            int horizon,
+            double budgetS) {
+        if (horizon < 1)
+            throw new IllegalArgumentException("horizon must be positive");
+        LoggerFactory child = parent.child(this);
+        m_limits = limits;
+        m_greedy = new AsymSwerveSetpointGenerator(child, limits, batteryVoltage);
+        m_rollout = new AsymSwerveSetpointGenerator(child.child("rollout").off(), limits, batteryVoltage);
+        m_horizon = horizon;
+        m_budgetNs = (long) (budgetS * 1e9);
+        m_radiusM = limits.getMaxDriveVelocityM_S() / limits.getMaxAngleSpeedRad_S();
+        m_log_rollouts = child.intLogger(Level.TRACE, "rollouts");
+        m_log_cost = child.doubleLogger(Level.TRACE, "cost");
+        m_log_greedy_cost = child.doubleLogger(Level.TRACE, "greedy cost");
+        m_log_fallback = child.booleanLogger(Level.TRACE, "fallback");
+    }
+
+    @Override
+    public void generateSetpoint(SwerveSetpoint prevSetpoint, ChassisSpeeds desiredState, SwerveSetpoint result) {
+        final long deadline = System.nanoTime() + m_budgetNs;
+        m_rollouts = 0;
+        // rollouts move the remembered headings, so put them back afterwards.
+        SwerveDriveKinematics100 kinematics = m_limits.getKinematics();
+        SwerveModuleHeadings headings = kinematics.getHeadings();
+
+        if (System.nanoTime() >= deadline) {
+            fallback(prevSetpoint, desiredState, result);
+            return;
+        }
+        // the greedy plan
+        double greedyCost = rollout(prevSetpoint, desiredState, 0, 0, 0, kinematics, headings, deadline);
+        if (Double.isInfinite(greedyCost)) {
+            fallback(prevSetpoint, desiredState, result);
+            return;
+        }
+        double bestCost = greedyCost;
+        double bx = 0;
+        double by = 0;
+        double bo = 0;
+
+        // the warm start
+        if (!isZero(m_offset) && System.nanoTime() < deadline) {
+            double cost = rollout(prevSetpoint, desiredState,
+                    m_offset[0], m_offset[1], m_offset[2], kinematics, headings, deadline);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bx = m_offset[0];
+                by = m_offset[1];
+                bo = m_offset[2];
+            }
+        }
+
+        ChassisSpeeds prev = prevSetpoint.getChassisSpeeds();
+        double step = 0.5 * Math.hypot(
+                Math.hypot(
+                        desiredState.vxMetersPerSecond - prev.vxMetersPerSecond,
+                        desiredState.vyMetersPerSecond - prev.vyMetersPerSecond),
+                m_radiusM * (desiredState.omegaRadiansPerSecond - prev.omegaRadiansPerSecond));
+
+        search: for (int i = 0; i < kMaxIterations && step > kMinStepM_S; ++i) {
+            boolean improved = false;
+            // try each axis in each direction
+            for (int axis = 0; axis < 3; ++axis) {
+                double axisStep = axis == 2 ? step / m_radiusM : step;
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    if (System.nanoTime() >= deadline)
+                        break search;
+                    m_candidate[0] = bx;
+                    m_candidate[1] = by;
+                    m_candidate[2] = bo;
+                    m_candidate[axis] += sign * axisStep;
+                    double cost = rollout(prevSetpoint, desiredState,
+                            m_candidate[0], m_candidate[1], m_candidate[2], kinematics, headings, deadline);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bx = m_candidate[0];
+                        by = m_candidate[1];
+                        bo = m_candidate[2];
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved)
+                step /= 2;
+        }
+
+        m_offset[0] = bx;
+        m_offset[1] = by;
+        m_offset[2] = bo;
+        m_log_rollouts.log(() -> m_rollouts);
+        m_log_cost.log(bestCost);
+        m_log_greedy_cost.log(greedyCost);
+        m_log_fallback.log(() -> false);
+        m_greedy.generateSetpoint(prevSetpoint, target(desiredState, bx, by, bo, m_target), result);
+    }
+
+    ///////////////////////////////////////////////////////
+
+    private void fallback(SwerveSetpoint prevSetpoint, ChassisSpeeds desiredState, SwerveSetpoint result) {
+        m_offset[0] = 0;
+        m_offset[1] = 0;
+        m_offset[2] = 0;
+        m_log_rollouts.log(() -> 0);
+        m_log_fallback.log(() -> true);
+        m_greedy.generateSetpoint(prevSetpoint, desiredState, result);
+    }
+
+    /**
+     * Run the greedy generator over the horizon, aiming at the offset target for
+     * the first half, and return the summed squared velocity error, or infinity
+     * if the deadline passes first.
+     */
+    private double rollout(
+            SwerveSetpoint prevSetpoint,
+            ChassisSpeeds desiredState,
+            double ox,
+            double oy,
+            double oo,
+            SwerveDriveKinematics100 kinematics,
+            SwerveModuleHeadings headings,
+            long deadline) {
+        m_rollouts++;
+        ChassisSpeeds target = target(desiredState, ox, oy, oo, m_target);
+        int switchTick = (m_horizon + 1) / 2;
+        double cost = 0;
+        SwerveSetpoint setpoint = prevSetpoint;
+        for (int k = 0; k < m_horizon; ++k) {
+            if (System.nanoTime() >= deadline) {
+                cost = Double.POSITIVE_INFINITY;
+                break;
+            }
+            SwerveSetpoint next = m_setpoints[k % 2];
+            m_rollout.generateSetpoint(setpoint, k < switchTick ? target : desiredState, next);
+            setpoint = next;
+            ChassisSpeeds speeds = setpoint.getChassisSpeeds();
+            double ex = speeds.vxMetersPerSecond - desiredState.vxMetersPerSecond;
+            double ey = speeds.vyMetersPerSecond - desiredState.vyMetersPerSecond;
+            double eo = m_radiusM * (speeds.omegaRadiansPerSecond - desiredState.omegaRadiansPerSecond);
+            cost += ex * ex + ey * ey + eo * eo;
+        }
+        kinematics.resetHeadings(headings);
+        return cost;
+    }
+
+    /** The goal plus the offset, written into out. */
+    private static ChassisSpeeds target(
+            ChassisSpeeds desiredState,
+            double ox,
+            double oy,
+            double oo,
+            ChassisSpeeds out) {
+        if (ox == 0 && oy == 0 && oo == 0)
+            return desiredState;
+        out.vxMetersPerSecond = desiredState.vxMetersPerSecond + ox;
+        out.vyMetersPerSecond = desiredState.vyMetersPerSecond + oy;
+        out.omegaRadiansPerSecond = desiredState.omegaRadiansPerSecond + oo;
+        return out;
+    }
+
+    private static boolean isZero(double[] x) {
+        return x[0] == 0 && x[1] == 0 && x[2] == 0;
+    }
+}
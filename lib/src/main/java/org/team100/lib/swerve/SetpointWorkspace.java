@@ -0,0 +1,91 @@
+package org.team100.lib.swerve;
+
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Per-module scratch arrays for the setpoint generator, allocated once and
+ * overwritten every cycle.
+ *
+ * Headings are in radians, with NaN meaning "unknown," i.e. the module state
+ * has no angle.
+ *
+ * Not thread-safe; each generator has its own.
+ */
+class SetpointWorkspace {
+    static final int kModules = 4;
+
+    final double[] prevVx = new double[kModules];
+    final double[] prevVy = new double[kModules];
+    final double[] prevHeadingRad = new double[kModules];
+    final double[] desiredVx = new double[kModules];
+    final double[] desiredVy = new double[kModules];
+    final double[] desiredHeadingRad = new double[kModules];
+    /** Steering overrides, nullable entries. */
+    final Rotation2d[] overrideSteering = new Rotation2d[kModules];
+    /** Inverse kinematics of the desired speeds. */
+    final SwerveModuleStates desiredStates = new SwerveModuleStates(
+            new SwerveModuleState100(),
+            new SwerveModuleState100(),
+            new SwerveModuleState100(),
+            new SwerveModuleState100());
+    /**
+     * The previous headings at zero speed, for stop-and-reverse. This is separate
+     * from desiredStates so that the inverse kinematics can keep reusing its
+     * angles.
+     */
+    final SwerveModuleStates stoppedStates = new SwerveModuleStates(
+            new SwerveModuleState100(),
+            new SwerveModuleState100(),
+            new SwerveModuleState100(),
+            new SwerveModuleState100());
+    /** The desired speeds, after desaturation. */
+    final ChassisSpeeds desiredSpeeds = new ChassisSpeeds();
+    /** The stop in stop-and-reverse. Never written. */
+    final ChassisSpeeds zero = new ChassisSpeeds();
+
+    /** Fill the arrays from the module states, and clear the overrides. */
+    void load(SwerveModuleStates prev, SwerveModuleStates desired) {
+        load(prev.frontLeft(), desired.frontLeft(), 0);
+        load(prev.frontRight(), desired.frontRight(), 1);
+        load(prev.rearLeft(), desired.rearLeft(), 2);
+        load(prev.rearRight(), desired.rearRight(), 3);
+    }
+
+    private void load(SwerveModuleState100 prev, SwerveModuleState100 desired, int i) {
+        prevVx[i] = vx(prev);
+        prevVy[i] = vy(prev);
+        prevHeadingRad[i] = heading(prev);
+        desiredVx[i] = vx(desired);
+        desiredVy[i] = vy(desired);
+        desiredHeadingRad[i] = heading(desired);
+        overrideSteering[i] = null;
+    }
+
+    private static double vx(SwerveModuleState100 state) {
+        if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty())
+            return 0;
+        return state.angle.get().getCos() * state.speedMetersPerSecond;
+    }
+
+    private static double vy(SwerveModuleState100 state) {
+        if (Math.abs(state.speedMetersPerSecond) < 1e-6 || state.angle.isEmpty())
+            return 0;
+        return state.angle.get().getSin() * state.speedMetersPerSecond;
+    }
+
+    /** Which way the module is actually going, taking speed polarity into account. */
+    private static double heading(SwerveModuleState100 state) {
+        if (state.angle.isEmpty())
+            return Double.NaN;
+        Rotation2d angle = state.angle.get();
+        if (state.speedMetersPerSecond < 0.0) {
+            // flipped
+            return Math.atan2(-angle.getSin(), -angle.getCos());
+        }
+        return angle.getRadians();
+    }
+}
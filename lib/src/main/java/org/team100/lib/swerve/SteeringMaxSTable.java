@@ -0,0 +1,148 @@
+package org.team100.lib.swerve;
+
+import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+
+/**
+ * Precomputed steering limit, for a given SwerveKinodynamics.
+ *
+ * The steering max s is the same as SwerveUtil.findSteeringMaxS(), which
+ * depends only on the desired module velocity relative to the previous one,
+ * since angle is invariant to rotation and scaling. So rotate and scale the
+ * desired velocity so that the previous one is (1, 0), use symmetry to make
+ * the y component positive, and squash both components into a finite range.
+ * The result is a function of two variables, tabulated once, with bilinear
+ * lookup.
+ *
+ * Near a reversal, the steering angle changes quickly, so interpolation is
+ * bad. The table checks each cell against the exact solver when it's built,
+ * and cells that aren't accurate to the tolerance, and queries outside the
+ * table, return NaN, so the caller should use the exact solver.
+ *
+ * Building the table takes a few tens of milliseconds, so do it at startup.
+ */
+public class SteeringMaxSTable {
+    private static final int kDefaultResolution = 128;
+    private static final double kDefaultTolerance = 0.01;
+    /** Desired speeds more than this multiple of the previous use the solver. */
+    private static final double kMaxRatio = 20;
+    /** Same as the workspace: below this, the velocity has no direction. */
+    private static final double kMinSpeedM_S = 1e-6;
+    /** Same as the limiter. */
+    private static final int kMaxIterations = 10;
+    /** Points within each cell to check, as fractions of the cell. */
+    private static final double[][] kChecks = {
+            { 0.5, 0.5 }, { 0.5, 0 }, { 0, 0.5 }, { 1, 0.5 }, { 0.5, 1 },
+            { 0.25, 0.25 }, { 0.75, 0.75 }, { 0.25, 0.75 }, { 0.75, 0.25 } };
+
+    private final double m_maxDeviationRad;
+    private final int m_n;
+    /** Squashed range of each axis. */
+    private final double m_range;
+    /** Node values, (n+1) x (n+1), row-major in x. */
+    private final double[] m_values;
+    /** Cells accurate to the tolerance, n x n, row-major in x. */
+    private final boolean[] m_valid;
+    private final int m_invalid;
+
+    public SteeringMaxSTable(SwerveKinodynamics limits) {
+        this(limits, kDefaultTolerance, kDefaultResolution);
+    }
+
+    /**
+     * @param limits     provides the steering rate limit
+     * @param tolerance  maximum error in s
+     * @param resolution number of cells in each dimension
+     */
+    public SteeringMaxSTable(SwerveKinodynamics limits, double tolerance, int resolution) {
+        m_maxDeviationRad = TimedRobot100.LOOP_PERIOD_S * limits.getMaxSteeringVelocityRad_S();
+        m_n = resolution;
+        m_range = kMaxRatio / (1 + kMaxRatio);
+        int nodes = m_n + 1;
+        m_values = new double[nodes * nodes];
+        for (int i = 0; i < nodes; ++i) {
+            for (int j = 0; j < nodes; ++j) {
+                m_values[i * nodes + j] = exact(i, j);
+            }
+        }
+        m_valid = new boolean[m_n * m_n];
+        int invalid = 0;
+        for (int i = 0; i < m_n; ++i) {
+            for (int j = 0; j < m_n; ++j) {
+                // be stricter than the tolerance, since the checks are only samples.
+                boolean valid = true;
+                for (double[] check : kChecks) {
+                    double error = exact(i + check[0], j + check[1])
+                            - interpolate(i, j, check[0], check[1]);
+                    if (Math.abs(error) > tolerance / 2) {
+                        valid = false;
+                        break;
+                    }
+                }
+                m_valid[i * m_n + j] = valid;
+                if (!valid)
+                    invalid++;
+            }
+        }
+        m_invalid = invalid;
+    }
+
+    /**
+     * Steering max s, or NaN if the table doesn't cover this case.
+     *
+     * @param x_0 previous vx
+     * @param y_0 previous vy
+     * @param x_1 desired vx
+     * @param y_1 desired vy
+     */
+    public double get(double x_0, double y_0, double x_1, double y_1) {
+        double p2 = x_0 * x_0 + y_0 * y_0;
+        if (p2 < kMinSpeedM_S * kMinSpeedM_S || x_1 * x_1 + y_1 * y_1 < kMinSpeedM_S * kMinSpeedM_S)
+            return Double.NaN;
+        // desired, in the frame where previous is (1, 0)
+        double a = (x_0 * x_1 + y_0 * y_1) / p2;
+        double b = Math.abs(x_0 * y_1 - y_0 * x_1) / p2;
+        double u = (a / (1 + Math.abs(a)) + m_range) * m_n / (2 * m_range);
+        double v = (b / (1 + b)) * m_n / m_range;
+        if (u < 0 || u >= m_n || v >= m_n)
+            return Double.NaN;
+        int i = (int) u;
+        int j = (int) v;
+        if (!m_valid[i * m_n + j])
+            return Double.NaN;
+        return interpolate(i, j, u - i, v - j);
+    }
+
+    /** For testing: number of cells that use the exact solver. */
+    int getInvalidCells() {
+        return m_invalid;
+    }
+
+    ////////////////////////////////////////////////
+
+    private double interpolate(int i, int j, double fi, double fj) {
+        int nodes = m_n + 1;
+        double v00 = m_values[i * nodes + j];
+        double v10 = m_values[(i + 1) * nodes + j];
+        double v01 = m_values[i * nodes + j + 1];
+        double v11 = m_values[(i + 1) * nodes + j + 1];
+        return v00 * (1 - fi) * (1 - fj)
+                + v10 * fi * (1 - fj)
+                + v01 * (1 - fi) * fj
+                + v11 * fi * fj;
+    }
+
+    /** Exact solution at fractional grid coordinates. */
+    private double exact(double u, double v) {
+        double ua = -m_range + 2 * m_range * u / m_n;
+        double ub = m_range * v / m_n;
+        // unsquash
+        double a = ua / (1 - Math.abs(ua));
+        double b = ub / (1 - ub);
+        return SwerveUtil.findSteeringMaxS(
+                1, 0, 0,
+                a, b, Math.atan2(b, a),
+                m_maxDeviationRad,
+                kMaxIterations);
+    }
+}
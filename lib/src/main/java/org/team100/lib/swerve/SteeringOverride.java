@@ -41,30 +41,30 @@ public class SteeringOverride implements Glassy {
             SwerveModuleStates desiredModuleStates,
             SwerveModuleStates prevModuleStates,
             Rotation2d[] overrideSteering) {
-        SwerveModuleState100[] desiredModuleStatesAll = desiredModuleStates.all();
-        SwerveModuleState100[] prevModuleStatesAll = prevModuleStates.all();
         // in one cycle we can go this many radians. note this assumes infinite
         // acceleration; if the steering axes are slow to accelerate, maybe change this?
         double maxThetaStepRad = TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S();
         double min_s = 1.0;
-        for (int i = 0; i < prevModuleStatesAll.length; ++i) {
-            if (Math.abs(prevModuleStatesAll[i].speedMetersPerSecond) <= kEpsilon) {
+        for (int i = 0; i < 4; ++i) {
+            SwerveModuleState100 desired = desiredModuleStates.get(i);
+            SwerveModuleState100 prev = prevModuleStates.get(i);
+            if (Math.abs(prev.speedMetersPerSecond) <= kEpsilon) {
                 // If module is stopped, we know that we will need to move straight to the final
                 // steering angle, so limit based purely on rotation in place.
-                if (Math.abs(desiredModuleStatesAll[i].speedMetersPerSecond) <= kEpsilon) {
+                if (Math.abs(desired.speedMetersPerSecond) <= kEpsilon) {
                     // Both previous and desired states are stopped.
                     // Just leave module at its current angle.
-                    if (prevModuleStatesAll[i].angle.isEmpty()) {
+                    if (prev.angle.isEmpty()) {
                         // there is no current angle, give up
                         overrideSteering[i] = null;
                         continue;
                     } else {
-                        overrideSteering[i] = prevModuleStatesAll[i].angle.get();
+                        overrideSteering[i] = prev.angle.get();
                         continue;
                     }
                 }
 
-                OptionalDouble rotationRad = rotationRad(desiredModuleStatesAll[i], prevModuleStatesAll[i]);
+                OptionalDouble rotationRad = rotationRad(desired, prev);
                 if (rotationRad.isEmpty()) {
                     overrideSteering[i] = null;
                     continue;
@@ -76,24 +76,23 @@ public class SteeringOverride implements Glassy {
                     // goal is achievable in one time step.
                     // note this angle is the *unflipped* one, which means that something downstream
                     // may decide to flip it.
-                    if (desiredModuleStatesAll[i].angle.isEmpty()) {
+                    if (desired.angle.isEmpty()) {
                         overrideSteering[i] = null;
                     } else {
-                        overrideSteering[i] = desiredModuleStatesAll[i].angle.get();
+                        overrideSteering[i] = desired.angle.get();
                     }
                 } else {
                     // goal is not achievable, so move as much as possible in one step.
                     // note this moves in the "flipped" direction if required.
                     Rotation2d oneStepOfRotation = Rotation2d
                             .fromRadians(Math.signum(rotationRad.getAsDouble()) * maxThetaStepRad);
-                    overrideSteering[i] = prevModuleStatesAll[i].angle.get().rotateBy(oneStepOfRotation);
+                    overrideSteering[i] = prev.angle.get().rotateBy(oneStepOfRotation);
                     // stop all drive motors until steering is aligned
                     min_s = 0.0;
                 }
             }
         }
-        final double s = min_s;
-        m_log_s.log(() -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
@@ -15,17 +15,29 @@ import edu.wpi.first.math.geometry.Rotation2d;
  * Takes the derivative of steering angle at the current angle, and then backs
  * out the maximum interpolant between start and goal states. Remembers the
  * minimum across all modules, since that is the active constraint.
+ * 
+ * If a table is supplied, it's used instead of the solver where it applies.
  */
 public class SteeringRateLimiter implements Glassy {
     private static final int kMaxIterations = 10;
 
     private final SwerveKinodynamics m_limits;
+    /** Nullable. */
+    private final SteeringMaxSTable m_table;
     // LOGGER
     private final DoubleLogger m_log_s;
 
     public SteeringRateLimiter(LoggerFactory parent, SwerveKinodynamics limits) {
+        this(parent, limits, null);
+    }
+
+    /**
+     * @param table nullable
+     */
+    public SteeringRateLimiter(LoggerFactory parent, SwerveKinodynamics limits, SteeringMaxSTable table) {
         LoggerFactory child = parent.child(this);
         m_limits = limits;
+        m_table = table;
         m_log_s = child.doubleLogger(Level.TRACE, "s");
     }
 
@@ -37,11 +49,33 @@ public class SteeringRateLimiter implements Glassy {
             double[] desired_vy,
             Rotation2d[] desired_heading, // nullable entries
             Rotation2d[] overrideSteering) {
+        return enforceSteeringLimit(
+                prev_vx,
+                prev_vy,
+                radians(prev_heading),
+                desired_vx,
+                desired_vy,
+                radians(desired_heading),
+                overrideSteering);
+    }
+
+    /**
+     * Same as above, with headings in radians, NaN meaning unknown. Doesn't
+     * allocate.
+     */
+    public double enforceSteeringLimit(
+            double[] prev_vx,
+            double[] prev_vy,
+            double[] prev_heading_rad,
+            double[] desired_vx,
+            double[] desired_vy,
+            double[] desired_heading_rad,
+            Rotation2d[] overrideSteering) {
 
         double min_s = 1.0;
 
         for (int i = 0; i < prev_vx.length; ++i) {
-            if (prev_heading[i] == null || desired_heading[i] == null) {
+            if (Double.isNaN(prev_heading_rad[i]) || Double.isNaN(desired_heading_rad[i])) {
                 // don't know what to do here
                 continue;
             }
@@ -49,21 +83,31 @@ public class SteeringRateLimiter implements Glassy {
                 // ignore overridden wheels
                 continue;
             }
-            double s = SwerveUtil.findSteeringMaxS(
-                    prev_vx[i],
-                    prev_vy[i],
-                    prev_heading[i].getRadians(),
-                    desired_vx[i],
-                    desired_vy[i],
-                    desired_heading[i].getRadians(),
-                    TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S(),
-                    kMaxIterations);
+            double s = m_table == null ? Double.NaN
+                    : m_table.get(prev_vx[i], prev_vy[i], desired_vx[i], desired_vy[i]);
+            if (Double.isNaN(s)) {
+                s = SwerveUtil.findSteeringMaxS(
+                        prev_vx[i],
+                        prev_vy[i],
+                        prev_heading_rad[i],
+                        desired_vx[i],
+                        desired_vy[i],
+                        desired_heading_rad[i],
+                        TimedRobot100.LOOP_PERIOD_S * m_limits.getMaxSteeringVelocityRad_S(),
+                        kMaxIterations);
+            }
 
             min_s = Math.min(min_s, s);
         }
-        double s = min_s;
-        m_log_s.log(() -> s);
+        m_log_s.log(min_s);
         return min_s;
     }
 
+    private static double[] radians(Rotation2d[] headings) {
+        double[] result = new double[headings.length];
+        for (int i = 0; i < headings.length; ++i) {
+            result[i] = headings[i] == null ? Double.NaN : headings[i].getRadians();
+        }
+        return result;
+    }
 }
@@ -0,0 +1,29 @@
+package org.team100.lib.swerve;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Produces a feasible setpoint each cycle, moving from the previous setpoint
+ * towards the desired speeds.
+ */
+public interface SwerveSetpointGenerator {
+    /**
+     * @param prevSetpoint The previous setpoint.
+     * @param desiredState The desired state of motion, such as from the driver
+     *                     sticks or a path following algorithm.
+     * @return A setpoint that satisfies the kinodynamic limits.
+     */
+    default SwerveSetpoint generateSetpoint(SwerveSetpoint prevSetpoint, ChassisSpeeds desiredState) {
+        SwerveSetpoint result = new SwerveSetpoint();
+        generateSetpoint(prevSetpoint, desiredState, result);
+        return result;
+    }
+
+    /**
+     * Same as above, overwriting result instead of allocating a new setpoint, for
+     * the main loop.
+     * 
+     * @param result overwritten. Must not be prevSetpoint.
+     */
+    void generateSetpoint(SwerveSetpoint prevSetpoint, ChassisSpeeds desiredState, SwerveSetpoint result);
+}
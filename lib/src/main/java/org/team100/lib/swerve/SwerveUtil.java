@@ -1,7 +1,5 @@
 package org.team100.lib.swerve;
 
-import java.util.function.DoubleBinaryOperator;
-
 import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
@@ -14,6 +12,9 @@ import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 
 public class SwerveUtil {
+    /** Same as Math100. */
+    private static final double kRootTolerance = 0.0001;
+
     /**
      * Check if it would be faster to go to the opposite of the goal heading (and
      * reverse drive direction).
@@ -26,6 +27,14 @@ public class SwerveUtil {
         return Math.abs(MathUtil.angleModulus(prevToGoal.getRadians())) > Math.PI / 2.0;
     }
 
+    /**
+     * Same as shouldFlip(goal.minus(prev)), without allocating: the rotation is
+     * more than 90 degrees exactly when the cosine of the difference is negative.
+     */
+    public static boolean shouldFlip(Rotation2d prev, Rotation2d goal) {
+        return goal.getCos() * prev.getCos() + goal.getSin() * prev.getSin() < 0;
+    }
+
     public static double unwrapAngle(double ref, double angle) {
         double diff = angle - ref;
         if (diff > Math.PI) {
@@ -69,10 +78,8 @@ public class SwerveUtil {
 
         double offset = f_0 + Math.signum(diff) * max_deviation;
 
-        DoubleBinaryOperator func = (x, y) -> SwerveUtil.unwrapAngle(f_0, Math.atan2(y, x)) - offset;
-
-        return Math100.findRoot(
-                func,
+        return findRoot(
+                true, f_0, offset,
                 x_0, y_0, f_0 - offset,
                 x_1, y_1, f_1 - offset,
                 max_iterations);
@@ -94,8 +101,102 @@ public class SwerveUtil {
             return 1.0;
         }
         double offset = f_0 + Math.signum(diff) * max_vel_step;
-        DoubleBinaryOperator func = (x, y) -> (Math.hypot(x, y) - offset);
-        return Math100.findRoot(func, x_0, y_0, f_0 - offset, x_1, y_1, f_1 - offset, max_iterations);
+        return findRoot(
+                false, f_0, offset,
+                x_0, y_0, f_0 - offset,
+                x_1, y_1, f_1 - offset,
+                max_iterations);
+    }
+
+    /**
+     * Same as findDriveMaxS(), but solved directly rather than iteratively.
+     *
+     * The squared speed is quadratic in s, and convex, so there's exactly one
+     * crossing of the target speed between the endpoints: the larger root when
+     * accelerating, and the smaller root when decelerating. This is exact, and
+     * cheaper than the iterative solver, but the iterative solver stops when it's
+     * close, so the results differ slightly.
+     */
+    public static double findDriveMaxSClosedForm(
+            double x_0,
+            double y_0,
+            double x_1,
+            double y_1,
+            double max_vel_step) {
+        double f_0 = Math.hypot(x_0, y_0);
+        double f_1 = Math.hypot(x_1, y_1);
+
+        double diff = f_1 - f_0;
+
+        if (Math.abs(diff) <= max_vel_step) {
+            return 1.0;
+        }
+        // since |diff| > max_vel_step, target is positive.
+        double target = f_0 + Math.signum(diff) * max_vel_step;
+        double dx = x_1 - x_0;
+        double dy = y_1 - y_0;
+        double a = dx * dx + dy * dy;
+        double b = x_0 * dx + y_0 * dy;
+        double c = f_0 * f_0 - target * target;
+        double root = Math.sqrt(Math.max(0, b * b - a * c));
+        double s = diff > 0 ? (-b + root) / a : (-b - root) / a;
+        return Math.max(0.0, Math.min(1.0, s));
+    }
+
+    /**
+     * Regula falsi, exactly as in Math100.findRoot(), but iterative, keeping the
+     * bracket in terms of s, and evaluating the steering or drive function
+     * directly rather than through a lambda, so it doesn't allocate.
+     * 
+     * @param steering true for the steering angle, false for the drive speed
+     * @param f_0      reference for unwrapping the steering angle
+     * @param offset   the function is the angle or speed minus this
+     */
+    private static double findRoot(
+            boolean steering,
+            double f_0,
+            double offset,
+            double x_lo,
+            double y_lo,
+            double f_lo,
+            double x_hi,
+            double y_hi,
+            double f_hi,
+            int max_iterations) {
+        double s_lo = 0.0;
+        double s_hi = 1.0;
+        for (int i = max_iterations; i >= 0; --i) {
+            if (Math.abs(f_lo - f_hi) <= kRootTolerance) {
+                return s_hi;
+            }
+            double s_guess = Math.max(0.0, Math.min(1.0, -f_lo / (f_hi - f_lo)));
+            double x_guess = (x_hi - x_lo) * s_guess + x_lo;
+            double y_guess = (y_hi - y_lo) * s_guess + y_lo;
+            double f_guess;
+            if (steering) {
+                f_guess = unwrapAngle(f_0, Math.atan2(y_guess, x_guess)) - offset;
+            } else {
+                f_guess = Math.hypot(x_guess, y_guess) - offset;
+            }
+            double s = s_lo + (s_hi - s_lo) * s_guess;
+            if (Math.abs(f_guess) < kRootTolerance) {
+                return s;
+            }
+            if (Math.signum(f_lo) == Math.signum(f_guess)) {
+                // lo and guess on same side of root, so use upper bracket.
+                x_lo = x_guess;
+                y_lo = y_guess;
+                f_lo = f_guess;
+                s_lo = s;
+            } else {
+                // Use lower bracket.
+                x_hi = x_guess;
+                y_hi = y_guess;
+                f_hi = f_guess;
+                s_hi = s;
+            }
+        }
+        return s_hi;
     }
 
     /**
@@ -106,12 +207,11 @@ public class SwerveUtil {
             ChassisSpeeds desiredState,
             SwerveModuleStates desiredModuleStates,
             SwerveModuleStates prevModuleStates) {
-        SwerveModuleState100[] desiredModuleStatesAll = desiredModuleStates.all();
-        SwerveModuleState100[] prevModuleStatesAll = prevModuleStates.all();
         if (GeometryUtil.isZero(desiredState)) {
-            for (int i = 0; i < prevModuleStatesAll.length; ++i) {
-                desiredModuleStatesAll[i].angle = prevModuleStatesAll[i].angle;
-                desiredModuleStatesAll[i].speedMetersPerSecond = 0.0;
+            for (int i = 0; i < 4; ++i) {
+                SwerveModuleState100 desired = desiredModuleStates.get(i);
+                desired.angle = prevModuleStates.get(i).angle;
+                desired.speedMetersPerSecond = 0.0;
             }
             return true;
         }
@@ -1,15 +1,14 @@
 package org.team100.lib.timing;
 
 import java.util.Optional;
-import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
-import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
+
+import org.team100.lib.framework.TimedRobot100;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.geometry.Pose2dWithMotion;
 import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
 import org.team100.lib.swerve.SwerveUtil;
 
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
 
 /**
  * Linear velocity limit based on spatial yaw rate and drive wheel speed limit.
@@ -18,6 +17,9 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
  * 
  * This *should* provide the same answer as the YawRateConstraint, if the
  * omega limit calculation is correct.
+ * 
+ * This uses the kinematics kernel, which doesn't touch the remembered module
+ * headings, so it's safe to evaluate from several planner threads at once.
  */
 public class SwerveDriveDynamicsConstraint implements TimingConstraint {
     private final SwerveKinodynamics m_limits;
@@ -47,12 +49,18 @@ public class SwerveDriveDynamicsConstraint implements TimingConstraint {
 
         // this is a "spatial speed," direction and rad/m
         // which is like moving 1 m/s.
-        ChassisSpeeds chassis_speeds = new ChassisSpeeds(vx, vy, vtheta);
-
-        SwerveModuleStates module_states = m_limits.toSwerveModuleStates(chassis_speeds, vtheta);
+        double[] chassis = new double[3];
+        SwerveKinodynamics.discretize(vx, vy, vtheta, vtheta, TimedRobot100.LOOP_PERIOD_S, chassis);
+        double[] modules = new double[8];
+        m_limits.getKinematics().toModuleVectors(chassis[0], chassis[1], chassis[2], modules);
         double max_vel = Double.POSITIVE_INFINITY;
-        for (SwerveModuleState100 module : module_states.all()) {
-            max_vel = Math.min(max_vel, m_limits.getMaxDriveVelocityM_S() / Math.abs(module.speedMetersPerSecond));
+        for (int i = 0; i < 4; ++i) {
+            double x = modules[2 * i];
+            double y = modules[2 * i + 1];
+            // same threshold as the module states
+            if (Math.abs(x) < 0.004 && Math.abs(y) < 0.004)
+                continue;
+            max_vel = Math.min(max_vel, m_limits.getMaxDriveVelocityM_S() / Math.hypot(x, y));
         }
         return new NonNegativeDouble(max_vel);
     }
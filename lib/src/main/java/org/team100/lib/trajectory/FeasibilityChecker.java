@@ -0,0 +1,281 @@
+package org.team100.lib.trajectory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveDriveKinematics100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.swerve.SwerveUtil;
+import org.team100.lib.timing.TimedPose;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.timing.TimingConstraint.MinMaxAcceleration;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Checks every sample of a trajectory against the timing constraints, and
+ * against the same kinodynamic limits the AsymSwerveSetpointGenerator
+ * enforces: module speed, module acceleration, steering rate, capsize
+ * acceleration, and yaw rate.
+ *
+ * The limiter checks use the module velocities implied by each sample, from
+ * the kinematics kernel, and the differences between adjacent samples, so
+ * they're independent of the control period. The limits themselves come from
+ * the same places the limiters get them.
+ *
+ * Long trajectories are checked in parallel chunks. The timing constraints are
+ * all stateless, and the kinematics kernel doesn't touch the remembered module
+ * headings, so this is safe.
+ *
+ * Use this at plan time, to reject or re-time a bad trajectory, or in tests.
+ */
+public class FeasibilityChecker {
+    /** Allowed relative excess, to ignore rounding and integration error. */
+    private static final double kRelativeTolerance = 0.01;
+    /** Allowed absolute excess, in the units of each limit. */
+    private static final double kAbsoluteTolerance = 1e-3;
+    /** Below this module speed, steering is indeterminate. */
+    private static final double kMinSpeedM_S = 0.01;
+    /** Trajectories longer than this are split into parallel chunks. */
+    private static final int kChunkSize = 256;
+    /** The kinematics kernel is for four modules. */
+    private static final int kModules = 4;
+
+    public static final String kModuleSpeed = "ModuleSpeed";
+    public static final String kModuleAccel = "DriveAccelerationLimiter";
+    public static final String kSteeringRate = "SteeringRateLimiter";
+    public static final String kCapsize = "CapsizeAccelerationLimiter";
+    public static final String kYawRate = "YawRate";
+
+    /**
+     * One constraint violation.
+     *
+     * @param index      index of the trajectory sample
+     * @param constraint name of the timing constraint class, or of the limit
+     * @param limit      in the units of the constraint
+     * @param actual     in the units of the constraint, exceeds the limit
+     */
+    public static record Violation(int index, String constraint, double limit, double actual) {
+        /** Limit minus actual, in the units of the limit, always negative. */
+        public double margin() {
+            return limit - actual;
+        }
+
+        /**
+         * Margin as a fraction of the limit, so that violations of different
+         * constraints can be compared, e.g. -0.1 means 10% over.
+         */
+        public double relativeMargin() {
+            if (limit == 0)
+                return Double.NEGATIVE_INFINITY;
+            return margin() / Math.abs(limit);
+        }
+    }
+
+    /**
+     * All the violations in a trajectory, in sample order.
+     */
+    public static record Report(int samples, List<Violation> violations) {
+        public boolean isFeasible() {
+            return violations.isEmpty();
+        }
+
+        /** The violation with the most negative margin, relative to its limit. */
+        public Optional<Violation> worst() {
+            Violation worst = null;
+            for (Violation v : violations) {
+                if (worst == null || v.relativeMargin() < worst.relativeMargin())
+                    worst = v;
+            }
+            return Optional.ofNullable(worst);
+        }
+
+        @Override
+        public String toString() {
+            if (isFeasible())
+                return String.format("feasible, %d samples", samples);
+            return String.format("%d violations in %d samples, first %s, worst %s",
+                    violations.size(), samples, violations.get(0), worst().get());
+        }
+    }
+
+    private final SwerveKinodynamics m_limits;
+    private final List<TimingConstraint> m_constraints;
+    private final SwerveDriveKinematics100 m_kinematics;
+
+    public FeasibilityChecker(SwerveKinodynamics limits, List<TimingConstraint> constraints) {
+        m_limits = limits;
+        m_constraints = constraints;
+        m_kinematics = limits.getKinematics();
+    }
+
+    public Report check(Trajectory100 trajectory) {
+        int n = trajectory.length();
+        if (n <= kChunkSize) {
+            return new Report(n, checkRange(trajectory, 0, n));
+        }
+        int chunks = (n + kChunkSize - 1) / kChunkSize;
+        // ordered stream, so the concatenation is in sample order.
+        List<List<Violation>> results = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(c -> checkRange(trajectory, c * kChunkSize, Math.min(n, (c + 1) * kChunkSize)))
+                .toList();
+        List<Violation> violations = new ArrayList<>();
+        for (List<Violation> r : results) {
+            violations.addAll(r);
+        }
+        return new Report(n, violations);
+    }
+
+    ///////////////////////////////////////////////////////////
+
+    /** Check samples [from, to). */
+    private List<Violation> checkRange(Trajectory100 trajectory, int from, int to) {
+        List<Violation> violations = new ArrayList<>();
+        // [vx0; vy0; vx1; vy1; ...], robot-relative
+        double[] prevModules = new double[2 * kModules];
+        double[] modules = new double[2 * kModules];
+        double[] v = new double[3];
+        TimedPose prev = null;
+        double prevFieldVx = 0;
+        double prevFieldVy = 0;
+        if (from > 0) {
+            prev = trajectory.getPoint(from - 1).state();
+            fieldVelocity(prev, v);
+            prevFieldVx = v[0];
+            prevFieldVy = v[1];
+            moduleVelocities(prev, v, prevModules);
+        }
+        for (int i = from; i < to; ++i) {
+            TimedPose state = trajectory.getPoint(i).state();
+            checkTiming(violations, i, state);
+
+            fieldVelocity(state, v);
+            moduleVelocities(state, v, modules);
+
+            check(violations, i, kYawRate, m_limits.getMaxAngleSpeedRad_S(), Math.abs(v[2]));
+            double maxSpeed = 0;
+            for (int j = 0; j < kModules; ++j) {
+                maxSpeed = Math.max(maxSpeed, Math.hypot(modules[2 * j], modules[2 * j + 1]));
+            }
+            check(violations, i, kModuleSpeed, m_limits.getMaxDriveVelocityM_S(), maxSpeed);
+
+            if (prev != null) {
+                double dt = state.getTimeS() - prev.getTimeS();
+                if (dt > 1e-9) {
+                    checkTransition(violations, i, dt, prevModules, modules);
+                    double dv = Math.hypot(v[0] - prevFieldVx, v[1] - prevFieldVy);
+                    check(violations, i, kCapsize, m_limits.getMaxCapsizeAccelM_S2(), dv / dt);
+                }
+            }
+
+            prev = state;
+            prevFieldVx = v[0];
+            prevFieldVy = v[1];
+            System.arraycopy(modules, 0, prevModules, 0, modules.length);
+        }
+        return violations;
+    }
+
+    private void checkTiming(List<Violation> violations, int i, TimedPose state) {
+        double velocity = state.velocityM_S();
+        double accel = state.acceleration();
+        for (TimingConstraint c : m_constraints) {
+            String name = c.getClass().getSimpleName();
+            check(violations, i, name, c.getMaxVelocity(state.state()).getValue(), velocity);
+            MinMaxAcceleration minMax = c.getMinMaxAcceleration(state.state(), velocity);
+            check(violations, i, name, minMax.getMaxAccel(), accel);
+            check(violations, i, name, -minMax.getMinAccel(), -accel);
+        }
+    }
+
+    /**
+     * Module acceleration and steering rate between adjacent samples, using the
+     * same limits as the DriveAccelerationLimiter and the SteeringRateLimiter.
+     * Reports the worst module for each.
+     */
+    private void checkTransition(
+            List<Violation> violations,
+            int i,
+            double dt,
+            double[] prevModules,
+            double[] modules) {
+        Violation worstAccel = null;
+        Violation worstSteering = null;
+        double maxSteeringRate = m_limits.getMaxSteeringVelocityRad_S();
+        for (int j = 0; j < kModules; ++j) {
+            double prevVx = prevModules[2 * j];
+            double prevVy = prevModules[2 * j + 1];
+            double vx = modules[2 * j];
+            double vy = modules[2 * j + 1];
+            double prevSpeed = Math.hypot(prevVx, prevVy);
+            double speed = Math.hypot(vx, vy);
+            double accelLimit = SwerveUtil.getAccelLimit(m_limits, prevVx, prevVy, vx, vy);
+            worstAccel = worse(worstAccel,
+                    violation(i, kModuleAccel, accelLimit, Math.abs(speed - prevSpeed) / dt));
+            if (prevSpeed > kMinSpeedM_S && speed > kMinSpeedM_S) {
+                double prevHeading = Math.atan2(prevVy, prevVx);
+                double turn = Math.abs(SwerveUtil.unwrapAngle(prevHeading, Math.atan2(vy, vx)) - prevHeading);
+                // the module can flip instead of turning more than 90 degrees.
+                if (turn > Math.PI / 2)
+                    turn = Math.PI - turn;
+                worstSteering = worse(worstSteering,
+                        violation(i, kSteeringRate, maxSteeringRate, turn / dt));
+            }
+        }
+        if (worstAccel != null)
+            violations.add(worstAccel);
+        if (worstSteering != null)
+            violations.add(worstSteering);
+    }
+
+    /** Nullable; the one with the more negative relative margin. */
+    private static Violation worse(Violation a, Violation b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        return b.relativeMargin() < a.relativeMargin() ? b : a;
+    }
+
+    /** Add a violation if actual exceeds limit, beyond tolerance. */
+    private static void check(List<Violation> violations, int i, String name, double limit, double actual) {
+        Violation v = violation(i, name, limit, actual);
+        if (v != null)
+            violations.add(v);
+    }
+
+    /** A violation if actual exceeds the limit by more than the tolerance, or null. */
+    private static Violation violation(int i, String name, double limit, double actual) {
+        if (actual <= limit + Math.abs(limit) * kRelativeTolerance + kAbsoluteTolerance)
+            return null;
+        return new Violation(i, name, limit, actual);
+    }
+
+    /** Field-relative [vx, vy, omega], same as SwerveState.fromTimedPose(). */
+    private static void fieldVelocity(TimedPose state, double[] out) {
+        double velocityM_S = state.velocityM_S();
+        Optional<Rotation2d> course = state.state().getCourse();
+        Rotation2d direction = course.isPresent() ? course.get() : GeometryUtil.kRotationZero;
+        out[0] = direction.getCos() * velocityM_S;
+        out[1] = direction.getSin() * velocityM_S;
+        out[2] = state.state().getHeadingRate() * velocityM_S;
+    }
+
+    /**
+     * Robot-relative module velocity vectors, from the kinematics kernel, which
+     * doesn't touch the remembered module headings.
+     */
+    private void moduleVelocities(TimedPose state, double[] fieldVelocity, double[] out) {
+        Rotation2d heading = state.state().getHeading();
+        double cos = heading.getCos();
+        double sin = heading.getSin();
+        // rotate field-relative into robot-relative
+        double robotVx = cos * fieldVelocity[0] + sin * fieldVelocity[1];
+        double robotVy = -sin * fieldVelocity[0] + cos * fieldVelocity[1];
+        m_kinematics.toModuleVectors(robotVx, robotVy, fieldVelocity[2], out);
+    }
+}
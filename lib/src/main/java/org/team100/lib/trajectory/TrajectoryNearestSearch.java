@@ -0,0 +1,240 @@
+package org.team100.lib.trajectory;
+
+import org.team100.lib.geometry.GeometryUtil;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * Finds the point on a trajectory nearest to a pose, e.g. for pure pursuit.
+ *
+ * Most of the time the robot is near where it was last time, so the search
+ * covers a small window of samples around the previous result, sliding forward
+ * while the nearest sample is at the leading edge. If the nearest sample in
+ * the window is far away, e.g. the robot was bumped off the path, the search
+ * falls back to a grid over the whole trajectory.
+ *
+ * Samples are compared using the constant-twist distance, so heading matters,
+ * e.g. when turning in place. The result is refined by projecting onto the
+ * adjacent segments.
+ *
+ * This remembers the last result, so use one instance per follower.
+ */
+public class TrajectoryNearestSearch {
+    /** Window size, in samples. */
+    private static final int kBehind = 5;
+    private static final int kAhead = 25;
+    /** If the nearest sample in the window is farther than this, use the grid. */
+    private static final double kOffPathM = 0.25;
+    private static final double kCellM = 0.5;
+
+    private final Pose2d[] m_poses;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_t;
+
+    // Grid of sample indices, sorted by cell.
+    private final double m_minX;
+    private final double m_minY;
+    private final int m_nx;
+    private final int m_ny;
+    /** Index into m_cellItems of the first sample in each cell, plus the end. */
+    private final int[] m_cellStart;
+    private final int[] m_cellItems;
+
+    private int m_index;
+    private int m_fallbacks;
+
+    public TrajectoryNearestSearch(Trajectory100 trajectory) {
+        int n = trajectory.length();
+        if (n == 0)
+            throw new IllegalArgumentException("empty trajectory");
+        m_poses = new Pose2d[n];
+        m_x = new double[n];
+        m_y = new double[n];
+        m_t = new double[n];
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; ++i) {
+            TrajectoryPoint p = trajectory.getPoint(i);
+            m_poses[i] = p.state().state().getPose();
+            m_x[i] = m_poses[i].getX();
+            m_y[i] = m_poses[i].getY();
+            m_t[i] = p.state().getTimeS();
+            minX = Math.min(minX, m_x[i]);
+            minY = Math.min(minY, m_y[i]);
+            maxX = Math.max(maxX, m_x[i]);
+            maxY = Math.max(maxY, m_y[i]);
+        }
+        m_minX = minX;
+        m_minY = minY;
+        m_nx = (int) ((maxX - minX) / kCellM) + 1;
+        m_ny = (int) ((maxY - minY) / kCellM) + 1;
+
+        // counting sort of samples by cell
+        m_cellStart = new int[m_nx * m_ny + 1];
+        m_cellItems = new int[n];
+        int[] cells = new int[n];
+        for (int i = 0; i < n; ++i) {
+            cells[i] = cellX(m_x[i]) * m_ny + cellY(m_y[i]);
+            m_cellStart[cells[i] + 1]++;
+        }
+        for (int c = 0; c < m_nx * m_ny; ++c) {
+            m_cellStart[c + 1] += m_cellStart[c];
+        }
+        int[] fill = new int[m_nx * m_ny];
+        for (int i = 0; i < n; ++i) {
+            m_cellItems[m_cellStart[cells[i]] + fill[cells[i]]++] = i;
+        }
+    }
+
+    /**
+     * Time of the point on the trajectory nearest to the pose, searching near the
+     * previous result.
+     *
+     * @param pose measured pose
+     * @return trajectory time in seconds
+     */
+    public double nearestTimeS(Pose2d pose) {
+        int best = searchWindow(pose, m_index);
+        if (translationDistance(pose, best) > kOffPathM) {
+            m_fallbacks++;
+            int candidate = searchGrid(pose.getX(), pose.getY());
+            int rebest = searchWindow(pose, candidate);
+            if (GeometryUtil.distance(pose, m_poses[rebest]) < GeometryUtil.distance(pose, m_poses[best]))
+                best = rebest;
+        }
+        m_index = best;
+        return refine(pose, best);
+    }
+
+    /** Index of the sample nearest the last pose. */
+    public int getIndex() {
+        return m_index;
+    }
+
+    /** For testing: how many times the window search missed. */
+    int getFallbacks() {
+        return m_fallbacks;
+    }
+
+    ////////////////////////////////////////////////////////////
+
+    /** Nearest sample near the center, sliding forward if necessary. */
+    private int searchWindow(Pose2d pose, int center) {
+        int n = m_poses.length;
+        int lo = Math.max(0, center - kBehind);
+        int hi = Math.min(n - 1, center + kAhead);
+        int best = lo;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        while (true) {
+            for (int i = lo; i <= hi; ++i) {
+                double d = GeometryUtil.distance(pose, m_poses[i]);
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = i;
+                }
+            }
+            if (best < hi || hi == n - 1)
+                return best;
+            // still getting closer at the leading edge, so keep going.
+            lo = hi + 1;
+            hi = Math.min(n - 1, hi + kAhead);
+        }
+    }
+
+    /**
+     * Sample with the nearest translation, searching rings of cells outward from
+     * the query cell.
+     */
+    private int searchGrid(double x, double y) {
+        int cx = cellX(x);
+        int cy = cellY(y);
+        if (x < m_minX || y < m_minY || cx >= m_nx || cy >= m_ny) {
+            // outside the grid, which is unusual, so just look at everything.
+            return searchAll(x, y);
+        }
+        int best = -1;
+        double bestD2 = Double.POSITIVE_INFINITY;
+        int maxRing = Math.max(m_nx, m_ny);
+        for (int r = 0; r <= maxRing; ++r) {
+            for (int ix = Math.max(0, cx - r); ix <= Math.min(m_nx - 1, cx + r); ++ix) {
+                for (int iy = Math.max(0, cy - r); iy <= Math.min(m_ny - 1, cy + r); ++iy) {
+                    if (Math.max(Math.abs(ix - cx), Math.abs(iy - cy)) != r)
+                        continue;
+                    int cell = ix * m_ny + iy;
+                    for (int k = m_cellStart[cell]; k < m_cellStart[cell + 1]; ++k) {
+                        int i = m_cellItems[k];
+                        double d2 = distance2(x, y, i);
+                        // ties go to the earlier sample
+                        if (d2 < bestD2 || (d2 == bestD2 && i < best)) {
+                            bestD2 = d2;
+                            best = i;
+                        }
+                    }
+                }
+            }
+            // unsearched cells are at least r cells away.
+            if (best >= 0 && Math.sqrt(bestD2) <= r * kCellM)
+                break;
+        }
+        return best;
+    }
+
+    private int searchAll(double x, double y) {
+        int best = 0;
+        double bestD2 = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < m_poses.length; ++i) {
+            double d2 = distance2(x, y, i);
+            if (d2 < bestD2) {
+                bestD2 = d2;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /** Project onto the nearer of the segments adjacent to sample k. */
+    private double refine(Pose2d pose, int k) {
+        double bestTime = m_t[k];
+        double bestD2 = distance2(pose.getX(), pose.getY(), k);
+        for (int a = Math.max(0, k - 1); a < Math.min(m_poses.length - 1, k + 1); ++a) {
+            int b = a + 1;
+            double dx = m_x[b] - m_x[a];
+            double dy = m_y[b] - m_y[a];
+            double len2 = dx * dx + dy * dy;
+            if (len2 < 1e-12)
+                continue;
+            double s = MathUtil.clamp(
+                    ((pose.getX() - m_x[a]) * dx + (pose.getY() - m_y[a]) * dy) / len2, 0, 1);
+            double ex = m_x[a] + s * dx - pose.getX();
+            double ey = m_y[a] + s * dy - pose.getY();
+            double d2 = ex * ex + ey * ey;
+            if (d2 < bestD2) {
+                bestD2 = d2;
+                bestTime = m_t[a] + s * (m_t[b] - m_t[a]);
+            }
+        }
+        return bestTime;
+    }
+
+    private double translationDistance(Pose2d pose, int i) {
+        return Math.sqrt(distance2(pose.getX(), pose.getY(), i));
+    }
+
+    private double distance2(double x, double y, int i) {
+        double dx = m_x[i] - x;
+        double dy = m_y[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private int cellX(double x) {
+        return (int) ((x - m_minX) / kCellM);
+    }
+
+    private int cellY(double y) {
+        return (int) ((y - m_minY) / kCellM);
+    }
+}
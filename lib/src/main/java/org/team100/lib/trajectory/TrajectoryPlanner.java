@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.team100.lib.path.Path100;
 import org.team100.lib.path.PathDistanceSampler;
+import org.team100.lib.spline.SplineOptimizer;
 import org.team100.lib.timing.TimingConstraint;
 import org.team100.lib.timing.TimingUtil;
 import org.team100.lib.util.Util;
@@ -41,10 +42,32 @@ public class TrajectoryPlanner {
             List<TimingConstraint> constraints,
             double start_vel,
             double end_vel) {
+        return generateTrajectory(
+                null,
+                waypoints,
+                headings,
+                constraints,
+                start_vel,
+                end_vel);
+    }
+
+    /**
+     * Use a long-lived optimizer to warm-start repeated planning, e.g. re-planning
+     * to a moving target.
+     * 
+     * @param optimizer nullable, meaning HolonomicSpline.optimizeSpline()
+     */
+    public static Trajectory100 generateTrajectory(
+            SplineOptimizer optimizer,
+            List<Pose2d> waypoints,
+            List<Rotation2d> headings,
+            List<TimingConstraint> constraints,
+            double start_vel,
+            double end_vel) {
         try {
             // Create a path from splines.
             Path100 path = TrajectoryUtil100.trajectoryFromWaypointsAndHeadings(
-                    waypoints, headings, kMaxDx, kMaxDy, kMaxDTheta);
+                    optimizer, waypoints, headings, kMaxDx, kMaxDy, kMaxDTheta);
             // Generate the timed trajectory.
             var view = new PathDistanceSampler(path);
             TimingUtil u = new TimingUtil(constraints);
@@ -0,0 +1,293 @@
+package org.team100.lib.trajectory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.team100.lib.dashboard.Glassy;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.LoggerFactory.BooleanLogger;
+import org.team100.lib.logging.LoggerFactory.DoubleLogger;
+import org.team100.lib.logging.LoggerFactory.IntLogger;
+import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.spline.SplineOptimizer;
+import org.team100.lib.timing.TimedPose;
+import org.team100.lib.timing.TimingConstraint;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Re-plans a trajectory to a moving goal, asynchronously, at a bounded rate.
+ *
+ * Each new plan starts from a "splice point" a little bit in the future: the
+ * state the robot is expected to reach, on the trajectory it's currently
+ * following, by the time the new plan is ready. The new plan starts at that
+ * state, with the same course and speed, so switching to it doesn't produce a
+ * velocity discontinuity.
+ *
+ * Planning happens on a single low-priority thread, so the main loop cost is
+ * just sampling the current trajectory and checking for a result. A plan that
+ * is ready early is held until its splice time; a plan that arrives too long
+ * after its splice time is discarded, since the robot has moved on.
+ *
+ * The lead time is adapted to the observed planning time.
+ *
+ * Use it like this, every loop:
+ *
+ * <pre>
+ * replanner.update(now, measurement, goal);
+ * replanner.poll(now).ifPresent(follower::setTrajectory);
+ * </pre>
+ *
+ * DriveToNoteWithTrajectory uses it to chase a note.
+ */
+public class TrajectoryReplanner implements Glassy {
+    /** Don't replan if the goal moved less than this. */
+    private static final double kMinGoalMoveM = 0.05;
+    /** Below this speed, the course is the direction to the goal. */
+    private static final double kMinSpeedM_S = 0.01;
+    private static final double kMinLeadS = 0.02;
+    private static final double kMaxLeadS = 0.2;
+    /** Plans arriving later than this after the splice time are discarded. */
+    private static final double kMaxLateS = 0.02;
+    /** Smoothing for the planning-time estimate. */
+    private static final double kAlpha = 0.2;
+
+    private final List<TimingConstraint> m_constraints;
+    private final double m_periodS;
+    private final Executor m_executor;
+    /** Warm starts are the point, so this is used only by the planning thread. */
+    private final SplineOptimizer m_optimizer;
+
+    // LOGGERS
+    private final DoubleLogger m_log_plan_time;
+    private final DoubleLogger m_log_lead;
+    private final IntLogger m_log_replans;
+    private final BooleanLogger m_log_discarded;
+
+    /** Main-thread state. */
+    private TrajectoryTimeIterator m_current;
+    private Translation2d m_plannedGoal;
+    private double m_lastRequestS;
+    private int m_replans;
+    /** Written by the planner thread. */
+    private double m_planTimeS;
+    private double m_lastPlanS;
+    private Plan m_pending;
+
+    /** A plan in progress, along with the time it should start. */
+    private static class Plan {
+        private final double m_spliceS;
+        private final CompletableFuture<Trajectory100> m_future;
+
+        private Plan(double spliceS, CompletableFuture<Trajectory100> future) {
+            m_spliceS = spliceS;
+            m_future = future;
+        }
+    }
+
+    /**
+     * @param constraints for the new trajectories
+     * @param periodS     minimum time between plans
+     */
+    public TrajectoryReplanner(
+            LoggerFactory parent,
+            List<TimingConstraint> constraints,
+            double periodS) {
+        this(parent, constraints, periodS, Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            thread.setDaemon(true);
+            thread.setName("Trajectory Replanner");
+            return thread;
+        }));
+    }
+
+    /** For testing, e.g. with a synchronous executor. */
+    TrajectoryReplanner(
+            LoggerFactory parent,
+            List<TimingConstraint> constraints,
+            double periodS,
+            Executor executor) {
+        LoggerFactory child = parent.child(this);
+        m_log_plan_time = child.doubleLogger(Level.TRACE, "plan time (s)");
+        m_log_lead = child.doubleLogger(Level.TRACE, "lead (s)");
+        m_log_replans = child.intLogger(Level.TRACE, "replans");
+        m_log_discarded = child.booleanLogger(Level.TRACE, "discarded");
+        m_constraints = constraints;
+        m_periodS = periodS;
+        m_executor = executor;
+        m_optimizer = new SplineOptimizer();
+        m_lastRequestS = Double.NEGATIVE_INFINITY;
+        m_planTimeS = kMinLeadS;
+    }
+
+    /**
+     * Start a new plan if the goal has moved, if the last one was long enough ago,
+     * and if there's not one already running. Returns immediately.
+     *
+     * @param nowS        current time, e.g. Timer.getFPGATimestamp()
+     * @param measurement current state, used to start the first plan
+     * @param goal        destination, arriving at rest
+     */
+    public void update(double nowS, SwerveState measurement, Pose2d goal) {
+        if (m_pending != null)
+            return;
+        if (nowS - m_lastRequestS < m_periodS)
+            return;
+        if (m_plannedGoal != null && m_plannedGoal.getDistance(goal.getTranslation()) < kMinGoalMoveM)
+            return;
+
+        double leadS = lead();
+        m_log_lead.log(() -> leadS);
+
+        // the splice point is where we expect to be when the plan is ready.
+        Translation2d start;
+        Rotation2d heading;
+        Optional<Rotation2d> course;
+        double speed;
+        Optional<TimedPose> splice = splice(leadS);
+        if (splice.isPresent()) {
+            TimedPose p = splice.get();
+            start = p.state().getTranslation();
+            heading = p.state().getHeading();
+            course = p.state().getCourse();
+            speed = p.velocityM_S();
+        } else {
+            // not following anything, so extrapolate the measurement.
+            start = measurement.translation().plus(new Translation2d(
+                    measurement.velocity().x() * leadS,
+                    measurement.velocity().y() * leadS));
+            heading = measurement.pose().getRotation();
+            speed = measurement.velocity().norm();
+            course = speed < kMinSpeedM_S ? Optional.empty() : measurement.velocity().angle();
+        }
+        Translation2d toGoal = goal.getTranslation().minus(start);
+        if (toGoal.getNorm() < kMinGoalMoveM) {
+            // already there
+            return;
+        }
+        if (speed < kMinSpeedM_S || course.isEmpty()) {
+            speed = 0;
+            course = Optional.of(toGoal.getAngle());
+        }
+        List<Pose2d> waypoints = List.of(
+                new Pose2d(start, course.get()),
+                new Pose2d(goal.getTranslation(), toGoal.getAngle()));
+        List<Rotation2d> headings = List.of(heading, goal.getRotation());
+        double startSpeed = speed;
+
+        m_lastRequestS = nowS;
+        m_plannedGoal = goal.getTranslation();
+        m_pending = new Plan(nowS + leadS, CompletableFuture.supplyAsync(
+                () -> plan(waypoints, headings, startSpeed), m_executor));
+    }
+
+    /**
+     * If a new plan is ready, and its splice time has come, return an iterator
+     * positioned at the current time, and remember it as the trajectory being
+     * followed. Otherwise empty.
+     *
+     * A plan that's ready early is held until its splice time, since its start is
+     * the state expected at that time, not now.
+     *
+     * @param nowS current time, e.g. Timer.getFPGATimestamp()
+     */
+    public Optional<TrajectoryTimeIterator> poll(double nowS) {
+        if (m_pending == null || !m_pending.m_future.isDone())
+            return Optional.empty();
+        Plan plan = m_pending;
+        if (plan.m_future.isCompletedExceptionally()) {
+            // planning failed; keep following the old one.
+            m_pending = null;
+            m_plannedGoal = null;
+            return Optional.empty();
+        }
+        Trajectory100 trajectory = plan.m_future.join();
+        if (trajectory == null || trajectory.isEmpty()) {
+            // planning failed, e.g. u-turn; keep following the old one.
+            m_pending = null;
+            m_plannedGoal = null;
+            return Optional.empty();
+        }
+        double lateS = nowS - plan.m_spliceS;
+        if (lateS < 0) {
+            // too early, the current trajectory hasn't reached the splice point.
+            return Optional.empty();
+        }
+        m_pending = null;
+        m_log_plan_time.log(this::lastPlanS);
+        if (lateS > kMaxLateS && m_current != null) {
+            // too late to splice smoothly, try again.
+            m_log_discarded.log(() -> true);
+            m_plannedGoal = null;
+            return Optional.empty();
+        }
+        m_log_discarded.log(() -> false);
+        TrajectoryTimeIterator iter = new TrajectoryTimeIterator(new TrajectoryTimeSampler(trajectory));
+        if (lateS > 0)
+            iter.advance(lateS);
+        m_current = iter;
+        m_replans++;
+        m_log_replans.log(() -> m_replans);
+        return Optional.of(iter);
+    }
+
+    /**
+     * Report progress along the current trajectory, so the next splice point is
+     * right. The follower advances its own iterator, which is the one returned by
+     * poll(), so this is only needed if the caller substitutes a different
+     * trajectory.
+     */
+    public void setCurrent(TrajectoryTimeIterator current) {
+        m_current = current;
+    }
+
+    /** Forget the current trajectory and goal, e.g. when the command ends. */
+    public void reset() {
+        m_current = null;
+        m_plannedGoal = null;
+        m_pending = null;
+        m_lastRequestS = Double.NEGATIVE_INFINITY;
+    }
+
+    ////////////////////////////////////////////////////////////
+
+    /** Runs on the planner thread. */
+    private Trajectory100 plan(List<Pose2d> waypoints, List<Rotation2d> headings, double startSpeed) {
+        long startNs = System.nanoTime();
+        Trajectory100 result = TrajectoryPlanner.generateTrajectory(
+                m_optimizer, waypoints, headings, m_constraints, startSpeed, 0.0);
+        double planS = (System.nanoTime() - startNs) / 1e9;
+        synchronized (this) {
+            m_lastPlanS = planS;
+            m_planTimeS = (1 - kAlpha) * m_planTimeS + kAlpha * planS;
+        }
+        return result;
+    }
+
+    private synchronized double lastPlanS() {
+        return m_lastPlanS;
+    }
+
+    /** Lead time: a bit more than the typical planning time. */
+    synchronized double lead() {
+        return MathUtil.clamp(1.5 * m_planTimeS, kMinLeadS, kMaxLeadS);
+    }
+
+    /** State on the current trajectory after leadS. */
+    private Optional<TimedPose> splice(double leadS) {
+        if (m_current == null || m_current.isDone())
+            return Optional.empty();
+        Optional<TrajectorySamplePoint> sample = m_current.preview(leadS);
+        if (sample.isEmpty())
+            return Optional.empty();
+        return Optional.of(sample.get().state());
+    }
+}
@@ -43,21 +43,29 @@ public class TrajectoryTimeSampler {
             TrajectoryPoint point = m_trajectory.getPoint(0);
             return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
         }
-        for (int i = 1; i < m_trajectory.length(); ++i) {
-            final TrajectoryPoint point = m_trajectory.getPoint(i);
-            if (point.state().getTimeS() >= timeS) {
-                final TrajectoryPoint prev_s = m_trajectory.getPoint(i - 1);
-                if (Math.abs(point.state().getTimeS() - prev_s.state().getTimeS()) <= 1e-12) {
-                    return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
-                }
-                return Optional.of(new TrajectorySamplePoint(
-                        prev_s.state().interpolate2(point.state(),
-                                (timeS - prev_s.state().getTimeS())
-                                        / (point.state().getTimeS() - prev_s.state().getTimeS())),
-                        i - 1, i));
+        // binary search for the first point at or after the time, which is not the
+        // first point, since the ends are handled above.
+        int lo = 1;
+        int hi = m_trajectory.length() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_trajectory.getPoint(mid).state().getTimeS() >= timeS) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
             }
         }
-        return Optional.empty();
+        final int i = lo;
+        final TrajectoryPoint point = m_trajectory.getPoint(i);
+        final TrajectoryPoint prev_s = m_trajectory.getPoint(i - 1);
+        if (Math.abs(point.state().getTimeS() - prev_s.state().getTimeS()) <= 1e-12) {
+            return Optional.of(new TrajectorySamplePoint(point.state(), point.index(), point.index()));
+        }
+        return Optional.of(new TrajectorySamplePoint(
+                prev_s.state().interpolate2(point.state(),
+                        (timeS - prev_s.state().getTimeS())
+                                / (point.state().getTimeS() - prev_s.state().getTimeS())),
+                i - 1, i));
     }
 
     public Trajectory100 trajectory() {
@@ -6,6 +6,7 @@ import java.util.List;
 import org.team100.lib.path.Path100;
 import org.team100.lib.spline.HolonomicSpline;
 import org.team100.lib.spline.SplineGenerator;
+import org.team100.lib.spline.SplineOptimizer;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -18,14 +19,33 @@ public class TrajectoryUtil100 {
             double maxDx,
             double maxDy,
             double maxDTheta) {
+        return trajectoryFromWaypointsAndHeadings(
+                null, waypoints, headings, maxDx, maxDy, maxDTheta);
+    }
+
+    /**
+     * @param optimizer reuse an optimizer to warm-start repeated planning with
+     *                  similar waypoints. Nullable, meaning
+     *                  HolonomicSpline.optimizeSpline().
+     */
+    public static Path100 trajectoryFromWaypointsAndHeadings(
+            SplineOptimizer optimizer,
+            final List<Pose2d> waypoints,
+            final List<Rotation2d> headings,
+            double maxDx,
+            double maxDy,
+            double maxDTheta) {
         List<HolonomicSpline> splines = new ArrayList<>(waypoints.size() - 1);
         for (int i = 1; i < waypoints.size(); ++i) {
             splines.add(new HolonomicSpline(
                     waypoints.get(i - 1), waypoints.get(i),
                     headings.get(i - 1), headings.get(i)));
         }
-        HolonomicSpline.optimizeSpline(splines);
-        return new Path100(SplineGenerator.parameterizeSplines(splines, maxDx, maxDy, maxDTheta));
+        if (optimizer == null)
+            HolonomicSpline.optimizeSpline(splines);
+        else
+            optimizer.optimize(splines);
+        return new Path100(SplineGenerator.parameterizeSplinesParallel(splines, maxDx, maxDy, maxDTheta));
     }
 
     private TrajectoryUtil100() {
@@ -1,93 +1,251 @@
 package org.team100.lib.util;
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
 /**
  * Cache a supplier until reset().
- * 
+ *
  * The easiest way to wire up reset() is to let Robot.robotPeriodic() call
  * resetAll(). But it's also ok to call reset() on demand, if you have a reason
  * (e.g. resetting a pose, and then wanting to do some more calculation with the
  * just-reset version).
- * 
+ *
  * Note that there's little need for multiple layers of caching, if the only
  * thing in the middle of the sandwich is simple arithmetic. So if a "motor"
  * implements caching of its sensors, then the "sensor" that uses the "motor"
  * doesn't need to apply its own cache layer.
+ *
+ * Invalidation is versioned: resetAll() just increments the loop epoch, and
+ * each cache compares the epoch of its value with the current one, so
+ * resetAll() doesn't need to visit every cache.
+ *
+ * If one cache reads another while computing its value, the reader is recorded
+ * as a dependent of the one it read, so reset() of the one it read also
+ * invalidates the reader, and anything that depends on it.
+ *
+ * The plain caches are for the main thread: they don't lock, and the
+ * dependency tracking assumes one thread. For caches also read by other
+ * threads, use the "shared" versions, which lock, and don't record
+ * dependencies.
  */
 public class Memo {
-    private static final List<Runnable> resetters = new ArrayList<>();
+    /** Never equal to the loop epoch. */
+    private static final long kInvalid = -1;
+
+    private static final List<Cache> caches = new ArrayList<>();
+    private static final List<Runnable> resetActions = new ArrayList<>();
+
+    /** Incremented by resetAll(). Volatile for the shared caches. */
+    private static volatile long epoch = 0;
+    /** The cache currently computing its value, on the main thread. */
+    private static Cache computing = null;
 
     public static <T> CotemporalCache<T> of(Supplier<T> delegate) {
-        CotemporalCache<T> cache = new CotemporalCache<>(delegate);
-        resetters.add(cache::reset);
-        return cache;
+        return register(new CotemporalCache<>(name(delegate), delegate, false));
     }
 
     public static DoubleCache ofDouble(DoubleSupplier delegate) {
-        DoubleCache cache = new DoubleCache(delegate);
-        resetters.add(cache::reset);
-        return cache;
+        return register(new DoubleCache(name(delegate), delegate, false));
+    }
+
+    /** For caches read by more than one thread. */
+    public static <T> CotemporalCache<T> ofShared(Supplier<T> delegate) {
+        return register(new CotemporalCache<>(name(delegate), delegate, true));
+    }
+
+    /** For caches read by more than one thread. */
+    public static DoubleCache ofDoubleShared(DoubleSupplier delegate) {
+        return register(new DoubleCache(name(delegate), delegate, true));
+    }
+
+    /**
+     * Run the action in resetAll(), i.e. once per loop, e.g. to refresh a
+     * snapshot of something expensive to read.
+     */
+    public static void onReset(Runnable action) {
+        resetActions.add(action);
     }
 
     /**
      * This should be run in Robot.robotPeriodic().
      */
     public static void resetAll() {
-        for (Runnable r : resetters) {
+        epoch++;
+        for (Runnable r : resetActions) {
             r.run();
         }
     }
 
-    public static class CotemporalCache<T> implements Supplier<T> {
+    /** Hit and miss counts for each cache, most misses first. */
+    public static String report() {
+        List<Cache> sorted = new ArrayList<>(caches);
+        sorted.sort((a, b) -> Long.compare(b.m_misses, a.m_misses));
+        StringBuilder b = new StringBuilder();
+        for (Cache c : sorted) {
+            b.append(String.format("%-40s hits %10d misses %10d dependents %d\n",
+                    c.m_name, c.m_hits, c.m_misses, c.m_dependents.size()));
+        }
+        return b.toString();
+    }
+
+    private static <C extends Cache> C register(C cache) {
+        caches.add(cache);
+        return cache;
+    }
+
+    /** The class that made the delegate, e.g. "Talon6Motor". */
+    private static String name(Object delegate) {
+        String name = delegate.getClass().getSimpleName();
+        int lambda = name.indexOf("$$");
+        if (lambda > 0)
+            return name.substring(0, lambda);
+        return name;
+    }
+
+    /** Versioning, dependencies, and counting, common to both kinds of cache. */
+    public abstract static class Cache {
+        private final String m_name;
+        final boolean m_shared;
+        private final List<Cache> m_dependents = new ArrayList<>();
+        /** The epoch of the cached value. */
+        long m_epoch = kInvalid;
+        private long m_hits;
+        private long m_misses;
+
+        private Cache(String name, boolean shared) {
+            m_name = name;
+            m_shared = shared;
+        }
+
+        /** Invalidate this and its dependents. */
+        public void reset() {
+            if (m_shared) {
+                synchronized (this) {
+                    m_epoch = kInvalid;
+                }
+            } else {
+                m_epoch = kInvalid;
+            }
+            for (int i = 0; i < m_dependents.size(); ++i) {
+                m_dependents.get(i).reset();
+            }
+        }
+
+        public long getHits() {
+            return m_hits;
+        }
+
+        public long getMisses() {
+            return m_misses;
+        }
+
+        /**
+         * If this is read while another cache is computing, the other one
+         * depends on this.
+         */
+        void recordReader() {
+            Cache reader = computing;
+            if (reader == null || reader == this || m_dependents.contains(reader))
+                return;
+            m_dependents.add(reader);
+        }
+
+        /** True if the value is current; counts the hit or miss. */
+        boolean valid(long now) {
+            if (m_epoch == now) {
+                m_hits++;
+                return true;
+            }
+            m_misses++;
+            return false;
+        }
+
+        /** Compute, with this as the reader of any caches it reads. */
+        abstract void compute();
+
+        /** Compute on the main thread and mark current. */
+        void update(long now) {
+            Cache prev = computing;
+            computing = this;
+            try {
+                compute();
+            } finally {
+                computing = prev;
+            }
+            m_epoch = now;
+        }
+    }
+
+    public static class CotemporalCache<T> extends Cache implements Supplier<T> {
         private final Supplier<T> m_delegate;
         private T m_value;
 
-        public CotemporalCache(Supplier<T> delegate) {
+        private CotemporalCache(String name, Supplier<T> delegate, boolean shared) {
+            super(name, shared);
             m_delegate = delegate;
-            m_value = null;
         }
 
         @Override
-        public synchronized T get() {
-            // synchronized adds ~20ns.
-            if (m_value == null)
-                m_value = m_delegate.get();
-                
+        public T get() {
+            if (m_shared)
+                return getShared();
+            recordReader();
+            long now = epoch;
+            if (!valid(now))
+                update(now);
             return m_value;
         }
 
-        public synchronized void reset() {
-            // System.out.println("CotemporalCache.reset()");
-            m_value = null;
+        @Override
+        void compute() {
+            m_value = m_delegate.get();
+        }
+
+        private synchronized T getShared() {
+            long now = epoch;
+            if (!valid(now)) {
+                m_value = m_delegate.get();
+                m_epoch = now;
+            }
+            return m_value;
         }
     }
 
-    public static class DoubleCache implements DoubleSupplier {
+    public static class DoubleCache extends Cache implements DoubleSupplier {
         private final DoubleSupplier m_delegate;
         private double m_value;
-        private boolean m_valid;
 
-        public DoubleCache(DoubleSupplier delegate) {
+        private DoubleCache(String name, DoubleSupplier delegate, boolean shared) {
+            super(name, shared);
             m_delegate = delegate;
-            m_valid = false;
         }
 
         @Override
-        public synchronized double getAsDouble() {
-            // synchronized adds ~20ns.
-            if (m_valid)
-                return m_value;
-            m_value = m_delegate.getAsDouble();
-            m_valid = true;
+        public double getAsDouble() {
+            if (m_shared)
+                return getShared();
+            recordReader();
+            long now = epoch;
+            if (!valid(now))
+                update(now);
             return m_value;
         }
 
-        public synchronized void reset() {
-            m_valid = false;
+        @Override
+        void compute() {
+            m_value = m_delegate.getAsDouble();
+        }
+
+        private synchronized double getShared() {
+            long now = epoch;
+            if (!valid(now)) {
+                m_value = m_delegate.getAsDouble();
+                m_epoch = now;
+            }
+            return m_value;
         }
     }
 
@@ -4,81 +4,152 @@ import java.util.List;
 
 import org.team100.lib.logging.Level;
 import org.team100.lib.logging.LoggerFactory;
-import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
 import org.team100.lib.trajectory.Trajectory100;
 import org.team100.lib.trajectory.TrajectoryPoint;
+import org.team100.lib.visualization.VizPublisher.Channel;
+import org.team100.lib.visualization.VizPublisher.Snapshot;
 
 import com.choreo.lib.ChoreoTrajectory;
+import com.choreo.lib.ChoreoTrajectoryState;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.trajectory.Trajectory.State;
 
+/**
+ * Draws trajectories on the Glass field.
+ *
+ * The caller just posts the trajectory; packing it into an array and
+ * publishing it happens later, on the VizPublisher thread.
+ */
 public class TrajectoryVisualization {
     private static final String kTrajectory = "trajectory";
 
-    private final DoubleArrayLogger m_log_trajectory;
+    private final Channel m_channel;
 
     public TrajectoryVisualization(LoggerFactory fieldLogger) {
-        m_log_trajectory = fieldLogger.doubleArrayLogger(Level.TRACE, kTrajectory);
+        this(fieldLogger, VizPublisher.instance());
     }
 
-    public void setViz(Trajectory100 m_trajectory) {
-        m_log_trajectory.log( () -> fromTrajectory100(m_trajectory));
+    public TrajectoryVisualization(LoggerFactory fieldLogger, VizPublisher publisher) {
+        m_channel = publisher.channel(fieldLogger.doubleArrayLogger(Level.TRACE, kTrajectory));
     }
 
-    private static double[] fromTrajectory100(Trajectory100 m_trajectory) {
-        double[] arr = new double[m_trajectory.length() * 3];
-        int ndx = 0;
-        for (TrajectoryPoint p : m_trajectory.getPoints()) {
-            Pose2d pose = p.state().state().getPose();
-            arr[ndx + 0] = pose.getTranslation().getX();
-            arr[ndx + 1] = pose.getTranslation().getY();
-            arr[ndx + 2] = pose.getRotation().getDegrees();
-            ndx += 3;
-        }
-        return arr;
+    public void setViz(Trajectory100 trajectory) {
+        m_channel.post(new FromTrajectory100(trajectory));
     }
 
-    public void setViz(Trajectory m_trajectory) {
-        m_log_trajectory.log( () -> fromWPITrajectory(m_trajectory));
+    public void setViz(Trajectory trajectory) {
+        m_channel.post(new FromWPITrajectory(trajectory));
     }
 
-    private static double[] fromWPITrajectory(Trajectory m_trajectory) {
-        double[] arr = new double[m_trajectory.getStates().size() * 3];
-        int ndx = 0;
-        for (State p : m_trajectory.getStates()) {
-            Pose2d pose = p.poseMeters;
-            arr[ndx + 0] = pose.getTranslation().getX();
-            arr[ndx + 1] = pose.getTranslation().getY();
-            arr[ndx + 2] = pose.getRotation().getDegrees();
-            ndx += 3;
-        }
-        return arr;
+    /**
+     * The list isn't copied, since that would cost as much as packing it, so
+     * don't change it after posting.
+     */
+    public void setViz(List<Pose2d> poses) {
+        m_channel.post(new FromPoses(poses));
     }
 
-    public void setViz(List<Pose2d> poses) {
-        m_log_trajectory.log( () -> fromPoses(poses));
+    public void setViz(ChoreoTrajectory trajectory) {
+        m_channel.post(new FromChoreoTrajectory(trajectory));
+    }
+
+    public void clear() {
+        m_channel.post(VizPublisher.kEmpty);
+    }
+
+    private static void pack(Pose2d pose, double[] arr, int ndx) {
+        arr[ndx + 0] = pose.getTranslation().getX();
+        arr[ndx + 1] = pose.getTranslation().getY();
+        arr[ndx + 2] = pose.getRotation().getDegrees();
     }
 
-    private static double[] fromPoses(List<Pose2d> poses) {
-        double[] arr = new double[poses.size() * 3];
-        int ndx = 0;
-        for (Pose2d pose : poses) {
-            arr[ndx + 0] = pose.getTranslation().getX();
-            arr[ndx + 1] = pose.getTranslation().getY();
-            arr[ndx + 2] = pose.getRotation().getDegrees();
-            ndx += 3;
+    private static class FromTrajectory100 implements Snapshot {
+        private final Trajectory100 m_trajectory;
+
+        private FromTrajectory100(Trajectory100 trajectory) {
+            m_trajectory = trajectory;
+        }
+
+        @Override
+        public int size() {
+            return m_trajectory.length() * 3;
+        }
+
+        @Override
+        public void pack(double[] arr) {
+            int ndx = 0;
+            for (TrajectoryPoint p : m_trajectory.getPoints()) {
+                TrajectoryVisualization.pack(p.state().state().getPose(), arr, ndx);
+                ndx += 3;
+            }
         }
-        return arr;
     }
 
-    public void setViz(ChoreoTrajectory trajectory) {
-        setViz(List.of(trajectory.getPoses()));
+    private static class FromWPITrajectory implements Snapshot {
+        private final Trajectory m_trajectory;
+
+        private FromWPITrajectory(Trajectory trajectory) {
+            m_trajectory = trajectory;
+        }
+
+        @Override
+        public int size() {
+            return m_trajectory.getStates().size() * 3;
+        }
+
+        @Override
+        public void pack(double[] arr) {
+            int ndx = 0;
+            for (State p : m_trajectory.getStates()) {
+                TrajectoryVisualization.pack(p.poseMeters, arr, ndx);
+                ndx += 3;
+            }
+        }
     }
 
-    public void clear() {
-        m_log_trajectory.log( () -> new double[0]);
+    private static class FromChoreoTrajectory implements Snapshot {
+        private final ChoreoTrajectory m_trajectory;
+
+        private FromChoreoTrajectory(ChoreoTrajectory trajectory) {
+            m_trajectory = trajectory;
+        }
+
+        @Override
+        public int size() {
+            return m_trajectory.getSamples().size() * 3;
+        }
+
+        @Override
+        public void pack(double[] arr) {
+            int ndx = 0;
+            for (ChoreoTrajectoryState p : m_trajectory.getSamples()) {
+                TrajectoryVisualization.pack(p.getPose(), arr, ndx);
+                ndx += 3;
+            }
+        }
     }
 
+    private static class FromPoses implements Snapshot {
+        private final List<Pose2d> m_poses;
+
+        private FromPoses(List<Pose2d> poses) {
+            m_poses = poses;
+        }
+
+        @Override
+        public int size() {
+            return m_poses.size() * 3;
+        }
+
+        @Override
+        public void pack(double[] arr) {
+            int ndx = 0;
+            for (Pose2d pose : m_poses) {
+                TrajectoryVisualization.pack(pose, arr, ndx);
+                ndx += 3;
+            }
+        }
+    }
 }
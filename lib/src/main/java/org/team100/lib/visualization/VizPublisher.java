@@ -0,0 +1,115 @@
+package org.team100.lib.visualization;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.team100.lib.async.Async;
+import org.team100.lib.async.ExecutorAsync;
+import org.team100.lib.logging.LoggerFactory.DoubleArrayLogger;
+
+/**
+ * Publishes Glass visualizations from a background thread.
+ *
+ * Trajectory visualizations can be hundreds of poses, which takes a while to
+ * pack into an array, and the dashboard doesn't need them very often anyway.
+ * So instead of packing and publishing in the main loop, the producer posts an
+ * immutable snapshot to a channel, which costs about the same no matter how big
+ * the snapshot is.
+ *
+ * Each channel keeps only the latest snapshot; a channel with something new is
+ * queued once, no matter how many times it's posted. A few times per second,
+ * the background thread drains the queue, packs each snapshot into a reusable
+ * array, and logs it.
+ *
+ * The NT logger copies the array, so reusing it is fine. The UDP logger keeps
+ * the array until its own periodic(), on the main thread, so don't use this
+ * with UDP logging.
+ */
+public class VizPublisher {
+    /** The dashboard doesn't need more than this. */
+    private static final double kPeriodS = 0.1;
+
+    private static final VizPublisher instance = new VizPublisher(new ExecutorAsync(), kPeriodS);
+
+    /** Something to draw, packed off the main thread. */
+    public interface Snapshot {
+        /** Length of the packed array. */
+        int size();
+
+        /** Fill dst, which has exactly size() elements. */
+        void pack(double[] dst);
+    }
+
+    /** Snapshot with nothing in it, e.g. to clear the field. */
+    public static final Snapshot kEmpty = new Snapshot() {
+        @Override
+        public int size() {
+            return 0;
+        }
+
+        @Override
+        public void pack(double[] dst) {
+            //
+        }
+    };
+
+    private final Queue<Channel> m_dirty = new ConcurrentLinkedQueue<>();
+
+    /** Drain on the async every periodS. */
+    public VizPublisher(Async async, double periodS) {
+        async.addPeriodic(this::drain, periodS, "viz");
+    }
+
+    /** Shared instance, using a low-priority executor thread. */
+    public static VizPublisher instance() {
+        return instance;
+    }
+
+    public Channel channel(DoubleArrayLogger logger) {
+        return new Channel(logger);
+    }
+
+    /** Publish the latest snapshot for each channel that has one. */
+    void drain() {
+        Channel channel;
+        while ((channel = m_dirty.poll()) != null) {
+            channel.publish();
+        }
+    }
+
+    /** One key. Post from any thread; only the background thread publishes. */
+    public class Channel {
+        private final DoubleArrayLogger m_logger;
+        private final AtomicReference<Snapshot> m_latest = new AtomicReference<>();
+        /** Reused until the size changes. Background thread only. */
+        private double[] m_buffer = new double[0];
+
+        private Channel(DoubleArrayLogger logger) {
+            m_logger = logger;
+        }
+
+        /** Replaces any snapshot not yet published. Doesn't block. */
+        public void post(Snapshot snapshot) {
+            if (m_latest.getAndSet(snapshot) == null)
+                m_dirty.offer(this);
+        }
+
+        private void publish() {
+            // a post after this will queue the channel again.
+            Snapshot snapshot = m_latest.getAndSet(null);
+            if (snapshot == null)
+                return;
+            // the logger skips the packing if the level is off.
+            m_logger.log(() -> pack(snapshot));
+        }
+
+        private double[] pack(Snapshot snapshot) {
+            int size = snapshot.size();
+            if (m_buffer.length != size)
+                m_buffer = new double[size];
+            snapshot.pack(m_buffer);
+            return m_buffer;
+        }
+    }
+}
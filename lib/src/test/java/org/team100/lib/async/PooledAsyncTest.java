@@ -0,0 +1,52 @@
+package org.team100.lib.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+class PooledAsyncTest {
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    @Test
+    void testSimple() throws InterruptedException {
+        PooledAsync async = new PooledAsync(logger, 2);
+        AtomicInteger counter = new AtomicInteger();
+        async.addPeriodic(counter::incrementAndGet, 0.1, "test");
+        Thread.sleep(1000); // 1 sec
+        async.shutdown();
+        assertEquals(9, counter.get(), 1);
+    }
+
+    /** A slow task skips triggers instead of piling up, and doesn't starve others. */
+    @Test
+    void testSkip() throws InterruptedException {
+        PooledAsync async = new PooledAsync(logger, 2);
+        AtomicInteger slow = new AtomicInteger();
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        AtomicInteger fast = new AtomicInteger();
+        async.addPeriodic(() -> {
+            int c = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(c, Math::max);
+            slow.incrementAndGet();
+            try {
+                Thread.sleep(250);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            concurrent.decrementAndGet();
+        }, 0.1, "slow");
+        async.addPeriodic(fast::incrementAndGet, 0.1, "fast");
+        Thread.sleep(1000); // 1 sec
+        async.shutdown();
+        // runs every third trigger
+        assertEquals(3, slow.get(), 1);
+        assertEquals(1, maxConcurrent.get());
+        assertEquals(9, fast.get(), 1);
+    }
+}
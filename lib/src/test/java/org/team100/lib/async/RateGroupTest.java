@@ -0,0 +1,110 @@
+package org.team100.lib.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.async.RateGroup.Overrun;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+class RateGroupTest {
+    private static final double kDelta = 1e-9;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    private int counter = 0;
+
+    @Test
+    void testOnTime() {
+        RateGroup g = new RateGroup(logger, "test", 0.02, 5, Overrun.SKIP);
+        g.start(0);
+        assertEquals(0.02, g.getDeadlineS(), kDelta);
+        // early
+        assertEquals(0, g.advance(0.01));
+        assertEquals(1, g.advance(0.02));
+        assertEquals(0.04, g.getDeadlineS(), kDelta);
+        assertEquals(1, g.advance(0.041));
+        assertEquals(0.06, g.getDeadlineS(), kDelta);
+        assertEquals(0, g.getMisses());
+    }
+
+    @Test
+    void testSkip() {
+        RateGroup g = new RateGroup(logger, "test", 0.02, 5, Overrun.SKIP);
+        g.start(0);
+        // 0.02 is late, 0.04 and 0.06 are missed
+        assertEquals(1, g.advance(0.075));
+        assertEquals(2, g.getMisses());
+        // realigned
+        assertEquals(0.08, g.getDeadlineS(), kDelta);
+    }
+
+    @Test
+    void testCatchUp() {
+        RateGroup g = new RateGroup(logger, "test", 0.02, 5, Overrun.CATCH_UP);
+        g.start(0);
+        assertEquals(3, g.advance(0.075));
+        assertEquals(2, g.getMisses());
+        assertEquals(0.08, g.getDeadlineS(), kDelta);
+        // way behind: limited
+        assertEquals(5, g.advance(1.01));
+        assertEquals(1.02, g.getDeadlineS(), kDelta);
+    }
+
+    @Test
+    void testDegrade() {
+        RateGroup g = new RateGroup(logger, "test", 0.1, 5, Overrun.DEGRADE);
+        g.start(0);
+        assertEquals(1, g.advance(0.25));
+        assertEquals(2, g.getStride());
+        // skips a deadline on purpose, which isn't a miss
+        assertEquals(0.4, g.getDeadlineS(), kDelta);
+        assertEquals(1, g.getMisses());
+        double t = 0.4;
+        for (int i = 0; i < 50; ++i) {
+            assertEquals(1, g.advance(t));
+            t = g.getDeadlineS();
+        }
+        // restored after a while
+        assertEquals(1, g.getStride());
+        assertEquals(1, g.getMisses());
+    }
+
+    @Test
+    void testTaskRate() {
+        RateGroup g = new RateGroup(logger, "test", 0.02, 5, Overrun.SKIP);
+        g.add(() -> counter++, 0.1, "slow");
+        for (int i = 0; i < 10; ++i) {
+            g.tick();
+        }
+        assertEquals(2, counter);
+    }
+
+    @Test
+    void testGroupFor() {
+        RateGroupScheduler s = RateGroupScheduler.standard(logger);
+        assertEquals("odometry", s.groupFor(0.004).getName());
+        // faster than any group
+        assertEquals("odometry", s.groupFor(0.001).getName());
+        assertEquals("control", s.groupFor(0.02).getName());
+        assertEquals("control", s.groupFor(0.05).getName());
+        assertEquals("telemetry", s.groupFor(0.1).getName());
+        assertEquals("telemetry", s.groupFor(0.5).getName());
+        assertEquals("housekeeping", s.groupFor(1).getName());
+        assertEquals("housekeeping", s.groupFor(10).getName());
+    }
+
+    /** Only the groups that must not be delayed are realtime. */
+    @Test
+    void testRealtime() {
+        RateGroupScheduler s = RateGroupScheduler.standard(logger);
+        assertTrue(s.groupFor(0.004).getRealtimePriority() > s.groupFor(0.02).getRealtimePriority());
+        assertTrue(s.groupFor(0.02).getRealtimePriority() > 0);
+        assertEquals(0, s.groupFor(0.1).getRealtimePriority());
+        assertEquals(0, s.groupFor(1).getRealtimePriority());
+        assertThrows(IllegalArgumentException.class,
+                () -> new RateGroup(logger, "test", 0.02, 5, 100, Overrun.SKIP));
+    }
+}
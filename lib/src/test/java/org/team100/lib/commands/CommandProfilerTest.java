@@ -0,0 +1,99 @@
+package org.team100.lib.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+
+import edu.wpi.first.wpilibj2.command.Command;
+
+class CommandProfilerTest {
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    private boolean m_enabled = true;
+    private int m_executions = 0;
+
+    /** Spins for the duration. */
+    private static class Slow extends Command {
+        private final long m_durationNs;
+
+        Slow(String name, double durationS) {
+            m_durationNs = (long) (durationS * 1e9);
+            setName(name);
+        }
+
+        @Override
+        public void execute() {
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < m_durationNs) {
+                // spin
+            }
+        }
+    }
+
+    @Test
+    void testSlowestFirst() {
+        CommandProfiler profiler = new CommandProfiler(logger, () -> m_enabled, 0.002, 3);
+        Command fast = profiler.instrument(new Slow("fast", 0.0001));
+        Command slow = profiler.instrument(new Slow("slow", 0.003));
+        // the wrapper keeps the name
+        assertEquals("slow", slow.getName());
+        fast.initialize();
+        slow.initialize();
+        for (int i = 0; i < 10; ++i) {
+            fast.execute();
+            slow.execute();
+        }
+        fast.end(false);
+        slow.end(false);
+        profiler.publish();
+        List<CommandProfiler.Stats> sorted = profiler.sorted();
+        assertEquals("slow", sorted.get(0).name());
+        assertEquals("fast", sorted.get(1).name());
+        assertTrue(sorted.get(0).p99S() >= 0.003);
+        assertTrue(sorted.get(1).p99S() < 0.002);
+        // every slow execution is over budget
+        assertEquals(10, sorted.get(0).overruns());
+        assertEquals(0, sorted.get(1).overruns());
+    }
+
+    @Test
+    void testDisabled() {
+        m_enabled = false;
+        CommandProfiler profiler = new CommandProfiler(logger, () -> m_enabled, 0.002, 3);
+        Command c = profiler.instrument(new Slow("slow", 0.003) {
+            @Override
+            public void execute() {
+                super.execute();
+                m_executions++;
+            }
+        });
+        c.initialize();
+        c.execute();
+        c.end(false);
+        // still runs
+        assertEquals(1, m_executions);
+        profiler.publish();
+        // but isn't timed
+        assertEquals(0, profiler.sorted().get(0).p99S(), 0);
+        assertEquals(0, profiler.sorted().get(0).overruns());
+    }
+
+    /** Commands with the same name share a row. */
+    @Test
+    void testSameName() {
+        CommandProfiler profiler = new CommandProfiler(logger, () -> m_enabled, 0.002, 3);
+        Command a = profiler.instrument(new Slow("slow", 0.003));
+        Command b = profiler.instrument(new Slow("slow", 0.003));
+        a.execute();
+        b.execute();
+        profiler.publish();
+        assertEquals(1, profiler.sorted().size());
+        assertEquals(2, profiler.sorted().get(0).overruns());
+    }
+}
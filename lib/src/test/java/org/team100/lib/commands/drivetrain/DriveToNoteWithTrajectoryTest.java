@@ -0,0 +1,57 @@
+package org.team100.lib.commands.drivetrain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.follower.DriveTrajectoryFollower;
+import org.team100.lib.follower.DriveTrajectoryFollowerFactory;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.Fixtured;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+class DriveToNoteWithTrajectoryTest extends Fixtured {
+    private static final double kDelta = 0.001;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    /** With no note in sight, nothing is planned, so the robot stays put. */
+    @Test
+    void testNoNote() {
+        DriveTrajectoryFollower controller = DriveTrajectoryFollowerFactory.purePursuit(
+                logger, fixture.swerveKinodynamics);
+        DriveToNoteWithTrajectory command = new DriveToNoteWithTrajectory(
+                logger,
+                Optional::empty,
+                fixture.drive,
+                controller,
+                fixture.swerveKinodynamics);
+        command.initialize();
+        for (int i = 0; i < 10; ++i) {
+            command.execute();
+        }
+        assertEquals(0, fixture.drive.getState().pose().getX(), kDelta);
+        command.end(false);
+    }
+
+    /** This just exercises the code; the planner runs on its own thread. */
+    @Test
+    void testNote() {
+        DriveTrajectoryFollower controller = DriveTrajectoryFollowerFactory.purePursuit(
+                logger, fixture.swerveKinodynamics);
+        DriveToNoteWithTrajectory command = new DriveToNoteWithTrajectory(
+                logger,
+                () -> Optional.of(new Translation2d(2, 0)),
+                fixture.drive,
+                controller,
+                fixture.swerveKinodynamics);
+        command.initialize();
+        for (int i = 0; i < 10; ++i) {
+            command.execute();
+        }
+        command.end(false);
+    }
+}
@@ -1,15 +1,19 @@
 package org.team100.lib.controller.simple;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Random;
 import java.util.function.DoubleUnaryOperator;
 
 import org.junit.jupiter.api.Test;
+import org.team100.lib.state.MutableState100;
 import org.team100.lib.state.State100;
 import org.team100.lib.logging.LoggerFactory;
 import org.team100.lib.logging.TestLoggerFactory;
 import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.util.Util;
 
 import edu.wpi.first.math.MathUtil;
 
@@ -20,6 +24,7 @@ import edu.wpi.first.math.MathUtil;
  */
 @SuppressWarnings("java:S2699") // no assertions here
 class MinTimeControllerTest {
+    private static final boolean actuallyPrint = false;
     private static final double kDt = 0.02;
     private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
 
@@ -487,6 +492,94 @@ class MinTimeControllerTest {
 
     }
 
+    /**
+     * Outputs of the State100 version, before it was rewritten to use
+     * primitives: initial x, v, goal x, v, output x, v, a.
+     */
+    @Test
+    void testKnownOutputs() {
+        final MinTimeController c = new MinTimeController(
+                logger,
+                x -> x,
+                1, // maxV
+                1, // switchingA
+                0.9, // weakG
+                1.1, // strongI
+                0.01, // tolerance
+                0.1, // finish
+                new double[] { 10.0, 10.0 } // k
+        );
+        double[][] cases = {
+                // I+
+                { 0, 0, 1, 0, 0.00022, 0.022, 1.1 },
+                { 0, 0.5, 1, 0, 0.01022, 0.522, 1.1 },
+                // cruise
+                { 0, 1, 1, 0, 0.02, 1, 0 },
+                { 0, 1, 0.6, 0, 0.02, 1, 0 },
+                // G-
+                { 0.5, 0.99, 1, 0, 0.5197866078880096, 0.981523869196049, -0.9 },
+                // full state
+                { 0.95, 0, 1, 0, 0.9501, 0.010000000000000009, 0.5000000000000004 },
+                // within tolerance
+                { 1, 0.005, 1, 0, 1, 0, 0 },
+                // I+ from reverse
+                { 0, -0.5, 1, 0, -0.00978, -0.478, 1.1 },
+                // I-
+                { 0, 0, -1, 0, -0.00022, -0.022, -1.1 },
+                // moving goal
+                { 0, 0, 1, 0.5, 0.00022, 0.022, 1.1 } };
+        MutableState100 m = new MutableState100();
+        for (double[] k : cases) {
+            State100 initial = new State100(k[0], k[1]);
+            State100 goal = new State100(k[2], k[3]);
+            State100 u = c.calculate(kDt, initial, goal);
+            assertEquals(k[4], u.x(), 1e-15);
+            assertEquals(k[5], u.v(), 1e-15);
+            assertEquals(k[6], u.a(), 1e-15);
+            // the mutable version is the same
+            c.calculate(kDt, initial, goal, m);
+            assertEquals(u.x(), m.x(), 0);
+            assertEquals(u.v(), m.v(), 0);
+            assertEquals(u.a(), m.a(), 0);
+        }
+        // wrapping
+        final MinTimeController w = new MinTimeController(
+                logger,
+                MathUtil::angleModulus,
+                1, 1, 0.9, 1.1, 0.01, 0.1, new double[] { 10.0, 10.0 });
+        State100 u = w.calculate(kDt, new State100(3, 0), new State100(-3, 0));
+        assertEquals(3.00022, u.x(), 1e-15);
+        assertEquals(0.022, u.v(), 1e-15);
+        assertEquals(1.1, u.a(), 1e-15);
+    }
+
+    @Test
+    void testPerformance() {
+        final MinTimeController c = new MinTimeController(
+                logger,
+                x -> x,
+                5, 9, 7, 12, 0.01, 0.1, new double[] { 2.0, 0.2 });
+        Random random = new Random(0);
+        State100 goal = new State100(1, 0);
+        State100[] initial = new State100[1000];
+        for (int i = 0; i < initial.length; ++i) {
+            initial[i] = new State100(random.nextDouble() * 4 - 2, random.nextDouble() * 4 - 2);
+        }
+        MutableState100 m = new MutableState100();
+        int n = 1000;
+        long startTime = System.nanoTime();
+        for (int j = 0; j < n; ++j) {
+            for (State100 s : initial) {
+                c.calculate(kDt, s, goal, m);
+            }
+        }
+        long finishTime = System.nanoTime();
+        if (actuallyPrint) {
+            Util.printf("ns per call %5.1f\n",
+                    (double) (finishTime - startTime) / (n * initial.length));
+        }
+    }
+
     private static State100 applyAccelOnly(double tSec, State100 currentMeasurement, State100 u) {
         double x = currentMeasurement.x() + currentMeasurement.v() * kDt + 0.5 * u.a() * Math.pow(kDt, 2);
         double v = currentMeasurement.v() + u.a() * kDt;
@@ -0,0 +1,57 @@
+package org.team100.lib.experiments;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.util.Memo;
+import org.team100.lib.util.Util;
+
+class ExperimentsTest {
+    @Test
+    void testOverride() {
+        Experiments.instance.testOverride(Experiment.StickyHeading, true);
+        assertTrue(Experiments.instance.enabled(Experiment.StickyHeading));
+        Experiments.instance.testOverride(Experiment.StickyHeading, false);
+        assertFalse(Experiments.instance.enabled(Experiment.StickyHeading));
+        // survives the per-loop refresh
+        Memo.resetAll();
+        assertFalse(Experiments.instance.enabled(Experiment.StickyHeading));
+    }
+
+    /** Compare the snapshot read with the chooser read it replaces. */
+    @Test
+    void testPerformance() {
+        ExperimentChooser chooser = ExperimentChooser.get(Experiment.HeedVision.name());
+        int iterations = 1000000;
+        int count = 0;
+        // warm up
+        for (int i = 0; i < iterations; ++i) {
+            if (chooser.getSelected().getAsBoolean())
+                count++;
+            if (Experiments.instance.enabled(Experiment.HeedVision))
+                count++;
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            if (chooser.getSelected().getAsBoolean())
+                count++;
+        }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            if (Experiments.instance.enabled(Experiment.HeedVision))
+                count++;
+        }
+        long t2 = System.nanoTime();
+        long t3 = System.nanoTime();
+        for (int i = 0; i < 1000; ++i) {
+            Experiments.instance.refresh();
+        }
+        long t4 = System.nanoTime();
+        Util.printf("chooser (ns) %.1f snapshot (ns) %.1f refresh (us) %.2f count %d\n",
+                (double) (t1 - t0) / iterations,
+                (double) (t2 - t1) / iterations,
+                (t4 - t3) * 1e-3 / 1000,
+                count);
+    }
+}
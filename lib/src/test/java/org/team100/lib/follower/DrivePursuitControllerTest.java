@@ -1,7 +1,9 @@
 package org.team100.lib.follower;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -15,6 +17,7 @@ import org.team100.lib.timing.TimedPose;
 import org.team100.lib.timing.TimingConstraint;
 import org.team100.lib.timing.TimingConstraintFactory;
 import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryNearestSearch;
 import org.team100.lib.trajectory.TrajectoryPlanner;
 import org.team100.lib.trajectory.TrajectoryTimeIterator;
 import org.team100.lib.trajectory.TrajectoryTimeSampler;
@@ -200,6 +203,45 @@ class DrivePursuitControllerTest {
                 new Pose2d(1, 1, GeometryUtil.kRotation90)).getAsDouble(), kDelta);
     }
 
+    /**
+     * Compare the original nearest-point search with the windowed one, following
+     * a long path.
+     */
+    @Test
+    void testPerformance() {
+        List<Pose2d> waypoints = new ArrayList<>();
+        List<Rotation2d> headings = new ArrayList<>();
+        for (int i = 0; i < 15; ++i) {
+            waypoints.add(new Pose2d(2 * i, i % 2, GeometryUtil.kRotationZero));
+            headings.add(GeometryUtil.kRotationZero);
+        }
+        List<TimingConstraint> constraints = new TimingConstraintFactory(kSmoothKinematicLimits).fast();
+        Trajectory100 trajectory = TrajectoryPlanner.restToRest(waypoints, headings, constraints);
+        TrajectoryTimeSampler sampler = new TrajectoryTimeSampler(trajectory);
+        TrajectoryTimeIterator iter = new TrajectoryTimeIterator(sampler);
+        TrajectoryNearestSearch search = new TrajectoryNearestSearch(trajectory);
+
+        long previewNs = 0;
+        long windowNs = 0;
+        int steps = 0;
+        for (double t = 0; t < sampler.getEndS(); t += 0.02) {
+            Pose2d pose = sampler.sample(t).get().state().state().getPose();
+            long t0 = System.nanoTime();
+            iter.advance(DrivePursuitFollower.previewDt(iter, pose).getAsDouble());
+            long t1 = System.nanoTime();
+            double nearestS = search.nearestTimeS(pose);
+            long t2 = System.nanoTime();
+            previewNs += t1 - t0;
+            windowNs += t2 - t1;
+            steps++;
+            Pose2d nearest = sampler.sample(nearestS).get().state().state().getPose();
+            assertTrue(nearest.getTranslation().getDistance(pose.getTranslation()) < 0.01);
+        }
+        System.out.printf("samples %d steps %d\n", trajectory.length(), steps);
+        System.out.printf("previewDt us %8.3f windowed us %8.3f\n",
+                previewNs / 1e3 / steps, windowNs / 1e3 / steps);
+    }
+
     void verify(double vx, double vy, double omega, ChassisSpeeds output) {
         assertEquals(vx, output.vxMetersPerSecond, 0.05);
         assertEquals(vy, output.vyMetersPerSecond, 0.05);
@@ -0,0 +1,59 @@
+package org.team100.lib.framework;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.framework.HeadlessRunner.Result;
+import org.team100.lib.testing.Timeless;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.wpilibj.Timer;
+
+class HeadlessRunnerTest implements Timeless {
+    static class CountingRobot extends TimedRobot100 {
+        int robotPeriodic;
+        int autonomousPeriodic;
+
+        @Override
+        public void robotPeriodic() {
+            robotPeriodic++;
+        }
+
+        @Override
+        public void autonomousPeriodic() {
+            autonomousPeriodic++;
+        }
+    }
+
+    @Test
+    void testFasterThanRealTime() {
+        CountingRobot robot = new CountingRobot();
+        HeadlessRunner runner = new HeadlessRunner(robot);
+        double startS = Timer.getFPGATimestamp();
+        runner.addSampled("time", () -> Timer.getFPGATimestamp() - startS);
+        runner.addFinal("autonomous", () -> robot.autonomousPeriodic);
+
+        long t0 = System.nanoTime();
+        Result result = runner.runAutonomous(15);
+        double elapsedS = (System.nanoTime() - t0) * 1e-9;
+        Util.printf("15 s simulated in %.3f s\n", elapsedS);
+        robot.close();
+
+        // the virtual clock moved, and the wall clock didn't move as much
+        assertEquals(15, Timer.getFPGATimestamp() - startS, 0.001);
+        assertTrue(elapsedS < 15);
+        assertEquals(750, result.ticks());
+        // one main loop per tick, give or take rounding at the end.
+        assertEquals(750, robot.robotPeriodic, 1);
+        assertEquals(750, result.metrics().get("autonomous"), 1);
+        assertEquals(15, result.metrics().get("time_max"), 0.001);
+        assertEquals(7.5, result.metrics().get("time_mean"), 0.05);
+
+        Map<String, Double> parsed = Result.parse(result.toString());
+        assertEquals(750, parsed.get("ticks"));
+        assertEquals(result.metrics().get("time_max"), parsed.get("time_max"), 1e-6);
+    }
+}
@@ -1,14 +1,18 @@
 package org.team100.lib.motion.drivetrain;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.experiments.Experiment;
 import org.team100.lib.experiments.Experiments;
+import org.team100.lib.localization.VisionData;
+import org.team100.lib.sensors.SampledGyro;
 import org.team100.lib.testing.Timeless;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
 
 class SwerveDriveSubsystemTest extends Fixtured implements Timeless {
     private static final double kDelta = 0.01;
@@ -107,6 +111,29 @@ class SwerveDriveSubsystemTest extends Fixtured implements Timeless {
         drive.close();
     }
 
+    /** In simulation, the subsystem's periodic() fills the gyro history. */
+    @Test
+    void testGyroHistory() {
+        SampledGyro gyro = new SampledGyro(fixture.logger, fixture.gyro, null, 100);
+        VisionData v = new VisionData() {
+            @Override
+            public void update() {
+            }
+        };
+        SwerveDriveSubsystem drive = new SwerveDriveSubsystem(
+                fixture.fieldLogger,
+                fixture.logger,
+                gyro,
+                fixture.poseEstimator,
+                fixture.swerveLocal,
+                v);
+        assertTrue(gyro.getYawAt(Timer.getFPGATimestamp()).isEmpty());
+        stepTime(0.02);
+        drive.periodic();
+        assertTrue(gyro.getYawAt(Timer.getFPGATimestamp()).isPresent());
+        drive.close();
+    }
+
     private void verify(SwerveDriveSubsystem drive, double x, double v, double a) {
         assertEquals(x, drive.getState().pose().getX(), kDelta);
         assertEquals(v, drive.getState().velocity().x(), kDelta);
@@ -2,10 +2,14 @@ package org.team100.lib.motion.drivetrain.kinodynamics;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
 import java.util.Optional;
 
+import org.ejml.simple.SimpleMatrix;
+
 import org.junit.jupiter.api.Test;
 import org.team100.lib.geometry.GeometryUtil;
 import org.team100.lib.util.DriveUtil;
@@ -700,4 +704,164 @@ class SwerveDriveKinematics100Test {
                 () -> assertEquals(-1.0, arr.rearLeft().speedMetersPerSecond, kEpsilon),
                 () -> assertEquals(-1.0, arr.rearRight().speedMetersPerSecond, kEpsilon));
     }
+
+    /** The kernels should match the matrix multiplication they replace. */
+    @Test
+    void testKernel() {
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.3, 0.2),
+                new Translation2d(0.3, -0.2),
+                new Translation2d(-0.25, 0.2),
+                new Translation2d(-0.25, -0.2));
+        double[] modules = new double[8];
+        kinematics.toModuleVectors(1, 2, 3, modules);
+        SimpleMatrix expected = kinematics.m_inverseKinematics.mult(new SimpleMatrix(new double[] { 1, 2, 3 }));
+        for (int i = 0; i < 8; ++i) {
+            assertEquals(expected.get(i, 0), modules[i], 1e-12);
+        }
+        double[] chassis = new double[3];
+        kinematics.toChassisVector(modules, chassis);
+        assertEquals(1, chassis[0], 1e-9);
+        assertEquals(2, chassis[1], 1e-9);
+        assertEquals(3, chassis[2], 1e-9);
+        // least squares
+        double[] noisy = { 1, 0, 1.1, 0, 0.9, 0, 1, 0.1 };
+        SimpleMatrix fit = kinematics.m_forwardKinematics.mult(new SimpleMatrix(8, 1, true, noisy));
+        kinematics.toChassisVector(noisy, chassis);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(fit.get(i, 0), chassis[i], 1e-12);
+        }
+    }
+
+    /** The holder methods should match the object methods. */
+    @Test
+    void testHolder() {
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.3, 0.2),
+                new Translation2d(0.3, -0.2),
+                new Translation2d(-0.25, 0.2),
+                new Translation2d(-0.25, -0.2));
+        SwerveModuleStates expected = kinematics.toSwerveModuleStates(new ChassisSpeeds(1, 2, 3));
+        SwerveModuleStates states = new SwerveModuleStates(
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100());
+        kinematics.toSwerveModuleStates(1, 2, 3, states);
+        for (int i = 0; i < 4; ++i) {
+            assertEquals(expected.get(i).speedMetersPerSecond, states.get(i).speedMetersPerSecond, 1e-12);
+            assertEquals(expected.get(i).angle.get().getRadians(), states.get(i).angle.get().getRadians(), 1e-12);
+        }
+        ChassisSpeeds speeds = new ChassisSpeeds();
+        kinematics.toChassisSpeeds(states, speeds);
+        assertEquals(1, speeds.vxMetersPerSecond, 1e-9);
+        assertEquals(2, speeds.vyMetersPerSecond, 1e-9);
+        assertEquals(3, speeds.omegaRadiansPerSecond, 1e-9);
+
+        Twist2d twist = new Twist2d();
+        kinematics.toTwist2d(kinematics.toSwerveModuleDelta(new Twist2d(0.1, 0.2, 0.3)), twist);
+        assertEquals(0.1, twist.dx, 1e-9);
+        assertEquals(0.2, twist.dy, 1e-9);
+        assertEquals(0.3, twist.dtheta, 1e-9);
+    }
+
+    /** Steady motion reuses the module angles instead of allocating new ones. */
+    @Test
+    void testAngleReuse() {
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.5, 0.5),
+                new Translation2d(0.5, -0.5),
+                new Translation2d(-0.5, 0.5),
+                new Translation2d(-0.5, -0.5));
+        SwerveModuleStates states = new SwerveModuleStates(
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100());
+        kinematics.toSwerveModuleStates(1, 0, 1, states);
+        Optional<Rotation2d> angle = states.frontLeft().angle;
+        kinematics.toSwerveModuleStates(1, 0, 1, states);
+        assertSame(angle, states.frontLeft().angle);
+        // stopping keeps the previous heading
+        kinematics.toSwerveModuleStates(0, 0, 0, states);
+        assertEquals(0, states.frontLeft().speedMetersPerSecond, 1e-12);
+        assertEquals(angle.get().getRadians(), states.frontLeft().angle.get().getRadians(), 1e-12);
+        // a different direction gets a new angle
+        kinematics.toSwerveModuleStates(0, 1, 0, states);
+        assertEquals(Math.PI / 2, states.frontLeft().angle.get().getRadians(), 1e-12);
+    }
+
+    /**
+     * Time and allocation per call: the matrix multiplication used before, the
+     * object API, the holder API, and the kernel.
+     */
+    @Test
+    void testPerformance() {
+        SwerveDriveKinematics100 kinematics = new SwerveDriveKinematics100(
+                new Translation2d(0.5, 0.5),
+                new Translation2d(0.5, -0.5),
+                new Translation2d(-0.5, 0.5),
+                new Translation2d(-0.5, -0.5));
+        final int iterations = 200000;
+        double[] modules = new double[8];
+        double[] chassis = new double[3];
+        SwerveModuleStates states = new SwerveModuleStates(
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100(),
+                new SwerveModuleState100());
+        ChassisSpeeds speeds = new ChassisSpeeds();
+        double sink = 0;
+        for (int pass = 0; pass < 2; ++pass) {
+            // the first pass is warmup
+            long b0 = allocatedBytes();
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) {
+                SimpleMatrix v = kinematics.m_inverseKinematics.mult(new SimpleMatrix(new double[] { 1, i, 1 }));
+                sink += kinematics.m_forwardKinematics.mult(v).get(0, 0);
+            }
+            long b1 = allocatedBytes();
+            long t1 = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) {
+                SwerveModuleStates s = kinematics.toSwerveModuleStates(new ChassisSpeeds(1, i, 1));
+                sink += kinematics.toChassisSpeeds(s).vxMetersPerSecond;
+            }
+            long b2 = allocatedBytes();
+            long t2 = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) {
+                // constant direction, so the angles are reused
+                kinematics.toSwerveModuleStates(1, 1, 0, states);
+                kinematics.toChassisSpeeds(states, speeds);
+                sink += speeds.vxMetersPerSecond;
+            }
+            long b4 = allocatedBytes();
+            long t4 = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) {
+                kinematics.toModuleVectors(1, i, 1, modules);
+                kinematics.toChassisVector(modules, chassis);
+                sink += chassis[0];
+            }
+            long b3 = allocatedBytes();
+            long t3 = System.nanoTime();
+            if (pass == 0)
+                continue;
+            System.out.printf("matrix ns/call %6.1f bytes/call %6.1f\n",
+                    (double) (t1 - t0) / iterations, (double) (b1 - b0) / iterations);
+            System.out.printf("object ns/call %6.1f bytes/call %6.1f\n",
+                    (double) (t2 - t1) / iterations, (double) (b2 - b1) / iterations);
+            System.out.printf("holder ns/call %6.1f bytes/call %6.1f\n",
+                    (double) (t4 - t2) / iterations, (double) (b4 - b2) / iterations);
+            System.out.printf("kernel ns/call %6.1f bytes/call %6.1f\n",
+                    (double) (t3 - t4) / iterations, (double) (b3 - b4) / iterations);
+        }
+        assertTrue(Double.isFinite(sink));
+    }
+
+    /** Bytes allocated by this thread, or zero if the JVM can't say. */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
 }
@@ -5,8 +5,10 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import java.util.Random;
 
 import org.junit.jupiter.api.Test;
+import org.team100.lib.motion.drivetrain.VeeringCorrection;
 import org.team100.lib.util.Util;
 
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 
 class SwerveKinodynamicsTest {
@@ -629,6 +631,32 @@ class SwerveKinodynamicsTest {
         }
     }
 
+    /** The primitive discretization should match the WPILib one. */
+    @Test
+    void testDiscretize() {
+        double[] out = new double[3];
+        double[][] cases = {
+                { 1, 0, 0, 0 },
+                { 1, 0, 3, 3 },
+                { 1, 2, 3, 1 },
+                { -1, 0.5, -2, -2 },
+                { 0, 0, 1e-10, 1e-10 } };
+        for (double[] c : cases) {
+            double period = 0.02;
+            SwerveKinodynamics.discretize(c[0], c[1], c[2], c[3], period, out);
+            // this is what toSwerveModuleStates used to do
+            double correctionRad = VeeringCorrection.correctionRad(c[3]);
+            ChassisSpeeds expected = ChassisSpeeds.discretize(
+                    ChassisSpeeds.fromFieldRelativeSpeeds(
+                            new ChassisSpeeds(c[0], c[1], c[2]),
+                            new Rotation2d(correctionRad)),
+                    period);
+            assertEquals(expected.vxMetersPerSecond, out[0], 1e-9);
+            assertEquals(expected.vyMetersPerSecond, out[1], 1e-9);
+            assertEquals(expected.omegaRadiansPerSecond, out[2], 1e-9);
+        }
+    }
+
     private void dump(int i, ChassisSpeeds s, ChassisSpeeds i1, ChassisSpeeds i2) {
         Util.printf("%d -- IN: %s OUT1: %s OUT2: %s\n", i, s, i1, i2);
     }
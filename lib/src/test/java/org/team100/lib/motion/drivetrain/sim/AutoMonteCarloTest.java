@@ -0,0 +1,89 @@
+package org.team100.lib.motion.drivetrain.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.follower.DrivePIDFFollower;
+import org.team100.lib.follower.DriveTrajectoryFollowerFactory;
+import org.team100.lib.follower.DriveTrajectoryFollowerUtil;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.sim.AutoMonteCarlo.Noise;
+import org.team100.lib.motion.drivetrain.sim.AutoMonteCarlo.Summary;
+import org.team100.lib.motion.drivetrain.sim.AutoMonteCarlo.Trial;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.timing.TimingConstraintFactory;
+import org.team100.lib.trajectory.Trajectory100;
+import org.team100.lib.trajectory.TrajectoryPlanner;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class AutoMonteCarloTest {
+    /** Out and back, like the tuning trajectories in AutoMaker. */
+    private static List<Trajectory100> routine() {
+        List<TimingConstraint> constraints = new TimingConstraintFactory(
+                SwerveKinodynamicsFactory.forRealisticTest()).fast();
+        List<Rotation2d> headings = List.of(new Rotation2d(Math.PI), new Rotation2d(Math.PI));
+        return List.of(
+                TrajectoryPlanner.restToRest(
+                        List.of(new Pose2d(2, 2, new Rotation2d()), new Pose2d(5, 2, new Rotation2d())),
+                        headings, constraints),
+                TrajectoryPlanner.restToRest(
+                        List.of(new Pose2d(5, 2, new Rotation2d(Math.PI)),
+                                new Pose2d(2, 2, new Rotation2d(Math.PI))),
+                        headings, constraints));
+    }
+
+    private static AutoMonteCarlo harness(Noise noise) {
+        return new AutoMonteCarlo(
+                SwerveKinodynamicsFactory::forRealisticTest,
+                log -> new DriveTrajectoryFollowerFactory(new DriveTrajectoryFollowerUtil(log))
+                        .goodPIDF(new DrivePIDFFollower.Log(log)),
+                routine(),
+                noise,
+                AutoMonteCarlo.fieldWalls(0.4));
+    }
+
+    @Test
+    void testNoNoise() {
+        Trial trial = harness(Noise.none()).runTrial(0, 0);
+        Util.println(trial.toString());
+        assertTrue(Double.isFinite(trial.arrivalS()));
+        assertEquals(0, trial.endErrorM(), 0.05);
+        assertEquals(0, trial.endErrorRad(), 0.05);
+        assertEquals(0, trial.collisions());
+    }
+
+    /** Same seed, same result, regardless of thread. */
+    @Test
+    void testDeterministic() {
+        AutoMonteCarlo harness = harness(Noise.defaults());
+        Trial a = harness.runTrial(1, 3);
+        Trial b = harness.runTrial(1, 3);
+        assertEquals(a, b);
+    }
+
+    @Test
+    void testParallel() throws InterruptedException, ExecutionException {
+        AutoMonteCarlo harness = harness(Noise.defaults());
+        int trials = 64;
+        long t0 = System.nanoTime();
+        Summary summary = harness.run(trials, 0, Runtime.getRuntime().availableProcessors());
+        Util.printf("%d trials in %.2f s\n", trials, (System.nanoTime() - t0) * 1e-9);
+        Util.println(summary.toString());
+        assertEquals(trials, summary.trials().size());
+        for (int i = 0; i < trials; ++i) {
+            assertEquals(i, summary.trials().get(i).index());
+        }
+        // noise makes it worse, but not much worse.
+        assertTrue(summary.endErrorM().p50() < 0.2);
+        assertEquals(0, summary.collisions().max());
+        // the parallel result is the same as the serial one.
+        assertEquals(harness.runTrial(0, 5), summary.trials().get(5));
+    }
+}
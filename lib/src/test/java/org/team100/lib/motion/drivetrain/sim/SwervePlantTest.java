@@ -0,0 +1,130 @@
+package org.team100.lib.motion.drivetrain.sim;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
+import org.team100.lib.swerve.AsymSwerveSetpointGenerator;
+import org.team100.lib.swerve.SwerveSetpoint;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+class SwervePlantTest {
+    private static final double kDelta = 0.01;
+    private static final double kDt = TimedRobot100.LOOP_PERIOD_S;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    @Test
+    void testStraight() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        SwervePlant plant = new SwervePlant(limits);
+        SwerveModuleStates command = limits.toSwerveModuleStatesWithoutDiscretization(
+                new ChassisSpeeds(1, 0, 0));
+        for (int i = 0; i < 150; ++i) {
+            plant.step(command, kDt);
+        }
+        assertEquals(1, plant.getVelocity().x(), kDelta);
+        assertEquals(0, plant.getVelocity().y(), kDelta);
+        assertEquals(0, plant.getVelocity().theta(), kDelta);
+        assertEquals(0, plant.getPose().getY(), kDelta);
+        // cruising doesn't take much power
+        assertEquals(12.5, plant.getBatteryVoltage(), 0.1);
+    }
+
+    @Test
+    void testSpin() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        SwervePlant plant = new SwervePlant(limits);
+        SwerveModuleStates command = limits.toSwerveModuleStatesWithoutDiscretization(
+                new ChassisSpeeds(0, 0, 1));
+        for (int i = 0; i < 150; ++i) {
+            plant.step(command, kDt);
+        }
+        assertEquals(0, plant.getVelocity().x(), kDelta);
+        assertEquals(0, plant.getVelocity().y(), kDelta);
+        assertEquals(1, plant.getVelocity().theta(), kDelta);
+    }
+
+    /** Less friction means less acceleration, and more slip. */
+    @Test
+    void testSlip() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        SwerveModuleStates command = limits.toSwerveModuleStatesWithoutDiscretization(
+                new ChassisSpeeds(1, 0, 0));
+
+        SwervePlant grippy = new SwervePlant(limits);
+        for (int i = 0; i < 25; ++i) {
+            grippy.step(command, kDt);
+        }
+        // current-limited to 1 m/s^2
+        assertTrue(grippy.getVelocity().x() > 0.4);
+        assertTrue(grippy.getVelocity().x() <= 0.5);
+        assertTrue(grippy.getMaxSlipM_S() < 0.05);
+
+        SwervePlant slippery = new SwervePlant(limits, SwervePlant.Parameters.defaults().withFriction(0.05));
+        for (int i = 0; i < 25; ++i) {
+            slippery.step(command, kDt);
+        }
+        // friction-limited to 0.05 g
+        assertTrue(slippery.getVelocity().x() <= 0.5 * 0.05 * 9.81 + kDelta);
+        assertTrue(slippery.getMaxSlipM_S() > 0.2);
+    }
+
+    /** Hard acceleration pulls the battery down, and the sag limiter sees it. */
+    @Test
+    void testBatterySag() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest();
+        SwervePlant plant = new SwervePlant(limits);
+        AsymSwerveSetpointGenerator generator = new AsymSwerveSetpointGenerator(
+                logger, limits, plant::getBatteryVoltage);
+        SwerveSetpoint setpoint = new SwerveSetpoint();
+        ChassisSpeeds desired = new ChassisSpeeds(5, 0, 0);
+        double minVoltage = plant.getBatteryVoltage();
+        for (int i = 0; i < 50; ++i) {
+            setpoint = generator.generateSetpoint(setpoint, desired);
+            plant.step(setpoint.getModuleStates(), kDt);
+            minVoltage = Math.min(minVoltage, plant.getBatteryVoltage());
+        }
+        assertTrue(minVoltage < 11, String.format("%f", minVoltage));
+        assertTrue(minVoltage > 6.25, String.format("%f", minVoltage));
+        assertTrue(plant.getVelocity().x() > 1);
+    }
+
+    @Test
+    void testPerformance() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forRealisticTest();
+        SwervePlant plant = new SwervePlant(limits);
+        SwerveModuleStates command = limits.toSwerveModuleStatesWithoutDiscretization(
+                new ChassisSpeeds(2, 1, 1));
+        // a 15 second auto
+        final int ticks = 750;
+        final int autos = 100;
+        double sink = 0;
+        for (int round = 0; round < 2; ++round) {
+            // the first round is warmup.
+            long t0 = System.nanoTime();
+            for (int j = 0; j < autos; ++j) {
+                plant.reset(new Pose2d());
+                for (int i = 0; i < ticks; ++i) {
+                    plant.step(command, kDt);
+                }
+                sink += plant.getPose().getX();
+            }
+            long t1 = System.nanoTime();
+            if (round == 1) {
+                double perAutoS = (t1 - t0) * 1e-9 / autos;
+                Util.printf("ms/auto %6.3f autos/minute %8.0f\n", perAutoS * 1e3, 60 / perAutoS);
+            }
+        }
+        assertTrue(Double.isFinite(sink));
+    }
+}
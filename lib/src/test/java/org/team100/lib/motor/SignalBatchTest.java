@@ -0,0 +1,43 @@
+package org.team100.lib.motor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.util.Memo;
+
+class SignalBatchTest {
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    private int m_snapshots;
+
+    /** The batch refreshes at most once per cycle, however many readers. */
+    @Test
+    void testOncePerCycle() {
+        SignalBatch batch = new SignalBatch(logger);
+        batch.add(() -> m_snapshots++);
+        batch.add(() -> m_snapshots++);
+        assertEquals(0, m_snapshots);
+        batch.refresh();
+        batch.refresh();
+        assertEquals(2, m_snapshots);
+        Memo.resetAll();
+        batch.refresh();
+        batch.refresh();
+        assertEquals(4, m_snapshots);
+    }
+
+    /** Joining invalidates the batch, so new members aren't stale. */
+    @Test
+    void testJoin() {
+        SignalBatch batch = new SignalBatch(logger);
+        batch.add(() -> m_snapshots++);
+        batch.refresh();
+        assertEquals(1, m_snapshots);
+        batch.add(() -> m_snapshots++);
+        batch.refresh();
+        assertEquals(3, m_snapshots);
+    }
+}
@@ -0,0 +1,25 @@
+package org.team100.lib.motor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class StatusFramePlannerTest {
+    @Test
+    void testPlan() {
+        // never read: slow, but not off
+        assertEquals(4, StatusFramePlanner.plan(0, 0));
+        // never read, but needed anyway
+        assertEquals(50, StatusFramePlanner.plan(0, 50));
+        // read every cycle
+        assertEquals(50, StatusFramePlanner.plan(49.9, 0));
+        // read rarely: as slow as phoenix allows
+        assertEquals(4, StatusFramePlanner.plan(0.5, 0));
+        // read every fifth cycle
+        assertEquals(10, StatusFramePlanner.plan(10, 0));
+        // the minimum wins
+        assertEquals(50, StatusFramePlanner.plan(10, 50));
+        // absurd
+        assertEquals(1000, StatusFramePlanner.plan(5000, 0));
+    }
+}
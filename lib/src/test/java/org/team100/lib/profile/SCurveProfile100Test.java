@@ -0,0 +1,189 @@
+package org.team100.lib.profile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.profile.Profile100.ResultWithETA;
+import org.team100.lib.state.MutableState100;
+import org.team100.lib.state.State100;
+import org.team100.lib.util.Util;
+
+class SCurveProfile100Test {
+    private static final boolean actuallyPrint = false;
+    private static final double kDelta = 0.001;
+    private static final double kDt = 0.02;
+
+    private void dump(double tt, State100 sample) {
+        if (actuallyPrint)
+            Util.printf("%f %f %f %f\n", tt, sample.x(), sample.v(), sample.a());
+    }
+
+    /**
+     * Each velocity change is a 0.5 s jerk ramp, a 0.5 s plateau, and another
+     * 0.5 s ramp, covering 0.75 m, so 2 m needs a 0.5 s cruise.
+     */
+    @Test
+    void testRestToRest() {
+        SCurveProfile100 p = new SCurveProfile100(1, 1, 2, 0.001);
+        State100 goal = new State100(2, 0);
+        ResultWithETA r = p.calculateWithETA(0, new State100(0, 0), goal);
+        assertEquals(3.5, r.etaS(), kDelta);
+        // first step is all jerk: a = jt, v = jt^2/2, x = jt^3/6
+        r = p.calculateWithETA(kDt, new State100(0, 0), goal);
+        assertEquals(3.5, r.etaS(), kDelta);
+        assertEquals(0.04, r.state().a(), 1e-9);
+        assertEquals(0.0004, r.state().v(), 1e-9);
+        assertEquals(0.000002667, r.state().x(), 1e-9);
+        double tt = kDt;
+        while (r.etaS() > 0) {
+            r = p.calculateWithETA(kDt, r.state(), goal);
+            tt += kDt;
+            dump(tt, r.state());
+        }
+        assertEquals(3.52, tt, kDelta);
+        assertEquals(2, r.state().x(), kDelta);
+        assertEquals(0, r.state().v(), kDelta);
+        assertEquals(0, r.state().a(), kDelta);
+    }
+
+    /** Without a cruise, the peak velocity is found by search. */
+    @Test
+    void testShort() {
+        SCurveProfile100 p = new SCurveProfile100(1, 1, 2, 0.001);
+        State100 goal = new State100(0.1, 0);
+        ResultWithETA r = p.calculateWithETA(0, new State100(0, 0), goal);
+        // two ramps up and two down, at t = (x/(2j))^(1/3) each.
+        assertEquals(4 * Math.cbrt(0.1 / 4), r.etaS(), kDelta);
+    }
+
+    /** With very large jerk, it's the same as the trapezoid. */
+    @Test
+    void testLikeTrapezoid() {
+        SCurveProfile100 s = new SCurveProfile100(1, 1, 1e6, 0.001);
+        TrapezoidProfile100 t = new TrapezoidProfile100(1, 1, 0.001);
+        State100 initial = new State100(0, 0);
+        State100 goal = new State100(1, 0);
+        assertEquals(t.calculateWithETA(kDt, initial, goal).etaS(),
+                s.calculateWithETA(kDt, initial, goal).etaS(), kDelta);
+        goal = new State100(3, 0);
+        assertEquals(t.calculateWithETA(kDt, initial, goal).etaS(),
+                s.calculateWithETA(kDt, initial, goal).etaS(), kDelta);
+    }
+
+    @Test
+    void testReverse() {
+        SCurveProfile100 p = new SCurveProfile100(1, 1, 2, 0.001);
+        State100 goal = new State100(-2, 0);
+        ResultWithETA r = p.calculateWithETA(0, new State100(0, 0), goal);
+        assertEquals(3.5, r.etaS(), kDelta);
+        r = p.calculateWithETA(kDt, new State100(0, 0), goal);
+        assertEquals(-0.04, r.state().a(), 1e-9);
+    }
+
+    /** The initial state is moving away from the goal, so it has to turn around. */
+    @Test
+    void testTurnAround() {
+        SCurveProfile100 p = new SCurveProfile100(1, 1, 2, 0.001);
+        State100 goal = new State100(1, 0);
+        ResultWithETA r = p.calculateWithETA(kDt, new State100(0, -1, -1), goal);
+        // still going the wrong way
+        assertTrue(r.state().v() < -1);
+        assertTrue(r.state().a() > -1);
+        for (int i = 0; i < 1000 && r.etaS() > 0; ++i) {
+            r = p.calculateWithETA(kDt, r.state(), goal);
+        }
+        assertEquals(0, r.etaS(), kDelta);
+        assertEquals(1, r.state().x(), kDelta);
+    }
+
+    /**
+     * From random states to random goals, the limits are respected, the path
+     * converges, and the ETA is consistent with the path.
+     */
+    @Test
+    void testRandom() {
+        Random random = new Random(0);
+        double maxV = 1;
+        double maxA = 2;
+        double maxJ = 10;
+        SCurveProfile100 p = new SCurveProfile100(maxV, maxA, maxJ, 0.001);
+        for (int i = 0; i < 100; ++i) {
+            State100 initial = new State100(
+                    random.nextDouble() * 4 - 2,
+                    random.nextDouble() * 2 * maxV - maxV,
+                    random.nextDouble() * 2 * maxA - maxA);
+            State100 goal = new State100(
+                    random.nextDouble() * 4 - 2,
+                    random.nextDouble() * 2 * maxV - maxV);
+            // the initial acceleration may push past the velocity limit
+            double maxVi = Math.max(maxV,
+                    Math.abs(initial.v() + initial.a() * Math.abs(initial.a()) / (2 * maxJ)));
+            ResultWithETA r = p.calculateWithETA(0, initial, goal);
+            double eta = r.etaS();
+            State100 s = initial;
+            double tt = 0;
+            while (r.etaS() > 0) {
+                r = p.calculateWithETA(kDt, s, goal);
+                assertTrue(Math.abs(r.state().a() - s.a()) <= maxJ * kDt + 1e-9, "jerk");
+                assertTrue(Math.abs(r.state().a()) <= maxA + 1e-9, "accel");
+                assertTrue(Math.abs(r.state().v()) <= maxVi + 1e-9, "velocity");
+                s = r.state();
+                tt += kDt;
+                assertTrue(tt < 20, "converge");
+            }
+            assertEquals(goal.x(), s.x(), kDelta);
+            assertEquals(goal.v(), s.v(), kDelta);
+            // the path has the same duration as the original ETA
+            assertEquals(eta, tt, 2 * kDt);
+        }
+    }
+
+    @Test
+    void testMutable() {
+        SCurveProfile100 p = new SCurveProfile100(1, 1, 2, 0.001);
+        State100 goal = new State100(2, 0);
+        MutableState100 m = new MutableState100();
+        State100 s = new State100(0, 0);
+        for (int i = 0; i < 50; ++i) {
+            ResultWithETA r = p.calculateWithETA(kDt, s, goal);
+            double eta = p.calculateWithETA(kDt, s, goal, m);
+            assertEquals(r.etaS(), eta, 1e-12);
+            assertEquals(r.state().x(), m.x(), 1e-12);
+            assertEquals(r.state().v(), m.v(), 1e-12);
+            assertEquals(r.state().a(), m.a(), 1e-12);
+            s = r.state();
+        }
+    }
+
+    @Test
+    void testSolve() {
+        SCurveProfile100 p = new SCurveProfile100(1, 1, 2, 0.001);
+        State100 initial = new State100(0, 0);
+        State100 goal = new State100(1, 0);
+        double s = p.solve(0, initial, goal, 5, 0.01);
+        // very approximate
+        assertEquals(5, p.scale(s).calculateWithETA(0, initial, goal).etaS(), 0.2);
+    }
+
+    @Test
+    void testPerformance() {
+        SCurveProfile100 p = new SCurveProfile100(2, 4, 20, 0.001);
+        State100 goal = new State100(1, 0);
+        MutableState100 m = new MutableState100();
+        int n = 100000;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < n; ++i) {
+            m.set(0, 0, 0);
+            for (int j = 0; j < 10; ++j) {
+                p.calculateWithETA(kDt, m.get(), goal, m);
+            }
+        }
+        long finishTime = System.nanoTime();
+        if (actuallyPrint) {
+            Util.printf("ns per step %5.1f\n", (double) (finishTime - startTime) / (10 * n));
+        }
+    }
+}
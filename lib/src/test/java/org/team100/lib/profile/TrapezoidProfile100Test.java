@@ -2,15 +2,21 @@ package org.team100.lib.profile;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
 import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 import org.team100.lib.profile.Profile100.ResultWithETA;
+import org.team100.lib.state.MutableState100;
 import org.team100.lib.state.State100;
+import org.team100.lib.state.StateBatch100;
 import org.team100.lib.util.Util;
 
+import com.sun.management.ThreadMXBean;
+
 /**
  * Note many of these cases were adjusted slightly to accommodate the treatment
  * of max velocity.
@@ -160,6 +166,188 @@ class TrapezoidProfile100Test {
         assertEquals(1.0, s, kDelta);
     }
 
+    /**
+     * The closed-form solution for goals at rest is exact, where the iterative
+     * one is approximate.
+     */
+    @Test
+    void testETASolveRestGoal() {
+        TrapezoidProfile100 p = new TrapezoidProfile100(1, 1, 0.01);
+        State100 initial = new State100(0, 0);
+        State100 goal = new State100(1, 0);
+        assertEquals(1.0, p.solve(0.02, initial, goal, 2, kDelta), kDelta);
+        // iterative is 0.439
+        double s = p.solve(0.02, initial, goal, 3, kDelta);
+        assertEquals(0.444, s, kDelta);
+        assertEquals(3, p.scale(s).calculateWithETA(0.02, initial, goal).etaS(), 1e-6);
+        // already there
+        assertEquals(1.0, p.solve(0.02, goal, goal, 3, kDelta), kDelta);
+        // nothing to scale
+        assertSame(p, p.scale(1.0));
+        // moving goal uses the iterative solver
+        assertTrue(Double.isNaN(p.solveRestGoal(initial, new State100(1, 0.5), 3)));
+    }
+
+    /** The closed-form solution yields the requested ETA. */
+    @Test
+    void testETASolveRestGoalRandom() {
+        Random random = new Random(0);
+        for (int i = 0; i < 1000; ++i) {
+            TrapezoidProfile100 p = new TrapezoidProfile100(
+                    0.5 + 4 * random.nextDouble(),
+                    0.5 + 8 * random.nextDouble(),
+                    0.001);
+            State100 initial = new State100(
+                    4 * random.nextDouble() - 2,
+                    p.getMaxVelocity() * (2 * random.nextDouble() - 1));
+            State100 goal = new State100(4 * random.nextDouble() - 2, 0);
+            double minEta = p.calculateWithETA(0.02, initial, goal).etaS();
+            double eta = minEta * (1 + 2 * random.nextDouble());
+            double s = p.solveRestGoal(initial, goal, eta);
+            if (Double.isNaN(s) || s == 1.0 || s == 0.01)
+                continue;
+            assertEquals(eta, p.scale(s).calculateWithETA(0.02, initial, goal).etaS(), 1e-6);
+        }
+    }
+
+    /** The mutable version produces the same results as the immutable one. */
+    @Test
+    void testMutable() {
+        Random random = new Random(0);
+        MutableState100 out = new MutableState100();
+        for (int i = 0; i < 10000; ++i) {
+            TrapezoidProfile100 p = new TrapezoidProfile100(
+                    0.5 + 4 * random.nextDouble(),
+                    0.5 + 8 * random.nextDouble(),
+                    0.01);
+            State100 initial = new State100(
+                    4 * random.nextDouble() - 2,
+                    4 * random.nextDouble() - 2);
+            State100 goal = new State100(
+                    4 * random.nextDouble() - 2,
+                    p.getMaxVelocity() * (random.nextDouble() - 0.5));
+            ResultWithETA r = p.calculateWithETA(0.02, initial, goal);
+            double etaS = p.calculateWithETA(0.02, initial, goal, out);
+            assertEquals(r.etaS(), etaS, 1e-12);
+            assertEquals(r.state().x(), out.x(), 1e-12);
+            assertEquals(r.state().v(), out.v(), 1e-12);
+            assertEquals(r.state().a(), out.a(), 1e-12);
+        }
+    }
+
+    /**
+     * Per-step cost of the allocating and non-allocating versions, for a whole
+     * rest-to-rest profile.
+     */
+    @Test
+    void testMutablePerformance() {
+        ThreadMXBean mx = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        TrapezoidProfile100 p = new TrapezoidProfile100(1, 1, 0.01);
+        State100 goal = new State100(1, 0);
+        int N = 10000;
+        int steps = 0;
+        long b0 = mx.getThreadAllocatedBytes(id);
+        long t0 = System.nanoTime();
+        for (int ii = 0; ii < N; ++ii) {
+            State100 s = new State100(0, 0);
+            for (int j = 0; j < 110; ++j) {
+                s = p.calculateWithETA(0.02, s, goal).state();
+                steps++;
+            }
+        }
+        long t1 = System.nanoTime();
+        long b1 = mx.getThreadAllocatedBytes(id);
+        MutableState100 out = new MutableState100();
+        for (int ii = 0; ii < N; ++ii) {
+            out.set(0, 0, 0);
+            for (int j = 0; j < 110; ++j) {
+                p.calculateWithETA(0.02, out, goal, out);
+            }
+        }
+        long t2 = System.nanoTime();
+        long b2 = mx.getThreadAllocatedBytes(id);
+        if (actuallyPrint) {
+            Util.printf("immutable per step (ns) %5.1f (bytes) %5.1f\n",
+                    (double) (t1 - t0) / steps, (double) (b1 - b0) / steps);
+            Util.printf("mutable per step (ns)   %5.1f (bytes) %5.1f\n",
+                    (double) (t2 - t1) / steps, (double) (b2 - b1) / steps);
+        }
+        assertEquals(1, out.x(), kDelta);
+    }
+
+    /** The batch version produces the same results as the scalar one. */
+    @Test
+    void testBatch() {
+        Random random = new Random(0);
+        int n = 1000;
+        double dt = 0.02;
+        TrapezoidProfile100 p = new TrapezoidProfile100(2, 3, 0.01);
+        StateBatch100 initial = new StateBatch100(n);
+        StateBatch100 goal = new StateBatch100(n);
+        for (int i = 0; i < n; ++i) {
+            // some of these are too fast
+            initial.set(i, 4 * random.nextDouble() - 2, 5 * random.nextDouble() - 2.5, 0);
+            switch (i % 3) {
+                case 0 -> goal.set(i, 4 * random.nextDouble() - 2, 0, 0);
+                case 1 -> goal.set(i, 4 * random.nextDouble() - 2, 3 * random.nextDouble() - 1.5, 0);
+                // within tolerance
+                default -> goal.set(i, initial.x()[i] + 0.005, initial.v()[i], 0);
+            }
+        }
+        StateBatch100 result = new StateBatch100(n);
+        double[] etaS = new double[n];
+        p.calculateBatch(dt, initial, goal, result, etaS);
+        for (int i = 0; i < n; ++i) {
+            ResultWithETA r = p.calculateWithETA(dt, initial.get(i), goal.get(i));
+            assertEquals(r.state().x(), result.x()[i], 1e-6);
+            assertEquals(r.state().v(), result.v()[i], 1e-6);
+            assertEquals(r.state().a(), result.a()[i], 1e-6);
+            if (Math.abs(initial.v()[i]) > 2)
+                continue;
+            // the scalar ETA just past a switching point depends on which side
+            // of it rounding puts us, so compare the ETA at the initial state.
+            ResultWithETA r0 = p.calculateWithETA(0, initial.get(i), goal.get(i));
+            assertEquals(r0.etaS(), etaS[i], kDelta);
+        }
+    }
+
+    /** Lanes per second, scalar vs batch, on one core. */
+    @Test
+    void testBatchPerformance() {
+        Random random = new Random(0);
+        int n = 1000;
+        TrapezoidProfile100 p = new TrapezoidProfile100(2, 3, 0.01);
+        StateBatch100 initial = new StateBatch100(n);
+        StateBatch100 goal = new StateBatch100(n);
+        for (int i = 0; i < n; ++i) {
+            initial.set(i, 4 * random.nextDouble() - 2, 4 * random.nextDouble() - 2, 0);
+            goal.set(i, 4 * random.nextDouble() - 2, 0, 0);
+        }
+        StateBatch100 result = new StateBatch100(n);
+        double[] etaS = new double[n];
+        int N = 1000;
+        long t0 = System.nanoTime();
+        for (int ii = 0; ii < N; ++ii) {
+            for (int i = 0; i < n; ++i) {
+                ResultWithETA r = p.calculateWithETA(0.02, initial.get(i), goal.get(i));
+                result.set(i, r.state());
+                etaS[i] = r.etaS();
+            }
+        }
+        long t1 = System.nanoTime();
+        for (int ii = 0; ii < N; ++ii) {
+            p.calculateBatch(0.02, initial, goal, result, etaS);
+        }
+        long t2 = System.nanoTime();
+        if (actuallyPrint) {
+            Util.printf("scalar per lane (ns) %5.1f lanes/s %5.0f\n",
+                    (double) (t1 - t0) / (N * n), 1e9 * N * n / (t1 - t0));
+            Util.printf("batch per lane (ns)  %5.1f lanes/s %5.0f\n",
+                    (double) (t2 - t1) / (N * n), 1e9 * N * n / (t2 - t1));
+        }
+    }
+
     /** ETA is not a trivial function of V and A */
     @Test
     void testETARestToRestScaled1() {
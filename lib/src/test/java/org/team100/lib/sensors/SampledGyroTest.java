@@ -0,0 +1,65 @@
+package org.team100.lib.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.async.Async;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
+import org.team100.lib.motion.drivetrain.module.SwerveModuleCollection;
+import org.team100.lib.testing.Timeless;
+
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+
+class SampledGyroTest implements Timeless {
+    private static final double kDelta = 0.001;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    /** The test calls sample() itself. */
+    private static final Async async = (runnable, periodS, name) -> {
+    };
+
+    /** Sampling faster than the main loop resolves yaw between cycles. */
+    @Test
+    void testSimulated() {
+        SwerveKinodynamics l = SwerveKinodynamicsFactory.get();
+        SwerveModuleCollection c = SwerveModuleCollection.get(logger, 10, 20, l);
+        SampledGyro g = new SampledGyro(logger, new SimulatedGyro(l, c), async, 100);
+        SwerveModuleStates states = l.toSwerveModuleStates(new ChassisSpeeds(0, 0, 1), 1);
+        c.reset();
+        for (int i = 0; i < 20; ++i) {
+            c.setDesiredStates(states);
+            // two samples per cycle
+            g.sample();
+            stepTime(0.01);
+            g.sample();
+            stepTime(0.01);
+        }
+        g.sample();
+        double now = Timer.getFPGATimestamp();
+        double yaw = g.getYawNWU().getRadians();
+        assertEquals(0.42, yaw, 0.03);
+        // turning at 1 rad/s, so 15 ms ago, halfway between samples, is 0.015 rad
+        // less.
+        assertEquals(yaw - 0.015, g.getYawAt(now - 0.015).get().getRadians(), kDelta);
+        assertEquals(yaw - 0.1, g.getYawAt(now - 0.1).get().getRadians(), kDelta);
+        // 1 s of history at 100 Hz
+        assertTrue(g.getYawAt(now - 2).isEmpty());
+    }
+
+    /** Without an async, periodic() samples, on the main thread. */
+    @Test
+    void testSamplePeriodic() {
+        SwerveKinodynamics l = SwerveKinodynamicsFactory.get();
+        SwerveModuleCollection c = SwerveModuleCollection.get(logger, 10, 20, l);
+        SampledGyro g = new SampledGyro(logger, new SimulatedGyro(l, c), null, 100);
+        assertTrue(g.getYawAt(Timer.getFPGATimestamp()).isEmpty());
+        g.periodic();
+        assertTrue(g.getYawAt(Timer.getFPGATimestamp()).isPresent());
+    }
+}
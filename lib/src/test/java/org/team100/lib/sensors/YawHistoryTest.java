@@ -0,0 +1,58 @@
+package org.team100.lib.sensors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class YawHistoryTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testEmpty() {
+        YawHistory h = new YawHistory(4);
+        assertTrue(h.getYawAt(0, 0.05).isEmpty());
+    }
+
+    @Test
+    void testInterpolate() {
+        YawHistory h = new YawHistory(4);
+        h.add(1.0, 0.0, 1.0);
+        h.add(1.1, 0.1, 1.0);
+        h.add(1.2, 0.3, 1.0);
+        assertEquals(0.05, h.getYawAt(1.05, 0.05).get().getRadians(), kDelta);
+        assertEquals(0.2, h.getYawAt(1.15, 0.05).get().getRadians(), kDelta);
+        // exact sample
+        assertEquals(0.1, h.getYawAt(1.1, 0.05).get().getRadians(), kDelta);
+        // before the oldest
+        assertTrue(h.getYawAt(0.9, 0.05).isEmpty());
+        // extrapolate using the newest rate
+        assertEquals(0.32, h.getYawAt(1.22, 0.05).get().getRadians(), kDelta);
+        // too far
+        assertTrue(h.getYawAt(1.3, 0.05).isEmpty());
+    }
+
+    @Test
+    void testWrap() {
+        YawHistory h = new YawHistory(4);
+        h.add(1.0, Math.PI - 0.1, 0);
+        h.add(1.1, -Math.PI + 0.1, 0);
+        // halfway is pi, not zero.
+        assertEquals(Math.PI, Math.abs(h.getYawAt(1.05, 0.05).get().getRadians()), kDelta);
+    }
+
+    @Test
+    void testOverwrite() {
+        YawHistory h = new YawHistory(4);
+        for (int i = 0; i < 10; ++i) {
+            h.add(i, i * 0.1, 0);
+        }
+        assertEquals(4, h.size());
+        assertTrue(h.getYawAt(5.5, 0.05).isEmpty());
+        assertEquals(0.65, h.getYawAt(6.5, 0.05).get().getRadians(), kDelta);
+        assertEquals(0.85, h.getYawAt(8.5, 0.05).get().getRadians(), kDelta);
+        // out of order is ignored
+        h.add(8, 0, 0);
+        assertEquals(0.85, h.getYawAt(8.5, 0.05).get().getRadians(), kDelta);
+    }
+}
@@ -2,6 +2,7 @@ package org.team100.lib.spline;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -38,4 +39,65 @@ class SplineGeneratorTest {
         assertEquals(78.690, cur_pose.getCourse().get().getDegrees(), 0.001);
         assertEquals(20.416, arclength, 0.001);
     }
+
+    /** Parallel and serial parameterization should produce exactly the same samples. */
+    @Test
+    void testParallelMatchesSerial() {
+        List<HolonomicSpline> splines = slalom(12);
+        List<Pose2dWithMotion> serial = SplineGenerator.parameterizeSplines(splines, 0.0127, 0.0127, 0.0175);
+        List<Pose2dWithMotion> parallel = SplineGenerator.parameterizeSplinesParallel(splines, 0.0127, 0.0127,
+                0.0175);
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); ++i) {
+            assertEquals(serial.get(i), parallel.get(i));
+        }
+    }
+
+    /**
+     * Compare serial and parallel parameterization, including optimization, on
+     * long paths.
+     * Optimization is included to show its share of end-to-end planning.
+     */
+    @Test
+    void testPerformance() {
+        final int iterations = 20;
+        for (int n : new int[] { 8, 15 }) {
+            long optimizeNs = 0;
+            long serialNs = 0;
+            long parallelNs = 0;
+            for (int i = 0; i < iterations; ++i) {
+                List<HolonomicSpline> splines = slalom(n);
+                long t0 = System.nanoTime();
+                HolonomicSpline.optimizeSpline(splines);
+                long t1 = System.nanoTime();
+                SplineGenerator.parameterizeSplines(splines, 0.0127, 0.0127, 0.0175);
+                long t2 = System.nanoTime();
+                SplineGenerator.parameterizeSplinesParallel(splines, 0.0127, 0.0127, 0.0175);
+                long t3 = System.nanoTime();
+                optimizeNs += t1 - t0;
+                serialNs += t2 - t1;
+                parallelNs += t3 - t2;
+            }
+            System.out.printf("waypoints %2d optimize ms %6.3f serial ms %6.3f parallel ms %6.3f\n",
+                    n,
+                    optimizeNs / 1e6 / iterations,
+                    serialNs / 1e6 / iterations,
+                    parallelNs / 1e6 / iterations);
+        }
+    }
+
+    /** Waypoints weaving back and forth along the x axis, heading constant. */
+    private static List<HolonomicSpline> slalom(int waypoints) {
+        List<Pose2d> poses = new ArrayList<>();
+        for (int i = 0; i < waypoints; ++i) {
+            poses.add(new Pose2d(i, 0.5 * (i % 2), GeometryUtil.kRotationZero));
+        }
+        List<HolonomicSpline> splines = new ArrayList<>();
+        for (int i = 1; i < poses.size(); ++i) {
+            splines.add(new HolonomicSpline(
+                    poses.get(i - 1), poses.get(i),
+                    GeometryUtil.kRotationZero, GeometryUtil.kRotationZero));
+        }
+        return splines;
+    }
 }
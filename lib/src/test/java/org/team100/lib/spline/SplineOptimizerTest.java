@@ -0,0 +1,129 @@
+package org.team100.lib.spline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.experiments.Experiment;
+import org.team100.lib.experiments.Experiments;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+class SplineOptimizerTest {
+    private static final double kDelta = 0.001;
+
+    /** The analytic gradient should match finite differences. */
+    @Test
+    void testGradient() {
+        HolonomicSpline s = new HolonomicSpline(
+                new Pose2d(new Translation2d(0, 0), Rotation2d.fromDegrees(90)),
+                new Pose2d(new Translation2d(0, 50), Rotation2d.fromDegrees(0)),
+                new Rotation2d(), new Rotation2d());
+        double[] grad = new double[4];
+        s.addDCurvature2Gradient(grad);
+        final double h = 1e-6;
+        double f0 = s.sumDCurvature2();
+        assertEquals((s.adjustSecondDerivatives(h, 0, 0, 0).sumDCurvature2() - f0) / h, grad[0], 1e-7);
+        assertEquals((s.adjustSecondDerivatives(0, 0, h, 0).sumDCurvature2() - f0) / h, grad[1], 1e-7);
+        assertEquals((s.adjustSecondDerivatives(0, h, 0, 0).sumDCurvature2() - f0) / h, grad[2], 1e-7);
+        assertEquals((s.adjustSecondDerivatives(0, 0, 0, h).sumDCurvature2() - f0) / h, grad[3], 1e-7);
+    }
+
+    /** Analytic optimization should do at least as well as the numeric one. */
+    @Test
+    void testMatchesNumeric() {
+        double analytic = new SplineOptimizer(false).optimize(square(0, 0));
+        double numeric = HolonomicSpline.optimizeSplineNumeric(square(0, 0));
+        assertEquals(0.54, analytic, 0.01);
+        assertEquals(0.54, numeric, 0.01);
+        assertTrue(analytic <= numeric + kDelta);
+    }
+
+    /** The analytic optimizer is only used if the experiment is enabled. */
+    @Test
+    void testExperiment() {
+        double analytic = new SplineOptimizer(false).optimize(square(0, 0));
+        double numeric = HolonomicSpline.optimizeSplineNumeric(square(0, 0));
+        Experiments.instance.testOverride(Experiment.AnalyticSplineOptimizer, false);
+        assertEquals(numeric, HolonomicSpline.optimizeSpline(square(0, 0)), 1e-9);
+        Experiments.instance.testOverride(Experiment.AnalyticSplineOptimizer, true);
+        assertEquals(analytic, HolonomicSpline.optimizeSpline(square(0, 0)), 1e-9);
+        Experiments.instance.testOverride(Experiment.AnalyticSplineOptimizer, false);
+    }
+
+    @Test
+    void testWarmStart() {
+        SplineOptimizer optimizer = new SplineOptimizer();
+        double cold = optimizer.optimize(square(0, 0));
+        assertFalse(optimizer.isWarmStarted());
+        int coldIterations = optimizer.getIterations();
+
+        // moving the whole path doesn't change the solution.
+        double warm = optimizer.optimize(square(0.2, 0.1));
+        assertTrue(optimizer.isWarmStarted());
+        assertEquals(cold, warm, 0.01);
+        assertTrue(optimizer.getIterations() < coldIterations);
+
+        // moving too far means a cold start.
+        optimizer.optimize(square(10, 0));
+        assertFalse(optimizer.isWarmStarted());
+    }
+
+    /**
+     * Compare numeric, analytic, and warm-started analytic optimization,
+     * re-planning with slightly moving waypoints.
+     */
+    @Test
+    void testPerformance() {
+        final int iterations = 20;
+        SplineOptimizer cold = new SplineOptimizer(false);
+        SplineOptimizer warm = new SplineOptimizer();
+        long numericNs = 0;
+        long coldNs = 0;
+        long warmNs = 0;
+        int coldIterations = 0;
+        int warmIterations = 0;
+        for (int i = 0; i < iterations; ++i) {
+            double dx = 0.01 * i;
+            List<HolonomicSpline> a = square(dx, 0);
+            List<HolonomicSpline> b = square(dx, 0);
+            List<HolonomicSpline> c = square(dx, 0);
+            long t0 = System.nanoTime();
+            HolonomicSpline.optimizeSplineNumeric(a);
+            long t1 = System.nanoTime();
+            cold.optimize(b);
+            long t2 = System.nanoTime();
+            warm.optimize(c);
+            long t3 = System.nanoTime();
+            numericNs += t1 - t0;
+            coldNs += t2 - t1;
+            warmNs += t3 - t2;
+            coldIterations += cold.getIterations();
+            warmIterations += warm.getIterations();
+        }
+        System.out.printf("numeric ms %6.3f\n", numericNs / 1e6 / iterations);
+        System.out.printf("analytic ms %6.3f iterations %5.2f\n",
+                coldNs / 1e6 / iterations, (double) coldIterations / iterations);
+        System.out.printf("warm ms %6.3f iterations %5.2f\n",
+                warmNs / 1e6 / iterations, (double) warmIterations / iterations);
+    }
+
+    /** Three sides of a square, offset by (x, y). */
+    private static List<HolonomicSpline> square(double x, double y) {
+        Pose2d d = new Pose2d(new Translation2d(x, y), Rotation2d.fromDegrees(90));
+        Pose2d e = new Pose2d(new Translation2d(x, y + 50), Rotation2d.fromDegrees(0));
+        Pose2d f = new Pose2d(new Translation2d(x + 100, y + 50), Rotation2d.fromDegrees(-90));
+        Pose2d g = new Pose2d(new Translation2d(x + 100, y), Rotation2d.fromDegrees(-180));
+        List<HolonomicSpline> splines = new ArrayList<>();
+        splines.add(new HolonomicSpline(d, e, new Rotation2d(), new Rotation2d()));
+        splines.add(new HolonomicSpline(e, f, new Rotation2d(), new Rotation2d()));
+        splines.add(new HolonomicSpline(f, g, new Rotation2d(), new Rotation2d()));
+        return splines;
+    }
+}
@@ -6,6 +6,7 @@ import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
@@ -408,4 +409,91 @@ class AsymSwerveSetpointGeneratorTest {
         assertEquals(0, setpoint.getChassisSpeeds().vyMetersPerSecond, kDelta);
         assertEquals(0, setpoint.getChassisSpeeds().omegaRadiansPerSecond, kDelta);
     }
-}
\ No newline at end of file
+
+    /**
+     * Time and allocation per call, for common driving, stop-and-reverse, and
+     * saturated cases.
+     */
+    @Test
+    void testPerformance() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.get();
+        AsymSwerveSetpointGenerator generator = new AsymSwerveSetpointGenerator(
+                logger, limits, () -> 12);
+        SwerveSetpoint moving = new SwerveSetpoint(
+                new ChassisSpeeds(1, 0, 0),
+                new SwerveModuleStates(
+                        new SwerveModuleState100(1, Optional.of(GeometryUtil.kRotationZero)),
+                        new SwerveModuleState100(1, Optional.of(GeometryUtil.kRotationZero)),
+                        new SwerveModuleState100(1, Optional.of(GeometryUtil.kRotationZero)),
+                        new SwerveModuleState100(1, Optional.of(GeometryUtil.kRotationZero))));
+        benchmark("common", generator, moving, new ChassisSpeeds(1.2, 0.3, 0.5));
+        benchmark("stop-and-reverse", generator, moving, new ChassisSpeeds(-1, 0, 0));
+        benchmark("saturated", generator, moving, new ChassisSpeeds(10, 10, 10));
+
+        // reversing slows down first
+        SwerveSetpoint next = generator.generateSetpoint(moving, new ChassisSpeeds(-1, 0, 0));
+        assertTrue(next.getChassisSpeeds().vxMetersPerSecond < 1);
+        assertTrue(next.getChassisSpeeds().vxMetersPerSecond >= 0);
+    }
+
+    /** The table-driven limiters produce nearly the same result. */
+    @Test
+    void testFast() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        AsymSwerveSetpointGenerator exact = new AsymSwerveSetpointGenerator(logger, limits, () -> 12);
+        AsymSwerveSetpointGenerator fast = new AsymSwerveSetpointGenerator(logger, limits, () -> 12, true);
+        SwerveSetpoint prev = new SwerveSetpoint();
+        ChassisSpeeds[] goals = {
+                new ChassisSpeeds(1, 0, 0),
+                new ChassisSpeeds(0, 1, 0),
+                new ChassisSpeeds(0.5, 0.5, 1) };
+        for (ChassisSpeeds goal : goals) {
+            for (int i = 0; i < 50; ++i) {
+                SwerveSetpoint e = exact.generateSetpoint(prev, goal);
+                SwerveSetpoint f = fast.generateSetpoint(prev, goal);
+                assertEquals(e.getChassisSpeeds().vxMetersPerSecond, f.getChassisSpeeds().vxMetersPerSecond, 0.02);
+                assertEquals(e.getChassisSpeeds().vyMetersPerSecond, f.getChassisSpeeds().vyMetersPerSecond, 0.02);
+                assertEquals(e.getChassisSpeeds().omegaRadiansPerSecond, f.getChassisSpeeds().omegaRadiansPerSecond,
+                        0.05);
+                prev = e;
+            }
+        }
+    }
+
+    private static void benchmark(
+            String name,
+            AsymSwerveSetpointGenerator generator,
+            SwerveSetpoint prev,
+            ChassisSpeeds desired) {
+        final int iterations = 100000;
+        SwerveSetpoint result = new SwerveSetpoint();
+        double sink = 0;
+        // warmup
+        for (int i = 0; i < iterations; ++i) {
+            generator.generateSetpoint(prev, desired, result);
+            sink += result.getChassisSpeeds().vxMetersPerSecond;
+        }
+        long b0 = allocatedBytes();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            generator.generateSetpoint(prev, desired, result);
+            sink += result.getChassisSpeeds().vxMetersPerSecond;
+        }
+        long t1 = System.nanoTime();
+        long b1 = allocatedBytes();
+        assertTrue(Double.isFinite(sink));
+        double bytesPerCall = (double) (b1 - b0) / iterations;
+        Util.printf("%-16s ns/call %8.1f bytes/call %8.1f\n", name,
+                (double) (t1 - t0) / iterations, bytesPerCall);
+        // a single allocation would be at least 16 bytes.
+        assertTrue(bytesPerCall < 1, String.format("%s allocates %.1f bytes/call", name, bytesPerCall));
+    }
+
+    /** Bytes allocated by this thread, or zero if the JVM can't say. */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean) {
+            return bean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+}
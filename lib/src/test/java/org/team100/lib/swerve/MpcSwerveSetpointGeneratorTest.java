@@ -0,0 +1,172 @@
+package org.team100.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.GeometryUtil;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleState100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveModuleStates;
+import org.team100.lib.util.Util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+class MpcSwerveSetpointGeneratorTest {
+    private static final double kDelta = 0.001;
+    private static final double kDt = 0.02; // s
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+
+    /** With no budget, this is just the greedy generator. */
+    @Test
+    void testFallback() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        AsymSwerveSetpointGenerator greedy = new AsymSwerveSetpointGenerator(logger, limits, () -> 12);
+        MpcSwerveSetpointGenerator mpc = new MpcSwerveSetpointGenerator(logger, limits, () -> 12, 8, 0);
+        ChassisSpeeds desired = new ChassisSpeeds(0, 1, 0);
+        SwerveSetpoint g = moving(1);
+        SwerveSetpoint m = moving(1);
+        for (int i = 0; i < 50; ++i) {
+            g = greedy.generateSetpoint(g, desired);
+            m = mpc.generateSetpoint(m, desired);
+            assertEquals(g.getChassisSpeeds().vxMetersPerSecond, m.getChassisSpeeds().vxMetersPerSecond, kDelta);
+            assertEquals(g.getChassisSpeeds().vyMetersPerSecond, m.getChassisSpeeds().vyMetersPerSecond, kDelta);
+            assertEquals(g.getChassisSpeeds().omegaRadiansPerSecond, m.getChassisSpeeds().omegaRadiansPerSecond,
+                    kDelta);
+        }
+    }
+
+    /** A right-angle turn, within the same limits as the greedy generator. */
+    @Test
+    void testTurn() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        AsymSwerveSetpointGenerator greedy = new AsymSwerveSetpointGenerator(logger, limits, () -> 12);
+        // a generous budget, so the result doesn't depend on the machine.
+        MpcSwerveSetpointGenerator mpc = new MpcSwerveSetpointGenerator(logger, limits, () -> 12, 8, 1);
+        ChassisSpeeds desired = new ChassisSpeeds(0, 1, 0);
+        int greedyTicks = converge(greedy, limits, desired);
+        int mpcTicks = converge(mpc, limits, desired);
+        Util.printf("ticks to converge: greedy %d mpc %d\n", greedyTicks, mpcTicks);
+        assertTrue(mpcTicks < 100);
+        assertTrue(mpcTicks <= greedyTicks);
+    }
+
+    /**
+     * Turn and slow down at the same time. Greedy spends the turn aiming straight
+     * at the goal, which keeps the wheels turning; lookahead finds a target that
+     * gets there much sooner.
+     */
+    @Test
+    void testTurnAndSlow() {
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        AsymSwerveSetpointGenerator greedy = new AsymSwerveSetpointGenerator(logger, limits, () -> 12);
+        MpcSwerveSetpointGenerator mpc = new MpcSwerveSetpointGenerator(logger, limits, () -> 12, 8, 1);
+        ChassisSpeeds desired = new ChassisSpeeds(0, 0.5, 0);
+        int greedyTicks = converge(greedy, limits, desired);
+        int mpcTicks = converge(mpc, limits, desired);
+        Util.printf("ticks to converge: greedy %d mpc %d\n", greedyTicks, mpcTicks);
+        assertTrue(mpcTicks < greedyTicks);
+    }
+
+    /**
+     * Rollouts run many times per tick, so they shouldn't log anything: the MPC
+     * logs the chosen greedy step and its own few keys, nothing more.
+     */
+    @Test
+    void testRolloutsDontLog() {
+        List<String> logged = new ArrayList<>();
+        LoggerFactory recorder = new TestLoggerFactory(new TestPrimitiveLogger() {
+            @Override
+            public PrimitiveDoubleLogger doubleLogger(String label) {
+                return x -> logged.add(label);
+            }
+        });
+        SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+        ChassisSpeeds desired = new ChassisSpeeds(0, 1, 0);
+        new AsymSwerveSetpointGenerator(recorder, limits, () -> 12).generateSetpoint(moving(1), desired);
+        int greedyLogs = logged.size();
+        assertTrue(greedyLogs > 0);
+        logged.clear();
+        new MpcSwerveSetpointGenerator(recorder, limits, () -> 12, 8, 1).generateSetpoint(moving(1), desired);
+        // greedy step, plus cost and greedy cost
+        assertEquals(greedyLogs + 2, logged.size());
+        for (String label : logged) {
+            assertFalse(label.contains("/rollout/"), label);
+        }
+    }
+
+    /**
+     * Ticks until the speed is near the goal, checking the limits each tick.
+     * Includes omega, so a plan can't win by spinning.
+     */
+    private static int converge(SwerveSetpointGenerator generator, SwerveKinodynamics limits, ChassisSpeeds desired) {
+        double radiusM = limits.getMaxDriveVelocityM_S() / limits.getMaxAngleSpeedRad_S();
+        SwerveSetpoint prev = moving(1);
+        for (int i = 0; i < 100; ++i) {
+            SwerveSetpoint next = generator.generateSetpoint(prev, desired);
+            checkLimits(limits, prev, next);
+            ChassisSpeeds speeds = next.getChassisSpeeds();
+            if (Math.hypot(
+                    Math.hypot(
+                            speeds.vxMetersPerSecond - desired.vxMetersPerSecond,
+                            speeds.vyMetersPerSecond - desired.vyMetersPerSecond),
+                    radiusM * (speeds.omegaRadiansPerSecond - desired.omegaRadiansPerSecond)) < 0.01)
+                return i;
+            prev = next;
+        }
+        return 100;
+    }
+
+    /**
+     * The limits the greedy generator enforces: wheel speed, chassis
+     * acceleration (the capsize limit), and steering rate.
+     */
+    private static void checkLimits(SwerveKinodynamics limits, SwerveSetpoint prev, SwerveSetpoint next) {
+        ChassisSpeeds prevSpeeds = prev.getChassisSpeeds();
+        ChassisSpeeds nextSpeeds = next.getChassisSpeeds();
+        // speeds are robot-relative, so the previous speed appears to rotate as the
+        // robot turns, without any acceleration.
+        double drift = -1.0 * nextSpeeds.omegaRadiansPerSecond * kDt;
+        double prevVx = prevSpeeds.vxMetersPerSecond * Math.cos(drift)
+                - prevSpeeds.vyMetersPerSecond * Math.sin(drift);
+        double prevVy = prevSpeeds.vxMetersPerSecond * Math.sin(drift)
+                + prevSpeeds.vyMetersPerSecond * Math.cos(drift);
+        double accel = Math.hypot(
+                nextSpeeds.vxMetersPerSecond - prevVx,
+                nextSpeeds.vyMetersPerSecond - prevVy) / kDt;
+        assertTrue(accel <= limits.getMaxCapsizeAccelM_S2() + kDelta, String.format("accel %f", accel));
+        SwerveModuleState100[] prevStates = prev.getModuleStates().all();
+        SwerveModuleState100[] nextStates = next.getModuleStates().all();
+        for (int i = 0; i < prevStates.length; ++i) {
+            assertTrue(Math.abs(nextStates[i].speedMetersPerSecond) <= limits.getMaxDriveVelocityM_S() + kDelta);
+            if (prevStates[i].angle.isEmpty() || nextStates[i].angle.isEmpty())
+                continue;
+            // a flip is free
+            double dtheta = Math.abs(MathUtil.angleModulus(2 * nextStates[i].angle.get().minus(
+                    prevStates[i].angle.get()).getRadians())) / 2;
+            assertTrue(dtheta / kDt <= limits.getMaxSteeringVelocityRad_S() + 0.1,
+                    String.format("%d steering %f", i, dtheta / kDt));
+        }
+    }
+
+    /** Moving in +x. */
+    private static SwerveSetpoint moving(double speedM_S) {
+        return new SwerveSetpoint(
+                new ChassisSpeeds(speedM_S, 0, 0),
+                new SwerveModuleStates(
+                        new SwerveModuleState100(speedM_S, Optional.of(GeometryUtil.kRotationZero)),
+                        new SwerveModuleState100(speedM_S, Optional.of(GeometryUtil.kRotationZero)),
+                        new SwerveModuleState100(speedM_S, Optional.of(GeometryUtil.kRotationZero)),
+                        new SwerveModuleState100(speedM_S, Optional.of(GeometryUtil.kRotationZero))));
+    }
+}
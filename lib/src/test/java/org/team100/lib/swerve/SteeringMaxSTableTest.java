@@ -0,0 +1,117 @@
+package org.team100.lib.swerve;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.framework.TimedRobot100;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.util.Util;
+
+class SteeringMaxSTableTest {
+    private static final double kTolerance = 0.01;
+    private static final SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+    private static final double kMaxDeviation = TimedRobot100.LOOP_PERIOD_S
+            * limits.getMaxSteeringVelocityRad_S();
+
+    @Test
+    void testSimple() {
+        SteeringMaxSTable table = new SteeringMaxSTable(limits);
+        // straight ahead
+        assertEquals(1, table.get(1, 0, 2, 0), kTolerance);
+        // no direction
+        assertTrue(Double.isNaN(table.get(0, 0, 1, 0)));
+        assertTrue(Double.isNaN(table.get(1, 0, 0, 0)));
+        // way faster
+        assertTrue(Double.isNaN(table.get(1, 0, 100, 1)));
+        // same as the solver
+        assertEquals(exact(1, 0, 0, 1), table.get(1, 0, 0, 1), kTolerance);
+        assertEquals(exact(0, 1, -1, 0), table.get(0, 1, -1, 0), kTolerance);
+    }
+
+    /** Wherever the table applies, it matches the solver. */
+    @Test
+    void testAccuracy() {
+        SteeringMaxSTable table = new SteeringMaxSTable(limits, kTolerance, 128);
+        Random random = new Random(0);
+        int n = 10000;
+        int fallbacks = 0;
+        double worst = 0;
+        for (int i = 0; i < n; ++i) {
+            double x_0 = random.nextDouble(-3, 3);
+            double y_0 = random.nextDouble(-3, 3);
+            double x_1;
+            double y_1;
+            if (random.nextBoolean()) {
+                // small change, which is the common case.
+                x_1 = x_0 + random.nextGaussian() * 0.5;
+                y_1 = y_0 + random.nextGaussian() * 0.5;
+            } else {
+                x_1 = random.nextDouble(-3, 3);
+                y_1 = random.nextDouble(-3, 3);
+            }
+            double s = table.get(x_0, y_0, x_1, y_1);
+            if (Double.isNaN(s)) {
+                fallbacks++;
+                continue;
+            }
+            worst = Math.max(worst, Math.abs(s - exact(x_0, y_0, x_1, y_1)));
+        }
+        Util.printf("invalid cells %d worst error %f fallbacks %d\n",
+                table.getInvalidCells(), worst, fallbacks);
+        assertTrue(worst <= kTolerance);
+        assertTrue(fallbacks < n / 10);
+    }
+
+    @Test
+    void testPerformance() {
+        SteeringMaxSTable table = new SteeringMaxSTable(limits);
+        int n = 1024;
+        double[] x0 = new double[n];
+        double[] y0 = new double[n];
+        double[] x1 = new double[n];
+        double[] y1 = new double[n];
+        Random random = new Random(0);
+        for (int i = 0; i < n; ++i) {
+            x0[i] = random.nextDouble(-3, 3);
+            y0[i] = random.nextDouble(-3, 3);
+            x1[i] = x0[i] + random.nextGaussian() * 0.5;
+            y1[i] = y0[i] + random.nextGaussian() * 0.5;
+        }
+        final int iterations = 1000;
+        double sink = 0;
+        for (int round = 0; round < 2; ++round) {
+            // the first round is warmup.
+            long t0 = System.nanoTime();
+            for (int j = 0; j < iterations; ++j) {
+                for (int i = 0; i < n; ++i) {
+                    sink += exact(x0[i], y0[i], x1[i], y1[i]);
+                }
+            }
+            long t1 = System.nanoTime();
+            for (int j = 0; j < iterations; ++j) {
+                for (int i = 0; i < n; ++i) {
+                    double s = table.get(x0[i], y0[i], x1[i], y1[i]);
+                    sink += Double.isNaN(s) ? exact(x0[i], y0[i], x1[i], y1[i]) : s;
+                }
+            }
+            long t2 = System.nanoTime();
+            if (round == 1) {
+                Util.printf("ns/call solver %5.1f table %5.1f\n",
+                        (double) (t1 - t0) / (iterations * n),
+                        (double) (t2 - t1) / (iterations * n));
+            }
+        }
+        assertTrue(Double.isFinite(sink));
+    }
+
+    private static double exact(double x_0, double y_0, double x_1, double y_1) {
+        return SwerveUtil.findSteeringMaxS(
+                x_0, y_0, Math.atan2(y_0, x_0),
+                x_1, y_1, Math.atan2(y_1, x_1),
+                kMaxDeviation, 10);
+    }
+}
@@ -140,6 +140,22 @@ class SwerveUtilTest {
         assertEquals(0.048, s, kDelta);
     }
 
+    @Test
+    void testFindDriveMaxSClosedForm() {
+        // same as the iterative solver
+        assertEquals(1, SwerveUtil.findDriveMaxSClosedForm(-1, 0, 1, 0, 0.1), kDelta);
+        assertEquals(0.2, SwerveUtil.findDriveMaxSClosedForm(0.5, 0, 1, 0, 0.1), kDelta);
+        assertEquals(
+                SwerveUtil.findDriveMaxS(1, 0, 0, 1, 0.1, 1000),
+                SwerveUtil.findDriveMaxSClosedForm(1, 0, 0, 1, 0.1), kDelta);
+        assertEquals(
+                SwerveUtil.findDriveMaxS(1, 0, -2, 1, 0.1, 1000),
+                SwerveUtil.findDriveMaxSClosedForm(1, 0, -2, 1, 0.1), kDelta);
+        // the speed at the result is exactly at the limit
+        double s = SwerveUtil.findDriveMaxSClosedForm(1, 0, -0.5, 0.2, 0.1);
+        assertEquals(0.9, Math.hypot(1 - 1.5 * s, 0.2 * s), 1e-9);
+    }
+
     @Test
     void testGetIsAccel() {
         // decelerating
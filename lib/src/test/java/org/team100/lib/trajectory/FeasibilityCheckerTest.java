@@ -0,0 +1,119 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamics;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.timing.ConstantConstraint;
+import org.team100.lib.timing.SwerveDriveDynamicsConstraint;
+import org.team100.lib.timing.TimedPose;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.trajectory.FeasibilityChecker.Report;
+import org.team100.lib.trajectory.FeasibilityChecker.Violation;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+
+class FeasibilityCheckerTest {
+    private static final SwerveKinodynamics limits = SwerveKinodynamicsFactory.forTest();
+    private static final List<TimingConstraint> constraints = List.of(new ConstantConstraint(1, 1));
+
+    @Test
+    void testFeasible() {
+        FeasibilityChecker checker = new FeasibilityChecker(limits, constraints);
+        Report report = checker.check(straight(0.8, 0.1, 30));
+        assertTrue(report.isFeasible(), report.toString());
+        assertTrue(report.worst().isEmpty());
+    }
+
+    @Test
+    void testTooFast() {
+        FeasibilityChecker checker = new FeasibilityChecker(limits, constraints);
+        Report report = checker.check(straight(1.5, 0.1, 50));
+        assertFalse(report.isFeasible());
+        List<Violation> violations = report.violations();
+        assertTrue(violations.stream().anyMatch(v -> v.constraint().equals(FeasibilityChecker.kModuleSpeed)));
+        assertTrue(violations.stream().anyMatch(v -> v.constraint().equals("ConstantConstraint")));
+        // back EMF limits acceleration near max speed
+        assertTrue(violations.stream().anyMatch(v -> v.constraint().equals(FeasibilityChecker.kModuleAccel)));
+        // top speed is 1.5, limit is 1.0
+        assertEquals(-0.5, violations.stream()
+                .filter(v -> v.constraint().equals(FeasibilityChecker.kModuleSpeed))
+                .mapToDouble(Violation::margin).min().getAsDouble(), 0.01);
+        // relative to its limit, the worst is the acceleration at top speed, where
+        // back EMF leaves nothing.
+        assertEquals(FeasibilityChecker.kModuleAccel, report.worst().get().constraint());
+        for (Violation v : violations) {
+            assertTrue(v.margin() < 0);
+        }
+    }
+
+    /** Margins in different units are compared relative to their limits. */
+    @Test
+    void testWorst() {
+        Report report = new Report(2, List.of(
+                new Violation(0, "big units", 100, 110),
+                new Violation(1, "small units", 1, 1.5)));
+        assertEquals(-10, report.violations().get(0).margin(), 1e-9);
+        assertEquals(-0.1, report.violations().get(0).relativeMargin(), 1e-9);
+        assertEquals(-0.5, report.violations().get(1).relativeMargin(), 1e-9);
+        assertEquals("small units", report.worst().get().constraint());
+    }
+
+    /** Long trajectories are checked in chunks; the result should be the same. */
+    @Test
+    void testChunks() {
+        FeasibilityChecker checker = new FeasibilityChecker(limits, constraints);
+        Trajectory100 trajectory = straight(1.5, 0.01, 1000);
+        Report report = checker.check(trajectory);
+        assertEquals(1000, report.samples());
+        List<Violation> violations = report.violations();
+        // in order
+        for (int i = 1; i < violations.size(); ++i) {
+            assertTrue(violations.get(i).index() >= violations.get(i - 1).index());
+        }
+        // every sample past the speed limit is reported
+        long tooFast = violations.stream()
+                .filter(v -> v.constraint().equals(FeasibilityChecker.kModuleSpeed))
+                .count();
+        long expected = trajectory.getPoints().stream()
+                .filter(p -> p.state().velocityM_S() > 1.0 * 1.01 + 1e-3)
+                .count();
+        assertEquals(expected, tooFast);
+
+        // the dynamics constraint is safe to evaluate in parallel, and makes no
+        // difference to the limiter checks.
+        FeasibilityChecker withDynamics = new FeasibilityChecker(limits, List.of(
+                new ConstantConstraint(1, 1), new SwerveDriveDynamicsConstraint(limits)));
+        assertEquals(tooFast, withDynamics.check(trajectory).violations().stream()
+                .filter(v -> v.constraint().equals(FeasibilityChecker.kModuleSpeed))
+                .count());
+    }
+
+    /**
+     * Straight line in x, accelerating at 0.5 m/s^2 up to the cruise speed.
+     */
+    private static Trajectory100 straight(double cruiseM_S, double dtS, int n) {
+        final double accel = 0.5;
+        List<TimedPose> states = new ArrayList<>();
+        double x = 0;
+        double v = 0;
+        for (int i = 0; i < n; ++i) {
+            double a = v < cruiseM_S ? accel : 0;
+            states.add(new TimedPose(
+                    new Pose2dWithMotion(new Pose2d(x, 0, new Rotation2d()), new Twist2d(1, 0, 0), 0, 0),
+                    i * dtS, v, a));
+            x += v * dtS + 0.5 * a * dtS * dtS;
+            v = Math.min(cruiseM_S, v + a * dtS);
+        }
+        return new Trajectory100(states);
+    }
+}
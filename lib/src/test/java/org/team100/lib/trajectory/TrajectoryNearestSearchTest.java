@@ -0,0 +1,72 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.timing.TimedPose;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+
+class TrajectoryNearestSearchTest {
+    private static final double kDelta = 0.001;
+
+    @Test
+    void testOnPath() {
+        // 1 m/s along x, 0.1 m per sample
+        TrajectoryNearestSearch search = new TrajectoryNearestSearch(line(100));
+        assertEquals(0, search.nearestTimeS(new Pose2d(0, 0, new Rotation2d())), kDelta);
+        assertEquals(0.05, search.nearestTimeS(new Pose2d(0.05, 0, new Rotation2d())), kDelta);
+        assertEquals(1.23, search.nearestTimeS(new Pose2d(1.23, 0, new Rotation2d())), kDelta);
+        // far ahead, but the window slides along
+        assertEquals(8.5, search.nearestTimeS(new Pose2d(8.5, 0.1, new Rotation2d())), kDelta);
+        assertEquals(0, search.getFallbacks());
+    }
+
+    @Test
+    void testBumped() {
+        // out along x and back, 0.5 m to the side
+        List<TimedPose> states = new ArrayList<>();
+        for (int i = 0; i <= 50; ++i) {
+            states.add(sample(0.1 * i, 0, 0.1 * i));
+        }
+        for (int i = 0; i <= 50; ++i) {
+            states.add(sample(5 - 0.1 * i, 0.5, 5.5 + 0.1 * i));
+        }
+        TrajectoryNearestSearch search = new TrajectoryNearestSearch(new Trajectory100(states));
+        assertEquals(1, search.nearestTimeS(new Pose2d(1, 0, new Rotation2d())), kDelta);
+        // bumped onto the return leg
+        assertEquals(9.5, search.nearestTimeS(new Pose2d(1, 0.6, new Rotation2d())), kDelta);
+        assertEquals(1, search.getFallbacks());
+        // nearby again
+        assertEquals(9.6, search.nearestTimeS(new Pose2d(0.9, 0.5, new Rotation2d())), kDelta);
+        assertEquals(1, search.getFallbacks());
+    }
+
+    @Test
+    void testOffTheEnd() {
+        TrajectoryNearestSearch search = new TrajectoryNearestSearch(line(10));
+        assertEquals(0.9, search.nearestTimeS(new Pose2d(3, 0, new Rotation2d())), kDelta);
+        assertEquals(0, search.nearestTimeS(new Pose2d(-3, 0, new Rotation2d())), kDelta);
+    }
+
+    /** n samples along x, 0.1 m and 0.1 s apart */
+    private static Trajectory100 line(int n) {
+        List<TimedPose> states = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            states.add(sample(0.1 * i, 0, 0.1 * i));
+        }
+        return new Trajectory100(states);
+    }
+
+    private static TimedPose sample(double x, double y, double t) {
+        return new TimedPose(
+                new Pose2dWithMotion(new Pose2d(x, y, new Rotation2d()), new Twist2d(1, 0, 0), 0, 0),
+                t, 1, 0);
+    }
+}
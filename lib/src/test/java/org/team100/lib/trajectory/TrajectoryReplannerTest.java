@@ -0,0 +1,138 @@
+package org.team100.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.geometry.Pose2dWithMotion;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.motion.drivetrain.SwerveState;
+import org.team100.lib.motion.drivetrain.kinodynamics.SwerveKinodynamicsFactory;
+import org.team100.lib.timing.TimedPose;
+import org.team100.lib.timing.TimingConstraint;
+import org.team100.lib.timing.TimingConstraintFactory;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+class TrajectoryReplannerTest {
+    private static final double kDelta = 0.05;
+    private static final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger());
+    private static final List<TimingConstraint> constraints = new TimingConstraintFactory(
+            SwerveKinodynamicsFactory.forTest()).forTest();
+
+    @Test
+    void testFirstPlan() {
+        // synchronous executor makes this deterministic
+        TrajectoryReplanner replanner = new TrajectoryReplanner(logger, constraints, 0.1, Runnable::run);
+        double lead = replanner.lead();
+        replanner.update(0, new SwerveState(), new Pose2d(2, 0, new Rotation2d()));
+        // the plan is ready but it starts at the splice time
+        assertTrue(replanner.poll(0).isEmpty());
+        Optional<TrajectoryTimeIterator> iter = replanner.poll(lead);
+        assertTrue(iter.isPresent());
+        TimedPose start = iter.get().getState().get();
+        assertEquals(0, start.state().getPose().getX(), kDelta);
+        assertEquals(0, start.velocityM_S(), kDelta);
+    }
+
+    @Test
+    void testSplice() {
+        TrajectoryReplanner replanner = new TrajectoryReplanner(logger, constraints, 0.1, Runnable::run);
+        double t = replanner.lead();
+        replanner.update(0, new SwerveState(), new Pose2d(2, 0, new Rotation2d()));
+        TrajectoryTimeIterator first = replanner.poll(t).get();
+
+        // follow for a while
+        first.advance(0.5);
+        t += 0.5;
+        double lead = replanner.lead();
+        TimedPose expected = first.preview(lead).get().state();
+        assertTrue(expected.velocityM_S() > 0.1);
+
+        // goal moves
+        replanner.update(t, new SwerveState(), new Pose2d(2, 0.5, new Rotation2d()));
+        TrajectoryTimeIterator second = replanner.poll(t + lead).get();
+        TimedPose actual = second.getState().get();
+
+        // new trajectory starts where the old one would be, at the same speed and
+        // course.
+        assertEquals(expected.state().getPose().getX(), actual.state().getPose().getX(), kDelta);
+        assertEquals(expected.state().getPose().getY(), actual.state().getPose().getY(), kDelta);
+        assertEquals(expected.velocityM_S(), actual.velocityM_S(), kDelta);
+        assertEquals(
+                expected.state().getCourse().get().getRadians(),
+                actual.state().getCourse().get().getRadians(),
+                kDelta);
+    }
+
+    @Test
+    void testRateLimit() {
+        TrajectoryReplanner replanner = new TrajectoryReplanner(logger, constraints, 0.1, Runnable::run);
+        replanner.update(0, new SwerveState(), new Pose2d(2, 0, new Rotation2d()));
+        assertTrue(replanner.poll(0).isPresent());
+        // too soon
+        replanner.update(0.05, new SwerveState(), new Pose2d(2, 0.5, new Rotation2d()));
+        assertTrue(replanner.poll(0.05).isEmpty());
+        // goal didn't move
+        replanner.update(0.2, new SwerveState(), new Pose2d(2, 0, new Rotation2d()));
+        assertTrue(replanner.poll(0.2).isEmpty());
+    }
+
+    /**
+     * The plan is ready well before the splice time, so it's held, and the
+     * follower keeps going on the old trajectory. When the new one is handed
+     * over, its first setpoint is where the old one is.
+     */
+    @Test
+    void testReadyEarly() {
+        TrajectoryReplanner replanner = new TrajectoryReplanner(logger, constraints, 0.1, Runnable::run);
+        double t = replanner.lead();
+        replanner.update(0, new SwerveState(), new Pose2d(2, 0, new Rotation2d()));
+        TrajectoryTimeIterator first = replanner.poll(t).get();
+        first.advance(0.5);
+        t += 0.5;
+        double lead = replanner.lead();
+        replanner.update(t, new SwerveState(), new Pose2d(2, 0.5, new Rotation2d()));
+        // follow the old one, one loop at a time, until the splice time.
+        double end = t + lead;
+        while (t + 0.02 < end) {
+            assertTrue(replanner.poll(t).isEmpty());
+            first.advance(0.02);
+            t += 0.02;
+        }
+        first.advance(end - t);
+        TimedPose expected = first.getState().get();
+        TimedPose actual = replanner.poll(end).get().getState().get();
+        assertEquals(expected.state().getPose().getX(), actual.state().getPose().getX(), kDelta);
+        assertEquals(expected.state().getPose().getY(), actual.state().getPose().getY(), kDelta);
+        assertEquals(expected.velocityM_S(), actual.velocityM_S(), kDelta);
+    }
+
+    /** If the planner throws, the old trajectory is kept. */
+    @Test
+    void testPlannerThrows() {
+        TimingConstraint broken = new TimingConstraint() {
+            @Override
+            public NonNegativeDouble getMaxVelocity(Pose2dWithMotion state) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public MinMaxAcceleration getMinMaxAcceleration(Pose2dWithMotion state, double velocityM_S) {
+                throw new IllegalStateException();
+            }
+        };
+        TrajectoryReplanner replanner = new TrajectoryReplanner(logger, List.of(broken), 0.1, Runnable::run);
+        replanner.update(0, new SwerveState(), new Pose2d(2, 0, new Rotation2d()));
+        assertTrue(replanner.poll(1).isEmpty());
+        // and it tries again
+        replanner.update(1, new SwerveState(), new Pose2d(2, 0, new Rotation2d()));
+        assertTrue(replanner.poll(2).isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package org.team100.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class MemoTest {
+    private int m_reads;
+    private int m_derived;
+    private double m_value;
+
+    @Test
+    void testOncePerLoop() {
+        Memo.DoubleCache c = Memo.ofDouble(() -> {
+            m_reads++;
+            return m_value;
+        });
+        assertEquals(0, c.getAsDouble());
+        m_value = 1;
+        assertEquals(0, c.getAsDouble());
+        assertEquals(1, m_reads);
+        Memo.resetAll();
+        assertEquals(1, c.getAsDouble());
+        assertEquals(2, m_reads);
+        assertEquals(1, c.getHits());
+        assertEquals(2, c.getMisses());
+    }
+
+    @Test
+    void testReset() {
+        Memo.CotemporalCache<String> c = Memo.of(() -> "x" + m_reads++);
+        assertEquals("x0", c.get());
+        assertEquals("x0", c.get());
+        c.reset();
+        assertEquals("x1", c.get());
+    }
+
+    /** Resetting a cache also resets the caches that read it. */
+    @Test
+    void testDependents() {
+        Memo.DoubleCache source = Memo.ofDouble(() -> {
+            m_reads++;
+            return m_value;
+        });
+        Memo.DoubleCache derived = Memo.ofDouble(() -> {
+            m_derived++;
+            return 2 * source.getAsDouble();
+        });
+        Memo.DoubleCache unrelated = Memo.ofDouble(() -> {
+            m_derived++;
+            return 3;
+        });
+        assertEquals(0, derived.getAsDouble());
+        assertEquals(3, unrelated.getAsDouble());
+        assertEquals(2, m_derived);
+        m_value = 1;
+        // mid-loop reset
+        source.reset();
+        assertEquals(2, derived.getAsDouble());
+        assertEquals(3, unrelated.getAsDouble());
+        // only the dependent was recomputed
+        assertEquals(3, m_derived);
+        assertEquals(2, m_reads);
+    }
+
+    @Test
+    void testShared() {
+        Memo.DoubleCache c = Memo.ofDoubleShared(() -> ++m_reads);
+        assertEquals(1, c.getAsDouble());
+        assertEquals(1, c.getAsDouble());
+        Memo.resetAll();
+        assertEquals(2, c.getAsDouble());
+    }
+
+    @Test
+    void testPerformance() {
+        Memo.DoubleCache plain = Memo.ofDouble(() -> m_value);
+        Memo.DoubleCache shared = Memo.ofDoubleShared(() -> m_value);
+        int iterations = 10000000;
+        double sum = 0;
+        for (int i = 0; i < iterations; ++i) {
+            sum += plain.getAsDouble() + shared.getAsDouble();
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            sum += plain.getAsDouble();
+        }
+        long t1 = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            sum += shared.getAsDouble();
+        }
+        long t2 = System.nanoTime();
+        // resetAll() also runs the reset actions, e.g. the experiments
+        // snapshot, if some other test has loaded it.
+        int resets = 100000;
+        for (int i = 0; i < resets; ++i) {
+            Memo.resetAll();
+        }
+        long t3 = System.nanoTime();
+        Util.printf("plain (ns) %.2f shared (ns) %.2f resetAll (ns) %.2f sum %f\n",
+                (double) (t1 - t0) / iterations,
+                (double) (t2 - t1) / iterations,
+                (double) (t3 - t2) / resets,
+                sum);
+    }
+}
@@ -0,0 +1,93 @@
+package org.team100.lib.visualization;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.team100.lib.logging.Level;
+import org.team100.lib.logging.LoggerFactory;
+import org.team100.lib.logging.TestLoggerFactory;
+import org.team100.lib.logging.primitive.TestPrimitiveLogger;
+import org.team100.lib.visualization.VizPublisher.Channel;
+import org.team100.lib.visualization.VizPublisher.Snapshot;
+
+class VizPublisherTest {
+    /** Keeps everything logged. */
+    private final List<double[]> m_logged = new ArrayList<>();
+    private final LoggerFactory logger = new TestLoggerFactory(new TestPrimitiveLogger() {
+        @Override
+        public PrimitiveDoubleArrayLogger doubleArrayLogger(String label) {
+            return m_logged::add;
+        }
+    });
+    /** Drained only by the test. */
+    private final VizPublisher publisher = new VizPublisher((r, p, n) -> {
+    }, 0.1);
+
+    private static Snapshot of(double... values) {
+        return new Snapshot() {
+            @Override
+            public int size() {
+                return values.length;
+            }
+
+            @Override
+            public void pack(double[] dst) {
+                System.arraycopy(values, 0, dst, 0, values.length);
+            }
+        };
+    }
+
+    @Test
+    void testNothing() {
+        publisher.channel(logger.doubleArrayLogger(Level.TRACE, "foo"));
+        publisher.drain();
+        assertEquals(0, m_logged.size());
+    }
+
+    /** Only the latest post is published. */
+    @Test
+    void testCoalesce() {
+        Channel channel = publisher.channel(logger.doubleArrayLogger(Level.TRACE, "foo"));
+        channel.post(of(1, 2, 3));
+        channel.post(of(4, 5, 6));
+        publisher.drain();
+        assertEquals(1, m_logged.size());
+        assertArrayEquals(new double[] { 4, 5, 6 }, m_logged.get(0));
+        // nothing new
+        publisher.drain();
+        assertEquals(1, m_logged.size());
+    }
+
+    @Test
+    void testTwoChannels() {
+        Channel foo = publisher.channel(logger.doubleArrayLogger(Level.TRACE, "foo"));
+        Channel bar = publisher.channel(logger.doubleArrayLogger(Level.TRACE, "bar"));
+        foo.post(of(1));
+        bar.post(of(2));
+        foo.post(of(3));
+        publisher.drain();
+        assertEquals(2, m_logged.size());
+        assertArrayEquals(new double[] { 3 }, m_logged.get(0));
+        assertArrayEquals(new double[] { 2 }, m_logged.get(1));
+    }
+
+    /** The array is reused until the size changes. */
+    @Test
+    void testReuse() {
+        Channel channel = publisher.channel(logger.doubleArrayLogger(Level.TRACE, "foo"));
+        channel.post(of(1, 2));
+        publisher.drain();
+        channel.post(of(3, 4));
+        publisher.drain();
+        channel.post(VizPublisher.kEmpty);
+        publisher.drain();
+        assertEquals(3, m_logged.size());
+        assertSame(m_logged.get(0), m_logged.get(1));
+        assertEquals(0, m_logged.get(2).length);
+    }
+}